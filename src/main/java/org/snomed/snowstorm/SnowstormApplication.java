@@ -140,7 +140,7 @@ public class SnowstormApplication extends Config implements ApplicationRunner {
 		// Import archive
 		String importId = importService.createJob(importType, "MAIN", true, false);
 		try (FileInputStream releaseFileStream = new FileInputStream(releasePath)) {
-			importService.importArchive(importId, releaseFileStream);
+			importService.importArchive(importId, releaseFileStream, new File(releasePath));
 		} catch (IOException | ReleaseImportException e) {
 			logger.error("Import failed.", e);
 		}
@@ -123,6 +123,12 @@ public abstract class Config extends ElasticsearchConfig {
 	@Autowired
 	private ConceptDefinitionStatusUpdateService conceptDefinitionStatusUpdateService;
 
+	@Autowired
+	private DescriptionAcceptabilityUpdateService descriptionAcceptabilityUpdateService;
+
+	@Autowired
+	private DescriptionConceptFieldsUpdateService descriptionConceptFieldsUpdateService;
+
 	@Autowired
 	private SemanticIndexUpdateService semanticIndexUpdateService;
 
@@ -156,13 +162,22 @@ public abstract class Config extends ElasticsearchConfig {
 	@Autowired
 	private RefsetDescriptorUpdaterService refsetDescriptorUpdaterService;
 
+	@Autowired
+	private BrowserConceptCache browserConceptCache;
+
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
 	@PostConstruct
 	public void configureCommitListeners() {
 		// Commit listeners will be called in this order
+		branchService.addCommitListener(branchCriteriaProvider);
 		branchService.addCommitListener(mrcmLoader);
 		branchService.addCommitListener(conceptDefinitionStatusUpdateService);
+		branchService.addCommitListener(descriptionAcceptabilityUpdateService);
+		branchService.addCommitListener(descriptionConceptFieldsUpdateService);
 		branchService.addCommitListener(semanticIndexUpdateService);
 		branchService.addCommitListener(mrcmUpdateService);
 		branchService.addCommitListener(branchClassificationStatusService);
@@ -171,6 +186,7 @@ public abstract class Config extends ElasticsearchConfig {
 		branchService.addCommitListener(integrityService);
 		branchService.addCommitListener(multiSearchService);
 		branchService.addCommitListener(eclPreprocessingService);
+		branchService.addCommitListener(browserConceptCache);
 		branchService.addCommitListener(commitServiceHookClient);
 		branchService.addCommitListener(BranchMetadataHelper::clearTransientMetadata);
 		branchService.addCommitListener(commit ->
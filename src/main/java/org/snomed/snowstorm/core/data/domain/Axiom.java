@@ -5,10 +5,11 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonView;
 import org.snomed.snowstorm.rest.View;
 
+import java.io.Serializable;
 import java.util.Set;
 
 @JsonView(value = View.Component.class)
-public class Axiom implements IdAndEffectiveTimeComponent {
+public class Axiom implements IdAndEffectiveTimeComponent, Serializable {
 
 	private String axiomId;
 	private String moduleId;
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonView;
 import org.snomed.snowstorm.rest.View;
 import org.springframework.data.annotation.Transient;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -13,7 +14,7 @@ import java.util.Objects;
  */
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 @JsonView(value = View.Component.class)
-public class ConcreteValue {
+public class ConcreteValue implements Serializable {
 
 	@Transient
 	private ConcreteValue.DataType dataType;
@@ -29,10 +29,14 @@ public class Description extends SnomedComponent<Description> implements SnomedC
 		String TERM = "term";
 		String TERM_FOLDED = "termFolded";
 		String TERM_LEN = "termLen";
+		String TERM_TRIGRAMS = "termTrigrams";
 		String TAG = "tag";
 		String CONCEPT_ID = "conceptId";
 		String TYPE_ID = "typeId";
 		String LANGUAGE_CODE = "languageCode";
+		String CONCEPT_ACTIVE = "conceptActive";
+		String CONCEPT_DEFINITION_STATUS_ID = "conceptDefinitionStatusId";
+		String CONCEPT_MODULE_ID = "conceptModuleId";
 	}
 
 	@JsonView(value = View.Component.class)
@@ -51,6 +55,9 @@ public class Description extends SnomedComponent<Description> implements SnomedC
 	@Field(type = FieldType.Integer)
 	private int termLen;
 
+	@Field(type = FieldType.Keyword)
+	private Set<String> termTrigrams;
+
 	@Field(type = FieldType.Keyword)
 	private String tag;
 
@@ -74,6 +81,16 @@ public class Description extends SnomedComponent<Description> implements SnomedC
 	@Size(min = 5, max = 18)
 	private String caseSignificanceId;
 
+	// Fields of the owning concept, denormalised at commit time.
+	@Field(type = FieldType.Boolean)
+	private Boolean conceptActive;
+
+	@Field(type = FieldType.Keyword)
+	private String conceptDefinitionStatusId;
+
+	@Field(type = FieldType.Keyword)
+	private String conceptModuleId;
+
 	// Populated when requesting an update
 	@Transient
 	private Map<String, String> acceptabilityMap;
@@ -288,6 +305,55 @@ public class Description extends SnomedComponent<Description> implements SnomedC
 		return this;
 	}
 
+	/**
+	 * @return true if the denormalised concept fields have been populated on this description version.
+	 */
+	@JsonIgnore
+	public boolean isConceptFieldsDenormalised() {
+		return conceptActive != null;
+	}
+
+	/**
+	 * Copies the active flag, definition status and module of the owning concept onto this description.
+	 * @return true if any of the denormalised values changed.
+	 */
+	public boolean setDenormalisedConceptFields(Concept concept) {
+		boolean changed = !Objects.equals(concept.isActive(), conceptActive)
+				|| !Objects.equals(concept.getDefinitionStatusId(), conceptDefinitionStatusId)
+				|| !Objects.equals(concept.getModuleId(), conceptModuleId);
+		conceptActive = concept.isActive();
+		conceptDefinitionStatusId = concept.getDefinitionStatusId();
+		conceptModuleId = concept.getModuleId();
+		return changed;
+	}
+
+	@JsonIgnore
+	public Boolean getConceptActive() {
+		return conceptActive;
+	}
+
+	public void setConceptActive(Boolean conceptActive) {
+		this.conceptActive = conceptActive;
+	}
+
+	@JsonIgnore
+	public String getConceptDefinitionStatusId() {
+		return conceptDefinitionStatusId;
+	}
+
+	public void setConceptDefinitionStatusId(String conceptDefinitionStatusId) {
+		this.conceptDefinitionStatusId = conceptDefinitionStatusId;
+	}
+
+	@JsonIgnore
+	public String getConceptModuleId() {
+		return conceptModuleId;
+	}
+
+	public void setConceptModuleId(String conceptModuleId) {
+		this.conceptModuleId = conceptModuleId;
+	}
+
 	@JsonView(value = View.Component.class)
 	public String getInactivationIndicator() {
 		Collection<ReferenceSetMember> inactivationIndicatorMembers = getInactivationIndicatorMembers();
@@ -399,6 +465,15 @@ public class Description extends SnomedComponent<Description> implements SnomedC
 		return termLen;
 	}
 
+	@JsonIgnore
+	public Set<String> getTermTrigrams() {
+		return termTrigrams;
+	}
+
+	public void setTermTrigrams(Set<String> termTrigrams) {
+		this.termTrigrams = termTrigrams;
+	}
+
 	public String getTag() {
 		if (Concepts.FSN.equals(typeId)) {
 			Matcher matcher = TAG_PATTERN.matcher(term);
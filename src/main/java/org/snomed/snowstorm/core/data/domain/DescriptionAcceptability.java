@@ -0,0 +1,108 @@
+package org.snomed.snowstorm.core.data.domain;
+
+import io.kaicode.elasticvc.domain.DomainEntity;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.util.*;
+
+/**
+ * The language reference sets where a description is preferred or acceptable, calculated from the language reference set members at commit time.
+ * Versioned alongside the content so that each branch has its own entries without creating new versions of the descriptions.
+ */
+@Document(indexName = "description-acceptability")
+public class DescriptionAcceptability extends DomainEntity<DescriptionAcceptability> {
+
+	public interface Fields {
+		String DESCRIPTION_ID = "descriptionId";
+		String CONCEPT_ID = "conceptId";
+		String PREFERRED_IN = "preferredIn";
+		String ACCEPTABLE_IN = "acceptableIn";
+	}
+
+	@Field(type = FieldType.Keyword)
+	private String descriptionId;
+
+	@Field(type = FieldType.Keyword)
+	private String conceptId;
+
+	@Field(type = FieldType.Keyword)
+	private Set<String> preferredIn;
+
+	@Field(type = FieldType.Keyword)
+	private Set<String> acceptableIn;
+
+	public DescriptionAcceptability() {
+	}
+
+	public DescriptionAcceptability(String descriptionId, String conceptId, Map<String, String> acceptabilityIdMap) {
+		this.descriptionId = descriptionId;
+		this.conceptId = conceptId;
+		preferredIn = new HashSet<>();
+		acceptableIn = new HashSet<>();
+		acceptabilityIdMap.forEach((refsetId, acceptabilityId) -> {
+			if (Concepts.PREFERRED.equals(acceptabilityId)) {
+				preferredIn.add(refsetId);
+			} else if (Concepts.ACCEPTABLE.equals(acceptabilityId)) {
+				acceptableIn.add(refsetId);
+			}
+		});
+		markChanged();
+	}
+
+	/**
+	 * @return map of language reference set id to acceptability id.
+	 */
+	public Map<String, String> getAcceptabilityIdMap() {
+		Map<String, String> map = new HashMap<>();
+		if (acceptableIn != null) {
+			acceptableIn.forEach(refsetId -> map.put(refsetId, Concepts.ACCEPTABLE));
+		}
+		if (preferredIn != null) {
+			preferredIn.forEach(refsetId -> map.put(refsetId, Concepts.PREFERRED));
+		}
+		return map;
+	}
+
+	public boolean fieldsMatch(DescriptionAcceptability other) {
+		return other != null
+				&& Objects.equals(conceptId, other.conceptId)
+				&& getAcceptabilityIdMap().equals(other.getAcceptabilityIdMap());
+	}
+
+	@Override
+	public String getId() {
+		return descriptionId;
+	}
+
+	@Override
+	public boolean isComponentChanged(DescriptionAcceptability existingComponent) {
+		return !fieldsMatch(existingComponent);
+	}
+
+	public String getDescriptionId() {
+		return descriptionId;
+	}
+
+	public String getConceptId() {
+		return conceptId;
+	}
+
+	public Set<String> getPreferredIn() {
+		return preferredIn;
+	}
+
+	public Set<String> getAcceptableIn() {
+		return acceptableIn;
+	}
+
+	@Override
+	public String toString() {
+		return "DescriptionAcceptability{" +
+				"descriptionId='" + descriptionId + '\'' +
+				", preferredIn=" + preferredIn +
+				", acceptableIn=" + acceptableIn +
+				'}';
+	}
+}
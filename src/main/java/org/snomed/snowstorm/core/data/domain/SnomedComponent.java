@@ -20,6 +20,7 @@ public abstract class SnomedComponent<C> extends DomainEntity<C> implements IdAn
 		String MODULE_ID = "moduleId";
 		String RELEASED = "released";
 		String RELEASE_HASH = "releaseHash";
+		String RELEASED_EFFECTIVE_TIME = "releasedEffectiveTime";
 		String PATH = "path";
 	}
 
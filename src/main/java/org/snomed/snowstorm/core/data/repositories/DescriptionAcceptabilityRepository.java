@@ -0,0 +1,8 @@
+package org.snomed.snowstorm.core.data.repositories;
+
+import org.snomed.snowstorm.core.data.domain.DescriptionAcceptability;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+
+public interface DescriptionAcceptabilityRepository extends ElasticsearchRepository<DescriptionAcceptability, String> {
+
+}
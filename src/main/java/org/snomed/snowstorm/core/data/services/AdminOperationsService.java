@@ -79,6 +79,9 @@ public class AdminOperationsService {
 	@Autowired
 	private BranchRepository branchRepository;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	@Autowired
 	private ConceptService conceptService;
 
@@ -108,10 +111,12 @@ public class AdminOperationsService {
 				if (exceptionThrown.get() == null) {
 
 					String newFoldedTerm = DescriptionHelper.foldTerm(description.getTerm(), foldedCharacters);
+					Set<String> newTermTrigrams = DescriptionHelper.getTermTrigrams(description.getTerm());
 					descriptionCount.incrementAndGet();
-					if (!newFoldedTerm.equals(description.getTermFolded())) {
+					if (!newFoldedTerm.equals(description.getTermFolded()) || !newTermTrigrams.equals(description.getTermTrigrams())) {
 						final Document document = Document.create();
 						document.put(Description.Fields.TERM_FOLDED, newFoldedTerm);
+						document.put(Description.Fields.TERM_TRIGRAMS, newTermTrigrams);
 						updateQueries.add(UpdateQuery.builder(description.getInternalId())
 								.withDocument(document)
 								.build());
@@ -134,7 +139,7 @@ public class AdminOperationsService {
 		} finally {
 			elasticsearchTemplate.indexOps(Description.class).refresh();
 		}
-		logger.info("Completed reindexing of description documents with language code '{}'. Of the {} documents found {} were updated due to a character folding change.",
+		logger.info("Completed reindexing of description documents with language code '{}'. Of the {} documents found {} were updated due to a character folding or trigram change.",
 				languageCode, descriptionCount.get(), descriptionUpdateCount.get());
 	}
 
@@ -200,6 +205,8 @@ public class AdminOperationsService {
 		}
 		latest.setVersionsReplaced(versionsReplaced);
 		branchRepository.save(latest);
+		// Branch documents are saved directly, not through a commit
+		branchCriteriaProvider.invalidate(branch);
 		return reducedByType;
 	}
 
@@ -301,6 +308,7 @@ public class AdminOperationsService {
 		logger.info("Deleting branch documents for path {}.", path);
 		elasticsearchTemplate.delete(deleteQuery, Branch.class, elasticsearchTemplate.getIndexCoordinatesFor(Branch.class));
 		elasticsearchTemplate.indexOps(Branch.class).refresh();
+		branchCriteriaProvider.invalidate(path);
 	}
 
 	public void deleteExtraInferredRelationships(String branchPath, InputStream relationshipsToKeepInputStream, int effectiveTime) throws IOException {
@@ -584,6 +592,8 @@ public class AdminOperationsService {
 		releaseBranchPromotionCommit.setContainsContent(false);
 
 		branchRepository.saveAll(Lists.newArrayList(codeSystemVersionCommit, promotionCommit, revertCommit, releaseFixBranch, releaseBranchPromotionCommit));
+		branchCriteriaProvider.invalidate(codeSystemPath);
+		branchCriteriaProvider.invalidate(releaseFixBranchPath);
 		logger.info("All content promoted and commits made. Fix promotion complete.");
 
 		codeSystemService.clearCache();
@@ -643,6 +653,7 @@ public class AdminOperationsService {
 				}
 			}
 		}
+		branchCriteriaProvider.invalidate(destinationBranchPath);
 	}
 
 	public void restoreReleasedStatus(String branchPath, Set<String> unbatchedConceptIds, boolean setDeletedComponentsToInactive) {
@@ -45,6 +45,9 @@ public class AuthoringStatsService {
 	@Autowired
 	private VersionControlHelper versionControlHelper;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	@Autowired
 	private ElasticsearchOperations elasticsearchOperations;
 
@@ -52,7 +55,7 @@ public class AuthoringStatsService {
 	private ConceptService conceptService;
 	
 	public AuthoringStatsSummary getStats(String branch) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 
 		TimerUtil timer = new TimerUtil("Authoring stats", Level.INFO, 5);
 
@@ -156,7 +159,7 @@ public class AuthoringStatsService {
 	}
 
 	public List<ConceptMicro> getNewConcepts(String branch, boolean unpromotedChangesOnly, List<LanguageDialect> languageDialects) {
-		BranchCriteria allContentBranchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria allContentBranchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		BranchCriteria selectionBranchCriteria = unpromotedChangesOnly ? versionControlHelper.getChangesOnBranchCriteria(branch) : allContentBranchCriteria;
 
 		List<Long> conceptIds = new LongArrayList();
@@ -167,7 +170,7 @@ public class AuthoringStatsService {
 	}
 	
 	public List<DescriptionMicro> getNewDescriptions(String branch, boolean unpromotedChangesOnly, List<LanguageDialect> languageDialects) {
-		BranchCriteria allContentBranchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria allContentBranchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		BranchCriteria selectionBranchCriteria = unpromotedChangesOnly ? versionControlHelper.getChangesOnBranchCriteria(branch) : allContentBranchCriteria;
 
 		Query query = getNewDescriptionCriteria(selectionBranchCriteria).withPageable(LARGE_PAGE).build();
@@ -178,7 +181,7 @@ public class AuthoringStatsService {
 	}
 
 	public List<ConceptMicro> getInactivatedConcepts(String branch, List<LanguageDialect> languageDialects) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 
 		List<Long> conceptIds = new LongArrayList();
 		try (SearchHitsIterator<Concept> stream = elasticsearchOperations.searchForStream(getInactivatedConceptsCriteria(branchCriteria).withPageable(LARGE_PAGE).build(), Concept.class)) {
@@ -188,7 +191,7 @@ public class AuthoringStatsService {
 	}
 
 	public List<ConceptMicro> getReactivatedConcepts(String branch, List<LanguageDialect> languageDialects) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 
 		List<Long> conceptIds = new LongArrayList();
 		try (SearchHitsIterator<Concept> stream = elasticsearchOperations.searchForStream(getReactivatedConceptsCriteria(branchCriteria).withPageable(LARGE_PAGE).build(), Concept.class)) {
@@ -198,7 +201,7 @@ public class AuthoringStatsService {
 	}
 
 	public List<ConceptMicro> getChangedFSNs(String branch, List<LanguageDialect> languageDialects) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 
 		List<Long> conceptIds = new LongArrayList();
 		try (SearchHitsIterator<Description> stream = elasticsearchOperations.searchForStream(getChangedFSNsCriteria(branchCriteria).withPageable(LARGE_PAGE).build(), Description.class)) {
@@ -208,17 +211,17 @@ public class AuthoringStatsService {
 	}
 
 	public List<ConceptMicro> getInactivatedSynonyms(String branch) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		return getDescriptionResults(getInactivatedSynonymCriteria(branchCriteria));
 	}
 
 	public List<ConceptMicro> getNewSynonymsOnExistingConcepts(String branch) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		return getDescriptionResults(getNewSynonymsOnExistingConceptsCriteria(branchCriteria, null));
 	}
 
 	public List<ConceptMicro> getReactivatedSynonyms(String branch) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		return getDescriptionResults(getReactivatedSynonymsCriteria(branchCriteria));
 	}
 
@@ -329,7 +332,7 @@ public class AuthoringStatsService {
 	}
 
 	private Map<String, Long> getModuleCounts(String branchPath, Class<? extends SnomedComponent<?>> componentClass) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		BoolQueryBuilder query = boolQuery()
 				.must(branchCriteria.getEntityBranchCriteria(componentClass)
 				.mustNot(existsQuery("end")));
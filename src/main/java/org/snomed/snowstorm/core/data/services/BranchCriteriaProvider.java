@@ -0,0 +1,157 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.kaicode.elasticvc.api.BranchCriteria;
+import io.kaicode.elasticvc.api.BranchService;
+import io.kaicode.elasticvc.api.CommitListener;
+import io.kaicode.elasticvc.api.VersionControlHelper;
+import io.kaicode.elasticvc.domain.Branch;
+import io.kaicode.elasticvc.domain.Commit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides branch criteria for the head of a branch, memoised per branch path to avoid reading the branch store on every request.
+ * Entries are invalidated by the commit listener chain when a commit on the branch, or promotion from the branch, completes.
+ * Criteria created while a commit is completing are not kept because they may be for the previous head.
+ * If that commit fails the branch is unlocked without a new head, criteria for the head of an unlocked branch are kept again.
+ * Entries also expire after a short time to pick up changes made by other instances sharing the same store.
+ */
+@Service
+public class BranchCriteriaProvider implements CommitListener {
+
+	@Value("${cache.branch-criteria.enabled}")
+	private boolean enabled;
+
+	@Autowired
+	private VersionControlHelper versionControlHelper;
+
+	@Autowired
+	private BranchService branchService;
+
+	private final Cache<String, BranchCriteria> cache;
+
+	// Incremented on every invalidation so that criteria created before the invalidation are not kept
+	private long generation;
+
+	// Timepoint of commits which may still be completing, by branch path
+	private final Map<String, Date> pendingCommits = new HashMap<>();
+
+	private final AtomicLong constructionCount = new AtomicLong();
+	private final AtomicLong constructionNanos = new AtomicLong();
+	private final AtomicLong constructionMaxNanos = new AtomicLong();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public BranchCriteriaProvider(@Value("${cache.branch-criteria.expire-after-write-seconds}") long expireAfterWriteSeconds) {
+		cache = Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+				.recordStats()
+				.build();
+	}
+
+	public BranchCriteria getBranchCriteria(String path) {
+		if (!enabled) {
+			return createBranchCriteria(path);
+		}
+
+		BranchCriteria branchCriteria = cache.getIfPresent(path);
+		if (branchCriteria != null) {
+			return branchCriteria;
+		}
+
+		long generationBefore;
+		Date pendingCommit;
+		synchronized (this) {
+			generationBefore = generation;
+			pendingCommit = pendingCommits.get(path);
+		}
+		branchCriteria = createBranchCriteria(path);
+		// Only keep the criteria if any pending commit has completed, or failed
+		boolean current = pendingCommit == null || !branchCriteria.getTimepoint().before(pendingCommit) || isHeadOfUnlockedBranch(path, branchCriteria);
+		synchronized (this) {
+			// and nothing was invalidated meanwhile
+			if (current && generation == generationBefore) {
+				cache.put(path, branchCriteria);
+				pendingCommits.remove(path);
+			}
+		}
+		return branchCriteria;
+	}
+
+	private boolean isHeadOfUnlockedBranch(String path, BranchCriteria branchCriteria) {
+		Branch branch = branchService.findLatest(path);
+		return branch != null && !branch.isLocked() && branchCriteria.getTimepoint().equals(branch.getHead());
+	}
+
+	private BranchCriteria createBranchCriteria(String path) {
+		long start = System.nanoTime();
+		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(path);
+		long nanos = System.nanoTime() - start;
+		constructionCount.incrementAndGet();
+		constructionNanos.addAndGet(nanos);
+		constructionMaxNanos.accumulateAndGet(nanos, Math::max);
+		return branchCriteria;
+	}
+
+	@Override
+	public void preCommitCompletion(Commit commit) throws IllegalStateException {
+		// The branch head changes when the commit completes, the source branch of a promotion also changes.
+		Set<String> paths = new HashSet<>();
+		paths.add(commit.getBranch().getPath());
+		if (commit.getSourceBranchPath() != null) {
+			paths.add(commit.getSourceBranchPath());
+		}
+		synchronized (this) {
+			generation++;
+			for (String path : paths) {
+				pendingCommits.put(path, commit.getTimepoint());
+				cache.invalidate(path);
+			}
+		}
+	}
+
+	/**
+	 * Invalidates the criteria of a branch which has been changed outside of a commit, for example by a rollback or deletion.
+	 */
+	public synchronized void invalidate(String path) {
+		generation++;
+		pendingCommits.remove(path);
+		cache.invalidate(path);
+	}
+
+	public Map<String, Number> getStats() {
+		CacheStats cacheStats = cache.stats();
+		Map<String, Number> stats = new LinkedHashMap<>();
+		stats.put("size", cache.estimatedSize());
+		stats.put("hits", cacheStats.hitCount());
+		stats.put("misses", cacheStats.missCount());
+		stats.put("hit-rate", cacheStats.hitRate());
+		long count = constructionCount.get();
+		stats.put("constructions", count);
+		stats.put("construction-total-millis", constructionNanos.get() / 1_000_000);
+		stats.put("construction-average-millis", count == 0 ? 0f : (constructionNanos.get() / (float) count) / 1_000_000f);
+		stats.put("construction-max-millis", constructionMaxNanos.get() / 1_000_000f);
+		return stats;
+	}
+
+	public synchronized void clearCache() {
+		generation++;
+		pendingCommits.clear();
+		cache.invalidateAll();
+		logger.info("Branch criteria cache cleared.");
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+}
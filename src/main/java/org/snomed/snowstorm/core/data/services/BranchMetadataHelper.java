@@ -25,6 +25,9 @@ public class BranchMetadataHelper {
 	private static final String DISABLE_CONTENT_AUTOMATIONS_TRANSIENT_METADATA_KEY = transientKey("disableContentAutomations");
 	private static final String CREATING_CODE_SYSTEM_VERSION_TRANSIENT_METADATA_KEY = transientKey("creatingCodeSystemVersion");
 	private static final String CLASSIFICATION_COMMIT_TRANSIENT_METADATA_KEY = transientKey("classificationCommit");
+	private static final String DEFER_SEMANTIC_INDEX_TRANSIENT_METADATA_KEY = transientKey("deferSemanticIndex");
+	// Kept on the branch until the next commit rebuilds the semantic index
+	private static final String SEMANTIC_INDEX_REBUILD_REQUIRED_METADATA_KEY = "semanticIndexRebuildRequired";
 
 	public static final String AUTHOR_FLAGS_METADATA_KEY = "authorFlags";
 	public static final String IMPORTING_CODE_SYSTEM_VERSION = "importingCodeSystemVersion";
@@ -63,6 +66,30 @@ public class BranchMetadataHelper {
 		return isTrue(getInternal(commit).get(CLASSIFICATION_COMMIT_TRANSIENT_METADATA_KEY));
 	}
 
+	/**
+	 * For intermediate commits of a change which spans several commits. The semantic index is not updated by this commit,
+	 * the next commit on the branch rebuilds it.
+	 */
+	public static void deferSemanticIndexForCommit(Commit commit) {
+		getInternal(commit).put(DEFER_SEMANTIC_INDEX_TRANSIENT_METADATA_KEY, "true");
+	}
+
+	public static boolean isSemanticIndexDeferredForCommit(Commit commit) {
+		return isTrue(getInternal(commit).get(DEFER_SEMANTIC_INDEX_TRANSIENT_METADATA_KEY));
+	}
+
+	public static void setSemanticIndexRebuildRequired(Commit commit, boolean rebuildRequired) {
+		if (rebuildRequired) {
+			getInternal(commit).put(SEMANTIC_INDEX_REBUILD_REQUIRED_METADATA_KEY, "true");
+		} else {
+			getInternal(commit).remove(SEMANTIC_INDEX_REBUILD_REQUIRED_METADATA_KEY);
+		}
+	}
+
+	public static boolean isSemanticIndexRebuildRequired(Commit commit) {
+		return isTrue(getInternal(commit).get(SEMANTIC_INDEX_REBUILD_REQUIRED_METADATA_KEY));
+	}
+
 	@SuppressWarnings("unchecked")
 	public static Map<String, Set<String>> getRebaseDuplicatesRemoved(Commit commit) {
 		final String key = transientKey("rebaseDuplicatesRemoved");
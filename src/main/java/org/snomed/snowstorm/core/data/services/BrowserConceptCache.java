@@ -0,0 +1,270 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.kaicode.elasticvc.api.BranchCriteria;
+import io.kaicode.elasticvc.api.CommitListener;
+import io.kaicode.elasticvc.api.VersionControlHelper;
+import io.kaicode.elasticvc.domain.Commit;
+import org.apache.commons.lang3.SerializationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snomed.snowstorm.core.data.domain.*;
+import org.snomed.snowstorm.core.pojo.BranchTimepoint;
+import org.snomed.snowstorm.core.pojo.LanguageDialect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static io.kaicode.elasticvc.api.ComponentService.LARGE_PAGE;
+import static io.kaicode.elasticvc.domain.Commit.CommitType.CONTENT;
+
+/**
+ * Bounded cache of concepts in the browser format, as loaded by the browser concept and bulk-load endpoints.
+ * Entries are keyed by branch path and head timestamp so are only ever used for the version of the branch they were loaded from.
+ * When a content commit is made the entries of concepts which are not touched by the commit are carried over to the new head,
+ * a concept is touched if any of its own components or the concepts it refers to in relationships or axioms were changed.
+ * Concepts loaded with a descendant count are not carried over because the count depends on other concepts.
+ * Only requests for the latest version of a branch are cached.
+ * Concepts are held in serialized form and each request is given its own copy, so callers are free to modify the concepts returned.
+ */
+@Service
+public class BrowserConceptCache implements CommitListener {
+
+	@Value("${cache.browser-concept.enabled}")
+	private boolean enabled;
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Autowired
+	private QueryService queryService;
+
+	@Autowired
+	private VersionControlHelper versionControlHelper;
+
+	@Autowired
+	private ElasticsearchOperations elasticsearchTemplate;
+
+	private final Cache<BrowserConceptCacheKey, CachedConcept> cache;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public BrowserConceptCache(@Value("${cache.browser-concept.max-size}") long maximumSize) {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build();
+	}
+
+	public Concept findBrowserConcept(String conceptId, List<LanguageDialect> languageDialects, BranchTimepoint branchTimepoint,
+			Relationship.CharacteristicType descendantCountForm) {
+
+		if (!enabled || !isLatestVersion(branchTimepoint)) {
+			Concept concept = conceptService.find(conceptId, languageDialects, branchTimepoint);
+			if (descendantCountForm != null) {
+				queryService.joinDescendantCount(concept, descendantCountForm, languageDialects, branchTimepoint);
+			}
+			return concept;
+		}
+
+		String path = branchTimepoint.getBranchPath();
+		BranchCriteria branchCriteria = conceptService.getBranchCriteria(path);
+		BrowserConceptCacheKey key = new BrowserConceptCacheKey(path, branchCriteria.getTimepoint(), conceptId, languageDialects, descendantCountForm);
+		CachedConcept cachedConcept = cache.getIfPresent(key);
+		if (cachedConcept != null) {
+			return cachedConcept.getConcept();
+		}
+
+		Collection<Concept> concepts = conceptService.find(branchCriteria, path, Collections.singleton(conceptId), languageDialects, true);
+		Concept concept = concepts.isEmpty() ? null : concepts.iterator().next();
+		if (concept != null) {
+			if (descendantCountForm != null) {
+				// Use the head timepoint so that the count is taken from the same version of the branch as the concept
+				queryService.joinDescendantCount(concept, descendantCountForm, languageDialects, new BranchTimepoint(path, branchCriteria.getTimepoint()));
+			}
+			cache.put(key, new CachedConcept(concept));
+		}
+		return concept;
+	}
+
+	public Collection<Concept> findBrowserConcepts(String path, Collection<String> conceptIds, List<LanguageDialect> languageDialects) {
+		if (!enabled || conceptIds == null || conceptIds.isEmpty()) {
+			return conceptService.find(path, conceptIds, languageDialects);
+		}
+		return findBrowserConcepts(path, conceptService.getBranchCriteria(path), conceptIds, languageDialects);
+	}
+
+	/**
+	 * Finds concepts using the given branch criteria, which must be for the head of the branch.
+	 * Used to load a large set of concepts in chunks from the same version of the branch.
+	 */
+	public Collection<Concept> findBrowserConcepts(String path, BranchCriteria branchCriteria, Collection<String> conceptIds, List<LanguageDialect> languageDialects) {
+		if (!enabled || conceptIds == null || conceptIds.isEmpty()) {
+			return conceptService.find(branchCriteria, path, conceptIds, languageDialects, true);
+		}
+
+		Date head = branchCriteria.getTimepoint();
+		List<Concept> concepts = new ArrayList<>();
+		Set<String> misses = new HashSet<>();
+		for (String conceptId : new LinkedHashSet<>(conceptIds)) {
+			CachedConcept cachedConcept = cache.getIfPresent(new BrowserConceptCacheKey(path, head, conceptId, languageDialects, null));
+			if (cachedConcept != null) {
+				concepts.add(cachedConcept.getConcept());
+			} else {
+				misses.add(conceptId);
+			}
+		}
+		if (!misses.isEmpty()) {
+			for (Concept concept : conceptService.find(branchCriteria, path, misses, languageDialects, true)) {
+				cache.put(new BrowserConceptCacheKey(path, head, concept.getConceptId(), languageDialects, null), new CachedConcept(concept));
+				concepts.add(concept);
+			}
+		}
+		return concepts;
+	}
+
+	private boolean isLatestVersion(BranchTimepoint branchTimepoint) {
+		return branchTimepoint.getTimepoint() == null && !branchTimepoint.isBranchCreationTimepoint() && !branchTimepoint.isBranchBaseTimepoint();
+	}
+
+	@Override
+	public void preCommitCompletion(Commit commit) throws IllegalStateException {
+		String path = commit.getBranch().getPath();
+		if (!enabled || cache.asMap().keySet().stream().noneMatch(key -> key.path.equals(path)
+				|| (commit.getSourceBranchPath() != null && key.path.equals(commit.getSourceBranchPath())))) {
+			return;
+		}
+
+		if (commit.getCommitType() == CONTENT) {
+			Date previousHead = commit.getBranch().getHead();
+			Set<String> touchedConceptIds = getTouchedConceptIds(commit);
+			int carriedOver = 0;
+			for (Map.Entry<BrowserConceptCacheKey, CachedConcept> entry : new ArrayList<>(cache.asMap().entrySet())) {
+				BrowserConceptCacheKey key = entry.getKey();
+				if (key.path.equals(path) && key.head.equals(previousHead) && key.descendantCountForm == null
+						&& !touchedConceptIds.contains(key.conceptId) && Collections.disjoint(entry.getValue().referencedConceptIds, touchedConceptIds)) {
+					cache.put(key.withHead(commit.getTimepoint()), entry.getValue());
+					carriedOver++;
+				}
+			}
+			cache.asMap().keySet().removeIf(key -> key.path.equals(path) && !key.head.equals(commit.getTimepoint()));
+			logger.debug("Browser concept cache carried over {} concepts to the new head of {}.", carriedOver, path);
+		} else {
+			// Rebase and promotion change the content of the whole branch
+			cache.asMap().keySet().removeIf(key -> key.path.equals(path) || key.path.equals(commit.getSourceBranchPath()));
+			logger.debug("Browser concept cache expired {}.", path);
+		}
+	}
+
+	private Set<String> getTouchedConceptIds(Commit commit) {
+		BranchCriteria changesCriteria = versionControlHelper.getBranchCriteriaChangesAndDeletionsWithinOpenCommitOnly(commit);
+		Set<String> conceptIds = new HashSet<>();
+		collectIds(changesCriteria, Concept.class, conceptIds, Concept::getConceptId, Concept.Fields.CONCEPT_ID);
+		collectIds(changesCriteria, Description.class, conceptIds, Description::getConceptId, Description.Fields.CONCEPT_ID);
+		collectIds(changesCriteria, Relationship.class, conceptIds, Relationship::getSourceId, Relationship.Fields.SOURCE_ID);
+		// Axioms and concept inactivation members refer to the concept, description members also carry the concept id
+		collectIds(changesCriteria, ReferenceSetMember.class, conceptIds, ReferenceSetMember::getReferencedComponentId, ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID);
+		collectIds(changesCriteria, ReferenceSetMember.class, conceptIds, ReferenceSetMember::getConceptId, ReferenceSetMember.Fields.CONCEPT_ID);
+		conceptIds.remove(null);
+		return conceptIds;
+	}
+
+	private <T> void collectIds(BranchCriteria changesCriteria, Class<T> componentClass, Set<String> ids, Function<T, String> idGetter, String idField) {
+		try (SearchHitsIterator<T> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(changesCriteria.getEntityBranchCriteria(componentClass))
+				.withFields(idField)
+				.withPageable(LARGE_PAGE).build(), componentClass)) {
+			stream.forEachRemaining(hit -> ids.add(idGetter.apply(hit.getContent())));
+		}
+	}
+
+	public Map<String, Number> getStats() {
+		CacheStats cacheStats = cache.stats();
+		Map<String, Number> stats = new LinkedHashMap<>();
+		stats.put("size", cache.estimatedSize());
+		cache.policy().eviction().ifPresent(eviction -> stats.put("max-size", eviction.getMaximum()));
+		stats.put("hits", cacheStats.hitCount());
+		stats.put("misses", cacheStats.missCount());
+		stats.put("hit-rate", cacheStats.hitRate());
+		stats.put("evictions", cacheStats.evictionCount());
+		return stats;
+	}
+
+	public void clearCache() {
+		cache.invalidateAll();
+		logger.info("Browser concept cache cleared.");
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	private static final class CachedConcept {
+
+		private final byte[] serializedConcept;
+
+		// Concepts shown as type and target minis, their terms and definition status are part of the cached view
+		private final Set<String> referencedConceptIds = new HashSet<>();
+
+		private CachedConcept(Concept concept) {
+			this.serializedConcept = SerializationUtils.serialize(concept);
+			concept.getRelationships().forEach(this::addReferencedConcepts);
+			concept.getClassAxioms().forEach(axiom -> axiom.getRelationships().forEach(this::addReferencedConcepts));
+			concept.getGciAxioms().forEach(axiom -> axiom.getRelationships().forEach(this::addReferencedConcepts));
+			referencedConceptIds.remove(null);
+		}
+
+		private Concept getConcept() {
+			return SerializationUtils.deserialize(serializedConcept);
+		}
+
+		private void addReferencedConcepts(Relationship relationship) {
+			referencedConceptIds.add(relationship.getTypeId());
+			referencedConceptIds.add(relationship.getDestinationId());
+		}
+	}
+
+	private static final class BrowserConceptCacheKey {
+
+		private final String path;
+		private final Date head;
+		private final String conceptId;
+		private final List<LanguageDialect> languageDialects;
+		private final Relationship.CharacteristicType descendantCountForm;
+
+		private BrowserConceptCacheKey(String path, Date head, String conceptId, List<LanguageDialect> languageDialects,
+				Relationship.CharacteristicType descendantCountForm) {
+			this.path = path;
+			this.head = head;
+			this.conceptId = conceptId;
+			this.languageDialects = languageDialects;
+			this.descendantCountForm = descendantCountForm;
+		}
+
+		private BrowserConceptCacheKey withHead(Date head) {
+			return new BrowserConceptCacheKey(path, head, conceptId, languageDialects, descendantCountForm);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			BrowserConceptCacheKey that = (BrowserConceptCacheKey) o;
+			return path.equals(that.path) && head.equals(that.head) && conceptId.equals(that.conceptId)
+					&& Objects.equals(languageDialects, that.languageDialects) && descendantCountForm == that.descendantCountForm;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, head, conceptId, languageDialects, descendantCountForm);
+		}
+	}
+}
@@ -474,6 +474,23 @@ public class CodeSystemService {
 		return null;
 	}
 
+	/**
+	 * @return true if the branch is a code system version branch, or a descendant of one.
+	 */
+	public boolean isVersionBranchOrDescendant(String branchPath) {
+		for (String path = branchPath; path != null; path = PathUtil.getParentPath(path)) {
+			String parentPath = PathUtil.getParentPath(path);
+			String branchName = path.substring(path.lastIndexOf('/') + 1);
+			if (parentPath != null && VERSION_BRANCH_NAME_PATTERN.matcher(branchName).matches()) {
+				Optional<CodeSystem> codeSystem = findByBranchPath(parentPath);
+				if (codeSystem.isPresent() && findVersion(codeSystem.get().getShortName(), branchName) != null) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	public List<CodeSystemVersion> findAllVersions(String shortName, boolean includeFutureVersions, boolean includeInternalReleases) {
 		return findAllVersions(shortName, true, includeFutureVersions, includeInternalReleases);
 	}
@@ -0,0 +1,195 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.collect.Iterables;
+import io.kaicode.elasticvc.api.BranchCriteria;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.ConceptMini;
+import org.snomed.snowstorm.core.data.domain.SnomedComponent;
+import org.snomed.snowstorm.core.pojo.LanguageDialect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.kaicode.elasticvc.api.ComponentService.CLAUSE_LIMIT;
+import static io.kaicode.elasticvc.api.ComponentService.LARGE_PAGE;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+
+/**
+ * Resolves the details needed for concept minis; definition status, module and active FSNs and synonyms with acceptability.
+ * Resolved concepts are held in a bounded cache keyed by branch path and head timestamp, misses are loaded in batches
+ * using only the fields required. Acceptability in all language reference sets is held so one entry serves any dialects.
+ * Callers must only pass branch criteria for the head of the branch, content within an open commit can still change.
+ * The weight of an entry is one plus the number of active descriptions.
+ */
+@Service
+public class ConceptMiniResolver {
+
+	static final String[] MINI_CONCEPT_FIELDS = {Concept.Fields.CONCEPT_ID, SnomedComponent.Fields.ACTIVE, SnomedComponent.Fields.EFFECTIVE_TIME,
+			SnomedComponent.Fields.MODULE_ID, Concept.Fields.DEFINITION_STATUS_ID};
+
+	@Value("${cache.concept-mini.enabled}")
+	private boolean enabled;
+
+	@Autowired
+	private DescriptionService descriptionService;
+
+	@Autowired
+	private ElasticsearchOperations elasticsearchTemplate;
+
+	private final Cache<ConceptMiniCacheKey, Concept> cache;
+
+	private final Map<String, Date> branchHeads = new ConcurrentHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public ConceptMiniResolver(@Value("${cache.concept-mini.max-weight}") long maximumWeight) {
+		cache = Caffeine.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher((ConceptMiniCacheKey key, Concept concept) -> 1 + concept.getDescriptions().size())
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * @return map of concept minis for the concepts which exist on the branch.
+	 */
+	public Map<String, ConceptMini> findConceptMinis(String path, BranchCriteria headBranchCriteria, Collection<String> conceptIds, List<LanguageDialect> languageDialects) {
+		Map<String, ConceptMini> minis = new HashMap<>();
+		for (Concept concept : resolve(path, headBranchCriteria, conceptIds)) {
+			minis.put(concept.getConceptId(), new ConceptMini(concept, languageDialects));
+		}
+		return minis;
+	}
+
+	/**
+	 * Populates the definition status, module and active descriptions of existing concept minis, for example relationship type and target placeholders.
+	 */
+	public void populateConceptMinis(String path, BranchCriteria headBranchCriteria, Map<String, ConceptMini> minisToPopulate) {
+		for (Concept concept : resolve(path, headBranchCriteria, minisToPopulate.keySet())) {
+			ConceptMini conceptMini = minisToPopulate.get(concept.getConceptId());
+			conceptMini.setDefinitionStatusId(concept.getDefinitionStatusId());
+			conceptMini.setModuleId(concept.getModuleId());
+			conceptMini.addActiveDescriptions(concept.getDescriptions());
+		}
+	}
+
+	private Collection<Concept> resolve(String path, BranchCriteria headBranchCriteria, Collection<String> conceptIds) {
+		if (conceptIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Date head = headBranchCriteria.getTimepoint();
+		if (!enabled) {
+			return load(headBranchCriteria, conceptIds).values();
+		}
+		expireIfHeadMoved(path, head);
+
+		List<Concept> concepts = new ArrayList<>();
+		Set<String> misses = new HashSet<>();
+		for (String conceptId : conceptIds) {
+			Concept concept = cache.getIfPresent(new ConceptMiniCacheKey(path, head, conceptId));
+			if (concept != null) {
+				concepts.add(concept);
+			} else {
+				misses.add(conceptId);
+			}
+		}
+		if (!misses.isEmpty()) {
+			Map<String, Concept> loaded = load(headBranchCriteria, misses);
+			loaded.forEach((conceptId, concept) -> cache.put(new ConceptMiniCacheKey(path, head, conceptId), concept));
+			concepts.addAll(loaded.values());
+		}
+		return concepts;
+	}
+
+	private Map<String, Concept> load(BranchCriteria branchCriteria, Collection<String> conceptIds) {
+		Map<String, Concept> conceptIdMap = new HashMap<>();
+		for (List<String> batch : Iterables.partition(conceptIds, CLAUSE_LIMIT)) {
+			try (SearchHitsIterator<Concept> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+					.withQuery(boolQuery()
+							.must(branchCriteria.getEntityBranchCriteria(Concept.class))
+							.filter(termsQuery(Concept.Fields.CONCEPT_ID, batch)))
+					.withSourceFilter(new FetchSourceFilter(MINI_CONCEPT_FIELDS, new String[]{}))
+					.withPageable(LARGE_PAGE).build(), Concept.class)) {
+				stream.forEachRemaining(hit -> conceptIdMap.put(hit.getContent().getConceptId(), hit.getContent()));
+			}
+		}
+		if (!conceptIdMap.isEmpty()) {
+			// All languages are joined because entries are shared between dialects
+			descriptionService.joinActiveDescriptionsForMinis(branchCriteria, conceptIdMap, null);
+		}
+		return conceptIdMap;
+	}
+
+	private void expireIfHeadMoved(String path, Date head) {
+		Date previousHead = branchHeads.put(path, head);
+		if (previousHead != null && !previousHead.equals(head)) {
+			// Entries for the old head can never be used again
+			cache.asMap().keySet().removeIf(key -> key.path.equals(path) && !key.head.equals(head));
+			logger.debug("Concept mini cache expired {}@{}", path, head.getTime());
+		}
+	}
+
+	public Map<String, Number> getStats() {
+		CacheStats cacheStats = cache.stats();
+		Map<String, Number> stats = new LinkedHashMap<>();
+		stats.put("size", cache.estimatedSize());
+		cache.policy().eviction().ifPresent(eviction -> {
+			stats.put("weight", eviction.weightedSize().orElse(0));
+			stats.put("max-weight", eviction.getMaximum());
+		});
+		stats.put("hits", cacheStats.hitCount());
+		stats.put("misses", cacheStats.missCount());
+		stats.put("hit-rate", cacheStats.hitRate());
+		stats.put("evictions", cacheStats.evictionCount());
+		return stats;
+	}
+
+	public void clearCache() {
+		cache.invalidateAll();
+		branchHeads.clear();
+		logger.info("Concept mini cache cleared.");
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	private static final class ConceptMiniCacheKey {
+
+		private final String path;
+		private final Date head;
+		private final String conceptId;
+
+		private ConceptMiniCacheKey(String path, Date head, String conceptId) {
+			this.path = path;
+			this.head = head;
+			this.conceptId = conceptId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			ConceptMiniCacheKey that = (ConceptMiniCacheKey) o;
+			return path.equals(that.path) && head.equals(that.head) && conceptId.equals(that.conceptId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, head, conceptId);
+		}
+	}
+}
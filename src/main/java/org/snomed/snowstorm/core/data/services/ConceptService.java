@@ -24,6 +24,7 @@ import org.snomed.snowstorm.core.pojo.LanguageDialect;
 import org.snomed.snowstorm.core.util.PageHelper;
 import org.snomed.snowstorm.core.util.TimerUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -32,6 +33,7 @@ import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.core.query.Query;
 import org.springframework.scheduling.annotation.Async;
@@ -41,11 +43,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -57,6 +62,9 @@ public class ConceptService extends ComponentService {
 
 	private static final Map<ComponentType, Class<? extends DomainEntity<?>>> COMPONENT_DOCUMENT_TYPES = new EnumMap<>(ComponentType.class);
 
+	// Version fields are included for the duplicate document check
+	private static final String[] MINI_CONCEPT_SOURCE_FIELDS = Stream.concat(Arrays.stream(ConceptMiniResolver.MINI_CONCEPT_FIELDS), Stream.of("path", "start")).toArray(String[]::new);
+
 	static {
 		COMPONENT_DOCUMENT_TYPES.put(ComponentType.Concept, Concept.class);
 		COMPONENT_DOCUMENT_TYPES.put(ComponentType.Description, Description.class);
@@ -82,6 +90,9 @@ public class ConceptService extends ComponentService {
 	@Autowired
 	private QueryConceptRepository queryConceptRepository;
 
+	@Autowired
+	private DescriptionAcceptabilityRepository descriptionAcceptabilityRepository;
+
 	@Autowired
 	private BranchService branchService;
 
@@ -97,6 +108,9 @@ public class ConceptService extends ComponentService {
 	@Autowired
 	private VersionControlHelper versionControlHelper;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	@Autowired
 	private ElasticsearchRestTemplate elasticsearchTemplate;
 
@@ -110,14 +124,38 @@ public class ConceptService extends ComponentService {
 	@Autowired
 	private RelationshipService relationshipService;
 
+	@Autowired
+	private ConceptMiniResolver conceptMiniResolver;
+
 	private final Cache<String, AsyncConceptChangeBatch> batchConceptChanges;
 
 	private final Cache<BranchTimepoint, BranchCriteria> branchCriteriaCache = CacheBuilder.newBuilder().expireAfterAccess(Duration.ofDays(1)).build();
 
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
-	public ConceptService() {
+	// Bounded pool for the component joins of browser concept loading, null if the joins run on the request thread
+	private final ExecutorService joinExecutor;
+
+	private boolean joinConcurrently;
+
+	public ConceptService(@Value("${concepts.load.join-threads}") int joinThreads) {
 		batchConceptChanges = CacheBuilder.newBuilder().expireAfterWrite(2, TimeUnit.HOURS).build();
+		joinExecutor = joinThreads > 0 ? Executors.newFixedThreadPool(joinThreads) : null;
+		joinConcurrently = joinExecutor != null;
+	}
+
+	@PreDestroy
+	public void shutdownJoinExecutor() {
+		if (joinExecutor != null) {
+			joinExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Switches concurrent component joins off or back on. Joins always run on the calling thread if the pool size is zero.
+	 */
+	public void setJoinConcurrently(boolean joinConcurrently) {
+		this.joinConcurrently = joinConcurrently && joinExecutor != null;
 	}
 
 	public Concept find(String id, String path) {
@@ -148,10 +186,17 @@ public class ConceptService extends ComponentService {
 	}
 
 	public Collection<Concept> find(BranchCriteria branchCriteria, String path, Collection<?> conceptIds, List<LanguageDialect> languageDialects) {
+		return find(branchCriteria, path, conceptIds, languageDialects, false);
+	}
+
+	/**
+	 * @param headBranchCriteria True if the branch criteria are for the head of the branch, concept minis are then resolved through the cache.
+	 */
+	public Collection<Concept> find(BranchCriteria branchCriteria, String path, Collection<?> conceptIds, List<LanguageDialect> languageDialects, boolean headBranchCriteria) {
 		if (isEmpty(conceptIds)) {
 			return Collections.emptySet();
 		}
-		return doFind(conceptIds, languageDialects, branchCriteria, PageRequest.of(0, conceptIds.size()), true, true, path).getContent();
+		return doFind(conceptIds, languageDialects, branchCriteria, PageRequest.of(0, conceptIds.size()), true, true, path, headBranchCriteria).getContent();
 	}
 
 	public Page<Concept> find(List<Long> conceptIds, List<LanguageDialect> languageDialects, String path, PageRequest pageRequest) {
@@ -263,7 +308,8 @@ public class ConceptService extends ComponentService {
 
 	private Page<Concept> doFind(Collection<?> conceptIds, List<LanguageDialect> languageDialects, BranchTimepoint branchTimepoint, PageRequest pageRequest) {
 		final BranchCriteria branchCriteria = getBranchCriteria(branchTimepoint);
-		return doFind(conceptIds, languageDialects, branchCriteria, pageRequest, true, true, branchTimepoint.getBranchPath());
+		boolean headBranchCriteria = branchTimepoint.getTimepoint() == null && !branchTimepoint.isBranchCreationTimepoint() && !branchTimepoint.isBranchBaseTimepoint();
+		return doFind(conceptIds, languageDialects, branchCriteria, pageRequest, true, true, branchTimepoint.getBranchPath(), headBranchCriteria);
 	}
 
 	protected BranchCriteria getBranchCriteria(String branchPath) {
@@ -280,9 +326,7 @@ public class ConceptService extends ComponentService {
 				Branch latest = branchService.findLatest(branchPath);
 				return getBranchCriteria(new BranchTimepoint(PathUtil.getParentPath(latest.getPath()), latest.getBase()));
 			} else if (branchTimepoint.getTimepoint() == null) {
-				// Lookup head date and re-enter method. Using a date prevents an old cache entry being hit after a new commit.
-				Branch latest = branchService.findLatest(branchPath);
-				return getBranchCriteria(new BranchTimepoint(branchPath, latest.getHead()));
+				return branchCriteriaProvider.getBranchCriteria(branchPath);
 			} else {
 				return branchCriteriaCache.get(branchTimepoint, () ->
 						versionControlHelper.getBranchCriteriaAtTimepoint(branchPath, branchTimepoint.getTimepoint()));
@@ -297,7 +341,20 @@ public class ConceptService extends ComponentService {
 			return new ResultMapPage<>(new HashMap<>(), 0);
 		}
 		final BranchCriteria branchCriteria = getBranchCriteria(path);
-		return findConceptMinis(branchCriteria, conceptIds, languageDialects);
+		return findConceptMinis(path, branchCriteria, conceptIds, languageDialects);
+	}
+
+	/**
+	 * Finds concept minis using the concept mini cache.
+	 * @param headBranchCriteria Branch criteria for the head of the branch, not including any open commit.
+	 */
+	public ResultMapPage<String, ConceptMini> findConceptMinis(String path, BranchCriteria headBranchCriteria, Collection<?> conceptIds, List<LanguageDialect> languageDialects) {
+		if (conceptIds.isEmpty()) {
+			return new ResultMapPage<>(new HashMap<>(), 0);
+		}
+		Set<String> conceptIdStrings = conceptIds.stream().map(Object::toString).collect(Collectors.toSet());
+		Map<String, ConceptMini> conceptMinis = conceptMiniResolver.findConceptMinis(path, headBranchCriteria, conceptIdStrings, languageDialects);
+		return new ResultMapPage<>(conceptMinis, conceptMinis.size());
 	}
 
 	public ResultMapPage<String, ConceptMini> findConceptMinis(BranchCriteria branchCriteria, List<LanguageDialect> languageDialects, PageRequest pageRequest) {
@@ -315,7 +372,7 @@ public class ConceptService extends ComponentService {
 		if (conceptIds != null && conceptIds.isEmpty()) {
 			return new ResultMapPage<>(new HashMap<>(), 0);
 		}
-		Page<Concept> concepts = doFind(conceptIds, languageDialects, branchCriteria, pageRequest, false, false, null);
+		Page<Concept> concepts = doFindForMinis(conceptIds, languageDialects, branchCriteria, pageRequest);
 		Map<String, Concept> conceptMap = new HashMap<>();
 		for (Concept concept : concepts) {
 			String id = concept.getId();
@@ -335,15 +392,37 @@ public class ConceptService extends ComponentService {
 	private void populateConceptMinis(BranchCriteria branchCriteria, Map<String, ConceptMini> minisToPopulate, List<LanguageDialect> languageDialects) {
 		if (!minisToPopulate.isEmpty()) {
 			Set<String> conceptIds = minisToPopulate.keySet();
-			Page<Concept> concepts = doFind(conceptIds, languageDialects, branchCriteria, PageRequest.of(0, conceptIds.size()), false, false, null);
+			Page<Concept> concepts = doFindForMinis(conceptIds, languageDialects, branchCriteria, PageRequest.of(0, conceptIds.size()));
 			concepts.getContent().forEach(c -> {
 				ConceptMini conceptMini = minisToPopulate.get(c.getConceptId());
 				conceptMini.setDefinitionStatus(c.getDefinitionStatus());
-				conceptMini.addActiveDescriptions(c.getDescriptions().stream().filter(SnomedComponent::isActive).collect(Collectors.toSet()));
+				conceptMini.addActiveDescriptions(c.getDescriptions());
 			});
 		}
 	}
 
+	/**
+	 * Mini loading profile. Loads only the concept fields used by concept minis and joins only the active FSNs and synonyms
+	 * in the languages of the requested dialects, without inactivation information.
+	 * The concepts returned are not complete and must only be used to create concept minis.
+	 */
+	private Page<Concept> doFindForMinis(Collection<?> conceptIdsToFind, List<LanguageDialect> languageDialects, BranchCriteria branchCriteria, PageRequest pageRequest) {
+		final TimerUtil timer = new TimerUtil("Find concept minis", Level.DEBUG);
+		Page<Concept> concepts = searchConcepts(conceptIdsToFind, branchCriteria, pageRequest, new FetchSourceFilter(MINI_CONCEPT_SOURCE_FIELDS, new String[]{}));
+		timer.checkpoint("find concept");
+
+		Map<String, Concept> conceptIdMap = new HashMap<>();
+		for (Concept concept : concepts) {
+			conceptIdMap.put(concept.getConceptId(), concept);
+		}
+		if (!conceptIdMap.isEmpty()) {
+			descriptionService.joinActiveDescriptionsForMinis(branchCriteria, conceptIdMap, languageDialects);
+			timer.checkpoint("get descriptions " + getFetchCount(conceptIdMap.size()));
+		}
+		timer.finish();
+		return concepts;
+	}
+
 	public Page<Concept> doFind(
 			Collection<?> conceptIdsToFind,
 			List<LanguageDialect> languageDialects,
@@ -351,70 +430,152 @@ public class ConceptService extends ComponentService {
 			PageRequest pageRequest,
 			boolean includeRelationships,
 			boolean includeDescriptionInactivationInfo,
-			String branchPath) {
+			String branchPath,
+			boolean headBranchCriteria) {
 
 		final TimerUtil timer = new TimerUtil("Find concept", Level.DEBUG);
 		timer.checkpoint("get branch criteria");
 
-		NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder();
+		Page<Concept> concepts = searchConcepts(conceptIdsToFind, branchCriteria, pageRequest, null);
+		timer.checkpoint("find concept");
+
+		Map<String, Concept> conceptIdMap = new HashMap<>();
+		for (Concept concept : concepts) {
+			concept.setRequestedLanguageDialects(languageDialects);
+			conceptIdMap.put(concept.getConceptId(), concept);
+			concept.getDescriptions().clear();
+			concept.getRelationships().clear();
+		}
+
+		if (includeRelationships) {
+			// Concept minis are created as placeholders by several joins at once
+			Map<String, ConceptMini> conceptMiniMap = new ConcurrentHashMap<>();
+
+			// Relationships, axioms and the descriptions of the concepts only depend on the concept ids so are joined concurrently.
+			CompletableFuture<Void> relationshipsJoined = runJoinStage("relationships", stageTimer ->
+					joinRelationships(conceptIdMap, conceptMiniMap, languageDialects, branchPath, branchCriteria, stageTimer, false));
+			CompletableFuture<Void> axiomsJoined = runJoinStage("axioms", stageTimer ->
+					joinAxioms(conceptIdMap, conceptMiniMap, languageDialects, branchCriteria, stageTimer));
+			CompletableFuture<Void> descriptionsJoined = runJoinStage("descriptions", stageTimer ->
+					descriptionService.joinDescriptions(branchCriteria, conceptIdMap, null, stageTimer, true, includeDescriptionInactivationInfo));
+
+			// The set of concept minis is only known once relationships and axioms are joined.
+			awaitJoinStages(relationshipsJoined, axiomsJoined);
+			timer.checkpoint("get relationships and axioms " + getFetchCount(conceptIdMap.size()));
+
+			if (branchPath != null && headBranchCriteria) {
+				// Type and target concepts are mostly the same between requests so are resolved through the cache
+				CompletableFuture<Void> minisJoined = runJoinStage("concept minis", stageTimer -> {
+					conceptMiniResolver.populateConceptMinis(branchPath, branchCriteria, conceptMiniMap);
+					stageTimer.checkpoint("resolve concept minis " + getFetchCount(conceptMiniMap.size()));
+				});
+				awaitJoinStages(descriptionsJoined, minisJoined);
+			} else {
+				CompletableFuture<Void> miniDefinitionStatusesJoined = runJoinStage("concept mini definition statuses", stageTimer ->
+						joinConceptMiniDefinitionStatuses(conceptMiniMap, branchCriteria, stageTimer));
+				CompletableFuture<Void> miniDescriptionsJoined = runJoinStage("concept mini descriptions", stageTimer ->
+						descriptionService.joinDescriptions(branchCriteria, null, conceptMiniMap, stageTimer, true, false));
+				awaitJoinStages(descriptionsJoined, miniDefinitionStatusesJoined, miniDescriptionsJoined);
+			}
+			timer.checkpoint("get descriptions and concept minis " + getFetchCount(conceptIdMap.size() + conceptMiniMap.size()));
+		} else {
+			descriptionService.joinDescriptions(branchCriteria, conceptIdMap, null, timer, true, includeDescriptionInactivationInfo);
+		}
+
+		conceptAttributeSortHelper.sortAttributes(conceptIdMap.values());
+		timer.checkpoint("Sort attributes");
+
+		timer.finish();
+
+		return concepts;
+	}
 
-		Page<Concept> concepts;
+	private Page<Concept> searchConcepts(Collection<?> conceptIdsToFind, BranchCriteria branchCriteria, PageRequest pageRequest, FetchSourceFilter sourceFilter) {
 		if (conceptIdsToFind != null && !conceptIdsToFind.isEmpty()) {
 			List<Concept> allConcepts = new ArrayList<>();
 			long total = 0;
 			for (List<?> conceptIdsToFindSegment : Iterables.partition(conceptIdsToFind, CLAUSE_LIMIT)) {
-				queryBuilder
+				NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
 						.withQuery(boolQuery()
 								.must(branchCriteria.getEntityBranchCriteria(Concept.class))
 								.must(termsQuery("conceptId", conceptIdsToFindSegment))
 						)
 						.withPageable(PageRequest.of(0, conceptIdsToFindSegment.size()));
+				if (sourceFilter != null) {
+					queryBuilder.withSourceFilter(sourceFilter);
+				}
 				SearchHits<Concept> searchHits = elasticsearchTemplate.search(queryBuilder.build(), Concept.class);
 				allConcepts.addAll(searchHits.stream().map(SearchHit::getContent).collect(Collectors.toList()));
 				total += searchHits.getTotalHits();
 			}
-			concepts = new PageImpl<>(allConcepts, pageRequest, total);
+			return new PageImpl<>(allConcepts, pageRequest, total);
 		} else {
-			Query conceptQuery = new NativeSearchQueryBuilder()
+			NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
 					.withQuery(boolQuery().must(branchCriteria.getEntityBranchCriteria(Concept.class)))
-					.withPageable(pageRequest)
-					.build();
+					.withPageable(pageRequest);
+			if (sourceFilter != null) {
+				queryBuilder.withSourceFilter(sourceFilter);
+			}
+			Query conceptQuery = queryBuilder.build();
 			conceptQuery.setTrackTotalHits(true);
 			SearchHits<Concept> searchHits = elasticsearchTemplate.search(conceptQuery, Concept.class);
-			concepts = PageHelper.toSearchAfterPage(searchHits, pageRequest);
+			return PageHelper.toSearchAfterPage(searchHits, pageRequest);
 		}
-		timer.checkpoint("find concept");
+	}
 
-		Map<String, Concept> conceptIdMap = new HashMap<>();
-		for (Concept concept : concepts) {
-			concept.setRequestedLanguageDialects(languageDialects);
-			conceptIdMap.put(concept.getConceptId(), concept);
-			concept.getDescriptions().clear();
-			concept.getRelationships().clear();
+	/**
+	 * Runs one stage of the concept join phase on the join pool, or on the calling thread if concurrent joins are switched off.
+	 * Each stage has its own timer because timers are not thread safe, this also gives a duration for each stage.
+	 */
+	private CompletableFuture<Void> runJoinStage(String stageName, Consumer<TimerUtil> stage) {
+		Runnable runnable = () -> {
+			TimerUtil stageTimer = new TimerUtil("Find concept - " + stageName, Level.DEBUG);
+			stage.accept(stageTimer);
+			stageTimer.finish();
+		};
+		if (joinConcurrently) {
+			return CompletableFuture.runAsync(runnable, joinExecutor);
+		}
+		try {
+			runnable.run();
+			return CompletableFuture.completedFuture(null);
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
 		}
+	}
 
-		Map<String, ConceptMini> conceptMiniMap = new HashMap<>();
+	private void awaitJoinStages(CompletableFuture<?>... stages) {
+		try {
+			CompletableFuture.allOf(stages).join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeServiceException("Failed to join concept components.", cause);
+		}
+	}
 
-		if (includeRelationships) {
-			// Fetch Relationships
-			joinRelationships(conceptIdMap, conceptMiniMap, languageDialects, branchPath, branchCriteria, timer, false);
-
-			// Fetch Axioms
-			for (List<String> conceptIds : Iterables.partition(conceptIdMap.keySet(), CLAUSE_LIMIT)) {
-				queryBuilder.withQuery(boolQuery()
-						.must(termQuery(ReferenceSetMember.Fields.REFSET_ID, Concepts.OWL_AXIOM_REFERENCE_SET))
-						.must(termsQuery(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, conceptIds))
-						.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class)))
-						.withPageable(LARGE_PAGE);
-
-				try (final SearchHitsIterator<ReferenceSetMember> axiomMembers = elasticsearchTemplate.searchForStream(queryBuilder.build(), ReferenceSetMember.class)) {
-					axiomMembers.forEachRemaining(axiomMember -> joinAxiom(axiomMember.getContent(), conceptIdMap, conceptMiniMap, languageDialects));
-				}
+	private void joinAxioms(Map<String, Concept> conceptIdMap, Map<String, ConceptMini> conceptMiniMap, List<LanguageDialect> languageDialects,
+			BranchCriteria branchCriteria, TimerUtil timer) {
+
+		NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder();
+		for (List<String> conceptIds : Iterables.partition(conceptIdMap.keySet(), CLAUSE_LIMIT)) {
+			queryBuilder.withQuery(boolQuery()
+					.must(termQuery(ReferenceSetMember.Fields.REFSET_ID, Concepts.OWL_AXIOM_REFERENCE_SET))
+					.must(termsQuery(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, conceptIds))
+					.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class)))
+					.withPageable(LARGE_PAGE);
+
+			try (final SearchHitsIterator<ReferenceSetMember> axiomMembers = elasticsearchTemplate.searchForStream(queryBuilder.build(), ReferenceSetMember.class)) {
+				axiomMembers.forEachRemaining(axiomMember -> joinAxiom(axiomMember.getContent(), conceptIdMap, conceptMiniMap, languageDialects));
 			}
-			timer.checkpoint("get axioms " + getFetchCount(conceptIdMap.size()));
 		}
+		timer.checkpoint("get axioms " + getFetchCount(conceptIdMap.size()));
+	}
 
-		// Fetch ConceptMini definition statuses
+	private void joinConceptMiniDefinitionStatuses(Map<String, ConceptMini> conceptMiniMap, BranchCriteria branchCriteria, TimerUtil timer) {
+		NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder();
 		for (List<String> conceptIds : Iterables.partition(conceptMiniMap.keySet(), CLAUSE_LIMIT)) {
 			queryBuilder.withQuery(boolQuery()
 					.must(termsQuery("conceptId", conceptIds))
@@ -431,15 +592,6 @@ public class ConceptService extends ComponentService {
 			}
 		}
 		timer.checkpoint("get relationship def status " + getFetchCount(conceptMiniMap.size()));
-
-		descriptionService.joinDescriptions(branchCriteria, conceptIdMap, conceptMiniMap, timer, true, includeDescriptionInactivationInfo);
-
-		conceptAttributeSortHelper.sortAttributes(conceptIdMap.values());
-		timer.checkpoint("Sort attributes");
-
-		timer.finish();
-
-		return concepts;
 	}
 
 	public void joinRelationships(Map<String, Concept> conceptIdMap, Map<String, ConceptMini> typeAndTargetConceptMiniMap, List<LanguageDialect> languageDialects,
@@ -733,7 +885,7 @@ public class ConceptService extends ComponentService {
 		if (!conceptIds.isEmpty()) {
 			for (List<String> conceptIdPartition : Iterables.partition(conceptIds, 500)) {
 				final BranchCriteria branchCriteria = versionControlHelper.getBranchCriteriaIncludingOpenCommit(commit);
-				final List<Concept> existingConcepts = doFind(conceptIdPartition, DEFAULT_LANGUAGE_DIALECTS, branchCriteria, PageRequest.of(0, conceptIds.size()), true, true, null).getContent();
+				final List<Concept> existingConcepts = doFind(conceptIdPartition, DEFAULT_LANGUAGE_DIALECTS, branchCriteria, PageRequest.of(0, conceptIds.size()), true, true, null, false).getContent();
 				for (Concept existingConcept : existingConcepts) {
 					existingConceptsMap.put(existingConcept.getConceptId(), existingConcept);
 				}
@@ -764,7 +916,8 @@ public class ConceptService extends ComponentService {
 				executorService.submit(() -> descriptionRepository.deleteAll()),
 				executorService.submit(() -> relationshipRepository.deleteAll()),
 				executorService.submit(() -> referenceSetMemberRepository.deleteAll()),
-				executorService.submit(() -> queryConceptRepository.deleteAll())
+				executorService.submit(() -> queryConceptRepository.deleteAll()),
+				executorService.submit(() -> descriptionAcceptabilityRepository.deleteAll())
 		);
 		for (int i = 0; i < futures.size(); i++) {
 			getFutureWithTimeoutOrCancel(futures.get(i), i);
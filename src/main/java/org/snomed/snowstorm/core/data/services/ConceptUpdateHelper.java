@@ -500,6 +500,7 @@ public class ConceptUpdateHelper extends ComponentService {
 		for (Description description : descriptions) {
 			description.setTermFolded(DescriptionHelper.foldTerm(description.getTerm(),
 					charactersNotFoldedSets.getOrDefault(description.getLanguageCode(), Collections.emptySet())));
+			description.setTermTrigrams(DescriptionHelper.getTermTrigrams(description.getTerm()));
 		}
 		doSaveBatchComponents(descriptions, commit, "descriptionId", descriptionRepository);
 	}
@@ -0,0 +1,162 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.google.common.collect.Iterables;
+import io.kaicode.elasticvc.api.BranchCriteria;
+import io.kaicode.elasticvc.domain.Branch;
+import io.kaicode.elasticvc.domain.Commit;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.snomed.snowstorm.core.data.domain.Concepts;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.domain.DescriptionAcceptability;
+import org.snomed.snowstorm.core.data.domain.ReferenceSetMember;
+import org.snomed.snowstorm.core.data.repositories.DescriptionAcceptabilityRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Maintains the description acceptability index so that PT/FSN selection can be done without joining language reference set members.
+ * Entries are recalculated for descriptions which are changed, or have language reference set members changed.
+ * The entries are versioned separately from the descriptions so that a member change on a branch does not create a new version of the description.
+ */
+@Service
+public class DescriptionAcceptabilityUpdateService extends DescriptionDenormalisationUpdateService {
+
+	@Value("${search.description.acceptability-denormalisation.enabled}")
+	private boolean enabled;
+
+	@Autowired
+	private DescriptionAcceptabilityRepository descriptionAcceptabilityRepository;
+
+	public void updateAllDescriptionAcceptability(String path) throws ServiceException {
+		updateAll(path);
+	}
+
+	/**
+	 * @return the acceptability index entries of the given descriptions, entries will be missing for descriptions which have not been indexed.
+	 */
+	public Map<String, DescriptionAcceptability> findDescriptionAcceptability(Collection<String> descriptionIds, BranchCriteria branchCriteria) {
+		Map<String, DescriptionAcceptability> acceptability = new HashMap<>();
+		for (List<String> batch : Iterables.partition(descriptionIds, CLAUSE_LIMIT)) {
+			try (final SearchHitsIterator<DescriptionAcceptability> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+					.withQuery(boolQuery()
+							.must(branchCriteria.getEntityBranchCriteria(DescriptionAcceptability.class))
+							.filter(termsQuery(DescriptionAcceptability.Fields.DESCRIPTION_ID, batch)))
+					.withPageable(LARGE_PAGE).build(), DescriptionAcceptability.class)) {
+				stream.forEachRemaining(hit -> acceptability.put(hit.getContent().getDescriptionId(), hit.getContent()));
+			}
+		}
+		return acceptability;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	protected String getValuesName() {
+		return "description acceptability";
+	}
+
+	@Override
+	protected void beforeRebase(Commit commit) {
+		// Entries on this branch may now hide newer entries from the parent, recreate them from the new parent base point + content on this branch
+		versionControlHelper.endAllVersionsOnThisBranch(DescriptionAcceptability.class, null, commit, descriptionAcceptabilityRepository);
+
+		// Restore versions from parent branches which were ended on this branch
+		Branch branch = commit.getBranch();
+		Map<String, Set<String>> versionsReplaced = branch.getVersionsReplaced();
+		versionsReplaced.put(DescriptionAcceptability.class.getSimpleName(), new HashSet<>());
+		branch.setVersionsReplaced(versionsReplaced);
+	}
+
+	@Override
+	protected Set<Long> getIdsToCheck(BranchCriteria branchCriteria) {
+		Set<Long> descriptionIds = new LongOpenHashSet();
+		collectIds(branchCriteria.getEntityBranchCriteria(Description.class),
+				Description.Fields.DESCRIPTION_ID, Description.class, Description::getDescriptionId, descriptionIds);
+		collectIds(boolQuery()
+						.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class))
+						.must(existsQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH)),
+				ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, ReferenceSetMember.class, ReferenceSetMember::getReferencedComponentId, descriptionIds);
+		return descriptionIds;
+	}
+
+	@Override
+	protected int updateBatch(Collection<Long> descriptionIds, Commit commit) {
+		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteriaIncludingOpenCommit(commit);
+		Map<String, String> descriptionConceptIds = getDescriptionConceptIds(descriptionIds, branchCriteria);
+		Map<String, Map<String, String>> acceptabilityMaps = getAcceptabilityMaps(descriptionIds, branchCriteria);
+		Map<String, DescriptionAcceptability> existingEntries = findDescriptionAcceptability(
+				descriptionIds.stream().map(Object::toString).collect(Collectors.toList()), branchCriteria);
+
+		List<DescriptionAcceptability> toSave = new ArrayList<>();
+		for (Long id : descriptionIds) {
+			String descriptionId = id.toString();
+			String conceptId = descriptionConceptIds.get(descriptionId);
+			DescriptionAcceptability existing = existingEntries.get(descriptionId);
+			if (conceptId == null) {
+				// Description deleted
+				if (existing != null) {
+					existing.markDeleted();
+					toSave.add(existing);
+				}
+			} else {
+				DescriptionAcceptability entry = new DescriptionAcceptability(descriptionId, conceptId, acceptabilityMaps.getOrDefault(descriptionId, Collections.emptyMap()));
+				if (!entry.fieldsMatch(existing)) {
+					toSave.add(entry);
+				}
+			}
+		}
+		if (!toSave.isEmpty()) {
+			doSaveBatchComponents(toSave, commit, DescriptionAcceptability.Fields.DESCRIPTION_ID, descriptionAcceptabilityRepository);
+		}
+		return toSave.size();
+	}
+
+	private Map<String, String> getDescriptionConceptIds(Collection<Long> descriptionIds, BranchCriteria branchCriteria) {
+		Map<String, String> descriptionConceptIds = new HashMap<>();
+		try (final SearchHitsIterator<Description> descriptions = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(boolQuery()
+						.must(branchCriteria.getEntityBranchCriteria(Description.class))
+						.filter(termsQuery(Description.Fields.DESCRIPTION_ID, descriptionIds)))
+				.withFields(Description.Fields.DESCRIPTION_ID, Description.Fields.CONCEPT_ID)
+				.withPageable(LARGE_PAGE).build(), Description.class)) {
+			descriptions.forEachRemaining(hit -> descriptionConceptIds.put(hit.getContent().getDescriptionId(), hit.getContent().getConceptId()));
+		}
+		return descriptionConceptIds;
+	}
+
+	private Map<String, Map<String, String>> getAcceptabilityMaps(Collection<Long> descriptionIds, BranchCriteria branchCriteria) {
+		Map<String, Map<String, String>> acceptabilityMaps = new HashMap<>();
+		try (final SearchHitsIterator<ReferenceSetMember> members = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(boolQuery()
+						.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class))
+						.must(termQuery(ReferenceSetMember.Fields.ACTIVE, true))
+						.must(termsQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Concepts.PREFERRED, Concepts.ACCEPTABLE))
+						.filter(termsQuery(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, descriptionIds)))
+				.withFields(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, ReferenceSetMember.Fields.REFSET_ID, ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH)
+				.withPageable(LARGE_PAGE).build(), ReferenceSetMember.class)) {
+			members.forEachRemaining(hit -> {
+				ReferenceSetMember member = hit.getContent();
+				Map<String, String> acceptabilityMap = acceptabilityMaps.computeIfAbsent(member.getReferencedComponentId(), id -> new HashMap<>());
+				// Preferred wins if there are duplicate members in the same refset
+				acceptabilityMap.merge(member.getRefsetId(), member.getAdditionalField(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID),
+						(existing, other) -> Concepts.PREFERRED.equals(existing) ? existing : other);
+			});
+		}
+		return acceptabilityMaps;
+	}
+}
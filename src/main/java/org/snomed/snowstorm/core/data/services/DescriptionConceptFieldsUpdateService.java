@@ -0,0 +1,121 @@
+package org.snomed.snowstorm.core.data.services;
+
+import io.kaicode.elasticvc.api.BranchCriteria;
+import io.kaicode.elasticvc.domain.Commit;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Maintains copies of the concept active flag, definition status and module on each description so that
+ * concept level filters can be applied within the description query during lexical search.
+ * The fields are only maintained on code system version branches, and their descendants, because each concept change
+ * creates a new version of its descriptions. Descriptions on other branches are left unpopulated and are checked against the concept index.
+ * The fields are recalculated for descriptions which are changed, or belong to a concept which is changed.
+ */
+@Service
+public class DescriptionConceptFieldsUpdateService extends DescriptionDenormalisationUpdateService {
+
+	@Value("${search.description.concept-denormalisation.enabled}")
+	private boolean enabled;
+
+	@Autowired
+	private CodeSystemService codeSystemService;
+
+	public void updateAllDescriptionConceptFields(String path) throws ServiceException {
+		if (!codeSystemService.isVersionBranchOrDescendant(path)) {
+			throw new IllegalArgumentException("Description concept fields can only be populated on a code system version branch.");
+		}
+		updateAll(path);
+	}
+
+	@Override
+	public void preCommitCompletion(Commit commit) throws IllegalStateException {
+		if (isEnabled() && codeSystemService.isVersionBranchOrDescendant(commit.getBranch().getPath())) {
+			super.preCommitCompletion(commit);
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	protected String getValuesName() {
+		return "description concept fields";
+	}
+
+	@Override
+	protected Set<Long> getIdsToCheck(BranchCriteria branchCriteria) {
+		Set<Long> conceptIds = new LongOpenHashSet();
+		collectIds(branchCriteria.getEntityBranchCriteria(Concept.class),
+				Concept.Fields.CONCEPT_ID, Concept.class, Concept::getConceptId, conceptIds);
+		collectIds(branchCriteria.getEntityBranchCriteria(Description.class),
+				Description.Fields.CONCEPT_ID, Description.class, Description::getConceptId, conceptIds);
+		return conceptIds;
+	}
+
+	@Override
+	protected int updateBatch(Collection<Long> conceptIds, Commit commit) {
+		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteriaIncludingOpenCommit(commit);
+		Map<String, Concept> concepts = getConcepts(conceptIds, branchCriteria);
+		Collection<Description> descriptionsToUpdate = findDescriptionsNeedingUpdate(conceptIds, concepts, branchCriteria);
+		if (!descriptionsToUpdate.isEmpty()) {
+			saveDescriptions(descriptionsToUpdate, description -> {
+				Map<String, Object> fields = new HashMap<>();
+				fields.put(Description.Fields.CONCEPT_ACTIVE, description.getConceptActive());
+				fields.put(Description.Fields.CONCEPT_DEFINITION_STATUS_ID, description.getConceptDefinitionStatusId());
+				fields.put(Description.Fields.CONCEPT_MODULE_ID, description.getConceptModuleId());
+				return fields;
+			}, commit);
+		}
+		return descriptionsToUpdate.size();
+	}
+
+	private Map<String, Concept> getConcepts(Collection<Long> conceptIds, BranchCriteria branchCriteria) {
+		Map<String, Concept> concepts = new HashMap<>();
+		try (final SearchHitsIterator<Concept> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(boolQuery()
+						.must(branchCriteria.getEntityBranchCriteria(Concept.class))
+						.filter(termsQuery(Concept.Fields.CONCEPT_ID, conceptIds)))
+				.withFields(Concept.Fields.CONCEPT_ID, Concept.Fields.ACTIVE, Concept.Fields.DEFINITION_STATUS_ID, Concept.Fields.MODULE_ID)
+				.withPageable(LARGE_PAGE).build(), Concept.class)) {
+			stream.forEachRemaining(hit -> concepts.put(hit.getContent().getConceptId(), hit.getContent()));
+		}
+		return concepts;
+	}
+
+	private Collection<Description> findDescriptionsNeedingUpdate(Collection<Long> conceptIds, Map<String, Concept> concepts, BranchCriteria branchCriteria) {
+		List<Description> result = new ArrayList<>();
+		try (final SearchHitsIterator<Description> descriptions = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(boolQuery()
+						.must(branchCriteria.getEntityBranchCriteria(Description.class))
+						.must(termsQuery(Description.Fields.CONCEPT_ID, conceptIds))
+						.mustNot(existsQuery("end")))
+				.withPageable(LARGE_PAGE).build(), Description.class)) {
+			descriptions.forEachRemaining(hit -> {
+				Description description = hit.getContent();
+				Concept concept = concepts.get(description.getConceptId());
+				// Descriptions of a deleted concept are left alone, they will be deleted too.
+				if (concept != null && description.setDenormalisedConceptFields(concept)) {
+					result.add(description);
+				}
+			});
+		}
+		return result;
+	}
+}
@@ -0,0 +1,163 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.google.common.collect.Iterables;
+import io.kaicode.elasticvc.api.*;
+import io.kaicode.elasticvc.domain.Commit;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.repositories.DescriptionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.snomed.snowstorm.config.Config.BATCH_SAVE_SIZE;
+
+/**
+ * Base for commit listeners which keep values derived from other components up to date for search.
+ * Content and promotion commits recalculate the values affected by the changes within the commit.
+ * A rebase recalculates the values affected by all changes on the branch because the parent content they combine with may have changed.
+ */
+abstract class DescriptionDenormalisationUpdateService extends ComponentService implements CommitListener {
+
+	@Autowired
+	private BranchService branchService;
+
+	@Autowired
+	protected VersionControlHelper versionControlHelper;
+
+	@Autowired
+	protected ElasticsearchOperations elasticsearchTemplate;
+
+	@Autowired
+	private BranchMetadataHelper branchMetadataHelper;
+
+	@Autowired
+	private DescriptionRepository descriptionRepository;
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public abstract boolean isEnabled();
+
+	/**
+	 * @return name of the values maintained, used in log and error messages.
+	 */
+	protected abstract String getValuesName();
+
+	/**
+	 * @return ids of the entities to check given the changes, or all content, selected by the branch criteria.
+	 */
+	protected abstract Set<Long> getIdsToCheck(BranchCriteria branchCriteria);
+
+	/**
+	 * Recalculates the values of a batch of entities and saves those which have changed.
+	 * @return the number of entities updated.
+	 */
+	protected abstract int updateBatch(Collection<Long> ids, Commit commit);
+
+	/**
+	 * Called before a rebase is processed.
+	 */
+	protected void beforeRebase(Commit commit) {
+	}
+
+	@Override
+	public void preCommitCompletion(Commit commit) throws IllegalStateException {
+		if (!isEnabled()) {
+			return;
+		}
+		String path = commit.getBranch().getPath();
+		logger.debug("Start updating {} on branch {}.", getValuesName(), path);
+		try {
+			BranchCriteria changesCriteria;
+			if (commit.isRebase()) {
+				beforeRebase(commit);
+				changesCriteria = versionControlHelper.getChangesOnBranchIncludingOpenCommit(commit);
+			} else {
+				// Content promoted to the parent was already up to date on the child, so this usually finds nothing to update
+				changesCriteria = versionControlHelper.getBranchCriteriaChangesAndDeletionsWithinOpenCommitOnly(commit);
+			}
+			performUpdate(getIdsToCheck(changesCriteria), commit);
+			logger.debug("End updating {} on branch {}.", getValuesName(), path);
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to update " + getValuesName() + "." + e, e);
+		}
+	}
+
+	/**
+	 * Recalculates the values of all content on the branch, for use when the feature is enabled after content has been loaded.
+	 */
+	public void updateAll(String path) throws ServiceException {
+		logger.info("Updating {} of all content on branch {}.", getValuesName(), path);
+		try (Commit commit = branchService.openCommit(path, branchMetadataHelper.getBranchLockMetadata("Updating " + getValuesName() + " of all content."))) {
+			performUpdate(getIdsToCheck(versionControlHelper.getBranchCriteriaIncludingOpenCommit(commit)), commit);
+			commit.markSuccessful();
+		} catch (Exception e) {
+			throw new ServiceException("Failed to update " + getValuesName() + " of all content.", e);
+		}
+		logger.info("Completed updating {} of all content on branch {}.", getValuesName(), path);
+	}
+
+	private void performUpdate(Set<Long> idsToCheck, Commit commit) {
+		if (!idsToCheck.isEmpty()) {
+			logger.info("Checking {} of {} components.", getValuesName(), idsToCheck.size());
+			int updated = 0;
+			for (List<Long> batch : Iterables.partition(idsToCheck, CLAUSE_LIMIT)) {
+				updated += updateBatch(batch, commit);
+			}
+			logger.info("Updated {} of {} components.", getValuesName(), updated);
+		}
+	}
+
+	protected <T> void collectIds(QueryBuilder query, String idField, Class<T> entityClass, Function<T, String> idGetter, Set<Long> ids) {
+		try (final SearchHitsIterator<T> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(query)
+				.withFields(idField)
+				.withPageable(LARGE_PAGE).build(), entityClass)) {
+			stream.forEachRemaining(hit -> ids.add(Long.parseLong(idGetter.apply(hit.getContent()))));
+		}
+	}
+
+	/**
+	 * Saves descriptions with recalculated values.
+	 * Descriptions already saved in this commit are updated in place to avoid having two versions in the commit.
+	 * Other descriptions go through the normal commit process. The values are not release fields so the effective time is restored if nothing else has changed.
+	 * @param fieldsGetter returns the fields to update in place.
+	 */
+	protected void saveDescriptions(Collection<Description> descriptionsToSave, Function<Description, Map<String, Object>> fieldsGetter, Commit commit) {
+		for (List<Description> descriptions : Iterables.partition(descriptionsToSave, BATCH_SAVE_SIZE)) {
+			Set<Description> editedDescriptions = descriptions.stream()
+					.filter(description -> description.getStart().equals(commit.getTimepoint()))
+					.collect(Collectors.toSet());
+			updateInPlace(editedDescriptions, fieldsGetter);
+
+			Set<Description> toSave = descriptions.stream()
+					.filter(description -> !editedDescriptions.contains(description))
+					.collect(Collectors.toSet());
+			toSave.forEach(description -> {
+				description.markChanged();
+				description.updateEffectiveTime();
+			});
+			doSaveBatchComponents(toSave, commit, Description.Fields.DESCRIPTION_ID, descriptionRepository);
+		}
+	}
+
+	private void updateInPlace(Collection<Description> descriptions, Function<Description, Map<String, Object>> fieldsGetter) {
+		List<UpdateQuery> updateQueries = new ArrayList<>();
+		for (Description description : descriptions) {
+			updateQueries.add(UpdateQuery.builder(description.getInternalId()).withDocument(Document.from(fieldsGetter.apply(description))).build());
+		}
+		if (!updateQueries.isEmpty()) {
+			elasticsearchTemplate.bulkUpdate(updateQueries, elasticsearchTemplate.getIndexCoordinatesFor(Description.class));
+			elasticsearchTemplate.indexOps(Description.class).refresh();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.services.pojo.DescriptionCriteria;
+import org.snomed.snowstorm.core.data.services.pojo.PageWithBucketAggregations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.SearchAfterPageRequest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of description search results, including aggregations.
+ * Entries are keyed by branch path and head timestamp so are only used while the content of the branch is unchanged.
+ * The weight of an entry is the number of descriptions in the page plus the number of aggregation buckets.
+ */
+public class DescriptionSearchResultsCache {
+
+	private final Cache<DescriptionSearchCacheKey, PageWithBucketAggregations<Description>> cache;
+
+	private final Map<String, Date> branchHeads = new ConcurrentHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public DescriptionSearchResultsCache(long maximumWeight) {
+		cache = Caffeine.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher((DescriptionSearchCacheKey key, PageWithBucketAggregations<Description> page) -> getWeight(page))
+				.recordStats()
+				.build();
+	}
+
+	public PageWithBucketAggregations<Description> get(String path, Date head, DescriptionCriteria criteria, PageRequest pageRequest) {
+		expireIfHeadMoved(path, head);
+		return cache.getIfPresent(new DescriptionSearchCacheKey(path, head, criteria, pageRequest));
+	}
+
+	public void put(String path, Date head, DescriptionCriteria criteria, PageRequest pageRequest, PageWithBucketAggregations<Description> page) {
+		// Criteria objects are mutable so a copy is held in the key
+		cache.put(new DescriptionSearchCacheKey(path, head, criteria.copy(), pageRequest), page);
+	}
+
+	private void expireIfHeadMoved(String path, Date head) {
+		Date previousHead = branchHeads.put(path, head);
+		if (previousHead != null && !previousHead.equals(head)) {
+			// Entries for the old head can never be used again
+			cache.asMap().keySet().removeIf(key -> key.path.equals(path) && !key.head.equals(head));
+			logger.info("Description search cache expired {}@{}", path, head.getTime());
+		}
+	}
+
+	private static int getWeight(PageWithBucketAggregations<Description> page) {
+		int weight = 1 + page.getNumberOfElements();
+		if (page.getBuckets() != null) {
+			weight += page.getBuckets().values().stream().mapToInt(Map::size).sum();
+		}
+		return weight;
+	}
+
+	public Map<String, Number> getStats() {
+		CacheStats cacheStats = cache.stats();
+		Map<String, Number> stats = new LinkedHashMap<>();
+		stats.put("size", cache.estimatedSize());
+		cache.policy().eviction().ifPresent(eviction -> {
+			stats.put("weight", eviction.weightedSize().orElse(0));
+			stats.put("max-weight", eviction.getMaximum());
+		});
+		stats.put("hits", cacheStats.hitCount());
+		stats.put("misses", cacheStats.missCount());
+		stats.put("hit-rate", cacheStats.hitRate());
+		stats.put("evictions", cacheStats.evictionCount());
+		return stats;
+	}
+
+	public void clearCache() {
+		cache.invalidateAll();
+		branchHeads.clear();
+		logger.info("Description search cache cleared.");
+	}
+
+	private static final class DescriptionSearchCacheKey {
+
+		private final String path;
+		private final Date head;
+		private final DescriptionCriteria criteria;
+		private final PageRequest pageRequest;
+		private final Object[] searchAfter;
+
+		private DescriptionSearchCacheKey(String path, Date head, DescriptionCriteria criteria, PageRequest pageRequest) {
+			this.path = path;
+			this.head = head;
+			this.criteria = criteria;
+			this.pageRequest = pageRequest;
+			if (pageRequest instanceof SearchAfterPageRequest) {
+				this.searchAfter = ((SearchAfterPageRequest) pageRequest).getSearchAfter();
+			} else {
+				this.searchAfter = null;
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			DescriptionSearchCacheKey that = (DescriptionSearchCacheKey) o;
+			return path.equals(that.path) && head.equals(that.head) && criteria.equals(that.criteria)
+					&& Objects.equals(pageRequest, that.pageRequest) && Arrays.equals(searchAfter, that.searchAfter);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = Objects.hash(path, head, criteria, pageRequest);
+			result = 31 * result + Arrays.hashCode(searchAfter);
+			return result;
+		}
+	}
+}
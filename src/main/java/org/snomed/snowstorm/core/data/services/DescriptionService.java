@@ -6,7 +6,6 @@ import com.google.common.collect.Sets;
 import io.kaicode.elasticvc.api.BranchCriteria;
 import io.kaicode.elasticvc.api.BranchService;
 import io.kaicode.elasticvc.api.ComponentService;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import io.kaicode.elasticvc.domain.Branch;
 import io.kaicode.elasticvc.domain.Commit;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
@@ -21,6 +20,9 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.Aggregations;
@@ -36,6 +38,7 @@ import org.snomed.snowstorm.core.data.services.pojo.DescriptionCriteria;
 import org.snomed.snowstorm.core.data.services.pojo.PageWithBucketAggregations;
 import org.snomed.snowstorm.core.data.services.pojo.PageWithBucketAggregationsFactory;
 import org.snomed.snowstorm.core.data.services.pojo.SimpleAggregation;
+import org.snomed.snowstorm.core.pojo.LanguageDialect;
 import org.snomed.snowstorm.core.util.DescriptionHelper;
 import org.snomed.snowstorm.core.util.TimerUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +51,7 @@ import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.stereotype.Service;
@@ -57,7 +61,9 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.lang.Long.parseLong;
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -70,7 +76,7 @@ public class DescriptionService extends ComponentService {
 	private SearchLanguagesConfiguration searchLanguagesConfiguration;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@Autowired
 	private BranchService branchService;
@@ -81,19 +87,52 @@ public class DescriptionService extends ComponentService {
 	@Autowired
 	private ConceptUpdateHelper conceptUpdateHelper;
 
+	@Autowired
+	private DescriptionAcceptabilityUpdateService descriptionAcceptabilityUpdateService;
+
+	@Autowired
+	private DescriptionConceptFieldsUpdateService descriptionConceptFieldsUpdateService;
+
 	private final Map<String, SemanticTagCacheEntry> semanticTagAggregationCache = new ConcurrentHashMap<>();
 
 	@Value("${search.description.aggregation.maxProcessableResultsSize}")
 	private int aggregationMaxProcessableResultsSize;
 
+	@Value("${cache.description-search.enabled}")
+	private boolean searchResultsCacheEnabled;
+
+	private final DescriptionSearchResultsCache searchResultsCache;
+
 	public enum SearchMode {
-		STANDARD, REGEX, WHOLE_WORD
+		STANDARD, REGEX, WHOLE_WORD, SUBSTRING
 	}
 
+	// Checks that the lowercase term contains each of the given substrings in order.
+	// Script queries are only evaluated on documents matching the other clauses so this avoids a scan of the term dictionary.
+	private static final String SUBSTRING_MATCH_SCRIPT =
+			"String term = doc['" + Description.Fields.TERM + "'].value.toLowerCase(); " +
+			"int from = 0; " +
+			"for (def substring : params.substrings) { " +
+			"  from = term.indexOf(substring, from); " +
+			"  if (from == -1) { return false; } " +
+			"  from += substring.length(); " +
+			"} " +
+			"return true;";
+
+	// Number of descriptions fetched per round trip when streaming matches in term order
+	private static final PageRequest STREAM_CHUNK_PAGE = PageRequest.of(0, 1_000);
+
+	private static final String[] MINI_DESCRIPTION_FIELDS = {Description.Fields.DESCRIPTION_ID, Description.Fields.CONCEPT_ID, Description.Fields.ACTIVE,
+			Description.Fields.TERM, Description.Fields.TYPE_ID, Description.Fields.LANGUAGE_CODE};
+
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
+	public DescriptionService(@Value("${cache.description-search.max-weight}") long searchResultsCacheMaxWeight) {
+		searchResultsCache = new DescriptionSearchResultsCache(searchResultsCacheMaxWeight);
+	}
+
 	public Description findDescription(String path, String descriptionId) {
-		final BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(path);
+		final BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(path);
 		BoolQueryBuilder query = boolQuery().must(branchCriteria.getEntityBranchCriteria(Description.class))
 				.must(termsQuery("descriptionId", descriptionId));
 		List<Description> descriptions = elasticsearchTemplate.search(
@@ -134,7 +173,7 @@ public class DescriptionService extends ComponentService {
 	}
 
 	public Page<Description> findDescriptions(String branch, String exactTerm, Set<String> descriptionIds, Set<String> conceptIds, PageRequest pageRequest) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		BoolQueryBuilder query = boolQuery().must(branchCriteria.getEntityBranchCriteria(Description.class));
 		if (!CollectionUtils.isEmpty(descriptionIds)) {
 			query.must(termsQuery(Description.Fields.DESCRIPTION_ID, descriptionIds));
@@ -159,7 +198,7 @@ public class DescriptionService extends ComponentService {
 	}
 
 	public Set<Description> findDescriptionsByConceptId(String branchPath, Set<String> conceptIds, boolean fetchLangRefsetMembers) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		Map<String, Concept> conceptMap = new HashMap<>();
 		for (String conceptId : conceptIds) {
 			conceptMap.put(conceptId, new Concept(conceptId));
@@ -179,9 +218,17 @@ public class DescriptionService extends ComponentService {
 	public PageWithBucketAggregations<Description> findDescriptionsWithAggregations(String path, DescriptionCriteria criteria, PageRequest pageRequest) throws TooCostlyException {
 		TimerUtil timer = new TimerUtil("Search", Level.INFO, 5, new TimerUtil("Search DEBUG", Level.DEBUG));
 
-		final BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(path);
+		final BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(path);
 		timer.checkpoint("Build branch criteria");
 
+		if (searchResultsCacheEnabled) {
+			PageWithBucketAggregations<Description> cachedPage = searchResultsCache.get(path, branchCriteria.getTimepoint(), criteria, pageRequest);
+			if (cachedPage != null) {
+				timer.checkpoint("Description search cache hit");
+				return cachedPage;
+			}
+		}
+
 		// Fetch all matching description and concept ids
 		// ids of concepts where all descriptions and concept criteria are met
 		DescriptionMatches descriptionMatches = findDescriptionAndConceptIds(criteria, Collections.EMPTY_SET, branchCriteria, timer);
@@ -272,7 +319,19 @@ public class DescriptionService extends ComponentService {
 		timer.finish();
 
 		// Merge aggregations
-		return PageWithBucketAggregationsFactory.createPage(descriptions, new Aggregations(allAggregations), pageRequest);
+		PageWithBucketAggregations<Description> page = PageWithBucketAggregationsFactory.createPage(descriptions, new Aggregations(allAggregations), pageRequest);
+		if (searchResultsCacheEnabled) {
+			searchResultsCache.put(path, branchCriteria.getTimepoint(), criteria, pageRequest, page);
+		}
+		return page;
+	}
+
+	public DescriptionSearchResultsCache getSearchResultsCache() {
+		return searchResultsCache;
+	}
+
+	public void setSearchResultsCacheEnabled(boolean searchResultsCacheEnabled) {
+		this.searchResultsCacheEnabled = searchResultsCacheEnabled;
 	}
 
 	void joinDescriptions(BranchCriteria branchCriteria, Map<String, Concept> conceptIdMap, Map<String, ConceptMini> conceptMiniMap,
@@ -326,8 +385,13 @@ public class DescriptionService extends ComponentService {
 
 		// Fetch Lang Refset Members
 		if (fetchLangRefsetMembers) {
-			joinLangRefsetMembers(branchCriteria, allConceptIds, descriptionIdMap);
-			if (timer != null) timer.checkpoint("get lang refset " + getFetchCount(allConceptIds.size()));
+			// Full concepts need the real members, concept minis only need the acceptability.
+			if (conceptIdMap == null && joinDenormalisedAcceptability(descriptionIdMap, branchCriteria)) {
+				if (timer != null) timer.checkpoint("get description acceptability " + getFetchCount(allConceptIds.size()));
+			} else {
+				joinLangRefsetMembers(branchCriteria, allConceptIds, descriptionIdMap);
+				if (timer != null) timer.checkpoint("get lang refset " + getFetchCount(allConceptIds.size()));
+			}
 		}
 
 		// Fetch Inactivation Indicators and Associations
@@ -347,7 +411,7 @@ public class DescriptionService extends ComponentService {
 			}
 		}
 
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 
 		List<Long> activeConcepts = new LongArrayList();
 
@@ -463,7 +527,7 @@ public class DescriptionService extends ComponentService {
 	}
 
 	public void joinActiveDescriptions(String path, Map<String, ConceptMini> conceptMiniMap) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(path);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(path);
 		NativeSearchQuery searchQuery = new NativeSearchQueryBuilder()
 				.withQuery(boolQuery().must(branchCriteria.getEntityBranchCriteria(Description.class))
 						.must(termQuery(SnomedComponent.Fields.ACTIVE, true))
@@ -478,36 +542,79 @@ public class DescriptionService extends ComponentService {
 				descriptionIdMap.put(description.getId(), description);
 			});
 		}
-		joinLangRefsetMembers(branchCriteria, conceptMiniMap.keySet(), descriptionIdMap);
+		if (!joinDenormalisedAcceptability(descriptionIdMap, branchCriteria)) {
+			joinLangRefsetMembers(branchCriteria, conceptMiniMap.keySet(), descriptionIdMap);
+		}
 	}
 
-	DescriptionMatches findDescriptionAndConceptIds(DescriptionCriteria criteria, Set<Long> conceptIdsCriteria, BranchCriteria branchCriteria, TimerUtil timer) throws TooCostlyException {
-
-		// Build up the description criteria
-		final BoolQueryBuilder descriptionQuery = boolQuery();
-		BoolQueryBuilder descriptionBranchCriteria = branchCriteria.getEntityBranchCriteria(Description.class);
-		descriptionQuery.must(descriptionBranchCriteria);
-		addTermClauses(criteria.getTerm(), criteria.getSearchLanguageCodes(), criteria.getType(), descriptionQuery, criteria.getSearchMode());
-
-		Boolean active = criteria.getActive();
-		if (active != null) {
-			descriptionQuery.must(termQuery(Description.Fields.ACTIVE, active));
+	/**
+	 * Joins the active FSNs and synonyms of each concept, with language reference set acceptability, loading only the fields needed for FSN/PT selection.
+	 * Intended for concepts which will only be used as concept minis.
+	 * @param languageDialects If given only descriptions in the languages of these dialects are joined.
+	 */
+	void joinActiveDescriptionsForMinis(BranchCriteria branchCriteria, Map<String, Concept> conceptIdMap, List<LanguageDialect> languageDialects) {
+		Map<String, Description> descriptionIdMap = new HashMap<>();
+		for (List<String> conceptIds : Iterables.partition(conceptIdMap.keySet(), CLAUSE_LIMIT)) {
+			BoolQueryBuilder query = boolQuery().must(branchCriteria.getEntityBranchCriteria(Description.class))
+					.must(termQuery(SnomedComponent.Fields.ACTIVE, true))
+					.must(termsQuery(Description.Fields.TYPE_ID, Concepts.FSN, Concepts.SYNONYM))
+					.must(termsQuery(Description.Fields.CONCEPT_ID, conceptIds));
+			if (languageDialects != null && !languageDialects.isEmpty()) {
+				query.must(termsQuery(Description.Fields.LANGUAGE_CODE, languageDialects.stream().map(LanguageDialect::getLanguageCode).collect(Collectors.toSet())));
+			}
+			NativeSearchQuery searchQuery = new NativeSearchQueryBuilder()
+					.withQuery(query)
+					.withSourceFilter(new FetchSourceFilter(MINI_DESCRIPTION_FIELDS, new String[]{}))
+					.withPageable(LARGE_PAGE)
+					.build();
+			try (SearchHitsIterator<Description> stream = elasticsearchTemplate.searchForStream(searchQuery, Description.class)) {
+				stream.forEachRemaining(hit -> {
+					Description description = hit.getContent();
+					conceptIdMap.get(description.getConceptId()).addDescription(description);
+					descriptionIdMap.put(description.getId(), description);
+				});
+			}
 		}
-
-		Collection<String> modules = criteria.getModules();
-		if (!CollectionUtils.isEmpty(modules)) {
-			descriptionQuery.must(termsQuery(Description.Fields.MODULE_ID, modules));
+		if (!joinDenormalisedAcceptability(descriptionIdMap, branchCriteria)) {
+			joinLangRefsetMembers(branchCriteria, conceptIdMap.keySet(), descriptionIdMap);
 		}
+	}
 
-		if (!CollectionUtils.isEmpty(conceptIdsCriteria)) {
-			descriptionQuery.must(termsQuery(Description.Fields.CONCEPT_ID, conceptIdsCriteria));
+	/**
+	 * Populates language reference set acceptability using the description acceptability index which is maintained at commit time.
+	 * The members created are not persisted, they do not have ids and should only be used for PT/FSN selection.
+	 * @return false, without changing the descriptions, if the index is disabled or any description has not been indexed.
+	 */
+	private boolean joinDenormalisedAcceptability(Map<String, Description> descriptionIdMap, BranchCriteria branchCriteria) {
+		if (!descriptionAcceptabilityUpdateService.isEnabled() || descriptionIdMap.isEmpty()) {
+			return false;
+		}
+		Map<String, DescriptionAcceptability> acceptability = descriptionAcceptabilityUpdateService.findDescriptionAcceptability(descriptionIdMap.keySet(), branchCriteria);
+		if (acceptability.size() < descriptionIdMap.size()) {
+			return false;
 		}
+		acceptability.forEach((descriptionId, entry) -> {
+			Description description = descriptionIdMap.get(descriptionId);
+			entry.getAcceptabilityIdMap().forEach(description::addLanguageRefsetMember);
+		});
+		return true;
+	}
+
+	DescriptionMatches findDescriptionAndConceptIds(DescriptionCriteria criteria, Set<Long> conceptIdsCriteria, BranchCriteria branchCriteria, TimerUtil timer) throws TooCostlyException {
+
+		// Build up the description criteria
+		final BoolQueryBuilder descriptionQuery = buildDescriptionQuery(criteria, conceptIdsCriteria, branchCriteria);
+
+		// Apply concept filters to the description query using the denormalised concept fields
+		boolean conceptFilterApplied = addDenormalisedConceptClauses(criteria, descriptionQuery);
 
 		// First pass search to collect all description and concept ids.
 		final Map<Long, Long> descriptionToConceptMap = new Long2ObjectLinkedOpenHashMap<>();
+		// Concepts of descriptions without denormalised concept fields, these still need the concept filters applied
+		final Set<Long> notDenormalisedConceptIds = new LongOpenHashSet();
 		NativeSearchQueryBuilder searchQueryBuilder = new NativeSearchQueryBuilder()
 				.withQuery(descriptionQuery)
-				.withFields(Description.Fields.DESCRIPTION_ID, Description.Fields.CONCEPT_ID);
+				.withFields(Description.Fields.DESCRIPTION_ID, Description.Fields.CONCEPT_ID, Description.Fields.CONCEPT_ACTIVE);
 
 		NativeSearchQuery query = searchQueryBuilder.withPageable(PAGE_OF_ONE).build();
 		query.setTrackTotalHits(true);
@@ -523,7 +630,11 @@ public class DescriptionService extends ComponentService {
 				searchQuery, Description.class)) {
 			stream.forEachRemaining(hit -> {
 				Description description = hit.getContent();
-				descriptionToConceptMap.put(parseLong(description.getDescriptionId()), parseLong(description.getConceptId()));
+				long conceptId = parseLong(description.getConceptId());
+				descriptionToConceptMap.put(parseLong(description.getDescriptionId()), conceptId);
+				if (!description.isConceptFieldsDenormalised()) {
+					notDenormalisedConceptIds.add(conceptId);
+				}
 			});
 		}
 		timer.checkpoint("Collect all description and concept ids");
@@ -535,35 +646,10 @@ public class DescriptionService extends ComponentService {
 		Set<Long> conceptIds;
 		if (!CollectionUtils.isEmpty(preferredIn) || !CollectionUtils.isEmpty(acceptableIn) || !CollectionUtils.isEmpty(preferredOrAcceptableIn)) {
 
-			BoolQueryBuilder queryBuilder = boolQuery()
-					.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class))
-					.must(termQuery(ReferenceSetMember.Fields.ACTIVE, true));
-
-			if (!CollectionUtils.isEmpty(preferredIn)) {
-				queryBuilder
-						.must(termsQuery(ReferenceSetMember.Fields.REFSET_ID, preferredIn))
-						.must(termQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Concepts.PREFERRED));
-			}
-			if (!CollectionUtils.isEmpty(acceptableIn)) {
-				queryBuilder
-						.must(termsQuery(ReferenceSetMember.Fields.REFSET_ID, acceptableIn))
-						.must(termQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Concepts.ACCEPTABLE));
-			}
-			if (!CollectionUtils.isEmpty(preferredOrAcceptableIn)) {
-				queryBuilder
-						.must(termsQuery(ReferenceSetMember.Fields.REFSET_ID, preferredOrAcceptableIn))
-						.must(termsQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Sets.newHashSet(Concepts.PREFERRED, Concepts.ACCEPTABLE)));
-			}
-
-			NativeSearchQuery nativeSearchQuery = new NativeSearchQueryBuilder()
-					.withQuery(queryBuilder)
-					.withFilter(termsQuery(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, descriptionToConceptMap.keySet()))
-					.withFields(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID)
-					.withPageable(LARGE_PAGE)
-					.build();
-			Set<Long> filteredDescriptionIds = new LongOpenHashSet();
-			try (SearchHitsIterator<ReferenceSetMember> stream = elasticsearchTemplate.searchForStream(nativeSearchQuery, ReferenceSetMember.class)) {
-				stream.forEachRemaining(hit -> filteredDescriptionIds.add(parseLong(hit.getContent().getReferencedComponentId())));
+			// Use the acceptability index if all descriptions have been indexed, otherwise join the language reference set members
+			Set<Long> filteredDescriptionIds = filterUsingDenormalisedAcceptability(criteria, descriptionToConceptMap.keySet(), branchCriteria);
+			if (filteredDescriptionIds == null) {
+				filteredDescriptionIds = findDescriptionsInLanguageRefsets(preferredIn, acceptableIn, preferredOrAcceptableIn, descriptionToConceptMap.keySet(), branchCriteria);
 			}
 
 			// Create new map of descriptions and concepts, keeping the original description order.
@@ -582,24 +668,16 @@ public class DescriptionService extends ComponentService {
 		conceptIds = new LongLinkedOpenHashSet(descriptionToConceptMap.values());
 		if (!conceptIds.isEmpty()) {
 
-			// Apply concept active filter
-			if (criteria.getConceptActive() != null) {
-				List<Long> filteredConceptIds = new LongArrayList();
-				try (SearchHitsIterator<Concept> stream = elasticsearchTemplate.searchForStream(
-						new NativeSearchQueryBuilder()
-								.withQuery(boolQuery()
-										.must(termQuery(Concept.Fields.ACTIVE, criteria.getConceptActive()))
-										.filter(branchCriteria.getEntityBranchCriteria(Concept.class))
-										.filter(termsQuery(Concept.Fields.CONCEPT_ID, conceptIds))
-								)
-								.withSort(SortBuilders.fieldSort("_doc"))
-								.withFields(Concept.Fields.CONCEPT_ID)
-								.withPageable(LARGE_PAGE)
-								.build(), Concept.class)) {
-					stream.forEachRemaining(hit -> filteredConceptIds.add(hit.getContent().getConceptIdAsLong()));
+			// Apply concept active, definition status and module filters
+			if (criteria.hasConceptPropertyCriteria() && (!conceptFilterApplied || !notDenormalisedConceptIds.isEmpty())) {
+				Set<Long> conceptIdsToCheck = conceptFilterApplied ? notDenormalisedConceptIds : conceptIds;
+				List<Long> filteredConceptIds = new LongArrayList(findConceptsMatchingPropertyCriteria(criteria, conceptIdsToCheck, branchCriteria));
+				if (conceptFilterApplied) {
+					// Concepts only matched via denormalised fields are kept
+					conceptIds.stream().filter(conceptId -> !conceptIdsToCheck.contains(conceptId)).forEach(filteredConceptIds::add);
 				}
 				conceptIds = filterOrderedSet(conceptIds, filteredConceptIds);
-				timer.checkpoint("Concept active filtering");
+				timer.checkpoint("Concept property filtering");
 			}
 
 			// Apply refset filter
@@ -639,6 +717,234 @@ public class DescriptionService extends ComponentService {
 		return new DescriptionMatches(descriptions, conceptIds, descriptionQuery);
 	}
 
+	/**
+	 * Applies the dialect filters of the criteria using the description acceptability index.
+	 * @return ids of the descriptions matching the filters, or null if the index is disabled or any description has not been indexed.
+	 */
+	private Set<Long> filterUsingDenormalisedAcceptability(DescriptionCriteria criteria, Set<Long> descriptionIds, BranchCriteria branchCriteria) {
+		if (!descriptionAcceptabilityUpdateService.isEnabled() || descriptionIds.isEmpty()) {
+			return null;
+		}
+		Map<String, DescriptionAcceptability> acceptability = descriptionAcceptabilityUpdateService.findDescriptionAcceptability(
+				descriptionIds.stream().map(Object::toString).collect(Collectors.toList()), branchCriteria);
+		if (acceptability.size() < descriptionIds.size()) {
+			return null;
+		}
+		Set<Long> filteredDescriptionIds = new LongOpenHashSet();
+		for (DescriptionAcceptability entry : acceptability.values()) {
+			// Same rules as the member query, a single language refset entry must satisfy all of the filters
+			if (entry.getAcceptabilityIdMap().entrySet().stream().anyMatch(refsetAcceptability -> {
+				Long refsetId = parseLong(refsetAcceptability.getKey());
+				String acceptabilityId = refsetAcceptability.getValue();
+				return matchesDialectFilter(criteria.getPreferredIn(), refsetId, Concepts.PREFERRED.equals(acceptabilityId))
+						&& matchesDialectFilter(criteria.getAcceptableIn(), refsetId, Concepts.ACCEPTABLE.equals(acceptabilityId))
+						&& matchesDialectFilter(criteria.getPreferredOrAcceptableIn(), refsetId, true);
+			})) {
+				filteredDescriptionIds.add(parseLong(entry.getDescriptionId()));
+			}
+		}
+		return filteredDescriptionIds;
+	}
+
+	private static boolean matchesDialectFilter(Set<Long> refsetIds, Long refsetId, boolean acceptabilityMatches) {
+		return CollectionUtils.isEmpty(refsetIds) || (acceptabilityMatches && refsetIds.contains(refsetId));
+	}
+
+	private Set<Long> findDescriptionsInLanguageRefsets(Set<Long> preferredIn, Set<Long> acceptableIn, Set<Long> preferredOrAcceptableIn,
+			Set<Long> descriptionIds, BranchCriteria branchCriteria) {
+
+		BoolQueryBuilder queryBuilder = boolQuery()
+				.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class))
+				.must(termQuery(ReferenceSetMember.Fields.ACTIVE, true));
+
+		if (!CollectionUtils.isEmpty(preferredIn)) {
+			queryBuilder
+					.must(termsQuery(ReferenceSetMember.Fields.REFSET_ID, preferredIn))
+					.must(termQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Concepts.PREFERRED));
+		}
+		if (!CollectionUtils.isEmpty(acceptableIn)) {
+			queryBuilder
+					.must(termsQuery(ReferenceSetMember.Fields.REFSET_ID, acceptableIn))
+					.must(termQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Concepts.ACCEPTABLE));
+		}
+		if (!CollectionUtils.isEmpty(preferredOrAcceptableIn)) {
+			queryBuilder
+					.must(termsQuery(ReferenceSetMember.Fields.REFSET_ID, preferredOrAcceptableIn))
+					.must(termsQuery(ReferenceSetMember.LanguageFields.ACCEPTABILITY_ID_FIELD_PATH, Sets.newHashSet(Concepts.PREFERRED, Concepts.ACCEPTABLE)));
+		}
+
+		NativeSearchQuery nativeSearchQuery = new NativeSearchQueryBuilder()
+				.withQuery(queryBuilder)
+				.withFilter(termsQuery(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID, descriptionIds))
+				.withFields(ReferenceSetMember.Fields.REFERENCED_COMPONENT_ID)
+				.withPageable(LARGE_PAGE)
+				.build();
+		Set<Long> filteredDescriptionIds = new LongOpenHashSet();
+		try (SearchHitsIterator<ReferenceSetMember> stream = elasticsearchTemplate.searchForStream(nativeSearchQuery, ReferenceSetMember.class)) {
+			stream.forEachRemaining(hit -> filteredDescriptionIds.add(parseLong(hit.getContent().getReferencedComponentId())));
+		}
+		return filteredDescriptionIds;
+	}
+
+	/**
+	 * @return true if streamConceptIdsInTermOrder can be used for the criteria,
+	 * false if the criteria need filtering after the description query.
+	 */
+	boolean canStream(DescriptionCriteria criteria) {
+		boolean langRefsetCriteria = Stream.of(criteria.getPreferredIn(), criteria.getAcceptableIn(), criteria.getPreferredOrAcceptableIn())
+				.anyMatch(set -> !CollectionUtils.isEmpty(set));
+		return !langRefsetCriteria
+				&& (!criteria.hasConceptPropertyCriteria() || descriptionConceptFieldsUpdateService.isEnabled())
+				&& Strings.isNullOrEmpty(criteria.getConceptRefset());
+	}
+
+	/**
+	 * Streams the concept ids of descriptions matching the criteria in term order, in chunks, without first collecting all matches.
+	 * Each distinct concept id accepted by the filter is passed to the consumer until the consumer returns false.
+	 * Concepts of descriptions without denormalised concept fields are checked against the concept criteria once per chunk, after the filter.
+	 * @return counts of the descriptions matched and visited, or null if the criteria can not be streamed, see canStream.
+	 * In that case nothing is streamed and findDescriptionAndConceptIds must be used instead.
+	 */
+	DescriptionStreamResult streamConceptIdsInTermOrder(DescriptionCriteria criteria, BranchCriteria branchCriteria, LongPredicate conceptIdFilter,
+			LongPredicate conceptIdConsumer, TimerUtil timer) {
+
+		if (!canStream(criteria)) {
+			return null;
+		}
+		final BoolQueryBuilder descriptionQuery = buildDescriptionQuery(criteria, Collections.emptySet(), branchCriteria);
+		boolean checkNotDenormalised = addDenormalisedConceptClauses(criteria, descriptionQuery);
+
+		NativeSearchQuery countQuery = new NativeSearchQueryBuilder().withQuery(descriptionQuery).withPageable(PAGE_OF_ONE).build();
+		countQuery.setTrackTotalHits(true);
+		long totalDescriptions = elasticsearchTemplate.search(countQuery, Description.class).getTotalHits();
+		timer.checkpoint("Count all check");
+
+		NativeSearchQuery searchQuery = new NativeSearchQueryBuilder()
+				.withQuery(descriptionQuery)
+				.withFields(Description.Fields.CONCEPT_ID, Description.Fields.CONCEPT_ACTIVE)
+				.withPageable(STREAM_CHUNK_PAGE)
+				.build();
+		addTermSort(searchQuery);
+		int chunkSize = STREAM_CHUNK_PAGE.getPageSize();
+		long descriptionsVisited = 0;
+		Set<Long> conceptIdsVisited = new LongOpenHashSet();
+		// Concepts passing the filter in the current chunk, in term order, with the number of descriptions visited when each was found
+		List<Long> chunkConceptIds = new LongArrayList();
+		List<Long> chunkVisitCounts = new LongArrayList();
+		Set<Long> chunkNotDenormalised = new LongOpenHashSet();
+		try (SearchHitsIterator<Description> stream = elasticsearchTemplate.searchForStream(searchQuery, Description.class)) {
+			while (stream.hasNext()) {
+				int chunkVisited = 0;
+				while (stream.hasNext() && chunkVisited < chunkSize) {
+					chunkVisited++;
+					Description description = stream.next().getContent();
+					long conceptId = parseLong(description.getConceptId());
+					if (conceptIdsVisited.add(conceptId) && conceptIdFilter.test(conceptId)) {
+						chunkConceptIds.add(conceptId);
+						chunkVisitCounts.add(descriptionsVisited + chunkVisited);
+						if (checkNotDenormalised && !description.isConceptFieldsDenormalised()) {
+							chunkNotDenormalised.add(conceptId);
+						}
+					}
+				}
+				descriptionsVisited += chunkVisited;
+
+				Set<Long> notDenormalisedMatches = chunkNotDenormalised.isEmpty() ? Collections.emptySet() :
+						findConceptsMatchingPropertyCriteria(criteria, chunkNotDenormalised, branchCriteria);
+				for (int i = 0; i < chunkConceptIds.size(); i++) {
+					Long conceptId = chunkConceptIds.get(i);
+					if (chunkNotDenormalised.contains(conceptId) && !notDenormalisedMatches.contains(conceptId)) {
+						continue;
+					}
+					if (!conceptIdConsumer.test(conceptId)) {
+						timer.checkpoint("Stream description matches");
+						return new DescriptionStreamResult(totalDescriptions, chunkVisitCounts.get(i), false);
+					}
+				}
+				chunkConceptIds.clear();
+				chunkVisitCounts.clear();
+				chunkNotDenormalised.clear();
+			}
+		}
+		timer.checkpoint("Stream description matches");
+		return new DescriptionStreamResult(totalDescriptions, descriptionsVisited, true);
+	}
+
+	private BoolQueryBuilder buildDescriptionQuery(DescriptionCriteria criteria, Set<Long> conceptIdsCriteria, BranchCriteria branchCriteria) {
+		final BoolQueryBuilder descriptionQuery = boolQuery();
+		BoolQueryBuilder descriptionBranchCriteria = branchCriteria.getEntityBranchCriteria(Description.class);
+		descriptionQuery.must(descriptionBranchCriteria);
+		addTermClauses(criteria.getTerm(), criteria.getSearchLanguageCodes(), criteria.getType(), descriptionQuery, criteria.getSearchMode());
+
+		Boolean active = criteria.getActive();
+		if (active != null) {
+			descriptionQuery.must(termQuery(Description.Fields.ACTIVE, active));
+		}
+
+		Collection<String> modules = criteria.getModules();
+		if (!CollectionUtils.isEmpty(modules)) {
+			descriptionQuery.must(termsQuery(Description.Fields.MODULE_ID, modules));
+		}
+
+		if (!CollectionUtils.isEmpty(conceptIdsCriteria)) {
+			descriptionQuery.must(termsQuery(Description.Fields.CONCEPT_ID, conceptIdsCriteria));
+		}
+		return descriptionQuery;
+	}
+
+	/**
+	 * Adds the concept filters to the description query using the concept fields denormalised onto the descriptions.
+	 * Descriptions which have not been populated also match, the concept filters must be applied to their concepts separately.
+	 */
+	private boolean addDenormalisedConceptClauses(DescriptionCriteria criteria, BoolQueryBuilder descriptionQuery) {
+		if (!criteria.hasConceptPropertyCriteria() || !descriptionConceptFieldsUpdateService.isEnabled()) {
+			return false;
+		}
+
+		BoolQueryBuilder denormalisedClauses = boolQuery();
+		if (criteria.getConceptActive() != null) {
+			denormalisedClauses.filter(termQuery(Description.Fields.CONCEPT_ACTIVE, criteria.getConceptActive()));
+		}
+		if (criteria.getConceptDefinitionStatus() != null) {
+			denormalisedClauses.filter(termQuery(Description.Fields.CONCEPT_DEFINITION_STATUS_ID, criteria.getConceptDefinitionStatus()));
+		}
+		if (!CollectionUtils.isEmpty(criteria.getConceptModules())) {
+			denormalisedClauses.filter(termsQuery(Description.Fields.CONCEPT_MODULE_ID, criteria.getConceptModules()));
+		}
+		descriptionQuery.filter(boolQuery()
+				.should(denormalisedClauses)
+				.should(boolQuery().mustNot(existsQuery(Description.Fields.CONCEPT_ACTIVE))));
+		return true;
+	}
+
+	private Set<Long> findConceptsMatchingPropertyCriteria(DescriptionCriteria criteria, Collection<Long> conceptIds, BranchCriteria branchCriteria) {
+		BoolQueryBuilder conceptClauses = boolQuery();
+		if (criteria.getConceptActive() != null) {
+			conceptClauses.must(termQuery(Concept.Fields.ACTIVE, criteria.getConceptActive()));
+		}
+		if (criteria.getConceptDefinitionStatus() != null) {
+			conceptClauses.must(termQuery(Concept.Fields.DEFINITION_STATUS_ID, criteria.getConceptDefinitionStatus()));
+		}
+		if (!CollectionUtils.isEmpty(criteria.getConceptModules())) {
+			conceptClauses.must(termsQuery(Concept.Fields.MODULE_ID, criteria.getConceptModules()));
+		}
+		Set<Long> matchingConceptIds = new LongOpenHashSet();
+		try (SearchHitsIterator<Concept> stream = elasticsearchTemplate.searchForStream(
+				new NativeSearchQueryBuilder()
+						.withQuery(boolQuery()
+								.must(conceptClauses)
+								.filter(branchCriteria.getEntityBranchCriteria(Concept.class))
+								.filter(termsQuery(Concept.Fields.CONCEPT_ID, conceptIds))
+						)
+						.withSort(SortBuilders.fieldSort("_doc"))
+						.withFields(Concept.Fields.CONCEPT_ID)
+						.withPageable(LARGE_PAGE)
+						.build(), Concept.class)) {
+			stream.forEachRemaining(hit -> matchingConceptIds.add(hit.getContent().getConceptIdAsLong()));
+		}
+		return matchingConceptIds;
+	}
+
 	private Set<Long> filterOrderedSet(Set<Long> orderedIds, List<Long> idsToKeep) {
 		Set<Long> newSet = new LongLinkedOpenHashSet();
 		for (Long orderedId : orderedIds) {
@@ -670,6 +976,20 @@ public class DescriptionService extends ComponentService {
 					if (!allLanguages) {
 						boolBuilder.must(termsQuery(Description.Fields.LANGUAGE_CODE, languageCodes));
 					}
+				} else if (searchMode == SearchMode.SUBSTRING) {
+					if (term.length() < 3) {
+						// Without trigrams to narrow the candidates the script would run against every description on the branch
+						throw new IllegalArgumentException("The SUBSTRING search mode requires a term of at least 3 characters.");
+					}
+					// Narrow the candidates using the trigram index then verify that the whole substring is present
+					for (String trigram : DescriptionHelper.getTermTrigrams(term)) {
+						termFilter.must(termQuery(Description.Fields.TERM_TRIGRAMS, trigram));
+					}
+					termFilter.must(constructSubstringMatchQuery(Collections.singletonList(term.toLowerCase())));
+					// Must match the requested languages
+					if (!allLanguages) {
+						boolBuilder.must(termsQuery(Description.Fields.LANGUAGE_CODE, languageCodes));
+					}
 				} else {
 					// Must match at least one of the following 'should' clauses:
 					BoolQueryBuilder shouldClauses = boolQuery();
@@ -706,8 +1026,8 @@ public class DescriptionService extends ComponentService {
 					}
 
 					if (containingNonAlphanumeric(term)) {
-						String regexString = constructRegexQuery(term);
-						termFilter.must(regexpQuery(Description.Fields.TERM, regexString));
+						// Words with non-alphanumeric characters are split by the analyser so check them against the raw term.
+						termFilter.must(constructSubstringMatchQuery(getNonAlphanumericWords(term)));
 					}
 					termFilter.must(shouldClauses);
 				}
@@ -747,32 +1067,20 @@ public class DescriptionService extends ComponentService {
 		return false;
 	}
 
-	private String constructRegexQuery(String term) {
-		String[] words = term.split(" ", -1);
-		StringBuilder regexBuilder = new StringBuilder();
-		regexBuilder.append(".*");
-		for (String word : words) {
-			if (StringUtils.isAlphanumeric(word)) {
-				if (!regexBuilder.toString().endsWith(".*")) {
-					regexBuilder.append(".*");
-				}
-				continue;
+	private List<String> getNonAlphanumericWords(String term) {
+		List<String> words = new ArrayList<>();
+		for (String word : term.split(" ", -1)) {
+			if (!word.isEmpty() && !StringUtils.isAlphanumeric(word)) {
+				words.add(word.toLowerCase());
 			}
-			for (char c : word.toCharArray()) {
-				if (Character.isLetter(c)) {
-					regexBuilder.append("[").append(Character.toLowerCase(c)).append(Character.toUpperCase(c)).append("]");
-				} else if (Character.isDigit(c)){
-					regexBuilder.append(c);
-				} else {
-					regexBuilder.append("\\").append(c);
-				}
-			}
-			regexBuilder.append(".*");
-		}
-		if (!regexBuilder.toString().endsWith(".*")) {
-			regexBuilder.append(".*");
 		}
-		return regexBuilder.toString();
+		return words;
+	}
+
+	private QueryBuilder constructSubstringMatchQuery(List<String> orderedSubstrings) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("substrings", orderedSubstrings);
+		return scriptQuery(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, SUBSTRING_MATCH_SCRIPT, params));
 	}
 
 	private String constructSearchTerm(List<String> tokens) {
@@ -790,6 +1098,32 @@ public class DescriptionService extends ComponentService {
 		return query;
 	}
 
+	static final class DescriptionStreamResult {
+
+		private final long totalDescriptions;
+		private final long descriptionsVisited;
+		private final boolean exhausted;
+
+		private DescriptionStreamResult(long totalDescriptions, long descriptionsVisited, boolean exhausted) {
+			this.totalDescriptions = totalDescriptions;
+			this.descriptionsVisited = descriptionsVisited;
+			this.exhausted = exhausted;
+		}
+
+		long getTotalDescriptions() {
+			return totalDescriptions;
+		}
+
+		long getDescriptionsVisited() {
+			return descriptionsVisited;
+		}
+
+		// True if all matching descriptions were visited
+		boolean isExhausted() {
+			return exhausted;
+		}
+	}
+
 	private static class SemanticTagCacheEntry {
 
 		private final long branchHeadTime;
@@ -31,6 +31,9 @@ public class DomainEntityConfiguration {
 	@Autowired
 	private ReferenceSetTypeRepository referenceSetTypeRepository;
 
+	@Autowired
+	private DescriptionAcceptabilityRepository descriptionAcceptabilityRepository;
+
 	private Map<Class<? extends SnomedComponent>, ElasticsearchRepository> componentTypeRepositoryMap;
 	private Map<Class<? extends DomainEntity>, ElasticsearchRepository> allTypeRepositoryMap;
 
@@ -49,12 +52,14 @@ public class DomainEntityConfiguration {
 		allTypeRepositoryMap = new LinkedHashMap<>(componentTypeRepositoryMap);
 		allTypeRepositoryMap.put(QueryConcept.class, queryConceptRepository);
 		allTypeRepositoryMap.put(ReferenceSetType.class, referenceSetTypeRepository);
+		allTypeRepositoryMap.put(DescriptionAcceptability.class, descriptionAcceptabilityRepository);
 		allTypeRepositoryMap = Collections.unmodifiableMap(allTypeRepositoryMap);
 
 		allTypes = new HashSet<>();
 		allTypes.addAll(componentTypeRepositoryMap.keySet());
 		allTypes.add(QueryConcept.class);
 		allTypes.add(ReferenceSetType.class);
+		allTypes.add(DescriptionAcceptability.class);
 		allTypes = Collections.unmodifiableSet(allTypes);
 
 		allIdFields = new HashMap<>();
@@ -64,6 +69,7 @@ public class DomainEntityConfiguration {
 		allIdFields.put(ReferenceSetMember.class, ReferenceSetMember.Fields.MEMBER_ID);
 		allIdFields.put(QueryConcept.class, QueryConcept.Fields.CONCEPT_ID_FORM);
 		allIdFields.put(ReferenceSetType.class, ReferenceSetType.Fields.CONCEPT_ID);
+		allIdFields.put(DescriptionAcceptability.class, DescriptionAcceptability.Fields.DESCRIPTION_ID);
 		allIdFields = Collections.unmodifiableMap(allIdFields);
 	}
 
@@ -46,7 +46,6 @@ import org.springframework.util.CollectionUtils;
 
 import io.kaicode.elasticvc.api.CommitListener;
 import io.kaicode.elasticvc.api.PathUtil;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import io.kaicode.elasticvc.domain.Branch;
 import io.kaicode.elasticvc.domain.Commit;
 import io.kaicode.elasticvc.domain.Commit.CommitType;
@@ -68,7 +67,7 @@ public class MultiSearchService implements CommitListener {
 	private CodeSystemService codeSystemService;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@Autowired
 	private ElasticsearchRestTemplate elasticsearchTemplate;
@@ -203,7 +202,7 @@ public class MultiSearchService implements CommitListener {
 					// Prevent content on MAIN being found in every other code system
 					branchQuery.mustNot(termQuery("path", Branch.MAIN));
 				}
-				branchQuery.must(versionControlHelper.getBranchCriteria(branchPath).getEntityBranchCriteria(Description.class));
+				branchQuery.must(branchCriteriaProvider.getBranchCriteria(branchPath).getEntityBranchCriteria(Description.class));
 				cachedBranchesQuery.should(branchQuery);
 			}
 			long endTime = System.currentTimeMillis();
@@ -2,28 +2,34 @@ package org.snomed.snowstorm.core.data.services;
 
 import com.google.common.collect.Iterables;
 import io.kaicode.elasticvc.api.BranchCriteria;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongArraySet;
 import it.unimi.dsi.fastutil.longs.LongComparators;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.IncludeExclude;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snomed.snowstorm.core.data.domain.*;
 import org.snomed.snowstorm.core.data.services.identifier.IdentifierService;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptTreeNode;
 import org.snomed.snowstorm.core.data.services.pojo.DescriptionCriteria;
 import org.snomed.snowstorm.core.data.services.pojo.ResultMapPage;
 import org.snomed.snowstorm.core.pojo.BranchTimepoint;
 import org.snomed.snowstorm.core.pojo.LanguageDialect;
 import org.snomed.snowstorm.core.util.PageHelper;
 import org.snomed.snowstorm.core.util.SearchAfterPage;
+import org.snomed.snowstorm.core.util.SearchAfterPageImpl;
 import org.snomed.snowstorm.core.util.StreamUtil;
 import org.snomed.snowstorm.core.util.TimerUtil;
 import org.snomed.snowstorm.ecl.ECLQueryService;
 import org.snomed.snowstorm.rest.converter.SearchAfterHelper;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Lazy;
@@ -32,15 +38,19 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchAfterPageRequest;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -61,7 +71,7 @@ public class QueryService implements ApplicationContextAware {
 	private ElasticsearchRestTemplate elasticsearchTemplate;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@Autowired
 	private ECLQueryService eclQueryService;
@@ -76,6 +86,9 @@ public class QueryService implements ApplicationContextAware {
 	@Autowired
 	private DescriptionService descriptionService;
 
+	@Value("${search.lexical-logical.ecl-push-down.max-size}")
+	private int eclPushDownMaxSize;
+
 	private ConceptService conceptService;
 
 	private static final Function<Long, Object[]> CONCEPT_ID_SEARCH_AFTER_EXTRACTOR =
@@ -88,12 +101,12 @@ public class QueryService implements ApplicationContextAware {
 	}
 
 	public Page<ConceptMini> search(ConceptQueryBuilder conceptQuery, String branchPath, PageRequest pageRequest) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		Optional<SearchAfterPage<Long>> conceptIdPageOptional = doSearchForIds(conceptQuery, branchPath, branchCriteria, pageRequest);
 
 		if (conceptIdPageOptional.isPresent()) {
 			SearchAfterPage<Long> conceptIdPage = conceptIdPageOptional.get();
-			ResultMapPage<String, ConceptMini> conceptMinis = conceptService.findConceptMinis(branchCriteria, conceptIdPage.getContent(), conceptQuery.getResultLanguageDialects());
+			ResultMapPage<String, ConceptMini> conceptMinis = conceptService.findConceptMinis(branchPath, branchCriteria, conceptIdPage.getContent(), conceptQuery.getResultLanguageDialects());
 			List<ConceptMini> conceptMinisSorted = sortConceptMinisByTermOrder(conceptIdPage.getContent(), conceptMinis.getResultsMap());
 			return PageHelper.toSearchAfterPage(conceptMinisSorted, conceptIdPage);
 		} else {
@@ -104,7 +117,7 @@ public class QueryService implements ApplicationContextAware {
 	}
 
 	public SearchAfterPage<Long> searchForIds(ConceptQueryBuilder conceptQuery, String branchPath, PageRequest pageRequest) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		return searchForIds(conceptQuery, branchPath, branchCriteria, pageRequest);
 	}
 
@@ -139,7 +152,7 @@ public class QueryService implements ApplicationContextAware {
 			return Optional.empty();
 		}
 
-		SearchAfterPage<Long> conceptIdPage;
+		SearchAfterPage<Long> conceptIdPage = null;
 		if (hasLogicalConditions && !hasLexicalCriteria) {
 			// Logical Only
 
@@ -162,9 +175,6 @@ public class QueryService implements ApplicationContextAware {
 		} else {
 			// Logical and Lexical
 
-			// Perform lexical search first because this probably the smaller set.
-			// We fetch all lexical results then use them to filter the logical matches and for ordering of the final results.
-			logger.info("Lexical search before logical {}", term);
 			TimerUtil timer = new TimerUtil("Lexical and Logical Search");
 			// Convert Set of String to set of Long
 			Set<Long> conceptIds = Collections.emptySet();
@@ -173,34 +183,72 @@ public class QueryService implements ApplicationContextAware {
 						.map(Long::parseLong)
 						.collect(Collectors.toSet());
 			}
-			final Collection<Long> allConceptIdsSortedByTermOrder = descriptionService.findDescriptionAndConceptIds(descriptionCriteria, conceptIds, branchCriteria, timer).getMatchedConceptIds();
-			timer.checkpoint("lexical complete");
 
-			// Fetch Logical matches
-			// ECL, QueryConcept and Concept searches are filtered by the conceptIds gathered from the lexical search
-			List<Long> allFilteredLogicalMatches;
+			// Where possible apply the logical conditions within the lexical search
+			// to avoid fetching all lexical matches and intersecting them with all logical matches.
+			boolean logicalAppliedToLexical = false;
+			DescriptionCriteria lexicalCriteria = descriptionCriteria;
 			if (conceptQuery.getEcl() != null) {
-				List<Long> eclMatches = doEclSearch(conceptQuery, branchPath, branchCriteria, allConceptIdsSortedByTermOrder);
-				allFilteredLogicalMatches = applyConceptPropertyFilters(eclMatches, conceptQuery, branchCriteria, new LongArrayList());
+				List<Long> eclMatches = doEclSearchIfSmall(conceptQuery, branchPath, branchCriteria, conceptIds);
+				if (eclMatches != null) {
+					conceptIds = new LongOpenHashSet(applyConceptPropertyFilters(eclMatches, conceptQuery, branchCriteria, new LongArrayList()));
+					logicalAppliedToLexical = true;
+					timer.checkpoint("logical complete");
+				}
 			} else {
-				allFilteredLogicalMatches = new LongArrayList();
-				BoolQueryBuilder conceptBoolQuery = getSearchByConceptIdQuery(conceptQuery, branchCriteria);
-				try (SearchHitsIterator<Concept> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
-						.withQuery(conceptBoolQuery)
-						.withFilter(termsQuery(Concept.Fields.CONCEPT_ID, allConceptIdsSortedByTermOrder))
-						.withFields(Concept.Fields.CONCEPT_ID)
-						.withPageable(LARGE_PAGE)
-						.build(), Concept.class)) {
-					stream.forEachRemaining(hit -> allFilteredLogicalMatches.add(hit.getContent().getConceptIdAsLong()));
+				DescriptionCriteria criteriaWithConceptFilters = getDescriptionCriteriaWithConceptFilters(conceptQuery, descriptionCriteria);
+				if (criteriaWithConceptFilters != null) {
+					lexicalCriteria = criteriaWithConceptFilters;
+					logicalAppliedToLexical = true;
 				}
 			}
 
-			timer.checkpoint("filtered logical complete");
+			if (logicalAppliedToLexical) {
+				logger.info("Lexical search within logical constraints {}", term);
+				List<Long> conceptIdsSortedByTermOrder = new LongArrayList();
+				if (conceptQuery.getEcl() == null || !conceptIds.isEmpty()) {
+					conceptIdsSortedByTermOrder.addAll(descriptionService.findDescriptionAndConceptIds(lexicalCriteria, conceptIds, branchCriteria, timer).getMatchedConceptIds());
+				}
+				timer.checkpoint("lexical complete");
+				conceptIdPage = PageHelper.fullListToPage(conceptIdsSortedByTermOrder, pageRequest, CONCEPT_ID_SEARCH_AFTER_EXTRACTOR);
+			} else if (conceptQuery.getEcl() != null && !conceptQuery.hasPropertyFilter()) {
+				// Stream lexical matches and stop when the page is full
+				conceptIdPage = findFirstLexicalMatchesWithinEcl(conceptQuery, descriptionCriteria, conceptIds, branchPath, branchCriteria, pageRequest, timer);
+			}
+
+			if (conceptIdPage == null) {
+				// Perform lexical search first because this probably the smaller set.
+				// We fetch all lexical results then use them to filter the logical matches and for ordering of the final results.
+				logger.info("Lexical search before logical {}", term);
+				final Collection<Long> allConceptIdsSortedByTermOrder = descriptionService.findDescriptionAndConceptIds(descriptionCriteria, conceptIds, branchCriteria, timer).getMatchedConceptIds();
+				timer.checkpoint("lexical complete");
+
+				// Fetch Logical matches
+				// ECL, QueryConcept and Concept searches are filtered by the conceptIds gathered from the lexical search
+				List<Long> allFilteredLogicalMatches;
+				if (conceptQuery.getEcl() != null) {
+					List<Long> eclMatches = doEclSearch(conceptQuery, branchPath, branchCriteria, allConceptIdsSortedByTermOrder);
+					allFilteredLogicalMatches = applyConceptPropertyFilters(eclMatches, conceptQuery, branchCriteria, new LongArrayList());
+				} else {
+					allFilteredLogicalMatches = new LongArrayList();
+					BoolQueryBuilder conceptBoolQuery = getSearchByConceptIdQuery(conceptQuery, branchCriteria);
+					try (SearchHitsIterator<Concept> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+							.withQuery(conceptBoolQuery)
+							.withFilter(termsQuery(Concept.Fields.CONCEPT_ID, allConceptIdsSortedByTermOrder))
+							.withFields(Concept.Fields.CONCEPT_ID)
+							.withPageable(LARGE_PAGE)
+							.build(), Concept.class)) {
+						stream.forEachRemaining(hit -> allFilteredLogicalMatches.add(hit.getContent().getConceptIdAsLong()));
+					}
+				}
 
-			logger.info("{} lexical results, {} logical results", allConceptIdsSortedByTermOrder.size(), allFilteredLogicalMatches.size());
+				timer.checkpoint("filtered logical complete");
 
-			// Create page of ids which is an intersection of the lexical and logical lists using the lexical ordering
-			conceptIdPage = PageHelper.listIntersection(new ArrayList<>(allConceptIdsSortedByTermOrder), allFilteredLogicalMatches, pageRequest, CONCEPT_ID_SEARCH_AFTER_EXTRACTOR);
+				logger.info("{} lexical results, {} logical results", allConceptIdsSortedByTermOrder.size(), allFilteredLogicalMatches.size());
+
+				// Create page of ids which is an intersection of the lexical and logical lists using the lexical ordering
+				conceptIdPage = PageHelper.listIntersection(new ArrayList<>(allConceptIdsSortedByTermOrder), allFilteredLogicalMatches, pageRequest, CONCEPT_ID_SEARCH_AFTER_EXTRACTOR);
+			}
 		}
 
 		if (conceptIdPage != null) {
@@ -285,6 +333,94 @@ public class QueryService implements ApplicationContextAware {
 		}
 	}
 
+	/**
+	 * Streams lexical matches in term order, probing the set of ECL matches, until the requested page is filled.
+	 * The total is exact if all lexical matches were visited, otherwise it is estimated from the proportion of matches so far.
+	 * @return page of concept ids or null if the description criteria can not be streamed.
+	 */
+	private SearchAfterPage<Long> findFirstLexicalMatchesWithinEcl(ConceptQueryBuilder conceptQuery, DescriptionCriteria descriptionCriteria, Set<Long> conceptIds,
+			String branchPath, BranchCriteria branchCriteria, PageRequest pageRequest, TimerUtil timer) {
+
+		if (!descriptionService.canStream(descriptionCriteria)) {
+			return null;
+		}
+
+		// All ECL matches are needed to probe, these are usually served by the ECL cache
+		LongOpenHashSet logicalMatches = new LongOpenHashSet(eclQueryService.selectConceptIds(conceptQuery.getEcl(), branchCriteria, branchPath, conceptQuery.isStated(),
+				conceptIds.isEmpty() ? null : conceptIds).getContent());
+		timer.checkpoint("logical complete");
+
+		final Object[] searchAfter = pageRequest instanceof SearchAfterPageRequest ? ((SearchAfterPageRequest) pageRequest).getSearchAfter() : null;
+		final int offset = searchAfter == null ? pageRequest.getPageNumber() * pageRequest.getPageSize() : 0;
+		final int pageSize = pageRequest.getPageSize();
+		final List<Long> pageOfResults = new LongArrayList();
+		final AtomicLong matchCount = new AtomicLong();
+		final AtomicBoolean collecting = new AtomicBoolean(searchAfter == null);
+		DescriptionService.DescriptionStreamResult streamResult = descriptionService.streamConceptIdsInTermOrder(descriptionCriteria, branchCriteria, logicalMatches::contains, conceptId -> {
+			long matchNumber = matchCount.incrementAndGet();
+			if (!collecting.get()) {
+				// Skip until the search after item
+				collecting.set(Arrays.equals(searchAfter, CONCEPT_ID_SEARCH_AFTER_EXTRACTOR.apply(conceptId)));
+			} else if (matchNumber > offset) {
+				pageOfResults.add(conceptId);
+			}
+			return pageOfResults.size() < pageSize;
+		}, timer);
+		if (streamResult == null) {
+			return null;
+		}
+
+		long total = matchCount.get();
+		if (!streamResult.isExhausted() && streamResult.getDescriptionsVisited() > 0) {
+			long estimate = Math.round((double) matchCount.get() * streamResult.getTotalDescriptions() / streamResult.getDescriptionsVisited());
+			total = Math.max(total, estimate);
+		}
+		logger.info("{} of {} lexical results visited, {} logical results, {}{} results", streamResult.getDescriptionsVisited(), streamResult.getTotalDescriptions(),
+				logicalMatches.size(), streamResult.isExhausted() ? "" : "estimated ", total);
+
+		Long lastItem = pageOfResults.isEmpty() ? null : pageOfResults.get(pageOfResults.size() - 1);
+		return new SearchAfterPageImpl<>(pageOfResults, pageRequest, total, CONCEPT_ID_SEARCH_AFTER_EXTRACTOR.apply(lastItem));
+	}
+
+	/**
+	 * Runs the ECL of the query only if the number of matches is no more than the push down limit.
+	 * @return all matching concept ids or null if there are too many to use as a filter.
+	 */
+	private List<Long> doEclSearchIfSmall(ConceptQueryBuilder conceptQuery, String branchPath, BranchCriteria branchCriteria, Collection<Long> conceptIdFilter) {
+		if (conceptIdFilter.isEmpty()) {
+			conceptIdFilter = null;
+		}
+		// Fetch one more than the limit so that a single query tells us if the limit is exceeded
+		Page<Long> eclMatches = eclQueryService.selectConceptIds(conceptQuery.getEcl(), branchCriteria, branchPath, conceptQuery.isStated(), conceptIdFilter,
+				PageRequest.of(0, eclPushDownMaxSize + 1));
+		if (eclMatches.getTotalElements() > eclPushDownMaxSize || eclMatches.getContent().size() > eclPushDownMaxSize) {
+			return null;
+		}
+		return eclMatches.getContent();
+	}
+
+	/**
+	 * Copies the concept active, definition status and module filters into a copy of the description criteria if those are the only logical conditions.
+	 * The given criteria are not changed.
+	 * @return description criteria covering all logical conditions of the query or null if that is not possible.
+	 */
+	private DescriptionCriteria getDescriptionCriteriaWithConceptFilters(ConceptQueryBuilder conceptQuery, DescriptionCriteria descriptionCriteria) {
+		if (conceptQuery.getEcl() != null || conceptQuery.getEffectiveTime() != null || conceptQuery.isNullEffectiveTime() != null || conceptQuery.isReleased() != null
+				|| (descriptionCriteria.getConceptActive() != null && conceptQuery.getActiveFilter() != null)
+				|| descriptionCriteria.getConceptDefinitionStatus() != null || descriptionCriteria.getConceptModules() != null) {
+			return null;
+		}
+		DescriptionCriteria criteriaWithConceptFilters = descriptionCriteria.copy();
+		if (conceptQuery.getActiveFilter() != null) {
+			criteriaWithConceptFilters.conceptActive(conceptQuery.getActiveFilter());
+		}
+		criteriaWithConceptFilters.conceptDefinitionStatus(conceptQuery.getDefinitionStatusFilter());
+		if (conceptQuery.getModule() != null) {
+			criteriaWithConceptFilters.conceptModules(conceptQuery.getModule().stream().map(Object::toString).collect(Collectors.toSet()));
+		}
+		return criteriaWithConceptFilters;
+	}
+
 	private List<Long> doEclSearch(ConceptQueryBuilder conceptQuery, String branchPath, BranchCriteria branchCriteria, Collection<Long> conceptIdFilter) {
 		String ecl = conceptQuery.getEcl();
 		logger.debug("ECL Search {}", ecl);
@@ -307,7 +443,7 @@ public class QueryService implements ApplicationContextAware {
 	}
 
 	public Set<Long> findAncestorIds(String conceptId, String path, boolean stated) {
-		return findAncestorIds(versionControlHelper.getBranchCriteria(path), path, stated, conceptId);
+		return findAncestorIds(branchCriteriaProvider.getBranchCriteria(path), path, stated, conceptId);
 	}
 
 	public Set<Long> findParentIds(BranchCriteria branchCriteria, boolean stated, Collection<Long> conceptIds) {
@@ -485,29 +621,9 @@ public class QueryService implements ApplicationContextAware {
 		} catch (IllegalStateException e) {
 			throw new ServiceException(String.format("Mutiple documents found with the same conceptId '%s' on branch %s", e.getMessage(), branch), e);
 		}
-		Set<Long> conceptIdsToFind = new HashSet<>(conceptMap.keySet());
-		NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
-				.withQuery(new BoolQueryBuilder()
-						.must(branchCriteria.getEntityBranchCriteria(QueryConcept.class))
-						.must(termQuery(QueryConcept.Fields.STATED, form == Relationship.CharacteristicType.stated))
-						.must(termsQuery(QueryConcept.Fields.PARENTS, conceptIdsToFind)))
-				.withPageable(LARGE_PAGE);
-		try (SearchHitsIterator<QueryConcept> children = elasticsearchTemplate.searchForStream(queryBuilder.build(), QueryConcept.class)) {
-			children.forEachRemaining(hit -> {
-				if (conceptIdsToFind.isEmpty()) {
-					return;
-				}
-				Set<Long> parents = hit.getContent().getParents();
-				for (Long parent : parents) {
-					if (conceptIdsToFind.contains(parent)) {
-						// Concept has at least one child in this form - mark as not a leaf.
-						conceptMap.get(parent).setLeaf(form, false);
-						// We don't need to check this one again
-						conceptIdsToFind.remove(parent);
-					}
-				}
-			});
-		}
+		// Concepts with at least one child in this form are not leaves
+		countSemanticIndexReferences(QueryConcept.Fields.PARENTS, conceptMap.keySet(), form, branchCriteria)
+				.forEach((conceptId, childCount) -> conceptMap.get(conceptId).setLeaf(form, false));
 	}
 
 	public void joinDescendantCountAndLeafFlag(Collection<ConceptMini> concepts, Relationship.CharacteristicType form, String branchPath, BranchCriteria branchCriteria) {
@@ -515,11 +631,138 @@ public class QueryService implements ApplicationContextAware {
 			return;
 		}
 
+		Set<Long> conceptIds = concepts.stream().map(concept -> parseLong(concept.getConceptId())).collect(Collectors.toSet());
+		Map<Long, Long> descendantCounts = countSemanticIndexReferences(QueryConcept.Fields.ANCESTORS, conceptIds, form, branchCriteria);
 		for (ConceptMini concept : concepts) {
-			SearchAfterPage<Long> page = searchForIds(createQueryBuilder(form).ecl("<" + concept.getId()), branchPath, branchCriteria, PAGE_OF_ONE);
-			concept.setDescendantCount(page.getTotalElements());
-			concept.setLeaf(form, page.getTotalElements() == 0);
+			long descendantCount = descendantCounts.getOrDefault(parseLong(concept.getConceptId()), 0L);
+			concept.setDescendantCount(descendantCount);
+			concept.setLeaf(form, descendantCount == 0);
+		}
+	}
+
+	/**
+	 * Loads the subtree of the hierarchy below a concept, one level at a time using the parents field of the semantic index.
+	 * A level is only expanded if all of its concepts fit within the node limit, so every expanded node has all of its children.
+	 * A concept with several parents in the subtree is shown under each of them and expanded once.
+	 * @param headBranchCriteria Branch criteria for the head of the branch, used to resolve concept minis.
+	 * @return the root node or null if the concept is not in the semantic index.
+	 */
+	public ConceptTreeNode findSubtree(String conceptId, Relationship.CharacteristicType form, int depth, int maxNodes, List<LanguageDialect> languageDialects,
+			String branchPath, BranchCriteria headBranchCriteria) {
+
+		Long rootId = parseLong(conceptId);
+		Map<Long, Set<Long>> childrenByParent = new HashMap<>();
+		Set<Long> treeConceptIds = new LinkedHashSet<>();
+		treeConceptIds.add(rootId);
+		Set<Long> expandedConceptIds = new HashSet<>();
+		Set<Long> frontier = Collections.singleton(rootId);
+		for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+			Map<Long, Set<Long>> levelChildrenByParent = findChildren(frontier, form, headBranchCriteria);
+			Set<Long> newConceptIds = new HashSet<>();
+			levelChildrenByParent.values().forEach(newConceptIds::addAll);
+			newConceptIds.removeAll(treeConceptIds);
+			if (treeConceptIds.size() + newConceptIds.size() > maxNodes) {
+				break;
+			}
+			childrenByParent.putAll(levelChildrenByParent);
+			expandedConceptIds.addAll(frontier);
+			treeConceptIds.addAll(newConceptIds);
+			frontier = newConceptIds;
+		}
+
+		Map<String, ConceptMini> minis = conceptService.findConceptMinis(branchPath, headBranchCriteria, treeConceptIds, languageDialects).getResultsMap();
+		if (!minis.containsKey(conceptId)) {
+			return null;
+		}
+
+		// Leaf flag of expanded nodes is known, others need to be checked
+		List<ConceptMini> notExpanded = new ArrayList<>();
+		for (Long treeConceptId : treeConceptIds) {
+			ConceptMini mini = minis.get(treeConceptId.toString());
+			if (mini != null) {
+				if (expandedConceptIds.contains(treeConceptId)) {
+					mini.setLeaf(form, childrenByParent.getOrDefault(treeConceptId, Collections.emptySet()).isEmpty());
+				} else {
+					notExpanded.add(mini.setLeaf(form, true));
+				}
+			}
+		}
+		if (!notExpanded.isEmpty()) {
+			countSemanticIndexReferences(QueryConcept.Fields.PARENTS, notExpanded.stream().map(mini -> parseLong(mini.getConceptId())).collect(Collectors.toSet()), form, headBranchCriteria)
+					.keySet().forEach(parentId -> minis.get(parentId.toString()).setLeaf(form, false));
+		}
+
+		Map<Long, ConceptTreeNode> nodes = new HashMap<>();
+		for (Long treeConceptId : treeConceptIds) {
+			ConceptMini mini = minis.get(treeConceptId.toString());
+			if (mini != null) {
+				ConceptTreeNode node = new ConceptTreeNode(mini);
+				if (expandedConceptIds.contains(treeConceptId)) {
+					node.setExpanded();
+				}
+				nodes.put(treeConceptId, node);
+			}
+		}
+		Comparator<ConceptTreeNode> termOrder = Comparator.comparing((ConceptTreeNode node) -> Optional.ofNullable(node.getConcept().getFsnTerm()).orElse(""))
+				.thenComparing(node -> node.getConcept().getConceptId());
+		childrenByParent.forEach((parentId, childIds) -> {
+			ConceptTreeNode parentNode = nodes.get(parentId);
+			if (parentNode != null) {
+				childIds.stream().map(nodes::get).filter(Objects::nonNull).sorted(termOrder).forEach(parentNode::addChild);
+			}
+		});
+		return nodes.get(rootId);
+	}
+
+	private Map<Long, Set<Long>> findChildren(Set<Long> parentIds, Relationship.CharacteristicType form, BranchCriteria branchCriteria) {
+		Map<Long, Set<Long>> childrenByParent = new HashMap<>();
+		for (List<Long> batch : Iterables.partition(parentIds, CLAUSE_LIMIT)) {
+			NativeSearchQuery query = new NativeSearchQueryBuilder()
+					.withQuery(boolQuery()
+							.must(branchCriteria.getEntityBranchCriteria(QueryConcept.class))
+							.must(termQuery(QueryConcept.Fields.STATED, form == Relationship.CharacteristicType.stated))
+							.filter(termsQuery(QueryConcept.Fields.PARENTS, batch)))
+					.withSourceFilter(new FetchSourceFilter(new String[]{QueryConcept.Fields.CONCEPT_ID, QueryConcept.Fields.PARENTS}, new String[]{}))
+					.withPageable(LARGE_PAGE)
+					.build();
+			try (SearchHitsIterator<QueryConcept> children = elasticsearchTemplate.searchForStream(query, QueryConcept.class)) {
+				children.forEachRemaining(hit -> {
+					QueryConcept child = hit.getContent();
+					for (Long parent : child.getParents()) {
+						if (parentIds.contains(parent)) {
+							childrenByParent.computeIfAbsent(parent, id -> new HashSet<>()).add(child.getConceptIdL());
+						}
+					}
+				});
+			}
 		}
+		return childrenByParent;
+	}
+
+	/**
+	 * Counts the semantic index documents which refer to each of the given concepts in the parents or ancestors field,
+	 * giving the number of children or descendants. Uses a terms aggregation so each batch of concepts is one request.
+	 * @return map of concept id to count, concepts with no references are not included.
+	 */
+	private Map<Long, Long> countSemanticIndexReferences(String field, Collection<Long> conceptIds, Relationship.CharacteristicType form, BranchCriteria branchCriteria) {
+		Map<Long, Long> counts = new HashMap<>();
+		for (List<Long> batch : Iterables.partition(conceptIds, CLAUSE_LIMIT)) {
+			NativeSearchQuery query = new NativeSearchQueryBuilder()
+					.withQuery(boolQuery()
+							.must(branchCriteria.getEntityBranchCriteria(QueryConcept.class))
+							.must(termQuery(QueryConcept.Fields.STATED, form == Relationship.CharacteristicType.stated))
+							.filter(termsQuery(field, batch)))
+					.addAggregation(AggregationBuilders.terms(field).field(field)
+							.includeExclude(new IncludeExclude(batch.stream().mapToLong(Long::longValue).toArray(), null))
+							.size(batch.size()))
+					.withPageable(PAGE_OF_ONE)
+					.build();
+			Terms terms = elasticsearchTemplate.search(query, QueryConcept.class).getAggregations().get(field);
+			for (Terms.Bucket bucket : terms.getBuckets()) {
+				counts.put(bucket.getKeyAsNumber().longValue(), bucket.getDocCount());
+			}
+		}
+		return counts;
 	}
 
 	public void joinDescendantCount(Concept concept, Relationship.CharacteristicType form, List<LanguageDialect> languageDialects, BranchTimepoint branchTimepoint) {
@@ -532,6 +775,10 @@ public class QueryService implements ApplicationContextAware {
 		concept.setDescendantCount(mini.getDescendantCount());
 	}
 
+	public void setEclPushDownMaxSize(int eclPushDownMaxSize) {
+		this.eclPushDownMaxSize = eclPushDownMaxSize;
+	}
+
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
 		conceptService = applicationContext.getBean(ConceptService.class);
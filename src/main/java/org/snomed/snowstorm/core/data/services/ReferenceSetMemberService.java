@@ -77,6 +77,9 @@ public class ReferenceSetMemberService extends ComponentService {
 	@Autowired
 	private VersionControlHelper versionControlHelper;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	@Autowired
 	private ElasticsearchOperations elasticsearchTemplate;
 
@@ -119,7 +122,7 @@ public class ReferenceSetMemberService extends ComponentService {
 	 * @return	A page of matched reference set members.
 	 */
 	public Page<ReferenceSetMember> findMembers(String branch, MemberSearchRequest searchRequest, PageRequest pageRequest) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		NativeSearchQuery query = new NativeSearchQueryBuilder().withQuery(buildMemberQuery(searchRequest, branch, branchCriteria)).withPageable(pageRequest).build();
 		query.setTrackTotalHits(true);
 		SearchHits<ReferenceSetMember> searchHits = elasticsearchTemplate.search(query, ReferenceSetMember.class);
@@ -229,7 +232,7 @@ public class ReferenceSetMemberService extends ComponentService {
 	}
 
 	public List<ReferenceSetMember> findMembers(String branch, Collection<String> uuids) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		return findMembers(branchCriteria, uuids);
 	}
 
@@ -269,7 +272,7 @@ public class ReferenceSetMemberService extends ComponentService {
 		if (uuids.isEmpty()) {
 			return;
 		}
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		NativeSearchQuery query = new NativeSearchQueryBuilder().withQuery(boolQuery()
 				.must(branchCriteria.getEntityBranchCriteria(ReferenceSetMember.class))
 				.must(termsQuery(ReferenceSetMember.Fields.MEMBER_ID, uuids)))
@@ -376,7 +379,17 @@ public class ReferenceSetMemberService extends ComponentService {
 
 		members.forEach(ReferenceSetMember::updateEffectiveTime);
 
-		// Set conceptId on those members which are considered part of the concept or its components
+		setConceptIds(members, commit);
+
+		return doSaveBatchComponents(members, commit, ReferenceSetMember.Fields.MEMBER_ID, memberRepository);
+	}
+
+	/**
+	 * Sets the conceptId of members which are considered part of a concept or its components.
+	 * Members which refer to a description which does not exist are removed.
+	 * Called when members are saved, the RF2 import calls this before saving so that the description lookups can run in parallel.
+	 */
+	public void setConceptIds(Collection<ReferenceSetMember> members, Commit commit) {
 		List<ReferenceSetMember> descriptionMembers = new ArrayList<>();
 		LongSet descriptionIds = new LongArraySet();
 		members.stream()
@@ -426,8 +439,6 @@ public class ReferenceSetMemberService extends ComponentService {
 				member.setConceptId(description.getConceptId());
 			});
 		}
-
-		return doSaveBatchComponents(members, commit, ReferenceSetMember.Fields.MEMBER_ID, memberRepository);
 	}
 
 	Set<Long> findConceptsInReferenceSet(BranchCriteria branchCriteria, String referenceSetId) {
@@ -493,7 +504,7 @@ public class ReferenceSetMemberService extends ComponentService {
 	}
 
 	public List<ReferenceSetType> findConfiguredReferenceSetTypes(String path) {
-		QueryBuilder branchCriteria = versionControlHelper.getBranchCriteria(path).getEntityBranchCriteria(ReferenceSetType.class);
+		QueryBuilder branchCriteria = branchCriteriaProvider.getBranchCriteria(path).getEntityBranchCriteria(ReferenceSetType.class);
 		NativeSearchQuery query = new NativeSearchQueryBuilder().withQuery(branchCriteria).withPageable(LARGE_PAGE).build();
 		return elasticsearchTemplate.search(query, ReferenceSetType.class).stream().map(SearchHit::getContent).collect(Collectors.toList());
 	}
@@ -521,7 +532,7 @@ public class ReferenceSetMemberService extends ComponentService {
 	}
 
 	public PageWithBucketAggregations<ReferenceSetMember> findReferenceSetMembersWithAggregations(String branch, PageRequest pageRequest, MemberSearchRequest searchRequest) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		BoolQueryBuilder query = buildMemberQuery(searchRequest, branch, branchCriteria);
 		NativeSearchQuery searchQuery = new NativeSearchQueryBuilder()
 				.withQuery(query)
@@ -4,7 +4,6 @@ import com.google.common.collect.Iterables;
 import io.kaicode.elasticvc.api.BranchCriteria;
 import io.kaicode.elasticvc.api.BranchService;
 import io.kaicode.elasticvc.api.ComponentService;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import io.kaicode.elasticvc.domain.Commit;
 import io.kaicode.rest.util.branchpathrewrite.BranchPathUriUtil;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -41,7 +40,7 @@ public class RelationshipService extends ComponentService {
 	private ElasticsearchOperations elasticsearchOperations;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@Autowired
 	private BranchService branchService;
@@ -117,7 +116,7 @@ public class RelationshipService extends ComponentService {
 			Integer group,
 			PageRequest page) {
 
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 
 		BoolQueryBuilder query = boolQuery()
 				.must(branchCriteria.getEntityBranchCriteria(Relationship.class));
@@ -161,7 +160,7 @@ public class RelationshipService extends ComponentService {
 	}
 
 	private List<Relationship> findRelationships(Set<String> relationshipIds, String branchPath) {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		return elasticsearchOperations.search(new NativeSearchQueryBuilder()
 				.withQuery(boolQuery()
 						.must(branchCriteria.getEntityBranchCriteria(Relationship.class))
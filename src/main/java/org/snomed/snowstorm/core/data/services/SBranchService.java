@@ -59,6 +59,9 @@ public class SBranchService {
 	@Autowired
 	private CommitServiceHookClient commitServiceHookClient;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
 	public Branch create(String branch) {
@@ -146,6 +149,8 @@ public class SBranchService {
 		}
 
 		branchService.rollbackCompletedCommit(branchVersion, new ArrayList<>(domainEntityConfiguration.getAllDomainEntityTypes()));
+		// Rollback does not go through the commit listeners
+		branchCriteriaProvider.invalidate(branchPath);
 	}
 
 	public void rollbackPartialCommit(String branchPath) {
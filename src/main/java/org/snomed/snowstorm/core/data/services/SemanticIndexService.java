@@ -1,68 +1,233 @@
 package org.snomed.snowstorm.core.data.services;
 
+import com.google.common.collect.Iterables;
 import io.kaicode.elasticvc.api.BranchCriteria;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.filter.Filters;
+import org.elasticsearch.search.aggregations.bucket.filter.FiltersAggregator;
 import org.snomed.snowstorm.core.data.domain.Concepts;
 import org.snomed.snowstorm.core.data.domain.QueryConcept;
-import org.snomed.snowstorm.core.data.services.pojo.MapPage;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptPair;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptReferencesPage;
+import org.snomed.snowstorm.core.data.services.pojo.SubsumptionResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
 
+import static io.kaicode.elasticvc.api.ComponentService.CLAUSE_LIMIT;
+import static io.kaicode.elasticvc.api.ComponentService.LARGE_PAGE;
 import static java.lang.Long.parseLong;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 @Service
 public class SemanticIndexService {
 
+	private static final String REFERENCE_TYPES_AGGREGATION = "referenceTypes";
+
 	@Autowired
 	private ElasticsearchOperations elasticsearchTemplate;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
+	public ConceptReferencesPage findConceptReferences(String branch, Long conceptId, boolean stated, PageRequest pageRequest) {
+		return findConceptReferences(branch, conceptId, stated, null, pageRequest);
+	}
+
+	/**
+	 * Finds the concepts which reference a concept, as a parent or as an attribute value, grouped by reference type.
+	 * The number of referencing concepts of each type is counted with a filters aggregation, so high fan-in concepts do not need all referencing
+	 * concepts to be loaded. Counts are given for IS_A, the requested type and the attribute types found in the page.
+	 * @param referenceType If given only concepts referencing the concept with this type are returned, counts are not restricted by the type.
+	 */
+	public ConceptReferencesPage findConceptReferences(String branch, Long conceptId, boolean stated, Long referenceType, PageRequest pageRequest) {
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
+		BoolQueryBuilder referencesQuery = boolQuery()
+				.must(branchCriteria.getEntityBranchCriteria(QueryConcept.class))
+				.must(termQuery(QueryConcept.Fields.STATED, stated))
+				.must(boolQuery()// New bool query where at least one should must match
+						.should(termQuery(QueryConcept.Fields.PARENTS, conceptId))
+						.should(termQuery(QueryConcept.Fields.ATTR + "." + QueryConcept.ATTR_TYPE_WILDCARD, conceptId)));
 
-	public MapPage<Long, Set<Long>> findConceptReferences(String branch, Long conceptId, boolean stated, PageRequest pageRequest) {
-		Map<Long, Set<Long>> referenceTypeToConceptMap = new HashMap<>();
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
 		NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
-				.withQuery(boolQuery()
-						.must(branchCriteria.getEntityBranchCriteria(QueryConcept.class))
-						.must(termQuery(QueryConcept.Fields.STATED, stated))
-						.must(boolQuery()// New bool query where at least one should must match
-								.should(termQuery(QueryConcept.Fields.PARENTS, conceptId))
-								.should(termQuery(QueryConcept.Fields.ATTR + "." + QueryConcept.ATTR_TYPE_WILDCARD, conceptId)))
-				)
+				.withQuery(referencesQuery)
+				.withSourceFilter(new FetchSourceFilter(new String[]{QueryConcept.Fields.CONCEPT_ID, QueryConcept.Fields.PARENTS, QueryConcept.Fields.ATTR_MAP}, new String[]{}))
 				.withPageable(pageRequest);
-		String conceptIdString = conceptId.toString();
+		if (referenceType != null) {
+			queryBuilder.withFilter(getReferenceTypeQuery(referenceType, conceptId));
+		}
 		SearchHits<QueryConcept> queryConcepts = elasticsearchTemplate.search(queryBuilder.build(), QueryConcept.class);
 
+		Map<Long, Set<Long>> referenceTypeToConceptMap = new HashMap<>();
+		Set<Long> countedTypes = new TreeSet<>();
+		countedTypes.add(Concepts.IS_A_LONG);
+		if (referenceType != null) {
+			countedTypes.add(referenceType);
+		}
+		String conceptIdString = conceptId.toString();
 		for (SearchHit<QueryConcept> hit : queryConcepts.getSearchHits()) {
-			if (hit.getContent().getAncestors().contains(conceptId)) {
+			QueryConcept queryConcept = hit.getContent();
+			if (queryConcept.getParents() != null && queryConcept.getParents().contains(conceptId) && (referenceType == null || referenceType.equals(Concepts.IS_A_LONG))) {
 				referenceTypeToConceptMap.computeIfAbsent(Concepts.IS_A_LONG, id -> new LongOpenHashSet())
-						.add(hit.getContent().getConceptIdL());
-			} else {
-				Map<String, Set<Object>> attributes = hit.getContent().getAttr();
+						.add(queryConcept.getConceptIdL());
+			}
+			Map<String, Set<Object>> attributes = queryConcept.getAttr();
+			if (attributes != null) {
 				for (String attributeId : attributes.keySet()) {
-					if (attributeId.equals(QueryConcept.ATTR_TYPE_WILDCARD)) {
+					if (isWildcardAttribute(attributeId) || !attributes.get(attributeId).contains(conceptIdString)) {
 						continue;
 					}
-					if (attributes.get(attributeId).contains(conceptIdString)) {
+					countedTypes.add(parseLong(attributeId));
+					if (referenceType == null || referenceType.toString().equals(attributeId)) {
 						referenceTypeToConceptMap.computeIfAbsent(parseLong(attributeId), id -> new LongOpenHashSet())
-								.add(hit.getContent().getConceptIdL());
+								.add(queryConcept.getConceptIdL());
 					}
 				}
 			}
 		}
-		return new MapPage<>(referenceTypeToConceptMap, pageRequest, queryConcepts.getTotalHits());
+		return new ConceptReferencesPage(referenceTypeToConceptMap, pageRequest, queryConcepts.getTotalHits(), countReferenceTypes(referencesQuery, conceptId, countedTypes));
+	}
+
+	private Map<Long, Long> countReferenceTypes(QueryBuilder referencesQuery, Long conceptId, Set<Long> referenceTypes) {
+		List<FiltersAggregator.KeyedFilter> typeFilters = new ArrayList<>();
+		for (Long referenceType : referenceTypes) {
+			typeFilters.add(new FiltersAggregator.KeyedFilter(referenceType.toString(), getReferenceTypeQuery(referenceType, conceptId)));
+		}
+		NativeSearchQuery countQuery = new NativeSearchQueryBuilder()
+				.withQuery(referencesQuery)
+				.addAggregation(AggregationBuilders.filters(REFERENCE_TYPES_AGGREGATION, typeFilters.toArray(new FiltersAggregator.KeyedFilter[]{})))
+				.withPageable(PageRequest.of(0, 1))
+				.build();
+		SearchHits<QueryConcept> countHits = elasticsearchTemplate.search(countQuery, QueryConcept.class);
+
+		Map<Long, Long> referenceTypeCounts = new HashMap<>();
+		Filters typeCounts = countHits.getAggregations().get(REFERENCE_TYPES_AGGREGATION);
+		for (Filters.Bucket bucket : typeCounts.getBuckets()) {
+			if (bucket.getDocCount() > 0) {
+				referenceTypeCounts.put(parseLong(bucket.getKeyAsString()), bucket.getDocCount());
+			}
+		}
+		return referenceTypeCounts;
+	}
+
+	private QueryBuilder getReferenceTypeQuery(Long referenceType, Long conceptId) {
+		if (referenceType.equals(Concepts.IS_A_LONG)) {
+			return termQuery(QueryConcept.Fields.PARENTS, conceptId);
+		}
+		return termQuery(QueryConcept.Fields.ATTR + "." + referenceType, conceptId);
+	}
+
+	private boolean isWildcardAttribute(String attributeId) {
+		return attributeId.equals(QueryConcept.ATTR_TYPE_WILDCARD) || attributeId.equals(QueryConcept.ATTR_NUMERIC_TYPE_WILDCARD);
+	}
+
+	/**
+	 * Tests subsumption between each pair of concepts using the ancestors in the semantic index.
+	 * The ancestors of all concepts are loaded once and the answers computed in memory.
+	 * Concepts which are not in the semantic index, including inactive concepts, give a not-found outcome.
+	 */
+	public List<SubsumptionResult> findSubsumption(String branch, List<ConceptPair> pairs, boolean stated, boolean includeLowestCommonAncestors) {
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
+		Set<Long> conceptIds = new LongOpenHashSet();
+		for (ConceptPair pair : pairs) {
+			conceptIds.add(parseLong(pair.getCodeA()));
+			conceptIds.add(parseLong(pair.getCodeB()));
+		}
+		Map<Long, Set<Long>> ancestorMap = findAncestors(conceptIds, stated, branchCriteria);
+
+		if (includeLowestCommonAncestors) {
+			// The ancestors of common ancestors are needed to find the lowest ones
+			Set<Long> commonAncestorIds = new LongOpenHashSet();
+			for (ConceptPair pair : pairs) {
+				commonAncestorIds.addAll(getCommonAncestors(parseLong(pair.getCodeA()), parseLong(pair.getCodeB()), ancestorMap));
+			}
+			commonAncestorIds.removeAll(ancestorMap.keySet());
+			ancestorMap.putAll(findAncestors(commonAncestorIds, stated, branchCriteria));
+		}
+
+		List<SubsumptionResult> results = new ArrayList<>();
+		for (ConceptPair pair : pairs) {
+			Long conceptA = parseLong(pair.getCodeA());
+			Long conceptB = parseLong(pair.getCodeB());
+			Set<Long> ancestorsA = ancestorMap.get(conceptA);
+			Set<Long> ancestorsB = ancestorMap.get(conceptB);
+			SubsumptionResult.Outcome outcome;
+			if (ancestorsA == null || ancestorsB == null) {
+				outcome = SubsumptionResult.Outcome.NOT_FOUND;
+			} else if (conceptA.equals(conceptB)) {
+				outcome = SubsumptionResult.Outcome.EQUIVALENT;
+			} else if (ancestorsB.contains(conceptA)) {
+				outcome = SubsumptionResult.Outcome.SUBSUMES;
+			} else if (ancestorsA.contains(conceptB)) {
+				outcome = SubsumptionResult.Outcome.SUBSUMED_BY;
+			} else {
+				outcome = SubsumptionResult.Outcome.NOT_SUBSUMED;
+			}
+			SubsumptionResult result = new SubsumptionResult(pair.getCodeA(), pair.getCodeB(), outcome);
+			if (includeLowestCommonAncestors && outcome != SubsumptionResult.Outcome.NOT_FOUND) {
+				result.setLowestCommonAncestors(getLowestCommonAncestors(conceptA, conceptB, ancestorMap));
+			}
+			results.add(result);
+		}
+		return results;
+	}
+
+	private Set<String> getLowestCommonAncestors(Long conceptA, Long conceptB, Map<Long, Set<Long>> ancestorMap) {
+		Set<Long> common = getCommonAncestors(conceptA, conceptB, ancestorMap);
+		// A common ancestor is not the lowest if it is an ancestor of another common ancestor
+		Set<Long> notLowest = new LongOpenHashSet();
+		for (Long commonAncestor : common) {
+			notLowest.addAll(ancestorMap.getOrDefault(commonAncestor, Collections.emptySet()));
+		}
+		return common.stream().filter(id -> !notLowest.contains(id)).map(Object::toString).collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	private Set<Long> getCommonAncestors(Long conceptA, Long conceptB, Map<Long, Set<Long>> ancestorMap) {
+		Set<Long> ancestorsA = ancestorMap.get(conceptA);
+		Set<Long> ancestorsB = ancestorMap.get(conceptB);
+		if (ancestorsA == null || ancestorsB == null) {
+			return Collections.emptySet();
+		}
+		// Each concept is included in its own set so that a concept is the common ancestor of itself and its descendants
+		Set<Long> selfAndAncestorsA = new LongOpenHashSet(ancestorsA);
+		selfAndAncestorsA.add(conceptA);
+		Set<Long> common = new LongOpenHashSet(ancestorsB);
+		common.add(conceptB);
+		common.retainAll(selfAndAncestorsA);
+		return common;
+	}
+
+	private Map<Long, Set<Long>> findAncestors(Collection<Long> conceptIds, boolean stated, BranchCriteria branchCriteria) {
+		Map<Long, Set<Long>> ancestorMap = new HashMap<>();
+		for (List<Long> batch : Iterables.partition(conceptIds, CLAUSE_LIMIT)) {
+			NativeSearchQuery query = new NativeSearchQueryBuilder()
+					.withQuery(boolQuery()
+							.must(branchCriteria.getEntityBranchCriteria(QueryConcept.class))
+							.must(termQuery(QueryConcept.Fields.STATED, stated))
+							.filter(termsQuery(QueryConcept.Fields.CONCEPT_ID, batch)))
+					.withSourceFilter(new FetchSourceFilter(new String[]{QueryConcept.Fields.CONCEPT_ID, QueryConcept.Fields.ANCESTORS}, new String[]{}))
+					.withPageable(LARGE_PAGE)
+					.build();
+			try (SearchHitsIterator<QueryConcept> stream = elasticsearchTemplate.searchForStream(query, QueryConcept.class)) {
+				stream.forEachRemaining(hit -> {
+					Set<Long> ancestors = hit.getContent().getAncestors();
+					ancestorMap.put(hit.getContent().getConceptIdL(), ancestors != null ? new LongOpenHashSet(ancestors) : new LongOpenHashSet());
+				});
+			}
+		}
+		return ancestorMap;
 	}
 }
@@ -113,7 +113,14 @@ public class SemanticIndexUpdateService extends ComponentService implements Comm
 	}
 
 	private void updateStatedAndInferredSemanticIndex(Commit commit) throws IllegalStateException, ConversionException, GraphBuilderException, ServiceException {
-		if (commit.isRebase()) {
+		if (BranchMetadataHelper.isSemanticIndexDeferredForCommit(commit)) {
+			logger.info("Semantic index update deferred to the next commit on {}.", commit.getBranch().getPath());
+			BranchMetadataHelper.setSemanticIndexRebuildRequired(commit, true);
+			return;
+		}
+		if (commit.isRebase() || BranchMetadataHelper.isSemanticIndexRebuildRequired(commit)) {
+			// Content of deferred commits is included in the rebuild
+			BranchMetadataHelper.setSemanticIndexRebuildRequired(commit, false);
 			rebuildSemanticIndex(commit, false);
 		} else if (commit.getCommitType() != Commit.CommitType.PROMOTION) {
 			// Update query index using changes in the current commit
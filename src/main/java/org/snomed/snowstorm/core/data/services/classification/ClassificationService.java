@@ -112,6 +112,9 @@ public class ClassificationService {
 	@Autowired
 	private VersionControlHelper versionControlHelper;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	@Autowired
 	private ConceptAttributeSortHelper conceptAttributeSortHelper;
 
@@ -696,7 +699,7 @@ public class ClassificationService {
 				continue;
 			}
 
-			BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(classification.getPath());
+			BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(classification.getPath());
 			try (SearchHitsIterator<QueryConcept> semanticIndexConcepts = elasticsearchOperations.searchForStream(
 					new NativeSearchQueryBuilder()
 							.withQuery(boolQuery()
@@ -0,0 +1,31 @@
+package org.snomed.snowstorm.core.data.services.pojo;
+
+public class ConceptPair {
+
+	private String codeA;
+	private String codeB;
+
+	public ConceptPair() {
+	}
+
+	public ConceptPair(String codeA, String codeB) {
+		this.codeA = codeA;
+		this.codeB = codeB;
+	}
+
+	public String getCodeA() {
+		return codeA;
+	}
+
+	public void setCodeA(String codeA) {
+		this.codeA = codeA;
+	}
+
+	public String getCodeB() {
+		return codeB;
+	}
+
+	public void setCodeB(String codeB) {
+		this.codeB = codeB;
+	}
+}
@@ -0,0 +1,23 @@
+package org.snomed.snowstorm.core.data.services.pojo;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Page of concepts referencing a concept, grouped by reference type, with the total number of referencing concepts of each type.
+ */
+public class ConceptReferencesPage extends MapPage<Long, Set<Long>> {
+
+	private final Map<Long, Long> referenceTypeCounts;
+
+	public ConceptReferencesPage(Map<Long, Set<Long>> map, Pageable pageable, long totalElements, Map<Long, Long> referenceTypeCounts) {
+		super(map, pageable, totalElements);
+		this.referenceTypeCounts = referenceTypeCounts;
+	}
+
+	public Map<Long, Long> getReferenceTypeCounts() {
+		return referenceTypeCounts;
+	}
+}
@@ -0,0 +1,45 @@
+package org.snomed.snowstorm.core.data.services.pojo;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import org.snomed.snowstorm.core.data.domain.ConceptMini;
+import org.snomed.snowstorm.rest.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A concept within a subtree of the hierarchy.
+ * Children are null if the node was not expanded, otherwise the list contains all children of the concept.
+ */
+public class ConceptTreeNode {
+
+	private final ConceptMini concept;
+	private List<ConceptTreeNode> children;
+
+	public ConceptTreeNode(ConceptMini concept) {
+		this.concept = concept;
+	}
+
+	public void addChild(ConceptTreeNode child) {
+		if (children == null) {
+			children = new ArrayList<>();
+		}
+		children.add(child);
+	}
+
+	public void setExpanded() {
+		if (children == null) {
+			children = new ArrayList<>();
+		}
+	}
+
+	@JsonView(value = View.Component.class)
+	public ConceptMini getConcept() {
+		return concept;
+	}
+
+	@JsonView(value = View.Component.class)
+	public List<ConceptTreeNode> getChildren() {
+		return children;
+	}
+}
@@ -3,9 +3,7 @@ package org.snomed.snowstorm.core.data.services.pojo;
 import org.snomed.snowstorm.core.data.services.DescriptionService;
 import org.springframework.util.CollectionUtils;
 
-import java.util.Collection;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 import static org.snomed.snowstorm.config.Config.DEFAULT_LANGUAGE_CODES;
 
@@ -21,6 +19,8 @@ public class DescriptionCriteria {
 	private String semanticTag;
 	private Set<String> semanticTags;
 	private Boolean conceptActive;
+	private String conceptDefinitionStatus;
+	private Collection<String> conceptModules;
 	private String conceptRefset;
 	private boolean groupByConcept;
 	private DescriptionService.SearchMode searchMode = DescriptionService.SearchMode.STANDARD;
@@ -168,6 +168,28 @@ public class DescriptionCriteria {
 		return conceptActive;
 	}
 
+	public DescriptionCriteria conceptDefinitionStatus(String conceptDefinitionStatus) {
+		this.conceptDefinitionStatus = conceptDefinitionStatus;
+		return this;
+	}
+
+	public String getConceptDefinitionStatus() {
+		return conceptDefinitionStatus;
+	}
+
+	public DescriptionCriteria conceptModules(Collection<String> conceptModules) {
+		this.conceptModules = conceptModules;
+		return this;
+	}
+
+	public Collection<String> getConceptModules() {
+		return conceptModules;
+	}
+
+	public boolean hasConceptPropertyCriteria() {
+		return conceptActive != null || conceptDefinitionStatus != null || !CollectionUtils.isEmpty(conceptModules);
+	}
+
 	public DescriptionCriteria conceptRefset(String conceptRefset) {
 		this.conceptRefset = conceptRefset;
 		return this;
@@ -195,6 +217,40 @@ public class DescriptionCriteria {
 		return searchMode;
 	}
 
+	/**
+	 * @return a copy of these criteria, for use where later changes to this object or to the collections it was given must not be seen.
+	 * Collections are copied into unmodifiable sets, keeping their order.
+	 */
+	public DescriptionCriteria copy() {
+		DescriptionCriteria copy = new DescriptionCriteria();
+		copy.term = term;
+		copy.searchLanguageCodes = copyOf(searchLanguageCodes);
+		copy.active = active;
+		copy.modules = copyOf(modules);
+		copy.semanticTag = semanticTag;
+		copy.semanticTags = copyOf(semanticTags);
+		copy.conceptActive = conceptActive;
+		copy.conceptDefinitionStatus = conceptDefinitionStatus;
+		copy.conceptModules = copyOf(conceptModules);
+		copy.conceptRefset = conceptRefset;
+		copy.groupByConcept = groupByConcept;
+		copy.searchMode = searchMode;
+		copy.type = copyOf(type);
+		copy.preferredIn = copyOf(preferredIn);
+		copy.acceptableIn = copyOf(acceptableIn);
+		copy.preferredOrAcceptableIn = copyOf(preferredOrAcceptableIn);
+		return copy;
+	}
+
+	private static <T> Set<T> copyOf(Collection<T> collection) {
+		return collection == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(collection));
+	}
+
+	// Collections are compared as sets so that criteria equal a copy of themselves
+	private static Collection<?> asSet(Collection<?> collection) {
+		return collection == null || collection instanceof Set ? collection : new HashSet<>(collection);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -202,15 +258,17 @@ public class DescriptionCriteria {
 		DescriptionCriteria that = (DescriptionCriteria) o;
 		return groupByConcept == that.groupByConcept &&
 				Objects.equals(term, that.term) &&
-				Objects.equals(searchLanguageCodes, that.searchLanguageCodes) &&
+				Objects.equals(asSet(searchLanguageCodes), asSet(that.searchLanguageCodes)) &&
 				Objects.equals(active, that.active) &&
-				Objects.equals(modules, that.modules) &&
+				Objects.equals(asSet(modules), asSet(that.modules)) &&
 				Objects.equals(semanticTag, that.semanticTag) &&
 				Objects.equals(semanticTags, that.semanticTags) &&
 				Objects.equals(conceptActive, that.conceptActive) &&
+				Objects.equals(conceptDefinitionStatus, that.conceptDefinitionStatus) &&
+				Objects.equals(asSet(conceptModules), asSet(that.conceptModules)) &&
 				Objects.equals(conceptRefset, that.conceptRefset) &&
 				searchMode == that.searchMode &&
-				Objects.equals(type, that.type) &&
+				Objects.equals(asSet(type), asSet(that.type)) &&
 				Objects.equals(preferredIn, that.preferredIn) &&
 				Objects.equals(acceptableIn, that.acceptableIn) &&
 				Objects.equals(preferredOrAcceptableIn, that.preferredOrAcceptableIn);
@@ -218,6 +276,7 @@ public class DescriptionCriteria {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(term, searchLanguageCodes, active, modules, semanticTag, semanticTags, conceptActive, conceptRefset, groupByConcept, searchMode, type, preferredIn, acceptableIn, preferredOrAcceptableIn);
+		return Objects.hash(term, asSet(searchLanguageCodes), active, asSet(modules), semanticTag, semanticTags, conceptActive, conceptDefinitionStatus, asSet(conceptModules),
+				conceptRefset, groupByConcept, searchMode, asSet(type), preferredIn, acceptableIn, preferredOrAcceptableIn);
 	}
 }
@@ -0,0 +1,51 @@
+package org.snomed.snowstorm.core.data.services.pojo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Set;
+
+@JsonPropertyOrder({"codeA", "codeB", "outcome", "lowestCommonAncestors"})
+public class SubsumptionResult extends ConceptPair {
+
+	private final Outcome outcome;
+	private Set<String> lowestCommonAncestors;
+
+	public SubsumptionResult(String codeA, String codeB, Outcome outcome) {
+		super(codeA, codeB);
+		this.outcome = outcome;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public Set<String> getLowestCommonAncestors() {
+		return lowestCommonAncestors;
+	}
+
+	public void setLowestCommonAncestors(Set<String> lowestCommonAncestors) {
+		this.lowestCommonAncestors = lowestCommonAncestors;
+	}
+
+	/**
+	 * Relationship of concept A to concept B, using the same codes as the FHIR $subsumes operation.
+	 */
+	public enum Outcome {
+
+		EQUIVALENT("equivalent"), SUBSUMES("subsumes"), SUBSUMED_BY("subsumed-by"), NOT_SUBSUMED("not-subsumed"), NOT_FOUND("not-found");
+
+		private final String code;
+
+		Outcome(String code) {
+			this.code = code;
+		}
+
+		@JsonValue
+		public String getCode() {
+			return code;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes an archive through unchanged while reporting the bytes read to the import progress.
+ * Reaching the end of the stream marks the archive as read in the progress.
+ */
+class ArchiveProgressInputStream extends FilterInputStream {
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	static final int LOCAL_HEADER_LENGTH = 30;
+	private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+	private static final int DEFLATED = 8;
+
+	private final ImportProgress importProgress;
+
+	ArchiveProgressInputStream(InputStream in, ImportProgress importProgress) {
+		super(in);
+		this.importProgress = importProgress;
+	}
+
+	/**
+	 * Whether an archive starting with this local file header can be read in order without the central directory.
+	 * Entries stored without compression which have their sizes in a data descriptor can not be, there is nothing to mark the end of the data.
+	 */
+	static boolean isReadableInOrder(byte[] header) {
+		if (header.length < LOCAL_HEADER_LENGTH || readInt(header, 0) != LOCAL_HEADER_SIGNATURE) {
+			return false;
+		}
+		return (readShort(header, 6) & DATA_DESCRIPTOR_FLAG) == 0 || readShort(header, 8) == DEFLATED;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			importProgress.archiveBytesRead(1);
+		} else {
+			importProgress.archiveReadComplete();
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0) {
+			importProgress.archiveBytesRead(read);
+		} else if (read == -1) {
+			importProgress.archiveReadComplete();
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		if (skipped > 0) {
+			importProgress.archiveBytesRead(skipped);
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		// Bytes read again after a reset would be counted twice
+		return false;
+	}
+
+	private static int readShort(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+	}
+
+	private static int readInt(byte[] bytes, int offset) {
+		return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+	}
+}
@@ -0,0 +1,138 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.settings.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.domain.ReferenceSetMember;
+import org.snomed.snowstorm.core.data.domain.Relationship;
+import org.snomed.snowstorm.core.data.services.RuntimeServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.RestClients;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Switches the component indices written by RF2 imports into a bulk-friendly state; refresh disabled and asynchronous translog durability.
+ * Imports which run at the same time share the bulk-load state, the original settings are restored when the last one finishes.
+ */
+@Service
+public class BulkLoadIndexSettingsService {
+
+	private static final List<Class<?>> BULK_LOAD_TYPES = Arrays.asList(Concept.class, Description.class, Relationship.class, ReferenceSetMember.class);
+
+	static final String REFRESH_INTERVAL = "index.refresh_interval";
+	static final String TRANSLOG_DURABILITY = "index.translog.durability";
+
+	@Autowired
+	private ElasticsearchOperations elasticsearchTemplate;
+
+	@Autowired
+	private RestClients.ElasticsearchRestClient elasticsearchRestClient;
+
+	@Value("${import.bulk-load.force-merge}")
+	private boolean forceMerge;
+
+	private int activeBulkLoads;
+
+	// Settings before the first active bulk-load, by type. A null value means the setting was not set on the index.
+	private final Map<Class<?>, Map<String, String>> originalSettings = new LinkedHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public synchronized void startBulkLoad() {
+		if (activeBulkLoads++ > 0) {
+			return;
+		}
+		try {
+			for (Class<?> type : BULK_LOAD_TYPES) {
+				Map<String, Object> settings = elasticsearchTemplate.indexOps(type).getSettings();
+				Map<String, String> original = new HashMap<>();
+				original.put(REFRESH_INTERVAL, (String) settings.get(REFRESH_INTERVAL));
+				original.put(TRANSLOG_DURABILITY, (String) settings.get(TRANSLOG_DURABILITY));
+				originalSettings.put(type, original);
+				updateSettings(type, Settings.builder()
+						.put(REFRESH_INTERVAL, "-1")
+						.put(TRANSLOG_DURABILITY, "async")
+						.build());
+			}
+			logger.info("Bulk-load index settings applied to {}", getIndexNames(originalSettings.keySet()));
+		} catch (RuntimeException e) {
+			// Undo any indices already changed
+			endBulkLoad();
+			throw e;
+		}
+	}
+
+	/**
+	 * Restores the original settings if this is the last active bulk-load, then refreshes and optionally force-merges the indices.
+	 * Must be called once for each call to {@link #startBulkLoad()}, including when the import fails.
+	 */
+	public synchronized void endBulkLoad() {
+		if (activeBulkLoads == 0 || --activeBulkLoads > 0) {
+			return;
+		}
+		for (Map.Entry<Class<?>, Map<String, String>> entry : originalSettings.entrySet()) {
+			Class<?> type = entry.getKey();
+			Settings.Builder settings = Settings.builder();
+			entry.getValue().forEach((key, value) -> {
+				if (value != null) {
+					settings.put(key, value);
+				} else {
+					settings.putNull(key);
+				}
+			});
+			try {
+				updateSettings(type, settings.build());
+			} catch (RuntimeException e) {
+				// Keep restoring the other indices
+				logger.error("Failed to restore settings of index {} after bulk-load, the original settings were {}", getIndexName(type), entry.getValue(), e);
+			}
+		}
+		List<Class<?>> types = new ArrayList<>(originalSettings.keySet());
+		originalSettings.clear();
+		List<String> indexNames = getIndexNames(types);
+		logger.info("Bulk-load index settings restored on {}", indexNames);
+
+		for (Class<?> type : types) {
+			elasticsearchTemplate.indexOps(type).refresh();
+		}
+		if (forceMerge && !indexNames.isEmpty()) {
+			try {
+				logger.info("Force merging {}", indexNames);
+				elasticsearchRestClient.rest().indices().forcemerge(new ForceMergeRequest(indexNames.toArray(new String[]{})), RequestOptions.DEFAULT);
+			} catch (IOException e) {
+				logger.error("Failed to force merge {}", indexNames, e);
+			}
+		}
+	}
+
+	private void updateSettings(Class<?> type, Settings settings) {
+		String indexName = getIndexName(type);
+		try {
+			elasticsearchRestClient.rest().indices().putSettings(new UpdateSettingsRequest(settings, indexName), RequestOptions.DEFAULT);
+		} catch (IOException e) {
+			throw new RuntimeServiceException("Failed to update settings of index " + indexName, e);
+		}
+	}
+
+	private List<String> getIndexNames(Collection<Class<?>> types) {
+		List<String> indexNames = new ArrayList<>();
+		for (Class<?> type : types) {
+			indexNames.add(getIndexName(type));
+		}
+		return indexNames;
+	}
+
+	private String getIndexName(Class<?> type) {
+		return elasticsearchTemplate.getIndexCoordinatesFor(type).getIndexName();
+	}
+}
@@ -2,6 +2,8 @@ package org.snomed.snowstorm.core.rf2.rf2import;
 
 import io.kaicode.elasticvc.api.BranchService;
 import org.ihtsdo.otf.snomedboot.factory.HistoryAwareComponentFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.snomed.snowstorm.core.data.services.BranchMetadataHelper;
 import org.snomed.snowstorm.core.data.services.CodeSystemService;
 import org.snomed.snowstorm.core.data.services.ConceptUpdateHelper;
@@ -14,9 +16,16 @@ public class FullImportComponentFactoryImpl extends ImportComponentFactoryImpl i
 	private final CodeSystemService codeSystemService;
 	private final String stopImportAfterEffectiveTime;
 
+	// Set when a resumed import reaches a release which was committed by an earlier run
+	private volatile boolean skipRelease;
+
+	private static final Logger logger = LoggerFactory.getLogger(FullImportComponentFactoryImpl.class);
+
 	FullImportComponentFactoryImpl(ConceptUpdateHelper conceptUpdateHelper, ReferenceSetMemberService memberService, BranchService branchService,
-			BranchMetadataHelper branchMetadataHelper, CodeSystemService codeSystemService, String path, String stopImportAfterEffectiveTime) {
-		super(conceptUpdateHelper, memberService, branchService, branchMetadataHelper, path, null, false, false);
+			BranchMetadataHelper branchMetadataHelper, CodeSystemService codeSystemService, String path, String stopImportAfterEffectiveTime,
+			int writerThreads, int memberWriterThreads, int writerQueueBatches) {
+		super(conceptUpdateHelper, memberService, branchService, branchMetadataHelper, path, null, false, false, false,
+				writerThreads, memberWriterThreads, writerQueueBatches, 0);
 		this.branchMetadataHelper = branchMetadataHelper;
 		this.basePath = path;
 		this.stopImportAfterEffectiveTime = stopImportAfterEffectiveTime;
@@ -29,16 +38,27 @@ public class FullImportComponentFactoryImpl extends ImportComponentFactoryImpl i
 
 	@Override
 	public void loadingReleaseDeltaStarting(String releaseDate) {
+		// Each release is committed separately, for resumable imports each one is a checkpoint
+		skipRelease = getCompletedCheckpoints().contains(releaseDate);
+		if (skipRelease) {
+			logger.info("Release {} was loaded by an earlier run of this import, skipping.", releaseDate);
+			return;
+		}
 		setCommit(getBranchService().openCommit(basePath, branchMetadataHelper.getBranchLockMetadata("Loading components from RF2 Delta import.")));
 	}
 
 	@Override
 	public void loadingReleaseDeltaFinished(String releaseDate) {
+		if (skipRelease) {
+			skipRelease = false;
+			return;
+		}
 		completeImportCommit();
 
 		// Create codesystem version if there is one on this path
 		int effectiveDate = Integer.parseInt(releaseDate);
 		codeSystemService.createVersionIfCodeSystemFoundOnPath(basePath, effectiveDate, false);
+		checkpointCompleted(releaseDate);
 
 		if (stopImportAfterEffectiveTime != null && stopImportAfterEffectiveTime.equals(releaseDate)) {
 			throw new RuntimeException("Stopping import here after " + stopImportAfterEffectiveTime);
@@ -48,6 +68,17 @@ public class FullImportComponentFactoryImpl extends ImportComponentFactoryImpl i
 		coreComponentsFlushed = false;
 	}
 
+	@Override
+	protected boolean isCheckpointed(String componentType) {
+		return skipRelease;
+	}
+
+	@Override
+	protected boolean isCoreComponentsCheckpoint() {
+		// The release is the checkpoint
+		return false;
+	}
+
 	@Override
 	public void loadingComponentsStarting() {
 		// Nothing to do
@@ -0,0 +1,199 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snomed.snowstorm.core.data.services.RuntimeServiceException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Hands batches of one component type from the RF2 parsing threads to a small pool of writer threads.
+ * Each batch is checked against existing content and then saved by a writer while parsing continues.
+ * Checks run in parallel, saves of one component type are made one at a time as before because they update the
+ * versions replaced by the commit for that type.
+ * The number of batches queued or being written is bounded, parsing threads wait when the writers fall behind.
+ * The first writer failure is thrown to the parsing threads on the next submit and from {@link #awaitCompletion()}.
+ */
+class ImportBatchWriter<E> {
+
+	private final String componentType;
+	private final int writerThreads;
+	private final Consumer<List<E>> checkStage;
+	private final Consumer<List<E>> saveStage;
+	private final Semaphore capacity;
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final Object saveLock = new Object();
+
+	private ExecutorService executor;
+	private int pendingBatches;
+
+	private final AtomicLong batchCount = new AtomicLong();
+	private final AtomicLong checkedCount = new AtomicLong();
+	private final AtomicLong savedCount = new AtomicLong();
+	private final AtomicLong checkNanos = new AtomicLong();
+	private final AtomicLong saveNanos = new AtomicLong();
+	private final AtomicLong parseWaitNanos = new AtomicLong();
+
+	private static final Logger logger = LoggerFactory.getLogger(ImportBatchWriter.class);
+
+	/**
+	 * @param checkStage Removes components which should not be saved from the batch.
+	 * @param saveStage Saves the remaining components, not called if the batch is empty.
+	 */
+	ImportBatchWriter(String componentType, int writerThreads, int queueBatches, Consumer<List<E>> checkStage, Consumer<List<E>> saveStage) {
+		this.componentType = componentType;
+		this.writerThreads = writerThreads;
+		this.checkStage = checkStage;
+		this.saveStage = saveStage;
+		capacity = new Semaphore(writerThreads + queueBatches);
+	}
+
+	void submit(List<E> batch) {
+		throwIfFailed();
+		long start = System.nanoTime();
+		try {
+			capacity.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeServiceException("Interrupted while waiting to queue " + componentType + " batch.", e);
+		}
+		parseWaitNanos.addAndGet(System.nanoTime() - start);
+		ExecutorService executor;
+		synchronized (this) {
+			if (this.executor == null) {
+				this.executor = Executors.newFixedThreadPool(writerThreads, newThreadFactory());
+			}
+			executor = this.executor;
+			pendingBatches++;
+		}
+		try {
+			executor.execute(() -> write(batch));
+		} catch (RejectedExecutionException e) {
+			batchFinished();
+			throw new RuntimeServiceException("Import writers for " + componentType + " have been stopped.", e);
+		}
+	}
+
+	private void write(List<E> batch) {
+		try {
+			// Batches queued after a failure are dropped, the import will be rolled back
+			if (failure.get() == null) {
+				int size = batch.size();
+				long start = System.nanoTime();
+				checkStage.accept(batch);
+				checkNanos.addAndGet(System.nanoTime() - start);
+				checkedCount.addAndGet(size);
+				if (!batch.isEmpty()) {
+					synchronized (saveLock) {
+						long saveStart = System.nanoTime();
+						saveStage.accept(batch);
+						saveNanos.addAndGet(System.nanoTime() - saveStart);
+					}
+					savedCount.addAndGet(batch.size());
+				}
+				batchCount.incrementAndGet();
+			}
+		} catch (Throwable t) {
+			if (failure.compareAndSet(null, t)) {
+				logger.error("Failed to write {} batch during import.", componentType, t);
+			}
+		} finally {
+			batchFinished();
+		}
+	}
+
+	private synchronized void batchFinished() {
+		capacity.release();
+		pendingBatches--;
+		if (pendingBatches == 0) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until all submitted batches have been written.
+	 */
+	synchronized void awaitCompletion() {
+		try {
+			while (pendingBatches > 0) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeServiceException("Interrupted while waiting for " + componentType + " batches to be written.", e);
+		}
+		throwIfFailed();
+	}
+
+	/**
+	 * Stops the writer threads, batches which have not started are dropped. A new pool is started if more batches are submitted.
+	 */
+	void shutdown() {
+		ExecutorService executor;
+		synchronized (this) {
+			executor = this.executor;
+			this.executor = null;
+		}
+		if (executor == null) {
+			return;
+		}
+		List<Runnable> notStarted = executor.shutdownNow();
+		notStarted.forEach(runnable -> batchFinished());
+		try {
+			if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.warn("{} import writers did not stop within one minute.", componentType);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void throwIfFailed() {
+		Throwable throwable = failure.get();
+		if (throwable != null) {
+			throw new RuntimeServiceException("Failed to write " + componentType + " batch during import.", throwable);
+		}
+	}
+
+	private ThreadFactory newThreadFactory() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "import-writer-" + componentType.toLowerCase() + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	String getComponentType() {
+		return componentType;
+	}
+
+	Map<String, Number> getStats() {
+		Map<String, Number> stats = new LinkedHashMap<>();
+		stats.put("batches", batchCount.get());
+		stats.put("checked", checkedCount.get());
+		stats.put("saved", savedCount.get());
+		stats.put("check-millis", checkNanos.get() / 1_000_000);
+		stats.put("save-millis", saveNanos.get() / 1_000_000);
+		stats.put("check-per-second", perSecond(checkedCount.get(), checkNanos.get()));
+		stats.put("save-per-second", perSecond(savedCount.get(), saveNanos.get()));
+		stats.put("parse-wait-millis", parseWaitNanos.get() / 1_000_000);
+		return stats;
+	}
+
+	private static long perSecond(long count, long nanos) {
+		return nanos == 0 ? 0 : (long) (count / (nanos / 1_000_000_000d));
+	}
+}
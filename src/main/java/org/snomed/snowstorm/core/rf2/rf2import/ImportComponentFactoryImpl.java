@@ -6,6 +6,7 @@ import io.kaicode.elasticvc.api.BranchService;
 import io.kaicode.elasticvc.api.VersionControlHelper;
 import io.kaicode.elasticvc.domain.Commit;
 import io.kaicode.elasticvc.domain.Entity;
+import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.ihtsdo.otf.snomedboot.factory.ImpotentComponentFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,14 +15,21 @@ import org.snomed.snowstorm.core.data.services.BranchMetadataHelper;
 import org.snomed.snowstorm.core.data.services.ConceptUpdateHelper;
 import org.snomed.snowstorm.core.data.services.ReferenceSetMemberService;
 import org.snomed.snowstorm.core.rf2.RF2Constants;
+import org.snomed.snowstorm.core.rf2.rf2import.ReleasedComponentIndex.ReleasedState;
+import org.snomed.snowstorm.core.util.TimerUtil;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static io.kaicode.elasticvc.api.ComponentService.LARGE_PAGE;
@@ -32,102 +40,142 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 
 	private static final int FLUSH_INTERVAL = 5000;
 
+	static final String CORE_COMPONENTS_CHECKPOINT = "core-components";
+	static final String COMPONENTS_CHECKPOINT = "components";
+
+	// Internal branch metadata saved within each checkpoint commit so that the checkpoints always match the committed content
+	static final String IMPORT_CHECKPOINTS_KEY = "importCheckpoints";
+	static final String IMPORT_MAX_EFFECTIVE_TIME_KEY = "importMaxEffectiveTime";
+
 	private final BranchService branchService;
 	private final BranchMetadataHelper branchMetadataHelper;
 	private final VersionControlHelper versionControlHelper;
 	private final String path;
-	private Commit commit;
+	private final boolean skipUnchanged;
+	private final int writerQueueBatches;
+	private final int releasedIndexMaxComponents;
+	// Read by the writer threads
+	private volatile Commit commit;
 	private BranchCriteria branchCriteriaBeforeOpenCommit;
 
 	private final PersistBuffer<Concept> conceptPersistBuffer;
 	private final PersistBuffer<Description> descriptionPersistBuffer;
 	private final PersistBuffer<Relationship> relationshipPersistBuffer;
-	private final PersistBuffer<ReferenceSetMember> memberPersistBuffer;
-	private final List<PersistBuffer<?>> persistBuffers;
+	private final ImportBatchWriter<ReferenceSetMember> memberWriter;
+	private final Map<String, PersistBuffer<ReferenceSetMember>> memberPersistBuffers = new ConcurrentHashMap<>();
+	// Member buffers are added while parsing
+	private final List<PersistBuffer<?>> persistBuffers = new CopyOnWriteArrayList<>();
+	private final List<ImportBatchWriter<?>> writers = new ArrayList<>();
 	private final List<PersistBuffer<?>> coreComponentPersistBuffers;
 	private final MaxEffectiveTimeCollector maxEffectiveTimeCollector;
-	private final Map<String, AtomicLong> componentTypeSkippedMap = new HashMap<>();
+	private final Map<String, AtomicLong> componentTypeSkippedMap = new ConcurrentHashMap<>();
+	private final Map<String, AtomicLong> componentTypeUnchangedMap = new ConcurrentHashMap<>();
+	private final Object coreComponentsFlushLock = new Object();
+	private ImportProgress importProgress = new ImportProgress(null);
+	private final Map<Class<?>, Boolean> existingContentTypes = new ConcurrentHashMap<>();
+	// Empty when the index is not used for the type. Completed by the writer thread which builds it, others wait.
+	private final Map<Class<?>, CompletableFuture<Optional<ReleasedComponentIndex>>> releasedComponentIndexes = new ConcurrentHashMap<>();
+	private Set<String> completedCheckpoints = Collections.emptySet();
+	private Consumer<String> checkpointListener;
+	private ImportDryRunReport dryRunReport;
 
 	private static final Logger logger = LoggerFactory.getLogger(ImportComponentFactoryImpl.class);
 
 	// A small number of stated relationships also appear in the inferred file. These should not be persisted when importing a snapshot.
 	Set<Long> statedRelationshipsToSkip = Sets.newHashSet(3187444026L, 3192499027L, 3574321020L);
-	boolean coreComponentsFlushed;
+	volatile boolean coreComponentsFlushed;
 
 	ImportComponentFactoryImpl(ConceptUpdateHelper conceptUpdateHelper, ReferenceSetMemberService memberService, BranchService branchService,
-			BranchMetadataHelper branchMetadataHelper, String path, Integer patchReleaseVersion, boolean copyReleaseFields, boolean clearEffectiveTimes) {
+			BranchMetadataHelper branchMetadataHelper, String path, Integer patchReleaseVersion, boolean copyReleaseFields, boolean clearEffectiveTimes,
+			boolean skipUnchanged, int writerThreads, int memberWriterThreads, int writerQueueBatches, int releasedIndexMaxComponents) {
 
 		this.branchService = branchService;
 		this.branchMetadataHelper = branchMetadataHelper;
 		this.path = path;
-		persistBuffers = new ArrayList<>();
+		this.skipUnchanged = skipUnchanged;
+		this.writerQueueBatches = writerQueueBatches;
+		this.releasedIndexMaxComponents = releasedIndexMaxComponents;
 		maxEffectiveTimeCollector = new MaxEffectiveTimeCollector();
 		coreComponentPersistBuffers = new ArrayList<>();
 		ElasticsearchOperations elasticsearchTemplate = conceptUpdateHelper.getElasticsearchTemplate();
 		versionControlHelper = conceptUpdateHelper.getVersionControlHelper();
 
-		conceptPersistBuffer = new PersistBuffer<>() {
-			@Override
-			public void persistCollection(Collection<Concept> entities) {
-				processEntities(entities, patchReleaseVersion, elasticsearchTemplate, Concept.class, copyReleaseFields, clearEffectiveTimes);
-				if (!entities.isEmpty()) {
-					conceptUpdateHelper.doSaveBatchConcepts(entities, commit);
-				}
-			}
-		};
+		ImportBatchWriter<Concept> conceptWriter = newWriter("Concept", writerThreads,
+				batch -> checkEntities(batch, patchReleaseVersion, elasticsearchTemplate, Concept.class, copyReleaseFields, clearEffectiveTimes),
+				batch -> conceptUpdateHelper.doSaveBatchConcepts(batch, commit));
+		conceptPersistBuffer = new PersistBuffer<>(conceptWriter);
 		coreComponentPersistBuffers.add(conceptPersistBuffer);
 
-		descriptionPersistBuffer = new PersistBuffer<>() {
-			@Override
-			public void persistCollection(Collection<Description> entities) {
-				processEntities(entities, patchReleaseVersion, elasticsearchTemplate, Description.class, copyReleaseFields, clearEffectiveTimes);
-				if (!entities.isEmpty()) {
-					conceptUpdateHelper.doSaveBatchDescriptions(entities, commit);
-				}
-			}
-		};
+		ImportBatchWriter<Description> descriptionWriter = newWriter("Description", writerThreads,
+				batch -> checkEntities(batch, patchReleaseVersion, elasticsearchTemplate, Description.class, copyReleaseFields, clearEffectiveTimes),
+				batch -> conceptUpdateHelper.doSaveBatchDescriptions(batch, commit));
+		descriptionPersistBuffer = new PersistBuffer<>(descriptionWriter);
 		coreComponentPersistBuffers.add(descriptionPersistBuffer);
 
-		relationshipPersistBuffer = new PersistBuffer<>() {
-			@Override
-			public void persistCollection(Collection<Relationship> entities) {
-				processEntities(entities, patchReleaseVersion, elasticsearchTemplate, Relationship.class, copyReleaseFields, clearEffectiveTimes);
-				if (!entities.isEmpty()) {
-					conceptUpdateHelper.doSaveBatchRelationships(entities, commit);
-				}
-			}
-		};
+		ImportBatchWriter<Relationship> relationshipWriter = newWriter("Relationship", writerThreads,
+				batch -> checkEntities(batch, patchReleaseVersion, elasticsearchTemplate, Relationship.class, copyReleaseFields, clearEffectiveTimes),
+				batch -> conceptUpdateHelper.doSaveBatchRelationships(batch, commit));
+		relationshipPersistBuffer = new PersistBuffer<>(relationshipWriter);
 		coreComponentPersistBuffers.add(relationshipPersistBuffer);
 
-		memberPersistBuffer = new PersistBuffer<>() {
-			@Override
-			public void persistCollection(Collection<ReferenceSetMember> entities) {
-				if (!coreComponentsFlushed) { // Avoid having to sync to check this
-					synchronized (this) {
-						if (!coreComponentsFlushed) {
-							coreComponentPersistBuffers.forEach(PersistBuffer::flush);
-							coreComponentsFlushed = true;
-						}
+		// Shared by the buffers of each reference set. Saves are made one batch at a time, everything before the save runs in parallel.
+		memberWriter = newWriter("ReferenceSetMember", memberWriterThreads,
+				batch -> {
+					checkEntities(batch, patchReleaseVersion, elasticsearchTemplate, ReferenceSetMember.class, copyReleaseFields, clearEffectiveTimes);
+					if (dryRunReport == null) {
+						memberService.setConceptIds(batch, commit);
 					}
-				}
-				processEntities(entities, patchReleaseVersion, elasticsearchTemplate, ReferenceSetMember.class, copyReleaseFields, clearEffectiveTimes);
-				if (!entities.isEmpty()) {
-					memberService.doSaveBatchMembers(entities, commit);
-				}
-			}
-		};
+				},
+				batch -> memberService.doSaveBatchMembers(batch, commit));
+	}
+
+	private <E extends Entity> ImportBatchWriter<E> newWriter(String componentType, int threads, Consumer<List<E>> checkStage, Consumer<List<E>> saveStage) {
+		ImportBatchWriter<E> writer = new ImportBatchWriter<>(componentType, threads, writerQueueBatches,
+				batch -> {
+					int size = batch.size();
+					checkStage.accept(batch);
+					importProgress.rowsSkipped(componentType, size - batch.size());
+				},
+				batch -> {
+					if (dryRunReport != null) {
+						// Nothing is written by a dry run
+						return;
+					}
+					saveStage.accept(batch);
+					importProgress.rowsPersisted(componentType, batch.size());
+				});
+		writers.add(writer);
+		return writer;
+	}
+
+	/**
+	 * Each reference set has its own buffer so that parsing threads loading different reference set files do not wait on each other
+	 * and each batch holds members of one reference set.
+	 */
+	private PersistBuffer<ReferenceSetMember> getMemberPersistBuffer(String refsetId) {
+		return memberPersistBuffers.computeIfAbsent(refsetId, id -> new PersistBuffer<>(memberWriter));
+	}
+
+	private <T extends SnomedComponent> void checkEntities(Collection<T> components, Integer patchReleaseVersion, ElasticsearchOperations elasticsearchTemplate,
+			Class<T> componentClass, boolean copyReleaseFields, boolean clearEffectiveTimes) {
+
+		processEntities(components, patchReleaseVersion, elasticsearchTemplate, componentClass, copyReleaseFields, clearEffectiveTimes);
+		if (dryRunReport != null) {
+			analyseComponents(components, elasticsearchTemplate, componentClass, copyReleaseFields);
+		}
 	}
 
 	/*
 		- Mark as changed for version control.
 		- Remove if earlier or equal effectiveTime to existing.
+		- Remove if the same as the existing version, when skipping unchanged components.
 		- Copy release fields from existing.
 	 */
 	private <T extends SnomedComponent> void processEntities(Collection<T> components, Integer patchReleaseVersion, ElasticsearchOperations elasticsearchTemplate,
 			Class<T> componentClass, boolean copyReleaseFields, boolean clearEffectiveTimes) {
 
-		Map<Integer, List<T>> effectiveDateMap = new HashMap<>();
-		components.forEach(component -> {
+		Integer minEffectiveTime = null;
+		for (T component : components) {
 			component.setChanged(true);
 			if (clearEffectiveTimes) {
 				component.setEffectiveTimeI(null);
@@ -137,90 +185,498 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 			}
 			Integer effectiveTimeI = component.getEffectiveTimeI();
 			if (effectiveTimeI != null) {
-				effectiveDateMap.computeIfAbsent(effectiveTimeI, i -> new ArrayList<>()).add(component);
 				maxEffectiveTimeCollector.add(effectiveTimeI);
+				if (minEffectiveTime == null || effectiveTimeI < minEffectiveTime) {
+					minEffectiveTime = effectiveTimeI;
+				}
 			}
-		});
+		}
+		if (!isExistingContent(componentClass, elasticsearchTemplate)) {
+			// Nothing to compare with or copy release fields from
+			return;
+		}
 		// patchReleaseVersion=-1 is a special case which allows replacing any effectiveTime
-		if (patchReleaseVersion == null || !patchReleaseVersion.equals(-1)) {
-			for (Integer effectiveTime : new TreeSet<>(effectiveDateMap.keySet())) {
-				// Find component states with an equal or greater effective time
+		boolean checkExisting = minEffectiveTime != null && (patchReleaseVersion == null || !patchReleaseVersion.equals(-1));
+		if (!checkExisting && !copyReleaseFields) {
+			if (skipUnchanged) {
+				removeUnchangedComponents(components, elasticsearchTemplate, componentClass, false);
+			}
+			return;
+		}
+		// One lookup of the existing states shared by the existence check and the copy of release fields
+		Map<String, ReleasedState> existingStates = getExistingStates(components, componentClass, elasticsearchTemplate,
+				checkExisting ? minEffectiveTime : null, copyReleaseFields);
+		if (checkExisting) {
+			// Remove components with an equal or greater effective time on the branch
+			AtomicInteger alreadyExistingComponentCount = new AtomicInteger();
+			components.removeIf(component -> {
+				Integer effectiveTime = component.getEffectiveTimeI();
+				ReleasedState existing = existingStates.get(component.getId());
+				if (effectiveTime == null || existing == null || existing.getEffectiveTime() == null) {
+					return false;
+				}
 				boolean replacementOfThisEffectiveTimeAllowed = patchReleaseVersion != null && patchReleaseVersion.equals(effectiveTime);
-				List<T> componentsAtDate = effectiveDateMap.get(effectiveTime);
-				String idField = componentsAtDate.get(0).getIdField();
-				AtomicInteger alreadyExistingComponentCount = new AtomicInteger();
-				try (SearchHitsIterator<T> componentsWithSameOrLaterEffectiveTime = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
-						.withQuery(boolQuery()
-								.must(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
-								.must(termsQuery(idField, componentsAtDate.stream().map(T::getId).collect(Collectors.toList())))
-								.must(replacementOfThisEffectiveTimeAllowed ?
-										rangeQuery(SnomedComponent.Fields.EFFECTIVE_TIME).gt(effectiveTime)
-										: rangeQuery(SnomedComponent.Fields.EFFECTIVE_TIME).gte(effectiveTime)))
-						.withFields(idField)// Only fetch the id
-						.withPageable(LARGE_PAGE)
-						.build(), componentClass)) {
-					componentsWithSameOrLaterEffectiveTime.forEachRemaining(hit -> {
-						// Skip component import
-						components.remove(hit.getContent());// Compared by id only
-						alreadyExistingComponentCount.incrementAndGet();
-					});
+				if (existing.getEffectiveTime() > effectiveTime || (existing.getEffectiveTime().equals(effectiveTime) && !replacementOfThisEffectiveTimeAllowed)) {
+					// Skip component import
+					alreadyExistingComponentCount.incrementAndGet();
+					return true;
 				}
-				componentTypeSkippedMap.computeIfAbsent(componentClass.getSimpleName(), key -> new AtomicLong()).addAndGet(alreadyExistingComponentCount.get());
-			}
+				return false;
+			});
+			componentTypeSkippedMap.computeIfAbsent(componentClass.getSimpleName(), key -> new AtomicLong()).addAndGet(alreadyExistingComponentCount.get());
+		}
+		if (skipUnchanged) {
+			removeUnchangedComponents(components, elasticsearchTemplate, componentClass, copyReleaseFields);
 		}
 		if (copyReleaseFields) {
-			Map<String, T> idToUnreleasedComponentMap = components.stream().filter(component -> component.getEffectiveTime() == null).collect(Collectors.toMap(T::getId, Function.identity()));
-			if (!idToUnreleasedComponentMap.isEmpty()) {
-				String idField = idToUnreleasedComponentMap.values().iterator().next().getIdField();
+			Map<String, T> releaseHashRequired = new HashMap<>();
+			for (T component : components) {
+				ReleasedState existing = existingStates.get(component.getId());
+				if (component.getEffectiveTimeI() != null || existing == null || !existing.isReleased()) {
+					continue;
+				}
+				String releaseHash = existing.getReleaseHash();
+				if (releaseHash == null) {
+					// From the index, a matching fingerprint means the component is the same as when released
+					String incomingReleaseHash = component.buildReleaseHash();
+					if (!existing.isReleaseHashFingerprint(incomingReleaseHash)) {
+						releaseHashRequired.put(component.getId(), component);
+						continue;
+					}
+					releaseHash = incomingReleaseHash;
+				}
+				copyReleaseFields(component, existing, releaseHash);
+			}
+			if (!releaseHashRequired.isEmpty()) {
+				// Changed since release, the effective time will be cleared but the existing release hash must be kept
+				String idField = releaseHashRequired.values().iterator().next().getIdField();
 				try (SearchHitsIterator<T> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
 						.withQuery(boolQuery()
 								.must(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
-								.must(termQuery(SnomedComponent.Fields.RELEASED, true))
-								.filter(termsQuery(idField, idToUnreleasedComponentMap.keySet()))
-						)
+								.filter(termsQuery(idField, releaseHashRequired.keySet())))
+						.withSourceFilter(new FetchSourceFilter(new String[]{idField, SnomedComponent.Fields.RELEASE_HASH}, new String[]{}))
 						.withPageable(LARGE_PAGE)
 						.build(), componentClass)) {
 					stream.forEachRemaining(hit -> {
-						T t = idToUnreleasedComponentMap.get(hit.getContent().getId());
-						// noinspection unchecked
-						t.copyReleaseDetails(hit.getContent());
-						t.updateEffectiveTime();
+						T component = releaseHashRequired.get(hit.getContent().getId());
+						copyReleaseFields(component, existingStates.get(component.getId()), hit.getContent().getReleaseHash());
 					});
 				}
 			}
 		}
 	}
 
+	private <T extends SnomedComponent> void copyReleaseFields(T component, ReleasedState existing, String releaseHash) {
+		component.setReleased(true);
+		component.setReleasedEffectiveTime(existing.getReleasedEffectiveTime());
+		component.setReleaseHash(releaseHash);
+		component.updateEffectiveTime();
+	}
+
+	/*
+		Existing state of each component with an effective time from minEffectiveTime, when given, and of each released component when copying release fields.
+		Taken from the released component index when there is one for the type, otherwise one query for the batch fetching only the fields needed.
+	 */
+	private <T extends SnomedComponent> Map<String, ReleasedState> getExistingStates(Collection<T> components, Class<T> componentClass,
+			ElasticsearchOperations elasticsearchTemplate, Integer minEffectiveTime, boolean copyReleaseFields) {
+
+		Map<String, ReleasedState> existingStates = new HashMap<>();
+		if (components.isEmpty()) {
+			return existingStates;
+		}
+		String idField = components.iterator().next().getIdField();
+		if (copyReleaseFields) {
+			Optional<ReleasedComponentIndex> index = getReleasedComponentIndex(componentClass, idField, elasticsearchTemplate);
+			if (index.isPresent()) {
+				for (T component : components) {
+					ReleasedState existing = index.get().get(component.getId());
+					if (existing != null) {
+						existingStates.put(component.getId(), existing);
+					}
+				}
+				return existingStates;
+			}
+		}
+
+		BoolQueryBuilder existingOrReleased = boolQuery();
+		if (minEffectiveTime != null) {
+			existingOrReleased.should(rangeQuery(SnomedComponent.Fields.EFFECTIVE_TIME).gte(minEffectiveTime));
+		}
+		if (copyReleaseFields) {
+			existingOrReleased.should(termQuery(SnomedComponent.Fields.RELEASED, true));
+		}
+		String[] fields = copyReleaseFields ?
+				new String[]{idField, SnomedComponent.Fields.EFFECTIVE_TIME, SnomedComponent.Fields.RELEASED, SnomedComponent.Fields.RELEASED_EFFECTIVE_TIME,
+						SnomedComponent.Fields.RELEASE_HASH} :
+				new String[]{idField, SnomedComponent.Fields.EFFECTIVE_TIME};
+		Set<String> ids = components.stream().map(T::getId).collect(Collectors.toSet());
+		try (SearchHitsIterator<T> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(boolQuery()
+						.must(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
+						.must(existingOrReleased.minimumShouldMatch(1))
+						.filter(termsQuery(idField, ids)))
+				.withSourceFilter(new FetchSourceFilter(fields, new String[]{}))
+				.withPageable(LARGE_PAGE)
+				.build(), componentClass)) {
+			stream.forEachRemaining(hit -> {
+				T existing = hit.getContent();
+				existingStates.put(existing.getId(), new ReleasedState(existing.getEffectiveTimeI(), existing.isReleased(), existing.getReleasedEffectiveTime(),
+						existing.getReleaseHash(), 0));
+			});
+		}
+		return existingStates;
+	}
+
+	/**
+	 * Index of the components of this type on the branch with an effective time or which have been released, built once per import.
+	 * Kept across checkpoint commits, all components of a type are saved within one commit so the index still holds their state before the import.
+	 * Not used when the type has more of these components than the configured maximum, to bound the memory used.
+	 */
+	private Optional<ReleasedComponentIndex> getReleasedComponentIndex(Class<? extends SnomedComponent> componentClass, String idField,
+			ElasticsearchOperations elasticsearchTemplate) {
+		CompletableFuture<Optional<ReleasedComponentIndex>> newIndex = new CompletableFuture<>();
+		CompletableFuture<Optional<ReleasedComponentIndex>> index = releasedComponentIndexes.putIfAbsent(componentClass, newIndex);
+		if (index != null) {
+			return index.join();
+		}
+		// Built outside of the map so that the map is not locked for the whole build
+		try {
+			newIndex.complete(buildReleasedComponentIndex(componentClass, idField, elasticsearchTemplate));
+		} catch (RuntimeException e) {
+			releasedComponentIndexes.remove(componentClass, newIndex);
+			newIndex.completeExceptionally(e);
+			throw e;
+		}
+		return newIndex.join();
+	}
+
+	private Optional<ReleasedComponentIndex> buildReleasedComponentIndex(Class<? extends SnomedComponent> componentClass, String idField,
+			ElasticsearchOperations elasticsearchTemplate) {
+		if (releasedIndexMaxComponents <= 0) {
+			return Optional.empty();
+		}
+		BoolQueryBuilder query = boolQuery()
+				.must(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
+				.must(boolQuery()
+						.should(termQuery(SnomedComponent.Fields.RELEASED, true))
+						.should(existsQuery(SnomedComponent.Fields.EFFECTIVE_TIME))
+						.minimumShouldMatch(1));
+		long count = elasticsearchTemplate.count(new NativeSearchQueryBuilder().withQuery(query).build(), componentClass);
+		if (count > releasedIndexMaxComponents) {
+			logger.info("{} released {} components on {}, more than the maximum for the released component index, existing components will be queried per batch.",
+					count, componentClass.getSimpleName(), path);
+			return Optional.empty();
+		}
+		TimerUtil timer = new TimerUtil("Released " + componentClass.getSimpleName() + " index");
+		ReleasedComponentIndex index = new ReleasedComponentIndex((int) count);
+		try (SearchHitsIterator<? extends SnomedComponent> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(query)
+				.withSourceFilter(new FetchSourceFilter(new String[]{idField, SnomedComponent.Fields.EFFECTIVE_TIME, SnomedComponent.Fields.RELEASED,
+						SnomedComponent.Fields.RELEASED_EFFECTIVE_TIME, SnomedComponent.Fields.RELEASE_HASH}, new String[]{}))
+				.withPageable(LARGE_PAGE)
+				.build(), componentClass)) {
+			while (stream.hasNext()) {
+				SnomedComponent<?> existing = stream.next().getContent();
+				if (!index.add(existing.getId(), existing.getEffectiveTimeI(), existing.isReleased(), existing.getReleasedEffectiveTime(), existing.getReleaseHash())) {
+					logger.info("{} id {} can not be held in the released component index, existing components will be queried per batch.",
+							componentClass.getSimpleName(), existing.getId());
+					return Optional.empty();
+				}
+			}
+		}
+		index.complete();
+		timer.finish();
+		logger.info("Released component index of {} {} components built for {}.", index.size(), componentClass.getSimpleName(), path);
+		return Optional.of(index);
+	}
+
+	/*
+		Compares the release hash of each component with the existing version on the branch, the same fields used to detect changes since release.
+		Components with the same hash are removed unless the import would change the effective time.
+	 */
+	private <T extends SnomedComponent> void removeUnchangedComponents(Collection<T> components, ElasticsearchOperations elasticsearchTemplate, Class<T> componentClass,
+			boolean copyReleaseFields) {
+
+		if (components.isEmpty()) {
+			return;
+		}
+		Map<String, T> idToComponentMap = new HashMap<>();
+		components.forEach(component -> idToComponentMap.put(component.getId(), component));
+		String idField = components.iterator().next().getIdField();
+		AtomicInteger unchangedCount = new AtomicInteger();
+		try (SearchHitsIterator<T> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+				.withQuery(boolQuery()
+						.must(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
+						.filter(termsQuery(idField, idToComponentMap.keySet())))
+				.withPageable(LARGE_PAGE)
+				.build(), componentClass)) {
+			stream.forEachRemaining(hit -> {
+				T existing = hit.getContent();
+				T component = idToComponentMap.get(existing.getId());
+				if (isUnchanged(component, existing, copyReleaseFields)) {
+					components.remove(component);
+					unchangedCount.incrementAndGet();
+				}
+			});
+		}
+		componentTypeUnchangedMap.computeIfAbsent(componentClass.getSimpleName(), key -> new AtomicLong()).addAndGet(unchangedCount.get());
+	}
+
+	private static boolean isUnchanged(SnomedComponent<?> component, SnomedComponent<?> existing, boolean copyReleaseFields) {
+		// A blank effective time keeps the existing one when release fields are copied
+		boolean sameEffectiveTime = Objects.equals(component.getEffectiveTimeI(), existing.getEffectiveTimeI())
+				|| (component.getEffectiveTimeI() == null && copyReleaseFields);
+		return sameEffectiveTime && component.buildReleaseHash().equals(existing.buildReleaseHash());
+	}
+
+	/*
+		Dry run only. Counts the components left after the import checks as new, changed or unchanged compared with the existing version on the branch
+		and records the concepts whose semantic index entries the new and changed components would update.
+	 */
+	private <T extends SnomedComponent> void analyseComponents(Collection<T> components, ElasticsearchOperations elasticsearchTemplate, Class<T> componentClass,
+			boolean copyReleaseFields) {
+
+		if (components.isEmpty()) {
+			return;
+		}
+		Map<String, T> idToExistingMap = new HashMap<>();
+		if (isExistingContent(componentClass, elasticsearchTemplate)) {
+			String idField = components.iterator().next().getIdField();
+			try (SearchHitsIterator<T> stream = elasticsearchTemplate.searchForStream(new NativeSearchQueryBuilder()
+					.withQuery(boolQuery()
+							.must(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
+							.filter(termsQuery(idField, components.stream().map(T::getId).collect(Collectors.toSet()))))
+					.withPageable(LARGE_PAGE)
+					.build(), componentClass)) {
+				stream.forEachRemaining(hit -> idToExistingMap.put(hit.getContent().getId(), hit.getContent()));
+			}
+		}
+		int newComponents = 0;
+		int changed = 0;
+		int unchanged = 0;
+		for (T component : components) {
+			T existing = idToExistingMap.get(component.getId());
+			if (existing == null) {
+				newComponents++;
+			} else if (isUnchanged(component, existing, copyReleaseFields)) {
+				unchanged++;
+				continue;
+			} else {
+				changed++;
+			}
+			semanticIndexChange(component);
+		}
+		dryRunReport.componentsAnalysed(componentClass.getSimpleName(), newComponents, changed, unchanged);
+	}
+
+	// Concepts, stated and inferred relationships and OWL axioms are held in the semantic index
+	private void semanticIndexChange(SnomedComponent<?> component) {
+		if (component instanceof Concept) {
+			dryRunReport.semanticIndexConceptTouched(parseLong(component.getId()), true, true);
+		} else if (component instanceof Relationship) {
+			Relationship relationship = (Relationship) component;
+			boolean stated = Concepts.STATED_RELATIONSHIP.equals(relationship.getCharacteristicTypeId());
+			boolean inferred = Concepts.INFERRED_RELATIONSHIP.equals(relationship.getCharacteristicTypeId());
+			if (stated || inferred) {
+				dryRunReport.semanticIndexConceptTouched(parseLong(relationship.getSourceId()), stated, inferred);
+				if (Concepts.ISA.equals(relationship.getTypeId())) {
+					dryRunReport.isARelationshipChanged();
+				}
+			}
+		} else if (component instanceof ReferenceSetMember) {
+			ReferenceSetMember member = (ReferenceSetMember) component;
+			if (Concepts.OWL_AXIOM_REFERENCE_SET.equals(member.getRefsetId())) {
+				dryRunReport.semanticIndexConceptTouched(parseLong(member.getReferencedComponentId()), true, false);
+			}
+		}
+	}
+
 	@Override
 	public void loadingComponentsStarting() {
+		if (dryRunReport != null) {
+			// Compared with the branch as it is, no commit is opened
+			branchCriteriaBeforeOpenCommit = versionControlHelper.getBranchCriteria(path);
+			return;
+		}
 		setCommit(branchService.openCommit(path, branchMetadataHelper.getBranchLockMetadata("Loading components from RF2 import.")));
 	}
 
 	protected void setCommit(Commit commit) {
 		this.commit = commit;
 		branchCriteriaBeforeOpenCommit = versionControlHelper.getBranchCriteriaBeforeOpenCommit(commit);
+		existingContentTypes.clear();
+	}
+
+	/**
+	 * Whether any content of this type is visible on the branch before the import commit.
+	 * Checked once per commit so that imports into an empty branch skip the per batch existence queries.
+	 */
+	private boolean isExistingContent(Class<? extends SnomedComponent> componentClass, ElasticsearchOperations elasticsearchTemplate) {
+		return existingContentTypes.computeIfAbsent(componentClass, type -> {
+			boolean existingContent = elasticsearchTemplate.search(new NativeSearchQueryBuilder()
+					.withQuery(branchCriteriaBeforeOpenCommit.getEntityBranchCriteria(componentClass))
+					.withSourceFilter(new FetchSourceFilter(new String[]{SnomedComponent.Fields.EFFECTIVE_TIME}, new String[]{}))
+					.withPageable(PageRequest.of(0, 1))
+					.build(), componentClass).hasSearchHits();
+			if (!existingContent) {
+				logger.info("No existing {} content on {}, existence checks will be skipped.", componentClass.getSimpleName(), path);
+			}
+			return existingContent;
+		});
+	}
+
+	/**
+	 * Used by resumable imports. Components of checkpoints completed by an earlier run are not loaded again and
+	 * the listener is called as each new checkpoint is committed.
+	 */
+	void setCheckpoints(Collection<String> completedCheckpoints, Consumer<String> checkpointListener) {
+		this.completedCheckpoints = new HashSet<>(completedCheckpoints);
+		this.checkpointListener = checkpointListener;
+	}
+
+	protected Set<String> getCompletedCheckpoints() {
+		return completedCheckpoints;
+	}
+
+	protected void checkpointCompleted(String checkpoint) {
+		if (checkpointListener != null) {
+			logger.info("Import checkpoint {} committed on {}.", checkpoint, path);
+			checkpointListener.accept(checkpoint);
+		}
+	}
+
+	/**
+	 * Whether the core components should be committed separately from the reference set members.
+	 */
+	protected boolean isCoreComponentsCheckpoint() {
+		return !completedCheckpoints.contains(CORE_COMPONENTS_CHECKPOINT);
+	}
+
+	/**
+	 * Whether components of this type were committed by an earlier run of the import.
+	 */
+	protected boolean isCheckpointed(String componentType) {
+		return completedCheckpoints.contains(CORE_COMPONENTS_CHECKPOINT) && !"ReferenceSetMember".equals(componentType);
+	}
+
+	/**
+	 * Saves all core components before the first member is buffered, members are set with concept ids from the saved components.
+	 * Runs on the parsing thread so that the member writers are not held up. Parsing threads of other reference set files wait on the lock,
+	 * no member batch has been submitted yet so none are saved to a commit being replaced by the checkpoint.
+	 */
+	private void flushCoreComponents() {
+		if (!coreComponentsFlushed) { // Avoid having to sync to check this
+			synchronized (coreComponentsFlushLock) {
+				if (!coreComponentsFlushed) {
+					coreComponentPersistBuffers.forEach(PersistBuffer::flush);
+					if (checkpointListener != null && isCoreComponentsCheckpoint() && commit != null) {
+						checkpointCommit(CORE_COMPONENTS_CHECKPOINT);
+					}
+					coreComponentsFlushed = true;
+				}
+			}
+		}
+	}
+
+	// Commits the components saved so far and continues the import in a new commit
+	private void checkpointCommit(String checkpoint) {
+		Commit checkpointCommit = commit;
+		commit = null;
+		recordCheckpoint(checkpointCommit, checkpoint);
+		// The axioms are in the members so the semantic index is built by the next commit
+		BranchMetadataHelper.deferSemanticIndexForCommit(checkpointCommit);
+		checkpointCommit.markSuccessful();
+		checkpointCommit.close();
+		checkpointCompleted(checkpoint);
+		setCommit(branchService.openCommit(path, branchMetadataHelper.getBranchLockMetadata("Loading components from RF2 import.")));
+	}
+
+	// Rows already committed by an earlier run are only counted
+	private boolean skipCheckpointed(String componentType, Integer effectiveTimeI) {
+		if (!isCheckpointed(componentType)) {
+			return false;
+		}
+		if (effectiveTimeI != null) {
+			maxEffectiveTimeCollector.add(effectiveTimeI);
+		}
+		importProgress.rowsSkipped(componentType, 1);
+		return true;
+	}
+
+	private void recordCheckpoint(Commit checkpointCommit, String checkpoint) {
+		Map<String, String> internalMetadata = checkpointCommit.getBranch().getMetadata().getMapOrCreate(BranchMetadataHelper.INTERNAL_METADATA_KEY);
+		List<String> checkpoints = getRecordedCheckpoints(internalMetadata);
+		checkpoints.add(checkpoint);
+		internalMetadata.put(IMPORT_CHECKPOINTS_KEY, String.join(",", checkpoints));
+	}
+
+	static List<String> getRecordedCheckpoints(Map<String, String> internalMetadata) {
+		String checkpoints = internalMetadata.get(IMPORT_CHECKPOINTS_KEY);
+		return checkpoints == null || checkpoints.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(checkpoints.split(",")));
 	}
 
 	@Override
 	public void loadingComponentsCompleted() {
+		boolean checkpoint = checkpointListener != null && commit != null && dryRunReport == null;
+		if (checkpoint) {
+			recordCheckpoint(commit, COMPONENTS_CHECKPOINT);
+			Integer maxEffectiveTime = getMaxEffectiveTime();
+			if (maxEffectiveTime != null) {
+				commit.getBranch().getMetadata().getMapOrCreate(BranchMetadataHelper.INTERNAL_METADATA_KEY)
+						.put(IMPORT_MAX_EFFECTIVE_TIME_KEY, maxEffectiveTime.toString());
+			}
+		}
 		completeImportCommit();
+		if (checkpoint) {
+			checkpointCompleted(COMPONENTS_CHECKPOINT);
+		}
 	}
 
 	void completeImportCommit() {
+		persistBuffers.forEach(PersistBuffer::flush);
 		if (!componentTypeSkippedMap.isEmpty()) {
 			for (String type : componentTypeSkippedMap.keySet()) {
 				logger.info("{} components of type {} were not imported from RF2 because a newer version was found.", componentTypeSkippedMap.get(type).get(), type);
 			}
 		}
-		persistBuffers.forEach(PersistBuffer::flush);
+		componentTypeUnchangedMap.forEach((type, count) ->
+				logger.info("{} components of type {} were not imported from RF2 because they are unchanged.", count.get(), type));
+		for (ImportBatchWriter<?> writer : writers) {
+			writer.shutdown();
+			logger.info("Import pipeline {} stats {}", writer.getComponentType(), writer.getStats());
+		}
+		if (dryRunReport != null) {
+			Set<String> types = new HashSet<>(componentTypeSkippedMap.keySet());
+			types.addAll(componentTypeUnchangedMap.keySet());
+			for (String type : types) {
+				dryRunReport.componentsSkipped(type, getCount(componentTypeSkippedMap, type), getCount(componentTypeUnchangedMap, type));
+			}
+			return;
+		}
 		commit.markSuccessful();
 		commit.close();
 		commit = null;
 	}
 
+	private static long getCount(Map<String, AtomicLong> counts, String type) {
+		AtomicLong count = counts.get(type);
+		return count != null ? count.get() : 0;
+	}
+
+	/**
+	 * Stops the writer threads without waiting for queued batches, used before rolling back a failed import.
+	 */
+	void stopWriters() {
+		writers.forEach(ImportBatchWriter::shutdown);
+	}
+
 	@Override
 	public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		importProgress.rowParsed("Concept", getRowBytes(conceptId, effectiveTime, active, moduleId, definitionStatusId));
 		Integer effectiveTimeI = getEffectiveTimeI(effectiveTime);
+		if (skipCheckpointed("Concept", effectiveTimeI)) {
+			return;
+		}
 		final Concept concept = new Concept(conceptId, effectiveTimeI, isActive(active), moduleId, definitionStatusId);
 		if (effectiveTimeI != null) {
 			concept.release(effectiveTimeI);
@@ -232,7 +688,12 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 	public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String destinationId,
 			String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
 
+		importProgress.rowParsed("Relationship", getRowBytes(id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId,
+				characteristicTypeId, modifierId));
 		Integer effectiveTimeI = getEffectiveTimeI(effectiveTime);
+		if (skipCheckpointed("Relationship", effectiveTimeI)) {
+			return;
+		}
 		final Relationship relationship = new Relationship(id, effectiveTimeI, isActive(active), moduleId, sourceId,
 				destinationId, Integer.parseInt(relationshipGroup), typeId, characteristicTypeId, modifierId);
 		if (effectiveTimeI != null) {
@@ -252,7 +713,12 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 	@Override
 	public void newConcreteRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String value,
 											 String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		importProgress.rowParsed("Relationship", getRowBytes(id, effectiveTime, active, moduleId, sourceId, value, relationshipGroup, typeId,
+				characteristicTypeId, modifierId));
 		Integer effectiveTimeI = getEffectiveTimeI(effectiveTime);
+		if (skipCheckpointed("Relationship", effectiveTimeI)) {
+			return;
+		}
 		final Relationship relationship = new Relationship(id, effectiveTimeI, isActive(active), moduleId, sourceId,
 				value, Integer.parseInt(relationshipGroup), typeId, characteristicTypeId, modifierId);
 		if (effectiveTimeI != null) {
@@ -266,7 +732,11 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode,
 			String typeId, String term, String caseSignificanceId) {
 
+		importProgress.rowParsed("Description", getRowBytes(id, effectiveTime, active, moduleId, conceptId, languageCode, typeId, term, caseSignificanceId));
 		Integer effectiveTimeI = getEffectiveTimeI(effectiveTime);
+		if (skipCheckpointed("Description", effectiveTimeI)) {
+			return;
+		}
 		final Description description = new Description(id, effectiveTimeI, isActive(active), moduleId, conceptId, languageCode, typeId, term, caseSignificanceId);
 		if (effectiveTimeI != null) {
 			description.release(effectiveTimeI);
@@ -278,7 +748,12 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 	public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId,
 			String referencedComponentId, String... otherValues) {
 
+		importProgress.rowParsed("ReferenceSetMember", getRowBytes(id, effectiveTime, active, moduleId, refsetId, referencedComponentId) + getRowBytes(otherValues) - 1);
 		Integer effectiveTimeI = getEffectiveTimeI(effectiveTime);
+		if (skipCheckpointed("ReferenceSetMember", effectiveTimeI)) {
+			return;
+		}
+		flushCoreComponents();
 		ReferenceSetMember member = new ReferenceSetMember(id, effectiveTimeI, isActive(active), moduleId, refsetId, referencedComponentId);
 		for (int i = RF2Constants.MEMBER_ADDITIONAL_FIELD_OFFSET; i < fieldNames.length; i++) {
 			if (i - RF2Constants.MEMBER_ADDITIONAL_FIELD_OFFSET < otherValues.length) {
@@ -290,13 +765,44 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 		if (effectiveTimeI != null) {
 			member.release(effectiveTimeI);
 		}
-		memberPersistBuffer.save(member);
+		getMemberPersistBuffer(refsetId).save(member);
+	}
+
+	// Approximate length of the RF2 row; values, tab separators and the line ending
+	private static int getRowBytes(String... values) {
+		int bytes = values.length + 1;
+		for (String value : values) {
+			if (value != null) {
+				bytes += value.length();
+			}
+		}
+		return bytes;
 	}
 
 	private Integer getEffectiveTimeI(String effectiveTime) {
 		return effectiveTime != null && !effectiveTime.isEmpty() && RF2Constants.EFFECTIVE_DATE_PATTERN.matcher(effectiveTime).matches() ? Integer.parseInt(effectiveTime) : null;
 	}
 
+	/**
+	 * @return number of components of each type which were not imported because they were the same as the existing version.
+	 */
+	Map<String, Long> getUnchangedComponentCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		componentTypeUnchangedMap.forEach((type, count) -> counts.put(type, count.get()));
+		return counts;
+	}
+
+	void setImportProgress(ImportProgress importProgress) {
+		this.importProgress = importProgress;
+	}
+
+	/**
+	 * Runs the import checks against the branch without opening a commit or saving anything, the results are collected in the report.
+	 */
+	void setDryRunReport(ImportDryRunReport dryRunReport) {
+		this.dryRunReport = dryRunReport;
+	}
+
 	Integer getMaxEffectiveTime() {
 		return maxEffectiveTimeCollector.getMaxEffectiveTime();
 	}
@@ -313,28 +819,42 @@ public class ImportComponentFactoryImpl extends ImpotentComponentFactory {
 		return commit;
 	}
 
-	private abstract class PersistBuffer<E extends Entity> {
+	/**
+	 * Collects parsed components into batches which are handed to writer threads to be checked and saved.
+	 */
+	private class PersistBuffer<E extends Entity> {
 
 		private List<E> entities = new ArrayList<>();
+		private final ImportBatchWriter<E> writer;
 
-		PersistBuffer() {
+		PersistBuffer(ImportBatchWriter<E> writer) {
+			this.writer = writer;
 			persistBuffers.add(this);
 		}
 
 		synchronized void save(E entity) {
 			entities.add(entity);
 			if (entities.size() >= FLUSH_INTERVAL) {
-				flush();
+				// Blocks while the writers are behind
+				writer.submit(entities);
+				entities = new ArrayList<>();
 			}
 		}
 
-		synchronized void flush() {
-			persistCollection(entities);
-			entities.clear();
+		/**
+		 * Submits any remaining components and waits until all batches of this type have been saved.
+		 */
+		void flush() {
+			List<E> batch;
+			synchronized (this) {
+				batch = entities;
+				entities = new ArrayList<>();
+			}
+			if (!batch.isEmpty()) {
+				writer.submit(batch);
+			}
+			writer.awaitCompletion();
 		}
-
-		abstract void persistCollection(Collection<E> entities);
-
 	}
 
 }
@@ -0,0 +1,129 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What an import would change on the branch, collected by a dry run which runs the import checks without writing anything.
+ * The estimates count document versions; each new or changed component is written and each changed component also ends its previous version.
+ * Semantic index writes count the stated and inferred entries of the concepts touched. This is a lower bound, a change to the
+ * hierarchy also updates the entries of the descendants of the concepts touched.
+ */
+public class ImportDryRunReport {
+
+	private static final int CONCEPT_SAMPLE_SIZE = 100;
+
+	private final Map<String, ComponentTypeCounts> componentTypes = new ConcurrentSkipListMap<>();
+	private final LongSet statedSemanticIndexConcepts = LongSets.synchronize(new LongOpenHashSet());
+	private final LongSet inferredSemanticIndexConcepts = LongSets.synchronize(new LongOpenHashSet());
+	private final AtomicLong isARelationshipChanges = new AtomicLong();
+
+	void componentsAnalysed(String componentType, int newComponents, int changed, int unchanged) {
+		ComponentTypeCounts counts = getComponentTypeCounts(componentType);
+		counts.newComponents.addAndGet(newComponents);
+		counts.changed.addAndGet(changed);
+		counts.unchanged.addAndGet(unchanged);
+	}
+
+	void componentsSkipped(String componentType, long superseded, long unchanged) {
+		ComponentTypeCounts counts = getComponentTypeCounts(componentType);
+		counts.superseded.addAndGet(superseded);
+		counts.unchanged.addAndGet(unchanged);
+	}
+
+	void semanticIndexConceptTouched(long conceptId, boolean stated, boolean inferred) {
+		if (stated) {
+			statedSemanticIndexConcepts.add(conceptId);
+		}
+		if (inferred) {
+			inferredSemanticIndexConcepts.add(conceptId);
+		}
+	}
+
+	void isARelationshipChanged() {
+		isARelationshipChanges.incrementAndGet();
+	}
+
+	private ComponentTypeCounts getComponentTypeCounts(String componentType) {
+		return componentTypes.computeIfAbsent(componentType, type -> new ComponentTypeCounts());
+	}
+
+	public Map<String, ComponentTypeCounts> getComponentTypes() {
+		return componentTypes;
+	}
+
+	public int getStatedSemanticIndexConcepts() {
+		return statedSemanticIndexConcepts.size();
+	}
+
+	public int getInferredSemanticIndexConcepts() {
+		return inferredSemanticIndexConcepts.size();
+	}
+
+	/**
+	 * @return up to 100 of the concepts whose semantic index entries would be updated, lowest identifiers first.
+	 */
+	public List<Long> getSemanticIndexConceptSample() {
+		LongSet concepts = new LongOpenHashSet();
+		synchronized (statedSemanticIndexConcepts) {
+			concepts.addAll(statedSemanticIndexConcepts);
+		}
+		synchronized (inferredSemanticIndexConcepts) {
+			concepts.addAll(inferredSemanticIndexConcepts);
+		}
+		long[] sorted = concepts.toLongArray();
+		Arrays.sort(sorted);
+		List<Long> sample = new ArrayList<>();
+		for (int i = 0; i < sorted.length && i < CONCEPT_SAMPLE_SIZE; i++) {
+			sample.add(sorted[i]);
+		}
+		return sample;
+	}
+
+	public long getIsARelationshipChanges() {
+		return isARelationshipChanges.get();
+	}
+
+	public long getEstimatedIndexWrites() {
+		return componentTypes.values().stream().mapToLong(counts -> counts.getNewComponents() + counts.getChanged() * 2).sum();
+	}
+
+	public long getEstimatedSemanticIndexWrites() {
+		return (long) getStatedSemanticIndexConcepts() + getInferredSemanticIndexConcepts();
+	}
+
+	public static final class ComponentTypeCounts {
+
+		private final AtomicLong newComponents = new AtomicLong();
+		private final AtomicLong changed = new AtomicLong();
+		private final AtomicLong unchanged = new AtomicLong();
+		private final AtomicLong superseded = new AtomicLong();
+
+		public long getNewComponents() {
+			return newComponents.get();
+		}
+
+		public long getChanged() {
+			return changed.get();
+		}
+
+		public long getUnchanged() {
+			return unchanged.get();
+		}
+
+		/**
+		 * @return components not imported because the branch has a version with the same or a later effective time.
+		 */
+		public long getSuperseded() {
+			return superseded.get();
+		}
+	}
+}
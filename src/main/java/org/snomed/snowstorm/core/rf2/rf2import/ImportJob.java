@@ -3,15 +3,18 @@ package org.snomed.snowstorm.core.rf2.rf2import;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.snomed.snowstorm.core.rf2.RF2Type;
 
-import java.util.Set;
+import java.util.*;
 
 public class ImportJob {
 
 	private RF2ImportConfiguration importConfiguration;
 
+	private volatile ImportProgress progress;
+
 	public ImportJob(RF2ImportConfiguration importConfiguration) {
 		this.importConfiguration = importConfiguration;
 		status = ImportStatus.WAITING_FOR_FILE;
+		progress = new ImportProgress(importConfiguration.getType());
 	}
 
 	public enum ImportStatus {
@@ -22,6 +25,24 @@ public class ImportJob {
 
 	private String errorMessage;
 
+	// Duration of each phase of the import in milliseconds, in the order they ran
+	private final Map<String, Long> phaseTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	// Number of components of each type not imported because they were the same as the existing version
+	private Map<String, Long> unchangedComponentsSkipped;
+
+	// Checkpoints committed by a resumable import, in the order they completed
+	private final List<String> checkpoints = Collections.synchronizedList(new ArrayList<>());
+
+	// Branch which a resumable import loads into before merging into the target branch
+	private String importBranchPath;
+
+	// Max effective time of the components loaded by a resumable import, kept in case the merge must be resumed
+	private Integer loadedMaxEffectiveTime;
+
+	// What the import would change, set when a dry run completes
+	private ImportDryRunReport dryRunReport;
+
 	public void setStatus(ImportStatus status) {
 		this.status = status;
 	}
@@ -54,6 +75,22 @@ public class ImportJob {
 		return importConfiguration.isInternalRelease();
 	}
 
+	public boolean isBulkLoad() {
+		return importConfiguration.isBulkLoad();
+	}
+
+	public boolean isSkipUnchanged() {
+		return importConfiguration.isSkipUnchanged();
+	}
+
+	public boolean isResumable() {
+		return importConfiguration.isResumable();
+	}
+
+	public boolean isDryRun() {
+		return importConfiguration.isDryRun();
+	}
+
 	@JsonIgnore
 	public boolean isClearEffectiveTimes() {
 		return importConfiguration.isClearEffectiveTimes();
@@ -66,4 +103,69 @@ public class ImportJob {
 	public String getErrorMessage() {
 		return errorMessage;
 	}
+
+	public void addPhaseTiming(String phase, long millis) {
+		phaseTimings.put(phase, millis);
+	}
+
+	public Map<String, Long> getPhaseTimings() {
+		return phaseTimings;
+	}
+
+	public ImportProgress getProgress() {
+		return progress;
+	}
+
+	void resetProgress() {
+		progress = new ImportProgress(getType());
+	}
+
+	public void addCheckpoint(String checkpoint) {
+		checkpoints.add(checkpoint);
+	}
+
+	void setCheckpoints(Collection<String> checkpoints) {
+		synchronized (this.checkpoints) {
+			this.checkpoints.clear();
+			this.checkpoints.addAll(checkpoints);
+		}
+	}
+
+	public List<String> getCheckpoints() {
+		synchronized (checkpoints) {
+			return new ArrayList<>(checkpoints);
+		}
+	}
+
+	public String getImportBranchPath() {
+		return importBranchPath;
+	}
+
+	void setImportBranchPath(String importBranchPath) {
+		this.importBranchPath = importBranchPath;
+	}
+
+	Integer getLoadedMaxEffectiveTime() {
+		return loadedMaxEffectiveTime;
+	}
+
+	void setLoadedMaxEffectiveTime(Integer loadedMaxEffectiveTime) {
+		this.loadedMaxEffectiveTime = loadedMaxEffectiveTime;
+	}
+
+	public void setUnchangedComponentsSkipped(Map<String, Long> unchangedComponentsSkipped) {
+		this.unchangedComponentsSkipped = unchangedComponentsSkipped;
+	}
+
+	public Map<String, Long> getUnchangedComponentsSkipped() {
+		return unchangedComponentsSkipped;
+	}
+
+	void setDryRunReport(ImportDryRunReport dryRunReport) {
+		this.dryRunReport = dryRunReport;
+	}
+
+	public ImportDryRunReport getDryRunReport() {
+		return dryRunReport;
+	}
 }
@@ -0,0 +1,229 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import org.snomed.snowstorm.core.rf2.RF2Type;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipFile;
+
+/**
+ * Live progress of an import; rows parsed, skipped and persisted per component type, archive bytes read and the rolling parse rate.
+ * The estimated time remaining compares the bytes of the rows parsed so far with the uncompressed size of the RF2 files in the archive,
+ * which is only known when the archive is available as a file.
+ */
+public class ImportProgress {
+
+	private static final long RATE_WINDOW_MILLIS = 60_000;
+	private static final int SAMPLE_INTERVAL_ROWS = 1_000;
+
+	private final String rf2TypeName;
+	private final Map<String, ComponentTypeProgress> componentTypes = new ConcurrentSkipListMap<>();
+	private final AtomicLong archiveBytesRead = new AtomicLong();
+	private final AtomicLong rowsParsed = new AtomicLong();
+	private final AtomicLong bytesParsed = new AtomicLong();
+	private volatile long lastProgressMillis;
+	private volatile boolean archiveRead;
+
+	// Time, rows parsed and bytes parsed; one sample every SAMPLE_INTERVAL_ROWS rows within the rate window
+	private final Deque<long[]> samples = new ArrayDeque<>();
+
+	ImportProgress(RF2Type rf2Type) {
+		rf2TypeName = rf2Type != null ? rf2Type.getName() : null;
+		lastProgressMillis = System.currentTimeMillis();
+	}
+
+	void archiveBytesRead(long bytes) {
+		archiveBytesRead.addAndGet(bytes);
+		lastProgressMillis = System.currentTimeMillis();
+	}
+
+	void archiveReadComplete() {
+		archiveRead = true;
+	}
+
+	/**
+	 * Records the RF2 files of an archive using the uncompressed sizes in its central directory.
+	 */
+	void archiveEntriesFound(ZipFile zipFile) {
+		zipFile.stream()
+				.filter(entry -> !entry.isDirectory())
+				.forEach(entry -> archiveEntryFound(entry.getName(), entry.getSize()));
+	}
+
+	/**
+	 * Records an RF2 file found in the archive. Only files of the type being imported are used for the estimate.
+	 */
+	void archiveEntryFound(String entryName, long uncompressedSize) {
+		String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+		String componentType = getComponentType(fileName);
+		if (componentType != null && rf2TypeName != null && fileName.contains(rf2TypeName) && uncompressedSize >= 0) {
+			getComponentTypeProgress(componentType).addFile(fileName, uncompressedSize);
+		}
+	}
+
+	void rowParsed(String componentType, int rowBytes) {
+		getComponentTypeProgress(componentType).rowParsed(rowBytes);
+		bytesParsed.addAndGet(rowBytes);
+		if (rowsParsed.incrementAndGet() % SAMPLE_INTERVAL_ROWS == 0) {
+			sample();
+		}
+	}
+
+	void rowsSkipped(String componentType, int rows) {
+		getComponentTypeProgress(componentType).rowsSkipped.addAndGet(rows);
+		lastProgressMillis = System.currentTimeMillis();
+	}
+
+	void rowsPersisted(String componentType, int rows) {
+		getComponentTypeProgress(componentType).rowsPersisted.addAndGet(rows);
+		lastProgressMillis = System.currentTimeMillis();
+	}
+
+	private synchronized void sample() {
+		long now = System.currentTimeMillis();
+		lastProgressMillis = now;
+		samples.addLast(new long[]{now, rowsParsed.get(), bytesParsed.get()});
+		pruneSamples(now);
+	}
+
+	private void pruneSamples(long now) {
+		// Keep the latest sample so that the rate drops to zero when parsing stalls
+		while (samples.size() > 1 && samples.peekFirst()[0] < now - RATE_WINDOW_MILLIS) {
+			samples.removeFirst();
+		}
+	}
+
+	private ComponentTypeProgress getComponentTypeProgress(String componentType) {
+		return componentTypes.computeIfAbsent(componentType, type -> new ComponentTypeProgress());
+	}
+
+	static String getComponentType(String fileName) {
+		if (!fileName.endsWith(".txt")) {
+			return null;
+		}
+		if (fileName.startsWith("sct2_Concept_")) {
+			return "Concept";
+		} else if (fileName.startsWith("sct2_Description_") || fileName.startsWith("sct2_TextDefinition_")) {
+			return "Description";
+		} else if (fileName.startsWith("sct2_Relationship") || fileName.startsWith("sct2_StatedRelationship")) {
+			return "Relationship";
+		} else if (fileName.startsWith("der2_") || fileName.startsWith("sct2_sRefset_")) {
+			return "ReferenceSetMember";
+		}
+		return null;
+	}
+
+	public Map<String, ComponentTypeProgress> getComponentTypes() {
+		return componentTypes;
+	}
+
+	public long getArchiveBytesRead() {
+		return archiveBytesRead.get();
+	}
+
+	public long getRowsParsed() {
+		return rowsParsed.get();
+	}
+
+	/**
+	 * @return true once all entries of the archive have been read from the upload.
+	 */
+	public boolean isArchiveRead() {
+		return archiveRead;
+	}
+
+	public Date getLastProgress() {
+		return new Date(lastProgressMillis);
+	}
+
+	/**
+	 * @return rows parsed per second over the last minute, or null until there is enough data.
+	 */
+	public synchronized Long getRowsPerSecond() {
+		long[] rate = getRate();
+		return rate != null ? rate[0] : null;
+	}
+
+	/**
+	 * @return estimated seconds until all rows have been parsed, or null if the size of the RF2 files or the parse rate is not known.
+	 */
+	public synchronized Long getEtaSeconds() {
+		long totalBytes = componentTypes.values().stream().mapToLong(ComponentTypeProgress::getTotalBytes).sum();
+		long[] rate = getRate();
+		if (totalBytes == 0 || rate == null) {
+			return null;
+		}
+		long remainingBytes = Math.max(0, totalBytes - bytesParsed.get());
+		if (remainingBytes == 0) {
+			return 0L;
+		}
+		return rate[1] > 0 ? remainingBytes / rate[1] : null;
+	}
+
+	// Rows and bytes per second
+	private long[] getRate() {
+		long now = System.currentTimeMillis();
+		pruneSamples(now);
+		long[] oldest = samples.peekFirst();
+		if (oldest == null || now - oldest[0] < 1_000) {
+			return null;
+		}
+		long millis = now - oldest[0];
+		return new long[]{
+				(rowsParsed.get() - oldest[1]) * 1_000 / millis,
+				(bytesParsed.get() - oldest[2]) * 1_000 / millis};
+	}
+
+	long getMillisSinceProgress() {
+		return System.currentTimeMillis() - lastProgressMillis;
+	}
+
+	public static final class ComponentTypeProgress {
+
+		private final Map<String, Long> files = new ConcurrentHashMap<>();
+		private final AtomicLong totalBytes = new AtomicLong();
+		private final AtomicLong rowsParsed = new AtomicLong();
+		private final AtomicLong bytesParsed = new AtomicLong();
+		private final AtomicLong rowsSkipped = new AtomicLong();
+		private final AtomicLong rowsPersisted = new AtomicLong();
+
+		private void addFile(String fileName, long uncompressedSize) {
+			files.put(fileName, uncompressedSize);
+			totalBytes.addAndGet(uncompressedSize);
+		}
+
+		private void rowParsed(int rowBytes) {
+			rowsParsed.incrementAndGet();
+			bytesParsed.addAndGet(rowBytes);
+		}
+
+		/**
+		 * @return uncompressed size of each RF2 file of this type in the archive.
+		 */
+		public Map<String, Long> getFiles() {
+			return new TreeMap<>(files);
+		}
+
+		public long getTotalBytes() {
+			return totalBytes.get();
+		}
+
+		public long getRowsParsed() {
+			return rowsParsed.get();
+		}
+
+		public long getBytesParsed() {
+			return bytesParsed.get();
+		}
+
+		public long getRowsSkipped() {
+			return rowsSkipped.get();
+		}
+
+		public long getRowsPersisted() {
+			return rowsPersisted.get();
+		}
+	}
+}
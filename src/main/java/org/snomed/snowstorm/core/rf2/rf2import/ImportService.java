@@ -4,6 +4,8 @@ import io.kaicode.elasticvc.api.BranchService;
 import io.kaicode.elasticvc.domain.Branch;
 import io.kaicode.elasticvc.domain.Commit;
 import io.kaicode.elasticvc.domain.Metadata;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.ihtsdo.otf.snomedboot.ReleaseImportException;
 import org.ihtsdo.otf.snomedboot.ReleaseImporter;
 import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
@@ -13,16 +15,25 @@ import org.snomed.snowstorm.core.data.domain.CodeSystem;
 import org.snomed.snowstorm.core.data.services.*;
 import org.snomed.snowstorm.core.rf2.RF2Type;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import java.io.IOException;
-import java.io.InputStream;
+import javax.annotation.PostConstruct;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static org.snomed.snowstorm.core.data.services.BranchMetadataHelper.AUTHOR_FLAGS_METADATA_KEY;
 import static org.snomed.snowstorm.core.data.services.BranchMetadataHelper.INTERNAL_METADATA_KEY;
@@ -36,6 +47,8 @@ public class ImportService {
 
 	public static final String BATCH_CHANGE_KEY = "batch-change";
 
+	private static final String MERGED_CHECKPOINT = "merged";
+
 	private final Map<String, ImportJob> importJobMap;
 
 	private static final LoadingProfile DEFAULT_LOADING_PROFILE = LoadingProfile.complete;
@@ -58,10 +71,60 @@ public class ImportService {
 	@Autowired
 	private CodeSystemService codeSystemService;
 
+	@Autowired
+	private BulkLoadIndexSettingsService bulkLoadIndexSettingsService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private BranchMergeService branchMergeService;
+
+	@Autowired
+	private AdminOperationsService adminOperationsService;
+
+	@Value("${import.writer.threads}")
+	private int writerThreads;
+
+	@Value("${import.writer.member-threads}")
+	private int memberWriterThreads;
+
+	@Value("${import.writer.queue-batches}")
+	private int writerQueueBatches;
+
+	@Value("${import.released-index.max-components}")
+	private int releasedIndexMaxComponents;
+
+	@Value("${import.archive-stream.timeout-minutes}")
+	private int archiveStreamTimeoutMinutes;
+
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
 	public ImportService() {
-		importJobMap = new HashMap<>();
+		importJobMap = new ConcurrentHashMap<>();
+	}
+
+	@PostConstruct
+	public void registerMetrics() {
+		// Totals over running imports, the time since progress can be used to alert on a stalled import
+		Gauge.builder("snowstorm.import.running", this, service -> service.getRunningJobs().count())
+				.register(meterRegistry);
+		Gauge.builder("snowstorm.import.rows.parsed", this, service -> service.getRunningJobs().mapToLong(job -> job.getProgress().getRowsParsed()).sum())
+				.register(meterRegistry);
+		Gauge.builder("snowstorm.import.rows.persisted", this, service -> service.getRunningJobs()
+						.flatMap(job -> job.getProgress().getComponentTypes().values().stream())
+						.mapToLong(ImportProgress.ComponentTypeProgress::getRowsPersisted).sum())
+				.register(meterRegistry);
+		Gauge.builder("snowstorm.import.rows.per.second", this, service -> service.getRunningJobs()
+						.map(job -> job.getProgress().getRowsPerSecond()).filter(Objects::nonNull).mapToLong(Long::longValue).sum())
+				.register(meterRegistry);
+		Gauge.builder("snowstorm.import.seconds.since.progress", this, service -> service.getRunningJobs()
+						.mapToLong(job -> job.getProgress().getMillisSinceProgress() / 1_000).max().orElse(0))
+				.register(meterRegistry);
+	}
+
+	private Stream<ImportJob> getRunningJobs() {
+		return importJobMap.values().stream().filter(job -> job.getStatus() == ImportJob.ImportStatus.RUNNING);
 	}
 
 	public String createJob(RF2Type importType, String branchPath, boolean createCodeSystemVersion, boolean clearEffectiveTimes) {
@@ -79,6 +142,10 @@ public class ImportService {
 			throw new IllegalArgumentException(String.format("Branch %s does not exist.", branchPath));
 		}
 
+		if (importConfiguration.isDryRun() && importConfiguration.getType() == FULL) {
+			throw new IllegalArgumentException("The dryRun option can not be used with a FULL import.");
+		}
+
 		if (importConfiguration.isCreateCodeSystemVersion()) {
 			// Check there is a code system on this branch
 			Optional<CodeSystem> optionalCodeSystem = codeSystemService.findAll().stream().filter(codeSystem -> codeSystem.getBranchPath().equals(branchPath)).findAny();
@@ -92,41 +159,213 @@ public class ImportService {
 	}
 
 	public void importArchive(String importId, InputStream releaseFileStream) throws ReleaseImportException {
+		importArchive(importId, releaseFileStream, null);
+	}
+
+	/**
+	 * @param archiveFile the archive being read, if it is available as a file, used to find the size of the RF2 files for the progress estimate.
+	 */
+	public void importArchive(String importId, InputStream releaseFileStream, File archiveFile) throws ReleaseImportException {
 		ImportJob job = getJob(importId);
-		if (job.getStatus() != ImportJob.ImportStatus.WAITING_FOR_FILE) {
-			throw new IllegalStateException("Import Job must be in state " + ImportJob.ImportStatus.WAITING_FOR_FILE);
+		boolean resume = job.isResumable() && job.getStatus() == ImportJob.ImportStatus.FAILED;
+		if (job.getStatus() != ImportJob.ImportStatus.WAITING_FOR_FILE && !resume) {
+			throw new IllegalStateException("Import Job must be in state " + ImportJob.ImportStatus.WAITING_FOR_FILE +
+					(job.isResumable() ? " or " + ImportJob.ImportStatus.FAILED : ""));
+		}
+		if (job.isDryRun()) {
+			dryRunImport(importId, job, releaseFileStream, archiveFile);
+			return;
 		}
 		RF2Type importType = job.getType();
 		String branchPath = job.getBranchPath();
 		Integer patchReleaseVersion = job.getPatchReleaseVersion();
 		setImportMetadata(importType, branchPath, job.isCreateCodeSystemVersion());
+		String loadPath = branchPath;
 		try {
 			Date start = new Date();
-			logger.info("Starting RF2 {}{} import on branch {}. ID {}", importType, patchReleaseVersion != null ? " RELEASE PATCH on effectiveTime " + patchReleaseVersion : "", branchPath, importId);
+			if (resume) {
+				logger.info("Resuming RF2 {} import on branch {} after checkpoints {}. ID {}", importType, branchPath, job.getCheckpoints(), importId);
+				job.resetProgress();
+			} else {
+				logger.info("Starting RF2 {}{} import on branch {}. ID {}", importType, patchReleaseVersion != null ? " RELEASE PATCH on effectiveTime " + patchReleaseVersion : "", branchPath, importId);
+			}
 
 			job.setStatus(ImportJob.ImportStatus.RUNNING);
+			recordArchiveEntrySizes(archiveFile, job);
+			if (job.isResumable() && importType != FULL && !job.getCheckpoints().contains(MERGED_CHECKPOINT)) {
+				// Checkpoints are committed to an import branch so that the target branch only receives a complete import
+				loadPath = getOrCreateImportBranch(importId, job);
+				if (resume) {
+					restoreCheckpoints(job, loadPath);
+				}
+				setImportMetadata(importType, loadPath, job.isCreateCodeSystemVersion());
+			}
 			LoadingProfile loadingProfile = DEFAULT_LOADING_PROFILE
 					.withModuleIds(job.getModuleIds().toArray(new String[]{}));
 
-			final Integer maxEffectiveTime = importFiles(releaseFileStream, job, importType, branchPath, patchReleaseVersion, new ReleaseImporter(), loadingProfile);
+			InputStream archiveStream = new ArchiveProgressInputStream(releaseFileStream, job.getProgress());
+
+			Integer maxEffectiveTime;
+			long phaseStart = System.currentTimeMillis();
+			if (job.getCheckpoints().contains(ImportComponentFactoryImpl.COMPONENTS_CHECKPOINT)) {
+				// Loaded by an earlier run, only the merge is left
+				maxEffectiveTime = job.getLoadedMaxEffectiveTime();
+			} else {
+				if (job.isBulkLoad()) {
+					bulkLoadIndexSettingsService.startBulkLoad();
+					phaseStart = recordPhase(job, "apply-bulk-load-settings", phaseStart);
+				}
+				try {
+					maxEffectiveTime = importFiles(archiveStream, job, importType, loadPath, patchReleaseVersion, new ReleaseImporter(), loadingProfile);
+					phaseStart = recordPhase(job, "load-components", phaseStart);
+				} finally {
+					if (job.isBulkLoad()) {
+						// Restore the index settings whether or not the import succeeded
+						bulkLoadIndexSettingsService.endBulkLoad();
+						phaseStart = recordPhase(job, "restore-index-settings", phaseStart);
+					}
+				}
+				if (!loadPath.equals(branchPath)) {
+					job.setLoadedMaxEffectiveTime(maxEffectiveTime);
+				}
+			}
+
+			if (!loadPath.equals(branchPath)) {
+				mergeImportBranch(loadPath, branchPath);
+				job.addCheckpoint(MERGED_CHECKPOINT);
+				deleteImportBranch(loadPath);
+				loadPath = branchPath;
+				phaseStart = recordPhase(job, "merge-import-branch", phaseStart);
+			}
 
 			if (job.isCreateCodeSystemVersion() && importType != FULL && maxEffectiveTime != null) {
 				// Create Code System version if a code system exists on this path
 				codeSystemService.createVersionIfCodeSystemFoundOnPath(branchPath, maxEffectiveTime, job.isInternalRelease());
+				recordPhase(job, "create-code-system-version", phaseStart);
 			}
 
 			job.setStatus(ImportJob.ImportStatus.COMPLETED);
 			long seconds = (new Date().getTime() - start.getTime()) / 1_000;
-			logger.info("Completed RF2 {} import on branch {} in {} seconds. ID {}", importType, branchPath, seconds, importId);
+			logger.info("Completed RF2 {} import on branch {} in {} seconds, phase timings {}. ID {}", importType, branchPath, seconds, job.getPhaseTimings(), importId);
 		} catch (Exception e) {
 			logger.error("Failed RF2 {} import on branch {}. ID {}", importType, branchPath, importId, e);
 			job.setStatus(ImportJob.ImportStatus.FAILED);
 			throw e;
 		} finally {
 			clearImportMetadata(branchPath);
+			if (!loadPath.equals(branchPath)) {
+				clearImportMetadata(loadPath);
+			}
 		}
 	}
 
+	/**
+	 * Parses the archive and runs the same checks as an import against the branch without changing it.
+	 * Branch metadata, bulk-load settings, checkpoints and code system versions are left alone.
+	 */
+	private void dryRunImport(String importId, ImportJob job, InputStream releaseFileStream, File archiveFile) throws ReleaseImportException {
+		RF2Type importType = job.getType();
+		String branchPath = job.getBranchPath();
+		logger.info("Starting RF2 {} import dry run on branch {}. ID {}", importType, branchPath, importId);
+		job.setStatus(ImportJob.ImportStatus.RUNNING);
+		recordArchiveEntrySizes(archiveFile, job);
+		try {
+			long phaseStart = System.currentTimeMillis();
+			LoadingProfile loadingProfile = DEFAULT_LOADING_PROFILE
+					.withModuleIds(job.getModuleIds().toArray(new String[]{}));
+			InputStream archiveStream = new ArchiveProgressInputStream(releaseFileStream, job.getProgress());
+			ImportComponentFactoryImpl importComponentFactory = getImportComponentFactory(branchPath, job.getPatchReleaseVersion(), !job.isCreateCodeSystemVersion(),
+					job.isClearEffectiveTimes(), job.isSkipUnchanged());
+			importComponentFactory.setImportProgress(job.getProgress());
+			ImportDryRunReport report = new ImportDryRunReport();
+			importComponentFactory.setDryRunReport(report);
+			try {
+				if (importType == RF2Type.SNAPSHOT) {
+					new ReleaseImporter().loadSnapshotReleaseFiles(archiveStream, loadingProfile, importComponentFactory);
+				} else {
+					new ReleaseImporter().loadDeltaReleaseFiles(archiveStream, loadingProfile, importComponentFactory);
+				}
+			} finally {
+				importComponentFactory.stopWriters();
+			}
+			recordPhase(job, "dry-run", phaseStart);
+			job.setDryRunReport(report);
+			job.setStatus(ImportJob.ImportStatus.COMPLETED);
+			logger.info("Completed RF2 {} import dry run on branch {}, estimated index writes {}, estimated semantic index writes {}. ID {}",
+					importType, branchPath, report.getEstimatedIndexWrites(), report.getEstimatedSemanticIndexWrites(), importId);
+		} catch (Exception e) {
+			logger.error("Failed RF2 {} import dry run on branch {}. ID {}", importType, branchPath, importId, e);
+			job.setStatus(ImportJob.ImportStatus.FAILED);
+			throw e;
+		}
+	}
+
+	// The release importer gives no per-file callbacks so the RF2 file sizes are read from the central directory
+	private void recordArchiveEntrySizes(File archiveFile, ImportJob job) {
+		if (archiveFile == null) {
+			return;
+		}
+		try (ZipFile zipFile = new ZipFile(archiveFile)) {
+			job.getProgress().archiveEntriesFound(zipFile);
+		} catch (IOException e) {
+			// Not a readable archive, the release importer will report the problem
+			logger.debug("Failed to read archive entry sizes from {}.", archiveFile.getAbsolutePath(), e);
+		}
+	}
+
+	private String getOrCreateImportBranch(String importId, ImportJob job) {
+		String importBranchPath = job.getImportBranchPath();
+		if (importBranchPath == null) {
+			importBranchPath = job.getBranchPath() + "/import-" + importId.substring(0, 8);
+			branchService.create(importBranchPath);
+			job.setImportBranchPath(importBranchPath);
+			logger.info("Created import branch {}.", importBranchPath);
+		}
+		return importBranchPath;
+	}
+
+	// The checkpoints saved on the import branch are those actually committed, the job may have been updated after a commit failed
+	private void restoreCheckpoints(ImportJob job, String importBranchPath) {
+		Map<String, String> internalMetadata = branchService.findLatest(importBranchPath).getMetadata().getMapOrCreate(INTERNAL_METADATA_KEY);
+		List<String> checkpoints = ImportComponentFactoryImpl.getRecordedCheckpoints(internalMetadata);
+		job.setCheckpoints(checkpoints);
+		String maxEffectiveTime = internalMetadata.get(ImportComponentFactoryImpl.IMPORT_MAX_EFFECTIVE_TIME_KEY);
+		job.setLoadedMaxEffectiveTime(maxEffectiveTime != null ? Integer.parseInt(maxEffectiveTime) : null);
+		logger.info("Restored checkpoints {} from import branch {}.", checkpoints, importBranchPath);
+	}
+
+	private void mergeImportBranch(String importBranchPath, String branchPath) {
+		try {
+			Branch importBranch = branchService.findLatest(importBranchPath);
+			if (importBranch.getBaseTimestamp() != branchService.findLatest(branchPath).getHeadTimestamp()) {
+				// The target branch has changed since the import branch was created
+				branchMergeService.rebaseSync(importBranchPath, null);
+				importBranch = branchService.findLatest(importBranchPath);
+			}
+			if (importBranch.isContainsContent()) {
+				branchMergeService.mergeBranchSync(importBranchPath, branchPath, null);
+			}
+		} catch (ServiceException e) {
+			throw new RuntimeServiceException("Failed to merge import branch " + importBranchPath + " into " + branchPath + ".", e);
+		}
+	}
+
+	// The content is on the target branch once merged
+	private void deleteImportBranch(String importBranchPath) {
+		try {
+			adminOperationsService.hardDeleteBranch(importBranchPath);
+			logger.info("Deleted import branch {}.", importBranchPath);
+		} catch (RuntimeException e) {
+			logger.warn("Failed to delete import branch {}.", importBranchPath, e);
+		}
+	}
+
+	private long recordPhase(ImportJob job, String phase, long phaseStart) {
+		long now = System.currentTimeMillis();
+		job.addPhaseTiming(phase, now - phaseStart);
+		return now;
+	}
+
 	/**
 	 * Imports the uploaded files, depending on the {@link RF2Type} <code>importType</code>.
 	 * If an <code>importType</code> is passed in which is not associated to an {@link RF2Type}, then
@@ -157,7 +396,7 @@ public class ImportService {
 			case SNAPSHOT:
 				return snapshotImport(releaseFileStream, job, branchPath, patchReleaseVersion, releaseImporter, loadingProfile);
 			case FULL:
-				return fullImport(releaseFileStream, branchPath, releaseImporter, loadingProfile);
+				return fullImport(releaseFileStream, job, branchPath, releaseImporter, loadingProfile);
 			default:
 				throw new IllegalStateException("Unexpected import type: " + importType);
 		}
@@ -190,10 +429,14 @@ public class ImportService {
 		branchService.updateMetadata(branchPath, metadata);
 	}
 
-	private Integer fullImport(final InputStream releaseFileStream, final String branchPath, final ReleaseImporter releaseImporter,
+	private Integer fullImport(final InputStream releaseFileStream, final ImportJob job, final String branchPath, final ReleaseImporter releaseImporter,
 			final LoadingProfile loadingProfile) throws ReleaseImportException {
 
 		final FullImportComponentFactoryImpl importComponentFactory = getFullImportComponentFactory(branchPath);
+		importComponentFactory.setImportProgress(job.getProgress());
+		if (job.isResumable()) {
+			importComponentFactory.setCheckpoints(job.getCheckpoints(), job::addCheckpoint);
+		}
 		try {
 			releaseImporter.loadFullReleaseFiles(releaseFileStream, loadingProfile, importComponentFactory);
 			return null;
@@ -208,9 +451,14 @@ public class ImportService {
 
 		// If we are not creating a new version copy the release fields from the existing components
 		final ImportComponentFactoryImpl importComponentFactory =
-				getImportComponentFactory(branchPath, patchReleaseVersion, !job.isCreateCodeSystemVersion(), job.isClearEffectiveTimes());
+				getImportComponentFactory(branchPath, patchReleaseVersion, !job.isCreateCodeSystemVersion(), job.isClearEffectiveTimes(), job.isSkipUnchanged());
+		importComponentFactory.setImportProgress(job.getProgress());
+		if (job.isResumable()) {
+			importComponentFactory.setCheckpoints(job.getCheckpoints(), job::addCheckpoint);
+		}
 		try {
 			releaseImporter.loadSnapshotReleaseFiles(releaseFileStream, loadingProfile, importComponentFactory);
+			job.setUnchangedComponentsSkipped(importComponentFactory.getUnchangedComponentCounts());
 			return importComponentFactory.getMaxEffectiveTime();
 		} catch (ReleaseImportException e) {
 			rollbackIncompleteCommit(importComponentFactory);
@@ -223,9 +471,14 @@ public class ImportService {
 
 		// If we are not creating a new version copy the release fields from the existing components
 		final ImportComponentFactoryImpl importComponentFactory =
-				getImportComponentFactory(branchPath, patchReleaseVersion, !job.isCreateCodeSystemVersion(), job.isClearEffectiveTimes());
+				getImportComponentFactory(branchPath, patchReleaseVersion, !job.isCreateCodeSystemVersion(), job.isClearEffectiveTimes(), job.isSkipUnchanged());
+		importComponentFactory.setImportProgress(job.getProgress());
+		if (job.isResumable()) {
+			importComponentFactory.setCheckpoints(job.getCheckpoints(), job::addCheckpoint);
+		}
 		try {
 			releaseImporter.loadDeltaReleaseFiles(releaseFileStream, loadingProfile, importComponentFactory);
+			job.setUnchangedComponentsSkipped(importComponentFactory.getUnchangedComponentCounts());
 			return importComponentFactory.getMaxEffectiveTime();
 		} catch (ReleaseImportException e) {
 			rollbackIncompleteCommit(importComponentFactory);
@@ -234,6 +487,8 @@ public class ImportService {
 	}
 
 	private void rollbackIncompleteCommit(ImportComponentFactoryImpl importComponentFactory) {
+		// Writers must not save more content to the commit while it is rolled back
+		importComponentFactory.stopWriters();
 		final Commit commit = importComponentFactory.getCommit();
 		if (commit != null) {
 			logger.info("Triggering rollback of failed import commit on {} at {}", commit.getBranch().getPath(), commit.getTimepoint().getTime());
@@ -242,25 +497,266 @@ public class ImportService {
 		}
 	}
 
-	private ImportComponentFactoryImpl getImportComponentFactory(String branchPath, Integer patchReleaseVersion, boolean copyReleaseFields, boolean clearEffectiveTimes) {
+	private ImportComponentFactoryImpl getImportComponentFactory(String branchPath, Integer patchReleaseVersion, boolean copyReleaseFields, boolean clearEffectiveTimes,
+			boolean skipUnchanged) {
 		return new ImportComponentFactoryImpl(conceptUpdateHelper, memberService, branchService, branchMetadataHelper,
-				branchPath, patchReleaseVersion, copyReleaseFields, clearEffectiveTimes);
+				branchPath, patchReleaseVersion, copyReleaseFields, clearEffectiveTimes, skipUnchanged, writerThreads, memberWriterThreads, writerQueueBatches,
+				releasedIndexMaxComponents);
 	}
 
 	private FullImportComponentFactoryImpl getFullImportComponentFactory(String branchPath) {
 		return new FullImportComponentFactoryImpl(conceptUpdateHelper, memberService, branchService, branchMetadataHelper, codeSystemService,
-				branchPath, null);
+				branchPath, null, writerThreads, memberWriterThreads, writerQueueBatches);
 	}
 
 	@PreAuthorize("hasPermission('AUTHOR', #branchPath)")
 	public void importArchiveAsync(String importId, @SuppressWarnings("unused") String branchPath, InputStream releaseFileStream) {
+		submitImport(importId, releaseFileStream, null, false);
+	}
+
+	/**
+	 * Starts an import from an archive file, the size of the RF2 files is read from the archive for the progress estimate.
+	 * @param deleteAfterImport if the file is a temporary copy which should be deleted once the import has finished.
+	 */
+	@PreAuthorize("hasPermission('AUTHOR', #branchPath)")
+	public void importArchiveAsync(String importId, @SuppressWarnings("unused") String branchPath, File archiveFile, boolean deleteAfterImport) throws FileNotFoundException {
+		submitImport(importId, new FileInputStream(archiveFile), archiveFile, deleteAfterImport);
+	}
+
+	/**
+	 * Starts an import from a stream which is only open until this method returns, such as a request body.
+	 * The archive is read by the import as it arrives rather than being copied to disk first. Returns once the whole archive has been read,
+	 * the import continues in the background.
+	 * A copy of the archive is kept while it is read. If an entry of the archive can not be read in order the import fails
+	 * while unpacking, is rolled back, and is started again from the copy rewritten using the central directory.
+	 */
+	@PreAuthorize("hasPermission('AUTHOR', #branchPath)")
+	public void importArchiveStreamAsync(String importId, @SuppressWarnings("unused") String branchPath, InputStream archiveStream) {
+		ImportJob job = getImportJobOrThrow(importId);
+		if (job.getStatus() != ImportJob.ImportStatus.WAITING_FOR_FILE && !(job.isResumable() && job.getStatus() == ImportJob.ImportStatus.FAILED)) {
+			throw new IllegalStateException("Import Job must be in state " + ImportJob.ImportStatus.WAITING_FOR_FILE +
+					(job.isResumable() ? " or " + ImportJob.ImportStatus.FAILED : ""));
+		}
+		BufferedInputStream bufferedStream = new BufferedInputStream(archiveStream);
+		File archiveCopy;
+		if (isStreamable(bufferedStream)) {
+			archiveCopy = streamArchive(importId, job, bufferedStream);
+			if (archiveCopy == null) {
+				return;
+			}
+			logger.info("Archive for import {} could not be read in order, importing again from a rewritten copy.", importId);
+			if (!job.isResumable()) {
+				// Nothing was committed, a resumable job resumes from its checkpoints instead
+				job.setStatus(ImportJob.ImportStatus.WAITING_FOR_FILE);
+				job.resetProgress();
+			}
+		} else {
+			logger.info("Archive for import {} can not be read in order, spooling to disk.", importId);
+			try {
+				archiveCopy = Files.createTempFile("import-upload", ".zip").toFile();
+				Files.copy(bufferedStream, archiveCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Failed to read uploaded archive.", e);
+			}
+		}
+		File spooledArchive;
+		try {
+			spooledArchive = rewriteArchive(archiveCopy);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Failed to read uploaded archive, it must be a zip file.", e);
+		}
+		try {
+			submitImport(importId, new FileInputStream(spooledArchive), spooledArchive, true);
+		} catch (FileNotFoundException e) {
+			throw new RuntimeServiceException("Failed to open spooled archive for import " + importId, e);
+		}
+	}
+
+	/**
+	 * Imports directly from the stream while keeping a copy of the archive on disk.
+	 * @return the copy of the archive if the import failed because an entry could not be read in order, otherwise null.
+	 */
+	private File streamArchive(String importId, ImportJob job, InputStream archiveStream) {
+		File archiveCopy;
+		try {
+			archiveCopy = Files.createTempFile("import-upload", ".zip").toFile();
+		} catch (IOException e) {
+			throw new RuntimeServiceException("Failed to create archive copy for import " + importId, e);
+		}
+		boolean keepCopy = false;
+		try (OutputStream archiveCopyStream = new BufferedOutputStream(new FileOutputStream(archiveCopy))) {
+			CompletableFuture<Void> archiveRead = new CompletableFuture<>();
+			Future<Exception> importFuture = submitImport(importId, new RequestBodyInputStream(archiveStream, archiveCopyStream, archiveRead), null, false);
+			awaitArchiveRead(importId, archiveRead, importFuture);
+			// The status is set before the importer lets go of the stream
+			if (job.getStatus() == ImportJob.ImportStatus.FAILED) {
+				if (!failedToReadInOrder(importFuture)) {
+					throw new RuntimeServiceException("Import " + importId + " failed while reading the archive.");
+				}
+				keepCopy = true;
+			}
+		} catch (IOException e) {
+			throw new RuntimeServiceException("Failed to write archive copy for import " + importId, e);
+		} finally {
+			if (!keepCopy) {
+				deleteTempFile(archiveCopy);
+			}
+		}
+		return keepCopy ? archiveCopy : null;
+	}
+
+	private boolean isStreamable(BufferedInputStream archiveStream) {
+		try {
+			archiveStream.mark(ArchiveProgressInputStream.LOCAL_HEADER_LENGTH);
+			byte[] header = archiveStream.readNBytes(ArchiveProgressInputStream.LOCAL_HEADER_LENGTH);
+			archiveStream.reset();
+			return ArchiveProgressInputStream.isReadableInOrder(header);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Failed to read uploaded archive.", e);
+		}
+	}
+
+	// Rewrites the archive using the central directory so that every entry can be read in order, the original file is deleted
+	private File rewriteArchive(File uploadedArchive) throws IOException {
+		File spooledArchive = Files.createTempFile("import-spooled", ".zip").toFile();
+		try (ZipFile zipFile = new ZipFile(uploadedArchive);
+			 ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(spooledArchive))) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				zipOutputStream.putNextEntry(new ZipEntry(entry.getName()));
+				try (InputStream entryStream = zipFile.getInputStream(entry)) {
+					entryStream.transferTo(zipOutputStream);
+				}
+			}
+			return spooledArchive;
+		} catch (IOException e) {
+			deleteTempFile(spooledArchive);
+			throw e;
+		} finally {
+			deleteTempFile(uploadedArchive);
+		}
+	}
+
+	// The stream of a request body can not be read after the request completes
+	private void awaitArchiveRead(String importId, CompletableFuture<Void> archiveRead, Future<?> importFuture) {
+		try {
+			archiveRead.get(archiveStreamTimeoutMinutes, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			importFuture.cancel(true);
+			throw new RuntimeServiceException("Interrupted while reading archive for import " + importId, e);
+		} catch (TimeoutException e) {
+			importFuture.cancel(true);
+			throw new RuntimeServiceException("Archive for import " + importId + " was not read within " + archiveStreamTimeoutMinutes + " minutes.", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeServiceException("Failed to read archive for import " + importId, e.getCause());
+		}
+	}
+
+	// The zip stream rejects entries it can not read in order, such as stored entries with a data descriptor, with a ZipException
+	private boolean failedToReadInOrder(Future<Exception> importFuture) {
+		Throwable failure;
+		try {
+			// The import has already failed, it finishes once the stream is closed
+			failure = importFuture.get(archiveStreamTimeoutMinutes, TimeUnit.MINUTES);
+		} catch (ExecutionException e) {
+			failure = e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (TimeoutException e) {
+			return false;
+		}
+		for (; failure != null; failure = failure.getCause()) {
+			if (failure instanceof ZipException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Request body given to the importer. Everything read is also written to a copy of the archive.
+	 * Once the importer has finished with it, by reaching the end or closing it, the remainder of the body is read into the copy
+	 * so that the whole request is consumed before the response is sent.
+	 * The request body itself is left open, it belongs to the servlet container.
+	 */
+	private static class RequestBodyInputStream extends FilterInputStream {
+
+		private final OutputStream archiveCopy;
+		private final CompletableFuture<Void> archiveRead;
+
+		RequestBodyInputStream(InputStream in, OutputStream archiveCopy, CompletableFuture<Void> archiveRead) {
+			super(in);
+			this.archiveCopy = archiveCopy;
+			this.archiveRead = archiveRead;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				archiveCopy.write(b);
+			}
+			return readCompleting(b);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				archiveCopy.write(b, off, read);
+			}
+			return readCompleting(read);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// Skipped bytes are still needed in the copy
+			byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			int read = read(buffer, 0, buffer.length);
+			return Math.max(read, 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private int readCompleting(int read) throws IOException {
+			if (read == -1) {
+				archiveCopy.flush();
+				archiveRead.complete(null);
+			}
+			return read;
+		}
+
+		@Override
+		public void close() {
+			if (archiveRead.isDone()) {
+				return;
+			}
+			try {
+				in.transferTo(archiveCopy);
+				archiveCopy.flush();
+				archiveRead.complete(null);
+			} catch (IOException e) {
+				archiveRead.completeExceptionally(e);
+			}
+		}
+	}
+
+	private Future<Exception> submitImport(String importId, InputStream releaseFileStream, File archiveFile, boolean deleteArchiveFile) {
 		final SecurityContext securityContext = SecurityContextHolder.getContext();
-		executorService.submit(() -> {
+		return executorService.submit(() -> {
 			SecurityContextHolder.setContext(securityContext);
 			try {
-				importArchive(importId, releaseFileStream);
+				importArchive(importId, releaseFileStream, archiveFile);
+				return null;
 			} catch (ReleaseImportException e) {
-				// Swallow exception - already logged and this is an async method
+				// Already logged and this is an async method, returned for callers waiting on the import
+				return e;
 			} finally {
 				if (releaseFileStream != null) {
 					try {
@@ -269,10 +765,19 @@ public class ImportService {
 						logger.info("Failed to close input stream for import {}", importId);
 					}
 				}
+				if (deleteArchiveFile) {
+					deleteTempFile(archiveFile);
+				}
 			}
 		});
 	}
 
+	private void deleteTempFile(File file) {
+		if (!file.delete()) {
+			logger.warn("Failed to delete temp file {}", file.getAbsolutePath());
+		}
+	}
+
 	public ImportJob getImportJobOrThrow(@PathVariable String importId) {
 		ImportJob importJob = getJob(importId);
 		if (importJob == null) {
@@ -14,6 +14,10 @@ public final class RF2ImportConfiguration {
 	private boolean internalRelease;
 	private Set<String> moduleIds;
 	private Integer patchReleaseVersion;
+	private boolean bulkLoad;
+	private boolean skipUnchanged;
+	private boolean resumable;
+	private boolean dryRun;
 
 	// Used to remove the effectiveTime from imported RF2 rows - for daily build.
 	private Boolean clearEffectiveTimes;
@@ -85,4 +89,40 @@ public final class RF2ImportConfiguration {
 		this.patchReleaseVersion = patchReleaseVersion;
 		return this;
 	}
+
+	public boolean isBulkLoad() {
+		return bulkLoad;
+	}
+
+	public RF2ImportConfiguration setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+		return this;
+	}
+
+	public boolean isSkipUnchanged() {
+		return skipUnchanged;
+	}
+
+	public RF2ImportConfiguration setSkipUnchanged(boolean skipUnchanged) {
+		this.skipUnchanged = skipUnchanged;
+		return this;
+	}
+
+	public boolean isResumable() {
+		return resumable;
+	}
+
+	public RF2ImportConfiguration setResumable(boolean resumable) {
+		this.resumable = resumable;
+		return this;
+	}
+
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	public RF2ImportConfiguration setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+		return this;
+	}
 }
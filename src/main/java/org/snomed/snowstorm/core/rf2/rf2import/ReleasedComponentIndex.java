@@ -0,0 +1,219 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import it.unimi.dsi.fastutil.Arrays;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * Compact in memory index of the components of one type on a branch which have an effective time or have been released.
+ * Holds the effective time, released effective time and a fingerprint of the release hash of each component, around 32 bytes per component.
+ * Component ids are stored as numbers, SNOMED CT identifiers and UUIDs are supported.
+ */
+class ReleasedComponentIndex {
+
+	private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+	private static final int NONE = 0;
+
+	private long[] keyHigh;
+	private long[] keyLow;
+	private int[] effectiveTimes;
+	private int[] releasedEffectiveTimes;
+	private long[] fingerprints;
+	private final BitSet released = new BitSet();
+	private int size;
+	private boolean sorted;
+
+	ReleasedComponentIndex(int expectedSize) {
+		int capacity = Math.max(expectedSize, 16);
+		keyHigh = new long[capacity];
+		keyLow = new long[capacity];
+		effectiveTimes = new int[capacity];
+		releasedEffectiveTimes = new int[capacity];
+		fingerprints = new long[capacity];
+	}
+
+	/**
+	 * @return false if the id can not be stored as a number, the index can not be used for this component type.
+	 */
+	boolean add(String id, Integer effectiveTime, boolean released, Integer releasedEffectiveTime, String releaseHash) {
+		long[] key = toKey(id);
+		if (key == null) {
+			return false;
+		}
+		if (size == keyHigh.length) {
+			grow();
+		}
+		keyHigh[size] = key[0];
+		keyLow[size] = key[1];
+		effectiveTimes[size] = effectiveTime != null ? effectiveTime : NONE;
+		releasedEffectiveTimes[size] = releasedEffectiveTime != null ? releasedEffectiveTime : NONE;
+		fingerprints[size] = releaseHash != null ? fingerprint(releaseHash) : NONE;
+		this.released.set(size, released);
+		size++;
+		sorted = false;
+		return true;
+	}
+
+	/**
+	 * Sorts the index by id, must be called after the last component is added.
+	 */
+	void complete() {
+		Arrays.quickSort(0, size, this::compare, this::swap);
+		sorted = true;
+	}
+
+	ReleasedState get(String id) {
+		if (!sorted) {
+			throw new IllegalStateException("Index is not complete.");
+		}
+		long[] key = toKey(id);
+		if (key == null) {
+			return null;
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = compare(keyHigh[mid], keyLow[mid], key[0], key[1]);
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return new ReleasedState(
+						effectiveTimes[mid] != NONE ? effectiveTimes[mid] : null,
+						released.get(mid),
+						releasedEffectiveTimes[mid] != NONE ? releasedEffectiveTimes[mid] : null,
+						null,
+						fingerprints[mid]);
+			}
+		}
+		return null;
+	}
+
+	int size() {
+		return size;
+	}
+
+	static long fingerprint(String releaseHash) {
+		return FINGERPRINT_FUNCTION.hashString(releaseHash, StandardCharsets.UTF_8).asLong();
+	}
+
+	// Only canonical forms are accepted so that two different ids can not have the same key
+	private static long[] toKey(String id) {
+		if (id == null || id.isEmpty()) {
+			return null;
+		}
+		if (Character.isDigit(id.charAt(0)) && id.length() <= 18) {
+			try {
+				long value = Long.parseLong(id);
+				if (Long.toString(value).equals(id)) {
+					return new long[]{0, value};
+				}
+			} catch (NumberFormatException e) {
+				// Try as UUID
+			}
+		}
+		if (id.length() == 36) {
+			try {
+				UUID uuid = UUID.fromString(id);
+				if (uuid.toString().equals(id)) {
+					return new long[]{uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+				}
+			} catch (IllegalArgumentException e) {
+				// Not a UUID
+			}
+		}
+		return null;
+	}
+
+	private int compare(int a, int b) {
+		return compare(keyHigh[a], keyLow[a], keyHigh[b], keyLow[b]);
+	}
+
+	private static int compare(long highA, long lowA, long highB, long lowB) {
+		int comparison = Long.compare(highA, highB);
+		return comparison != 0 ? comparison : Long.compare(lowA, lowB);
+	}
+
+	private void swap(int a, int b) {
+		swap(keyHigh, a, b);
+		swap(keyLow, a, b);
+		swap(fingerprints, a, b);
+		int effectiveTime = effectiveTimes[a];
+		effectiveTimes[a] = effectiveTimes[b];
+		effectiveTimes[b] = effectiveTime;
+		int releasedEffectiveTime = releasedEffectiveTimes[a];
+		releasedEffectiveTimes[a] = releasedEffectiveTimes[b];
+		releasedEffectiveTimes[b] = releasedEffectiveTime;
+		boolean releasedA = released.get(a);
+		released.set(a, released.get(b));
+		released.set(b, releasedA);
+	}
+
+	private static void swap(long[] values, int a, int b) {
+		long value = values[a];
+		values[a] = values[b];
+		values[b] = value;
+	}
+
+	private void grow() {
+		int capacity = keyHigh.length + (keyHigh.length >> 1);
+		keyHigh = java.util.Arrays.copyOf(keyHigh, capacity);
+		keyLow = java.util.Arrays.copyOf(keyLow, capacity);
+		effectiveTimes = java.util.Arrays.copyOf(effectiveTimes, capacity);
+		releasedEffectiveTimes = java.util.Arrays.copyOf(releasedEffectiveTimes, capacity);
+		fingerprints = java.util.Arrays.copyOf(fingerprints, capacity);
+	}
+
+	/**
+	 * Release state of an existing component, from the index or from a query.
+	 * Components from the index have a fingerprint of the release hash rather than the hash itself.
+	 */
+	static final class ReleasedState {
+
+		private final Integer effectiveTime;
+		private final boolean released;
+		private final Integer releasedEffectiveTime;
+		private final String releaseHash;
+		private final long releaseHashFingerprint;
+
+		ReleasedState(Integer effectiveTime, boolean released, Integer releasedEffectiveTime, String releaseHash, long releaseHashFingerprint) {
+			this.effectiveTime = effectiveTime;
+			this.released = released;
+			this.releasedEffectiveTime = releasedEffectiveTime;
+			this.releaseHash = releaseHash;
+			this.releaseHashFingerprint = releaseHashFingerprint;
+		}
+
+		Integer getEffectiveTime() {
+			return effectiveTime;
+		}
+
+		boolean isReleased() {
+			return released;
+		}
+
+		Integer getReleasedEffectiveTime() {
+			return releasedEffectiveTime;
+		}
+
+		/**
+		 * @return the release hash, or null if the state came from the index.
+		 */
+		String getReleaseHash() {
+			return releaseHash;
+		}
+
+		/**
+		 * @return true if the fingerprint of the existing release hash matches this release hash.
+		 */
+		boolean isReleaseHashFingerprint(String releaseHash) {
+			return releaseHashFingerprint == fingerprint(releaseHash);
+		}
+	}
+}
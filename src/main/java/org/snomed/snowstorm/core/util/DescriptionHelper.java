@@ -97,4 +97,21 @@ public class DescriptionHelper {
 		return new String(charsFolded, 0, charsFoldedOffset);
 	}
 
+	/**
+	 * Splits the lowercase form of a term into all of its three character substrings.
+	 * Used to index and query descriptions for substring matching without scanning the whole term dictionary.
+	 * @return set of trigrams, empty if the term is shorter than three characters.
+	 */
+	public static Set<String> getTermTrigrams(String term) {
+		if (term == null || term.length() < 3) {
+			return Collections.emptySet();
+		}
+		String lowercaseTerm = term.toLowerCase();
+		Set<String> trigrams = new HashSet<>();
+		for (int i = 0; i + 3 <= lowercaseTerm.length(); i++) {
+			trigrams.add(lowercaseTerm.substring(i, i + 3));
+		}
+		return trigrams;
+	}
+
 }
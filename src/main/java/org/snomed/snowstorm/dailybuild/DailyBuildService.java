@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snomed.snowstorm.core.data.domain.CodeSystem;
 import org.snomed.snowstorm.core.data.domain.CodeSystemVersion;
+import org.snomed.snowstorm.core.data.services.BranchCriteriaProvider;
 import org.snomed.snowstorm.core.data.services.CodeSystemService;
 import org.snomed.snowstorm.core.data.services.DomainEntityConfiguration;
 import org.snomed.snowstorm.core.data.services.SBranchService;
@@ -63,6 +64,9 @@ public class DailyBuildService {
 	@Autowired
 	private DomainEntityConfiguration domainEntityConfiguration;
 
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	private ResourceManager resourceManager;
 
 	private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -178,6 +182,8 @@ public class DailyBuildService {
 		for (Branch branchVersion : rollbackList) {
 			branchService.rollbackCompletedCommit(branchVersion, domainTypes);
 		}
+		// Rollback does not go through the commit listeners
+		branchCriteriaProvider.invalidate(path);
 	}
 
 	private String getNewDailyBuildIfExists(CodeSystem codeSystem, long lastImportTimePoint) {
@@ -2,7 +2,6 @@ package org.snomed.snowstorm.mrcm;
 
 import ch.qos.logback.classic.Level;
 import io.kaicode.elasticvc.api.BranchCriteria;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snomed.langauges.ecl.domain.refinement.Operator;
@@ -10,6 +9,7 @@ import org.snomed.snowstorm.core.data.domain.ConceptMini;
 import org.snomed.snowstorm.core.data.domain.Concepts;
 import org.snomed.snowstorm.core.data.domain.QueryConcept;
 import org.snomed.snowstorm.core.data.domain.Relationship;
+import org.snomed.snowstorm.core.data.services.BranchCriteriaProvider;
 import org.snomed.snowstorm.core.data.services.ConceptService;
 import org.snomed.snowstorm.core.data.services.QueryService;
 import org.snomed.snowstorm.core.data.services.ServiceException;
@@ -51,7 +51,7 @@ public class MRCMService {
 	private ConceptService conceptService;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@Autowired
 	private ElasticsearchRestTemplate elasticsearchTemplate;
@@ -65,12 +65,12 @@ public class MRCMService {
 	public Collection<ConceptMini> retrieveDomainAttributeConceptMinis(ContentType contentType, boolean proximalPrimitiveModeling, Set<Long> parentIds,
 			String branchPath, List<LanguageDialect> languageDialects) throws ServiceException {
 
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		final MRCM branchMRCM = mrcmLoader.loadActiveMRCM(branchPath, branchCriteria);
 
 		final List<AttributeDomain> attributeDomains = doRetrieveDomainAttributes(contentType, proximalPrimitiveModeling, parentIds, branchCriteria, branchMRCM);
 		Set<String> attributeIds = attributeDomains.stream().map(AttributeDomain::getReferencedComponentId).collect(Collectors.toSet());
-		Collection<ConceptMini> attributeConceptMinis = conceptService.findConceptMinis(branchCriteria, attributeIds, languageDialects).getResultsMap().values();
+		Collection<ConceptMini> attributeConceptMinis = conceptService.findConceptMinis(branchPath, branchCriteria, attributeIds, languageDialects).getResultsMap().values();
 		if (attributeConceptMinis.size() < attributeIds.size()) {
 			Set<String> foundConceptIds = attributeConceptMinis.stream().map(ConceptMini::getConceptId).collect(Collectors.toSet());
 			for (String attributeId : attributeIds) {
@@ -162,7 +162,7 @@ public class MRCMService {
 	}
 
 	public Collection<ConceptMini> retrieveAttributeValues(ContentType contentType, String attributeId, String termPrefix, String branchPath, List<LanguageDialect> languageDialects) throws ServiceException {
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branchPath);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branchPath);
 		MRCM branchMRCM = mrcmLoader.loadActiveMRCM(branchPath, branchCriteria);
 		return retrieveAttributeValues(contentType, attributeId, termPrefix, branchPath, languageDialects, branchMRCM);
 	}
@@ -221,7 +221,7 @@ public class MRCMService {
 		Set<Long> remainingAttributes = new HashSet<>(attributeMap.keySet());
 		remainingAttributes.remove(topIdLong);
 
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 
 		NativeSearchQueryBuilder queryConceptQuery = new NativeSearchQueryBuilder()
 				.withQuery(boolQuery()
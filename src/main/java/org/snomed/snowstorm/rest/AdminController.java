@@ -33,6 +33,12 @@ public class AdminController {
 	@Autowired
 	private ConceptDefinitionStatusUpdateService definitionStatusUpdateService;
 
+	@Autowired
+	private DescriptionAcceptabilityUpdateService descriptionAcceptabilityUpdateService;
+
+	@Autowired
+	private DescriptionConceptFieldsUpdateService descriptionConceptFieldsUpdateService;
+
 	@Autowired
 	private AdminOperationsService adminOperationsService;
 
@@ -57,9 +63,22 @@ public class AdminController {
 	@Autowired
 	private ECLQueryService eclQueryService;
 
+	@Autowired
+	private DescriptionService descriptionService;
+
+	@Autowired
+	private BrowserConceptCache browserConceptCache;
+
+	@Autowired
+	private ConceptMiniResolver conceptMiniResolver;
+
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
 	@ApiOperation(value = "Rebuild the description index.",
 			notes = "Use this if the search configuration for international character handling of a language has been " +
 					"set or updated after importing content of that language. " +
+					"Also populates the term trigrams used by the SUBSTRING search mode for descriptions indexed before that mode existed. " +
 					"The descriptions of the specified language will be reindexed on all branches using the new configuration. " +
 					"N.B. Snowstorm must be restarted to read the new configuration.")
 	@RequestMapping(value = "/actions/rebuild-description-index-for-language", method = RequestMethod.POST)
@@ -105,6 +124,24 @@ public class AdminController {
 		definitionStatusUpdateService.updateAllDefinitionStatuses(BranchPathUriUtil.decodePath(branch));
 	}
 
+	@ApiOperation(value = "Populate the language reference set acceptability index of all descriptions.",
+			notes = "Only needed when 'search.description.acceptability-denormalisation.enabled' has been switched on after content was loaded. " +
+					"The acceptability of each description is calculated from the language reference set members visible on the branch.")
+	@RequestMapping(value = "/{branch}/actions/update-description-acceptability", method = RequestMethod.POST)
+	@PreAuthorize("hasPermission('ADMIN', #branch)")
+	public void updateDescriptionAcceptability(@PathVariable String branch) throws ServiceException {
+		descriptionAcceptabilityUpdateService.updateAllDescriptionAcceptability(BranchPathUriUtil.decodePath(branch));
+	}
+
+	@ApiOperation(value = "Populate the denormalised concept fields of all descriptions.",
+			notes = "Only available on code system version branches when 'search.description.concept-denormalisation.enabled' is switched on. " +
+					"The active flag, definition status and module of each concept are copied onto its descriptions.")
+	@RequestMapping(value = "/{branch}/actions/update-description-concept-fields", method = RequestMethod.POST)
+	@PreAuthorize("hasPermission('ADMIN', #branch)")
+	public void updateDescriptionConceptFields(@PathVariable String branch) throws ServiceException {
+		descriptionConceptFieldsUpdateService.updateAllDescriptionConceptFields(BranchPathUriUtil.decodePath(branch));
+	}
+
 	@ApiOperation(value = "End duplicate versions of donated components in version control.",
 			notes = "You may need this action if you have used the branch merge operation to upgrade an extension " +
 					"which has donated content to the International Edition. The operation should be run on the extension branch.")
@@ -281,4 +318,52 @@ public class AdminController {
 		eclQueryService.clearCache();
 	}
 
+	@RequestMapping(value = "/cache/description-search/stats", method = RequestMethod.GET)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public Map<String, Number> getDescriptionSearchCacheStats() {
+		return descriptionService.getSearchResultsCache().getStats();
+	}
+
+	@RequestMapping(value = "/cache/description-search/clear", method = RequestMethod.POST)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public void clearDescriptionSearchCache() {
+		descriptionService.getSearchResultsCache().clearCache();
+	}
+
+	@RequestMapping(value = "/cache/browser-concept/stats", method = RequestMethod.GET)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public Map<String, Number> getBrowserConceptCacheStats() {
+		return browserConceptCache.getStats();
+	}
+
+	@RequestMapping(value = "/cache/browser-concept/clear", method = RequestMethod.POST)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public void clearBrowserConceptCache() {
+		browserConceptCache.clearCache();
+	}
+
+	@RequestMapping(value = "/cache/concept-mini/stats", method = RequestMethod.GET)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public Map<String, Number> getConceptMiniCacheStats() {
+		return conceptMiniResolver.getStats();
+	}
+
+	@RequestMapping(value = "/cache/concept-mini/clear", method = RequestMethod.POST)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public void clearConceptMiniCache() {
+		conceptMiniResolver.clearCache();
+	}
+
+	@RequestMapping(value = "/cache/branch-criteria/stats", method = RequestMethod.GET)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public Map<String, Number> getBranchCriteriaCacheStats() {
+		return branchCriteriaProvider.getStats();
+	}
+
+	@RequestMapping(value = "/cache/branch-criteria/clear", method = RequestMethod.POST)
+	@PreAuthorize("hasPermission('ADMIN', 'global')")
+	public void clearBranchCriteriaCache() {
+		branchCriteriaProvider.clearCache();
+	}
+
 }
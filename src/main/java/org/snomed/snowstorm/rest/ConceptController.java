@@ -2,9 +2,12 @@ package org.snomed.snowstorm.rest;
 
 import ch.qos.logback.classic.Level;
 import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Iterables;
 import io.kaicode.elasticvc.api.BranchCriteria;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import io.kaicode.rest.util.branchpathrewrite.BranchPathUriUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -17,9 +20,13 @@ import org.snomed.snowstorm.core.data.domain.*;
 import org.snomed.snowstorm.core.data.domain.expression.Expression;
 import org.snomed.snowstorm.core.data.services.*;
 import org.snomed.snowstorm.core.data.services.pojo.AsyncConceptChangeBatch;
+import org.snomed.snowstorm.core.data.services.identifier.IdentifierService;
 import org.snomed.snowstorm.core.data.services.pojo.ConceptHistory;
-import org.snomed.snowstorm.core.data.services.pojo.MapPage;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptPair;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptReferencesPage;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptTreeNode;
 import org.snomed.snowstorm.core.data.services.pojo.ResultMapPage;
+import org.snomed.snowstorm.core.data.services.pojo.SubsumptionResult;
 import org.snomed.snowstorm.core.pojo.BranchTimepoint;
 import org.snomed.snowstorm.core.pojo.LanguageDialect;
 import org.snomed.snowstorm.core.util.PageHelper;
@@ -37,6 +44,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.SearchAfterPageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -44,9 +52,12 @@ import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.*;
 
+import static io.kaicode.elasticvc.api.ComponentService.CLAUSE_LIMIT;
 import static io.kaicode.elasticvc.api.ComponentService.LARGE_PAGE;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.snomed.snowstorm.core.pojo.BranchTimepoint.BRANCH_CREATION_TIMEPOINT;
@@ -59,6 +70,10 @@ import static org.springframework.util.CollectionUtils.isEmpty;
 @RequestMapping(produces = "application/json")
 public class ConceptController {
 
+	private static final int MAX_SUBTREE_DEPTH = 10;
+	private static final int MAX_SUBTREE_NODES = 10_000;
+	private static final int MAX_SUBSUMPTION_PAIRS = 10_000;
+
 	@Autowired
 	private ConceptService conceptService;
 
@@ -71,6 +86,9 @@ public class ConceptController {
 	@Autowired
 	private QueryService queryService;
 
+	@Autowired
+	private BrowserConceptCache browserConceptCache;
+
 	@Autowired
 	private SemanticIndexService semanticIndexService;
 
@@ -78,11 +96,14 @@ public class ConceptController {
 	private ExpressionService expressionService;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@Autowired
 	private ECLValidator eclValidator;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@Autowired
 	private DroolsValidationService validationService;
 
@@ -273,7 +294,59 @@ public class ConceptController {
 			descriptions.forEach(description -> conceptIds.add(description.getConceptId()));
 		}
 
-		return conceptService.find(path, conceptIds, ControllerHelper.parseAcceptLanguageHeaderWithDefaultFallback(acceptLanguageHeader));
+		return browserConceptCache.findBrowserConcepts(path, conceptIds, ControllerHelper.parseAcceptLanguageHeaderWithDefaultFallback(acceptLanguageHeader));
+	}
+
+	@ApiOperation(value = "Load concepts in the browser format, streaming the response.",
+			notes = "Same as the bulk-load endpoint but concepts are loaded in chunks and written to the response as each chunk is ready, " +
+					"so memory use does not grow with the number of concepts requested. All chunks are loaded from the same version of the branch. " +
+					"Errors loading the first chunk give an error status. The status has already been sent when later chunks are loaded, " +
+					"so an error loading a later chunk ends the response before the JSON array is closed and the client must treat malformed JSON as a failed request.")
+	@PostMapping(value = "/browser/{branch}/concepts/bulk-load/stream", produces = "application/json")
+	public void streamBrowserConcepts(
+			@PathVariable String branch,
+			@RequestBody ConceptBulkLoadRequest request,
+			@RequestHeader(value = "Accept-Language", defaultValue = Config.DEFAULT_ACCEPT_LANG_HEADER) String acceptLanguageHeader,
+			HttpServletResponse response) throws IOException {
+
+		String path = BranchPathUriUtil.decodePath(branch);
+		List<LanguageDialect> languageDialects = ControllerHelper.parseAcceptLanguageHeaderWithDefaultFallback(acceptLanguageHeader);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(path);
+
+		Set<String> conceptIds = new LinkedHashSet<>();
+		if (request.getConceptIds() != null) {
+			request.getConceptIds().stream().filter(Objects::nonNull).forEach(conceptIds::add);
+		}
+		Set<String> descriptionIds = request.getDescriptionIds();
+		if (!isEmpty(descriptionIds)) {
+			Page<Description> descriptions = descriptionService.findDescriptions(path, null, descriptionIds, null, LARGE_PAGE);
+			descriptions.forEach(description -> conceptIds.add(description.getConceptId()));
+		}
+
+		// The first chunk is loaded before anything is written so that errors loading it still give an error status
+		Iterator<List<String>> conceptIdChunks = Iterables.partition(conceptIds, CLAUSE_LIMIT).iterator();
+		Collection<Concept> concepts = conceptIdChunks.hasNext() ?
+				browserConceptCache.findBrowserConcepts(path, branchCriteria, conceptIdChunks.next(), languageDialects) : Collections.emptyList();
+
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		// Flush once per chunk rather than after every concept
+		ObjectWriter conceptWriter = objectMapper.writerWithView(View.Component.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+			// Leave the array open if a later chunk fails so that the client can not mistake the response for a complete one
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+			generator.writeStartArray();
+			while (true) {
+				for (Concept concept : concepts) {
+					conceptWriter.writeValue(generator, concept);
+				}
+				generator.flush();
+				if (!conceptIdChunks.hasNext()) {
+					break;
+				}
+				concepts = browserConceptCache.findBrowserConcepts(path, branchCriteria, conceptIdChunks.next(), languageDialects);
+			}
+			generator.writeEndArray();
+		}
 	}
 
 	@ApiOperation(value = "Load a concept in the browser format.",
@@ -291,10 +364,7 @@ public class ConceptController {
 
 		List<LanguageDialect> languageDialects = ControllerHelper.parseAcceptLanguageHeaderWithDefaultFallback(acceptLanguageHeader);
 		BranchTimepoint branchTimepoint = parseBranchTimepoint(branch);
-		Concept concept = conceptService.find(conceptId, languageDialects, branchTimepoint);
-		if (descendantCountForm != null) {
-			queryService.joinDescendantCount(concept, descendantCountForm, languageDialects, branchTimepoint);
-		}
+		Concept concept = browserConceptCache.findBrowserConcept(conceptId, languageDialects, branchTimepoint, descendantCountForm);
 		return ControllerHelper.throwIfNotFound("Concept", concept);
 	}
 
@@ -359,12 +429,15 @@ public class ConceptController {
 	}
 
 	@ApiOperation(value = "Find concepts which reference this concept in the inferred or stated form (including stated axioms).",
-			notes = "Pagination works on the referencing concepts. A referencing concept may have one or more references of different types.")
+			notes = "Pagination works on the referencing concepts. A referencing concept may have one or more references of different types. " +
+					"The total number of referencing concepts of each type is included for is-a, the referenceType and the types found in the page, " +
+					"the referenceType parameter can be used to page through the concepts referencing with one type.")
 	@GetMapping(value = "/{branch}/concepts/{conceptId}/references")
 	public ConceptReferencesResult findConceptReferences(
 			@PathVariable String branch,
 			@PathVariable Long conceptId,
 			@RequestParam(defaultValue = "false") boolean stated,
+			@RequestParam(required = false) Long referenceType,
 			@RequestParam(required = false, defaultValue = "0") int offset,
 			@RequestParam(required = false, defaultValue = "1000") int limit,
 			@RequestHeader(value = "Accept-Language", defaultValue = Config.DEFAULT_ACCEPT_LANG_HEADER) String acceptLanguageHeader) {
@@ -372,27 +445,55 @@ public class ConceptController {
 		branch = BranchPathUriUtil.decodePath(branch);
 		ControllerHelper.validatePageSize(offset, limit);
 
-		MapPage<Long, Set<Long>> conceptReferencesPage = semanticIndexService.findConceptReferences(branch, conceptId, stated, ControllerHelper.getPageRequest(offset, limit));
+		ConceptReferencesPage conceptReferencesPage = semanticIndexService.findConceptReferences(branch, conceptId, stated, referenceType, ControllerHelper.getPageRequest(offset, limit));
 		Map<Long, Set<Long>> conceptReferences = conceptReferencesPage.getMap();
+		Map<Long, Long> referenceTypeCounts = conceptReferencesPage.getReferenceTypeCounts();
 
 		// Join concept minis with FSN and PT
-		Set<Long> allConceptIds = new LongOpenHashSet();
+		Set<Long> allConceptIds = new LongOpenHashSet(referenceTypeCounts.keySet());
 		for (Long typeId : conceptReferences.keySet()) {
 			allConceptIds.add(typeId);
 			allConceptIds.addAll(conceptReferences.get(typeId));
 		}
 		Map<String, ConceptMini> conceptMiniMap = conceptService.findConceptMinis(branch, allConceptIds, ControllerHelper.parseAcceptLanguageHeaderWithDefaultFallback(acceptLanguageHeader)).getResultsMap();
 		Set<TypeReferences> typeSets = new TreeSet<>(Comparator.comparing((type) -> type.getReferenceType().getFsnTerm()));
-		for (Long typeId : conceptReferences.keySet()) {
+		Set<Long> typeIds = new LongOpenHashSet(referenceTypeCounts.keySet());
+		typeIds.addAll(conceptReferences.keySet());
+		for (Long typeId : typeIds) {
 			ArrayList<ConceptMini> referencingConcepts = new ArrayList<>();
-			typeSets.add(new TypeReferences(conceptMiniMap.get(typeId.toString()), referencingConcepts));
-			for (Long referencingConceptId : conceptReferences.get(typeId)) {
+			typeSets.add(new TypeReferences(conceptMiniMap.get(typeId.toString()), referenceTypeCounts.getOrDefault(typeId, 0L), referencingConcepts));
+			for (Long referencingConceptId : conceptReferences.getOrDefault(typeId, Collections.emptySet())) {
 				referencingConcepts.add(conceptMiniMap.get(referencingConceptId.toString()));
 			}
 		}
 		return new ConceptReferencesResult(typeSets, conceptReferencesPage.getPageable(), conceptReferencesPage.getTotalElements());
 	}
 
+	@ApiOperation(value = "Test subsumption between many pairs of concepts in the inferred or stated form.",
+			notes = "For each pair the outcome is the relationship of concept A to concept B; equivalent, subsumes, subsumed-by, not-subsumed or not-found. " +
+					"Inactive concepts are not found. The lowest common ancestors of each pair can also be requested.")
+	@PostMapping(value = "/{branch}/concepts/subsumption")
+	public List<SubsumptionResult> findSubsumption(
+			@PathVariable String branch,
+			@RequestParam(defaultValue = "false") boolean stated,
+			@RequestBody SubsumptionRequest request) {
+
+		branch = BranchPathUriUtil.decodePath(branch);
+		List<ConceptPair> pairs = request.getPairs();
+		if (pairs == null || pairs.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (pairs.size() > MAX_SUBSUMPTION_PAIRS) {
+			throw new IllegalArgumentException("A maximum of " + MAX_SUBSUMPTION_PAIRS + " pairs can be tested in one request.");
+		}
+		for (ConceptPair pair : pairs) {
+			if (!IdentifierService.isConceptId(pair.getCodeA()) || !IdentifierService.isConceptId(pair.getCodeB())) {
+				throw new IllegalArgumentException("Both codes of each pair must be concept identifiers.");
+			}
+		}
+		return semanticIndexService.findSubsumption(branch, pairs, stated, request.isIncludeLowestCommonAncestors());
+	}
+
 	@PostMapping(value = "/browser/{branch}/concepts")
 	@PreAuthorize("hasPermission('AUTHOR', #branch)")
 	@JsonView(value = View.Component.class)
@@ -502,7 +603,7 @@ public class ConceptController {
 
 		timer.checkpoint("Find children");
 
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		if (!includeDescendantCount) {
 			queryService.joinIsLeafFlag(children, form, branchCriteria, branch);
 			timer.checkpoint("Join leaf flag");
@@ -513,6 +614,34 @@ public class ConceptController {
 		return children;
 	}
 
+	@ApiOperation(value = "Load the hierarchy below a concept to the given depth.",
+			notes = "Levels are expanded while the total number of concepts in the subtree stays within maxNodes. " +
+					"Children are only included for expanded concepts and always contain all children of the concept. " +
+					"A concept with several parents in the subtree is included under each of them.")
+	@GetMapping(value = "/browser/{branch}/concepts/{conceptId}/subtree")
+	@JsonView(value = View.Component.class)
+	public ConceptTreeNode findConceptSubtree(@PathVariable String branch,
+			@PathVariable String conceptId,
+			@RequestParam(defaultValue = "inferred") Relationship.CharacteristicType form,
+			@RequestParam(defaultValue = "2") int depth,
+			@RequestParam(defaultValue = "1000") int maxNodes,
+			@RequestHeader(value = "Accept-Language", defaultValue = Config.DEFAULT_ACCEPT_LANG_HEADER) String acceptLanguageHeader) {
+
+		if (depth < 1 || depth > MAX_SUBTREE_DEPTH) {
+			throw new IllegalArgumentException("Depth must be between 1 and " + MAX_SUBTREE_DEPTH + ".");
+		}
+		if (maxNodes < 1 || maxNodes > MAX_SUBTREE_NODES) {
+			throw new IllegalArgumentException("Max nodes must be between 1 and " + MAX_SUBTREE_NODES + ".");
+		}
+		branch = BranchPathUriUtil.decodePath(branch);
+		TimerUtil timer = new TimerUtil("Subtree: " + conceptId, Level.INFO, 5);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
+		ConceptTreeNode subtree = queryService.findSubtree(conceptId, form, depth, maxNodes,
+				ControllerHelper.parseAcceptLanguageHeaderWithDefaultFallback(acceptLanguageHeader), branch, branchCriteria);
+		timer.finish();
+		return ControllerHelper.throwIfNotFound("Concept", subtree);
+	}
+
 	@GetMapping(value = "/browser/{branch}/concepts/{conceptId}/parents")
 	@JsonView(value = View.Component.class)
 	public Collection<ConceptMini> findConceptParents(@PathVariable String branch,
@@ -527,7 +656,7 @@ public class ConceptController {
 				0, LARGE_PAGE.getPageSize()).getItems();
 
 		if (includeDescendantCount) {
-			BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+			BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 			queryService.joinDescendantCountAndLeafFlag(parents, form, branch, branchCriteria);
 		}
 		return parents;
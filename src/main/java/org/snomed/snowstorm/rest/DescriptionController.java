@@ -82,6 +82,9 @@ public class DescriptionController {
 			@RequestParam(required = false) Boolean conceptActive,
 			@RequestParam(required = false) String conceptRefset,
 			@RequestParam(defaultValue = "false") boolean groupByConcept,
+			@ApiParam(value = "STANDARD matches word prefixes, WHOLE_WORD matches whole words, " +
+					"SUBSTRING matches the term anywhere within the description (case insensitive) using the trigram index, the term must be at least 3 characters, " +
+					"REGEX matches a regular expression against the whole description and can be slow.")
 			@RequestParam(defaultValue = "STANDARD") DescriptionService.SearchMode searchMode,
 			@RequestParam(defaultValue = "0") int offset,
 			@RequestParam(defaultValue = "50") int limit,
@@ -20,10 +20,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
 
 @RestController
 @Api(tags = "Import", description = "RF2")
@@ -52,6 +53,10 @@ public class ImportController {
 		RF2ImportConfiguration importConfiguration = new RF2ImportConfiguration(importRequest.getType(), importRequest.getBranchPath());
 		importConfiguration.setCreateCodeSystemVersion(importRequest.getCreateCodeSystemVersion());
 		importConfiguration.setInternalRelease(importRequest.isInternalRelease());
+		importConfiguration.setBulkLoad(importRequest.isBulkLoad());
+		importConfiguration.setSkipUnchanged(importRequest.isSkipUnchanged());
+		importConfiguration.setResumable(importRequest.isResumable());
+		importConfiguration.setDryRun(importRequest.isDryRun());
 		String id = importService.createJob(importConfiguration);
 		return ControllerHelper.getCreatedResponse(id);
 	}
@@ -78,11 +83,15 @@ public class ImportController {
 		RF2ImportConfiguration importConfiguration = new RF2ImportConfiguration(importRequest.getType(), importRequest.getBranchPath());
 		importConfiguration.setCreateCodeSystemVersion(importRequest.getCreateCodeSystemVersion());
 		importConfiguration.setInternalRelease(importRequest.isInternalRelease());
+		importConfiguration.setBulkLoad(importRequest.isBulkLoad());
+		importConfiguration.setSkipUnchanged(importRequest.isSkipUnchanged());
+		importConfiguration.setResumable(importRequest.isResumable());
+		importConfiguration.setDryRun(importRequest.isDryRun());
 
 		String id = importService.createJob(importConfiguration);
 
 		try {
-			importService.importArchiveAsync(id, importRequest.getBranchPath(), new FileInputStream(localFile));
+			importService.importArchiveAsync(id, importRequest.getBranchPath(), localFile, false);
 		} catch (FileNotFoundException e) {
 			handleFileNotFound(filePath, localFile);
 		}
@@ -125,16 +134,41 @@ public class ImportController {
 
 	@ApiOperation(value = "Upload SNOMED CT release archive.",
 			notes = "Uploads a SNOMED CT RF2 release archive for an import job. The import job must already exist and have a status of WAITING_FOR_FILE. " +
+					"A resumable import job with a status of FAILED is resumed from its last checkpoint when the archive is uploaded again. " +
 					"PLEASE NOTE this is an asynchronous call, this function starts the import but does not wait for it to complete. " +
 					"Retrieve the import to check the status until it is COMPLETED or FAILED.")
 	@RequestMapping(value = "/{importId}/archive", method = RequestMethod.POST, consumes = "multipart/form-data")
 	public void uploadImportRf2Archive(@PathVariable String importId, @RequestParam MultipartFile file) {
 		ImportJob importJob = importService.getImportJobOrThrow(importId);
+		File uploadedArchive = null;
 		try {
-			importService.importArchiveAsync(importId, importJob.getBranchPath(), file.getInputStream());
+			// Copied to a file so that the size of the RF2 files can be read for the progress estimate
+			uploadedArchive = Files.createTempFile("import-upload", ".zip").toFile();
+			file.transferTo(uploadedArchive);
+			importService.importArchiveAsync(importId, importJob.getBranchPath(), uploadedArchive, true);
 		} catch (IOException e) {
+			if (uploadedArchive != null && !uploadedArchive.delete()) {
+				logger.warn("Failed to delete temp file {}", uploadedArchive.getAbsolutePath());
+			}
 			throw new IllegalArgumentException("Failed to open uploaded archive file.");
 		}
 	}
 
+	@ApiOperation(value = "Stream SNOMED CT release archive.",
+			notes = "Sends a SNOMED CT RF2 release archive for an import job as the request body rather than as a multipart file. " +
+					"The archive is read by the import as it arrives instead of being written to disk first, the multipart size limits do not apply. " +
+					"Archives with entries which can not be read in order are written to disk first. " +
+					"The import job must already exist and have a status of WAITING_FOR_FILE. " +
+					"The response is sent once the whole archive has been read, an error is returned if the import fails before then or the archive is not read in time. " +
+					"Retrieve the import to check the status until it is COMPLETED or FAILED.")
+	@RequestMapping(value = "/{importId}/archive-stream", method = RequestMethod.POST, consumes = {"application/zip", "application/octet-stream"})
+	public void streamImportRf2Archive(@PathVariable String importId, HttpServletRequest request) {
+		ImportJob importJob = importService.getImportJobOrThrow(importId);
+		try {
+			importService.importArchiveStreamAsync(importId, importJob.getBranchPath(), request.getInputStream());
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Failed to open archive request body.");
+		}
+	}
+
 }
@@ -2,7 +2,6 @@ package org.snomed.snowstorm.rest;
 
 import com.fasterxml.jackson.annotation.JsonView;
 import io.kaicode.elasticvc.api.BranchCriteria;
-import io.kaicode.elasticvc.api.VersionControlHelper;
 import io.kaicode.rest.util.branchpathrewrite.BranchPathUriUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -14,6 +13,7 @@ import org.snomed.snowstorm.core.data.domain.ConceptMini;
 import org.snomed.snowstorm.core.data.domain.Description;
 import org.snomed.snowstorm.core.data.domain.ReferenceSetMember;
 import org.snomed.snowstorm.core.data.domain.ReferenceSetMemberView;
+import org.snomed.snowstorm.core.data.services.BranchCriteriaProvider;
 import org.snomed.snowstorm.core.data.services.ConceptService;
 import org.snomed.snowstorm.core.data.services.DescriptionService;
 import org.snomed.snowstorm.core.data.services.ReferenceSetMemberService;
@@ -55,7 +55,7 @@ public class ReferenceSetMemberController {
 	private DescriptionService descriptionService;
 
 	@Autowired
-	private VersionControlHelper versionControlHelper;
+	private BranchCriteriaProvider branchCriteriaProvider;
 
 	@ApiOperation("Search for reference set ids.")
 	@RequestMapping(value = "/browser/{branch}/members", method = RequestMethod.GET)
@@ -89,7 +89,7 @@ public class ReferenceSetMemberController {
 		Set<String> referenceSetIds = page.getBuckets().get("memberCountsByReferenceSet").keySet();
 
 		// Find refset type
-		BranchCriteria branchCriteria = versionControlHelper.getBranchCriteria(branch);
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria(branch);
 		Map<String, String> refsetTypes = memberService.findRefsetTypes(referenceSetIds, branchCriteria, branch);
 		timer.checkpoint("load types (" + referenceSetIds.size() + ")");
 
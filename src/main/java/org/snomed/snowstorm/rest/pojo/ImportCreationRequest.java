@@ -16,6 +16,24 @@ public class ImportCreationRequest {
 	@ApiModelProperty(value = "false")
 	private boolean internalRelease;
 
+	@ApiModelProperty(value = "false", notes = "Disable refresh and use asynchronous translog durability on the component indices during the import. " +
+			"Intended for large imports, the original settings are restored when loading completes.")
+	private boolean bulkLoad;
+
+	@ApiModelProperty(value = "false", notes = "Do not import rows which are the same as the existing version on the branch, compared using the release hash fields. " +
+			"Useful when importing a daily build or corrected delta. Not used for FULL imports.")
+	private boolean skipUnchanged;
+
+	@ApiModelProperty(value = "false", notes = "Commit checkpoints during the import so that a failed import can be resumed by uploading the archive again. " +
+			"SNAPSHOT and DELTA imports are loaded into an import branch which is merged into the target branch at the end. " +
+			"FULL imports record a checkpoint as each release is committed.")
+	private boolean resumable;
+
+	@ApiModelProperty(value = "false", notes = "Analyse the archive without changing the branch. The import job reports the number of new, changed, unchanged " +
+			"and superseded components of each type, the concepts whose semantic index entries would be updated and an estimate of the index writes. " +
+			"SNAPSHOT and DELTA imports only.")
+	private boolean dryRun;
+
 	public RF2Type getType() {
 		return type;
 	}
@@ -47,4 +65,36 @@ public class ImportCreationRequest {
 	public void setInternalRelease(boolean internalRelease) {
 		this.internalRelease = internalRelease;
 	}
+
+	public boolean isBulkLoad() {
+		return bulkLoad;
+	}
+
+	public void setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+	}
+
+	public boolean isSkipUnchanged() {
+		return skipUnchanged;
+	}
+
+	public void setSkipUnchanged(boolean skipUnchanged) {
+		this.skipUnchanged = skipUnchanged;
+	}
+
+	public boolean isResumable() {
+		return resumable;
+	}
+
+	public void setResumable(boolean resumable) {
+		this.resumable = resumable;
+	}
+
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	public void setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+	}
 }
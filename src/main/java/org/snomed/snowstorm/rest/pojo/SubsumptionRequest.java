@@ -0,0 +1,37 @@
+package org.snomed.snowstorm.rest.pojo;
+
+import org.snomed.snowstorm.core.data.services.pojo.ConceptPair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SubsumptionRequest {
+
+	private List<ConceptPair> pairs;
+	private boolean includeLowestCommonAncestors;
+
+	public SubsumptionRequest() {
+		pairs = new ArrayList<>();
+	}
+
+	public SubsumptionRequest(List<ConceptPair> pairs, boolean includeLowestCommonAncestors) {
+		this.pairs = pairs;
+		this.includeLowestCommonAncestors = includeLowestCommonAncestors;
+	}
+
+	public List<ConceptPair> getPairs() {
+		return pairs;
+	}
+
+	public void setPairs(List<ConceptPair> pairs) {
+		this.pairs = pairs;
+	}
+
+	public boolean isIncludeLowestCommonAncestors() {
+		return includeLowestCommonAncestors;
+	}
+
+	public void setIncludeLowestCommonAncestors(boolean includeLowestCommonAncestors) {
+		this.includeLowestCommonAncestors = includeLowestCommonAncestors;
+	}
+}
@@ -5,14 +5,16 @@ import org.snomed.snowstorm.core.data.domain.ConceptMini;
 
 import java.util.Collection;
 
-@JsonPropertyOrder({"referenceType", "referencingConcepts"})
+@JsonPropertyOrder({"referenceType", "total", "referencingConcepts"})
 public class TypeReferences {
 
 	private ConceptMini referenceType;
+	private long total;
 	private Collection<ConceptMini> referencingConcepts;
 
-	public TypeReferences(ConceptMini referenceType, Collection<ConceptMini> referencingConcepts) {
+	public TypeReferences(ConceptMini referenceType, long total, Collection<ConceptMini> referencingConcepts) {
 		this.referenceType = referenceType;
+		this.total = total;
 		this.referencingConcepts = referencingConcepts;
 	}
 
@@ -20,6 +22,10 @@ public class TypeReferences {
 		return referenceType;
 	}
 
+	public long getTotal() {
+		return total;
+	}
+
 	public Collection<ConceptMini> getReferencingConcepts() {
 		return referencingConcepts;
 	}
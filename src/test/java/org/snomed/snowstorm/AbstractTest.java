@@ -13,8 +13,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.snomed.snowstorm.core.data.domain.Concept;
 import org.snomed.snowstorm.core.data.domain.QueryConcept;
 import org.snomed.snowstorm.core.data.domain.ReferenceSetMember;
+import org.snomed.snowstorm.core.data.services.BrowserConceptCache;
 import org.snomed.snowstorm.core.data.services.CodeSystemService;
+import org.snomed.snowstorm.core.data.services.ConceptMiniResolver;
 import org.snomed.snowstorm.core.data.services.ConceptService;
+import org.snomed.snowstorm.core.data.services.DescriptionService;
 import org.snomed.snowstorm.core.data.services.PermissionService;
 import org.snomed.snowstorm.core.data.services.ReferenceSetMemberService;
 import org.snomed.snowstorm.core.data.services.classification.ClassificationService;
@@ -66,6 +69,15 @@ public abstract class AbstractTest {
 	@Autowired
 	private ReferenceSetMemberService referenceSetMemberService;
 
+	@Autowired
+	private DescriptionService descriptionService;
+
+	@Autowired
+	private BrowserConceptCache browserConceptCache;
+
+	@Autowired
+	private ConceptMiniResolver conceptMiniResolver;
+
 	@MockBean
 	protected CommitServiceHookClient commitServiceHookClient; // Mocked as calls on external service.
 
@@ -100,6 +112,10 @@ public abstract class AbstractTest {
 		codeSystemService.deleteAll();
 		classificationService.deleteAll();
 		permissionService.deleteAll();
+		// Content is deleted without a commit so cached results would not be invalidated
+		descriptionService.getSearchResultsCache().clearCache();
+		browserConceptCache.clearCache();
+		conceptMiniResolver.clearCache();
 	}
 
 	@BeforeAll
@@ -0,0 +1,111 @@
+package org.snomed.snowstorm.core.data.services;
+
+import io.kaicode.elasticvc.api.BranchCriteria;
+import io.kaicode.elasticvc.api.BranchService;
+import io.kaicode.elasticvc.domain.Commit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.AbstractTest;
+import org.snomed.snowstorm.core.data.domain.CodeSystem;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.dailybuild.DailyBuildService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.Assert.*;
+
+// Test profile with the branch criteria cache enabled for the whole application context
+@TestPropertySource("classpath:application-branch-criteria-cache-test.properties")
+class BranchCriteriaProviderTest extends AbstractTest {
+
+	@Autowired
+	private BranchCriteriaProvider branchCriteriaProvider;
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Autowired
+	private BranchService branchService;
+
+	@Autowired
+	private AdminOperationsService adminOperationsService;
+
+	@Autowired
+	private CodeSystemService codeSystemService;
+
+	@Autowired
+	private DailyBuildService dailyBuildService;
+
+	@AfterEach
+	void tearDown() {
+		branchCriteriaProvider.clearCache();
+	}
+
+	@Test
+	void testCriteriaMemoisedUntilCommit() throws ServiceException {
+		long hitsBefore = getStat("hits");
+		long constructionsBefore = getStat("constructions");
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria("MAIN");
+		assertSame(branchCriteria, branchCriteriaProvider.getBranchCriteria("MAIN"));
+		assertEquals(hitsBefore + 1, getStat("hits"));
+		assertEquals(constructionsBefore + 1, getStat("constructions"));
+
+		conceptService.create(new Concept("100001"), "MAIN");
+
+		BranchCriteria afterCommit = branchCriteriaProvider.getBranchCriteria("MAIN");
+		assertNotEquals(branchCriteria.getTimepoint(), afterCommit.getTimepoint());
+		assertEquals(branchService.findLatest("MAIN").getHead(), afterCommit.getTimepoint());
+		assertNotNull("New content is visible using the memoised criteria.", conceptService.find("100001", "MAIN"));
+		assertSame("Criteria of the new head are memoised.", afterCommit, branchCriteriaProvider.getBranchCriteria("MAIN"));
+	}
+
+	@Test
+	void testCriteriaMemoisedAgainAfterFailedCommit() {
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria("MAIN");
+
+		try (Commit commit = branchService.openCommit("MAIN")) {
+			// Listener chain starts but the commit is not marked successful so is rolled back, as if a later listener failed
+			branchCriteriaProvider.preCommitCompletion(commit);
+		}
+
+		BranchCriteria afterFailedCommit = branchCriteriaProvider.getBranchCriteria("MAIN");
+		assertEquals("Head unchanged by the failed commit.", branchCriteria.getTimepoint(), afterFailedCommit.getTimepoint());
+		long hitsBefore = getStat("hits");
+		assertSame("Criteria memoised again once the branch is unlocked.", afterFailedCommit, branchCriteriaProvider.getBranchCriteria("MAIN"));
+		assertEquals(hitsBefore + 1, getStat("hits"));
+	}
+
+	@Test
+	void testCriteriaInvalidatedByBranchDeletion() {
+		branchService.create("MAIN/A");
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria("MAIN/A");
+		assertSame(branchCriteria, branchCriteriaProvider.getBranchCriteria("MAIN/A"));
+
+		adminOperationsService.hardDeleteBranch("MAIN/A");
+		branchService.create("MAIN/A");
+
+		BranchCriteria recreatedBranchCriteria = branchCriteriaProvider.getBranchCriteria("MAIN/A");
+		assertNotEquals(branchCriteria.getTimepoint(), recreatedBranchCriteria.getTimepoint());
+		assertEquals(branchService.findLatest("MAIN/A").getHead(), recreatedBranchCriteria.getTimepoint());
+	}
+
+	@Test
+	void testCriteriaInvalidatedByDailyBuildRollback() throws ServiceException {
+		CodeSystem codeSystem = new CodeSystem("SNOMEDCT", "MAIN");
+		codeSystemService.createCodeSystem(codeSystem);
+		conceptService.create(new Concept("100001"), "MAIN");
+		BranchCriteria branchCriteria = branchCriteriaProvider.getBranchCriteria("MAIN");
+		assertSame(branchCriteria, branchCriteriaProvider.getBranchCriteria("MAIN"));
+
+		dailyBuildService.rollbackDailyBuildContent(codeSystem);
+
+		BranchCriteria afterRollback = branchCriteriaProvider.getBranchCriteria("MAIN");
+		assertNotEquals(branchCriteria.getTimepoint(), afterRollback.getTimepoint());
+		assertEquals(branchService.findLatest("MAIN").getHead(), afterRollback.getTimepoint());
+		assertNull("Rolled back content not visible using the criteria.", conceptService.find("100001", "MAIN"));
+	}
+
+	private long getStat(String name) {
+		return branchCriteriaProvider.getStats().get(name).longValue();
+	}
+}
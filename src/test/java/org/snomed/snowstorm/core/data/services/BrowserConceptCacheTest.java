@@ -0,0 +1,124 @@
+package org.snomed.snowstorm.core.data.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.AbstractTest;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.domain.Relationship;
+import org.snomed.snowstorm.core.pojo.BranchTimepoint;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.snomed.snowstorm.config.Config.DEFAULT_LANGUAGE_DIALECTS;
+import static org.snomed.snowstorm.core.data.domain.Concepts.*;
+
+class BrowserConceptCacheTest extends AbstractTest {
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Autowired
+	private BrowserConceptCache browserConceptCache;
+
+	@BeforeEach
+	void setup() {
+		browserConceptCache.setEnabled(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		browserConceptCache.clearCache();
+	}
+
+	@Test
+	void testCacheInvalidatedByTouchedConcepts() throws ServiceException {
+		conceptService.batchCreate(Arrays.asList(
+				new Concept(SNOMEDCT_ROOT).addDescription(new Description("SNOMED CT Concept (SNOMED RT+CTV3)").setTypeId(FSN)
+						.setAcceptabilityMap(Collections.singletonMap(US_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED)))),
+				new Concept("100001").addDescription(new Description("Heart structure (body structure)").setTypeId(FSN))
+						.addRelationship(new Relationship(ISA, SNOMEDCT_ROOT)),
+				new Concept("100002").addDescription(new Description("Lung structure (body structure)").setTypeId(FSN))
+						.addRelationship(new Relationship(ISA, SNOMEDCT_ROOT))
+		), "MAIN");
+
+		long hits = getHits();
+		Concept heart = findBrowserConcept("100001");
+		findBrowserConcept("100002");
+		assertEquals(hits, getHits());
+		Concept cachedHeart = findBrowserConcept("100001");
+		assertEquals("Second load is a cache hit.", hits + 1, getHits());
+		assertNotSame("Cache hit is a copy.", heart, cachedHeart);
+		assertEquals("SNOMED CT Concept (SNOMED RT+CTV3)", cachedHeart.getRelationships().iterator().next().getTarget().getFsn().getTerm());
+
+		// Change an unrelated concept
+		Concept lungUpdate = conceptService.find("100002", "MAIN");
+		lungUpdate.setModuleId("123000");
+		conceptService.update(lungUpdate, "MAIN");
+
+		hits = getHits();
+		findBrowserConcept("100001");
+		assertEquals("Entry carried over to the new branch head.", hits + 1, getHits());
+		Concept reloadedLung = findBrowserConcept("100002");
+		assertEquals("Changed concept is reloaded.", hits + 1, getHits());
+		assertEquals("123000", reloadedLung.getModuleId());
+
+		// Change the term of the relationship target
+		Concept root = conceptService.find(SNOMEDCT_ROOT, "MAIN");
+		root.getDescriptions().iterator().next().setTerm("SNOMED CT Concept (root)");
+		conceptService.update(root, "MAIN");
+
+		hits = getHits();
+		Concept reloadedHeart = findBrowserConcept("100001");
+		assertEquals("Concept referring to the changed concept is reloaded.", hits, getHits());
+		assertEquals("SNOMED CT Concept (root)", reloadedHeart.getRelationships().iterator().next().getTarget().getFsn().getTerm());
+	}
+
+	@Test
+	void testCachedConceptNotChangedByCaller() throws ServiceException {
+		conceptService.create(new Concept("100001").addDescription(new Description("Heart structure (body structure)").setTypeId(FSN)), "MAIN");
+
+		Concept concept = findBrowserConcept("100001");
+		concept.setModuleId("123000");
+		concept.getDescriptions().clear();
+		Concept cachedConcept = findBrowserConcept("100001");
+		cachedConcept.getDescriptions().iterator().next().setTerm("Changed");
+
+		long hits = getHits();
+		Concept unchanged = findBrowserConcept("100001");
+		assertEquals(hits + 1, getHits());
+		assertEquals(CORE_MODULE, unchanged.getModuleId());
+		assertEquals(1, unchanged.getDescriptions().size());
+		assertEquals("Heart structure (body structure)", unchanged.getDescriptions().iterator().next().getTerm());
+	}
+
+	@Test
+	void testDescendantCountNotCarriedOver() throws ServiceException {
+		conceptService.batchCreate(Arrays.asList(
+				new Concept(SNOMEDCT_ROOT),
+				new Concept("100001").addRelationship(new Relationship(ISA, SNOMEDCT_ROOT))
+		), "MAIN");
+
+		BranchTimepoint branchTimepoint = new BranchTimepoint("MAIN");
+		Concept root = browserConceptCache.findBrowserConcept(SNOMEDCT_ROOT, DEFAULT_LANGUAGE_DIALECTS, branchTimepoint, Relationship.CharacteristicType.inferred);
+		assertEquals(1L, root.getDescendantCount().longValue());
+		assertNull("Descendant count is not added to the entry without a count.", findBrowserConcept(SNOMEDCT_ROOT).getDescendantCount());
+
+		conceptService.create(new Concept("100002").addRelationship(new Relationship(ISA, "100001")), "MAIN");
+
+		root = browserConceptCache.findBrowserConcept(SNOMEDCT_ROOT, DEFAULT_LANGUAGE_DIALECTS, branchTimepoint, Relationship.CharacteristicType.inferred);
+		assertEquals(2L, root.getDescendantCount().longValue());
+	}
+
+	private long getHits() {
+		return browserConceptCache.getStats().get("hits").longValue();
+	}
+
+	private Concept findBrowserConcept(String conceptId) {
+		return browserConceptCache.findBrowserConcept(conceptId, DEFAULT_LANGUAGE_DIALECTS, new BranchTimepoint("MAIN"), null);
+	}
+}
@@ -0,0 +1,82 @@
+package org.snomed.snowstorm.core.data.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.AbstractTest;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.ConceptMini;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.pojo.LanguageDialect;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.snomed.snowstorm.core.data.domain.Concepts.*;
+
+class ConceptMiniResolverTest extends AbstractTest {
+
+	private static final List<LanguageDialect> EN_US = Collections.singletonList(new LanguageDialect("en", Long.parseLong(US_EN_LANG_REFSET)));
+	private static final List<LanguageDialect> EN_GB = Collections.singletonList(new LanguageDialect("en", Long.parseLong(GB_EN_LANG_REFSET)));
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Autowired
+	private ConceptMiniResolver conceptMiniResolver;
+
+	@BeforeEach
+	void setup() {
+		conceptMiniResolver.setEnabled(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		conceptMiniResolver.clearCache();
+	}
+
+	@Test
+	void testConceptMinisCachedPerBranchHead() throws ServiceException {
+		Map<String, String> usPreferredGbAcceptable = new HashMap<>();
+		usPreferredGbAcceptable.put(US_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED));
+		usPreferredGbAcceptable.put(GB_EN_LANG_REFSET, descriptionAcceptabilityNames.get(ACCEPTABLE));
+		Map<String, String> gbPreferredUsAcceptable = new HashMap<>();
+		gbPreferredUsAcceptable.put(GB_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED));
+		gbPreferredUsAcceptable.put(US_EN_LANG_REFSET, descriptionAcceptabilityNames.get(ACCEPTABLE));
+		Map<String, String> fsnAcceptability = new HashMap<>();
+		fsnAcceptability.put(US_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED));
+		fsnAcceptability.put(GB_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED));
+
+		conceptService.create(new Concept("100001").setDefinitionStatusId(FULLY_DEFINED)
+				.addDescription(new Description("Color (attribute)").setTypeId(FSN).setAcceptabilityMap(fsnAcceptability))
+				.addDescription(new Description("Color").setAcceptabilityMap(usPreferredGbAcceptable))
+				.addDescription(new Description("Colour").setAcceptabilityMap(gbPreferredUsAcceptable)), "MAIN");
+
+		long hitsBefore = conceptMiniResolver.getStats().get("hits").longValue();
+		ConceptMini usMini = findConceptMini(EN_US);
+		ConceptMini gbMini = findConceptMini(EN_GB);
+		assertEquals("One entry serves both dialects.", hitsBefore + 1, conceptMiniResolver.getStats().get("hits").longValue());
+		assertEquals("Color (attribute)", usMini.getFsnTerm());
+		assertEquals("Color", usMini.getPt().getTerm());
+		assertEquals("Colour", gbMini.getPt().getTerm());
+		assertFalse(usMini.isPrimitive());
+		assertEquals(CORE_MODULE, usMini.getModuleId());
+		assertTrue(usMini.getActive());
+		assertNotSame("Each request gets its own mini.", usMini, findConceptMini(EN_US));
+
+		// A commit moves the branch head so the concept is loaded again
+		Concept concept = conceptService.find("100001", "MAIN");
+		concept.getDescriptions().stream().filter(description -> description.getTerm().equals("Color")).forEach(description -> description.setTerm("Hue"));
+		conceptService.update(concept, "MAIN");
+
+		assertEquals("Hue", findConceptMini(EN_US).getPt().getTerm());
+	}
+
+	private ConceptMini findConceptMini(List<LanguageDialect> languageDialects) {
+		return conceptService.findConceptMinis("MAIN", Collections.singleton("100001"), languageDialects).getResultsMap().get("100001");
+	}
+}
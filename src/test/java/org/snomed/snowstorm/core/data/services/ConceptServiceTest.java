@@ -1484,6 +1484,27 @@ class ConceptServiceTest extends AbstractTest {
 		assertEquals("Failed to convert axiom to an OWL expression.", batchConceptChange.getMessage());
 	}
 
+	@Test
+	void testFindConceptMinisLoadsOnlyRequiredDescriptions() throws ServiceException {
+		conceptService.create(new Concept("100001")
+				.addDescription(fsn("Heart structure (body structure)"))
+				.addDescription(new Description("Heart").setTypeId(SYNONYM).addLanguageRefsetMember(US_EN_LANG_REFSET, PREFERRED))
+				.addDescription(new Description("Cardiac structure").setActive(false).setTypeId(SYNONYM))
+				.addDescription(new Description("The hollow muscular organ.").setTypeId(TEXT_DEFINITION).addLanguageRefsetMember(US_EN_LANG_REFSET, PREFERRED))
+				.addDescription(new Description("Herz").setLang("de").setTypeId(SYNONYM)), "MAIN");
+
+		ConceptMini conceptMini = conceptService.findConceptMinis(conceptService.getBranchCriteria("MAIN"), Collections.singleton("100001"), DEFAULT_LANGUAGE_DIALECTS)
+				.getResultsMap().get("100001");
+
+		assertEquals("Heart structure (body structure)", conceptMini.getFsnTerm());
+		assertEquals("Heart", conceptMini.getPt().getTerm());
+		assertTrue(conceptMini.getActive());
+		assertEquals(CORE_MODULE, conceptMini.getModuleId());
+		assertEquals(Sets.newHashSet("Heart structure (body structure)", "Heart"),
+				conceptMini.getActiveDescriptions().stream().map(Description::getTerm).collect(Collectors.toSet()),
+				"Inactive descriptions, text definitions and descriptions in other languages are not loaded.");
+	}
+
 	private boolean waitUntil(Supplier<Boolean> supplier, int maxSecondsToWait) {
 		try {
 			int sleptSeconds = 0;
@@ -1505,6 +1526,57 @@ class ConceptServiceTest extends AbstractTest {
 		}
 	}
 
+	@Test
+	void testConcurrentJoinsMatchSequentialJoins() throws ServiceException {
+		String path = "MAIN";
+		conceptService.create(new Concept(ISA).setDefinitionStatusId(PRIMITIVE).addDescription(fsn("Is a (attribute)")), path);
+		conceptService.create(new Concept(SNOMEDCT_ROOT).setDefinitionStatusId(PRIMITIVE).addDescription(fsn("SNOMED CT Concept")), path);
+		conceptService.create(new Concept("100001").setDefinitionStatusId(FULLY_DEFINED)
+				.addDescription(fsn("Heart (body structure)"))
+				.addDescription(new Description("Heart").addLanguageRefsetMember(US_EN_LANG_REFSET, PREFERRED))
+				.addAxiom(new Relationship(ISA, SNOMEDCT_ROOT))
+				.addRelationship(new Relationship(ISA, SNOMEDCT_ROOT).setCharacteristicTypeId(INFERRED_RELATIONSHIP)), path);
+		branchService.create("MAIN/A");
+		Concept concept = conceptService.find("100001", "MAIN/A");
+		concept.addDescription(new Description("Cardiac structure").addLanguageRefsetMember(US_EN_LANG_REFSET, ACCEPTABLE));
+		conceptService.update(concept, "MAIN/A");
+
+		try {
+			for (String branch : Arrays.asList("MAIN", "MAIN/A")) {
+				conceptService.setJoinConcurrently(true);
+				List<String> concurrentJoinResult = summarise(conceptService.find("100001", branch));
+				conceptService.setJoinConcurrently(false);
+				List<String> sequentialJoinResult = summarise(conceptService.find("100001", branch));
+
+				assertFalse(sequentialJoinResult.isEmpty());
+				assertEquals(sequentialJoinResult, concurrentJoinResult, "Concurrent joins give the same concept on " + branch);
+			}
+		} finally {
+			conceptService.setJoinConcurrently(true);
+		}
+	}
+
+	private List<String> summarise(Concept concept) {
+		List<String> summary = new ArrayList<>();
+		for (Description description : concept.getDescriptions()) {
+			summary.add("description " + description.getTerm() + " " + new TreeMap<>(description.getAcceptabilityMap()));
+		}
+		for (Relationship relationship : concept.getRelationships()) {
+			summary.add("relationship " + summariseMini(relationship.getType()) + " " + summariseMini(relationship.getTarget()));
+		}
+		for (Axiom axiom : concept.getClassAxioms()) {
+			for (Relationship relationship : axiom.getRelationships()) {
+				summary.add("axiom relationship " + summariseMini(relationship.getType()) + " " + summariseMini(relationship.getTarget()));
+			}
+		}
+		Collections.sort(summary);
+		return summary;
+	}
+
+	private String summariseMini(ConceptMini conceptMini) {
+		return conceptMini.getConceptId() + " " + conceptMini.getFsnTerm() + " " + conceptMini.getPt().getTerm() + " " + conceptMini.getDefinitionStatus();
+	}
+
 	private Description fsn(String term) {
 		Description description = new Description(term);
 		description.setTypeId(FSN);
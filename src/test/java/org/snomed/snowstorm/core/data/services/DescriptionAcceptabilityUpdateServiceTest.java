@@ -0,0 +1,169 @@
+package org.snomed.snowstorm.core.data.services;
+
+import com.google.common.collect.Sets;
+import io.kaicode.elasticvc.api.BranchService;
+import io.kaicode.elasticvc.api.VersionControlHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.AbstractTest;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.ConceptMini;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.domain.DescriptionAcceptability;
+import org.snomed.snowstorm.core.data.services.pojo.DescriptionCriteria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Long.parseLong;
+import static org.junit.Assert.*;
+import static org.snomed.snowstorm.config.Config.DEFAULT_LANGUAGE_DIALECTS;
+import static org.snomed.snowstorm.core.data.domain.Concepts.*;
+
+class DescriptionAcceptabilityUpdateServiceTest extends AbstractTest {
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Autowired
+	private DescriptionService descriptionService;
+
+	@Autowired
+	private DescriptionAcceptabilityUpdateService descriptionAcceptabilityUpdateService;
+
+	@Autowired
+	private BranchService branchService;
+
+	@Autowired
+	private BranchMergeService branchMergeService;
+
+	@Autowired
+	private VersionControlHelper versionControlHelper;
+
+	@BeforeEach
+	void setup() {
+		descriptionAcceptabilityUpdateService.setEnabled(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		descriptionAcceptabilityUpdateService.setEnabled(false);
+	}
+
+	@Test
+	void testAcceptabilityIndexedOnCommit() throws ServiceException {
+		createConcept("100001", "Heart");
+
+		Description synonym = getDescription("MAIN", "Heart");
+		DescriptionAcceptability acceptability = getAcceptability("MAIN", synonym);
+		assertEquals(Sets.newHashSet(US_EN_LANG_REFSET), acceptability.getPreferredIn());
+		assertEquals(Sets.newHashSet(GB_EN_LANG_REFSET), acceptability.getAcceptableIn());
+		assertEquals("100001", acceptability.getConceptId());
+
+		ConceptMini conceptMini = conceptService.findConceptMinis("MAIN", Collections.singleton("100001"), DEFAULT_LANGUAGE_DIALECTS).getResultsMap().get("100001");
+		assertEquals("Heart", conceptMini.getPt().getTerm());
+		assertEquals("Heart structure (body structure)", conceptMini.getFsn().getTerm());
+
+		// Change acceptability
+		setSynonymAcceptability("100001", "MAIN", Map.of(GB_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED)));
+
+		Description synonymAfterChange = getDescription("MAIN", "Heart");
+		assertEquals("Description not versioned by a member change.", synonym.getInternalId(), synonymAfterChange.getInternalId());
+		acceptability = getAcceptability("MAIN", synonymAfterChange);
+		assertEquals(Sets.newHashSet(GB_EN_LANG_REFSET), acceptability.getPreferredIn());
+		assertEquals(Collections.emptySet(), acceptability.getAcceptableIn());
+		assertEquals(1, descriptionService.findDescriptionsWithAggregations("MAIN", new DescriptionCriteria().term("Heart").type(Collections.singleton(parseLong(SYNONYM)))
+				.preferredIn(Collections.singleton(parseLong(GB_EN_LANG_REFSET))), PageRequest.of(0, 10)).getTotalElements());
+	}
+
+	@Test
+	void testAcceptabilityOnBranchRebaseAndPromotion() throws ServiceException {
+		createConcept("100001", "Heart");
+		branchService.create("MAIN/A");
+
+		// Change on the child branch does not touch the description from MAIN
+		setSynonymAcceptability("100001", "MAIN/A", Map.of(GB_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED)));
+		Description synonym = getDescription("MAIN/A", "Heart");
+		assertEquals("MAIN", synonym.getPath());
+		assertEquals(Sets.newHashSet(GB_EN_LANG_REFSET), getAcceptability("MAIN/A", synonym).getPreferredIn());
+		assertEquals(Sets.newHashSet(US_EN_LANG_REFSET), getAcceptability("MAIN", synonym).getPreferredIn());
+
+		// New content on MAIN
+		createConcept("100002", "Lung");
+		branchMergeService.mergeBranchSync("MAIN", "MAIN/A", Collections.emptySet());
+
+		assertEquals(Sets.newHashSet(GB_EN_LANG_REFSET), getAcceptability("MAIN/A", synonym).getPreferredIn());
+		assertEquals(Sets.newHashSet(US_EN_LANG_REFSET), getAcceptability("MAIN/A", getDescription("MAIN/A", "Lung")).getPreferredIn());
+		ConceptMini conceptMini = conceptService.findConceptMinis("MAIN/A", Collections.singleton("100001"), DEFAULT_LANGUAGE_DIALECTS).getResultsMap().get("100001");
+		assertEquals("Heart structure", conceptMini.getPt().getTerm());
+
+		branchMergeService.mergeBranchSync("MAIN/A", "MAIN", Collections.emptySet());
+		assertEquals(Sets.newHashSet(GB_EN_LANG_REFSET), getAcceptability("MAIN", synonym).getPreferredIn());
+	}
+
+	@Test
+	void testDialectFiltersUseAcceptabilityIndex() throws ServiceException {
+		createConcept("100001", "Heart");
+		Long us = parseLong(US_EN_LANG_REFSET);
+		Long gb = parseLong(GB_EN_LANG_REFSET);
+
+		assertEquals(2, countDescriptions(new DescriptionCriteria().term("Heart").preferredIn(Collections.singleton(us))));
+		assertEquals(2, countDescriptions(new DescriptionCriteria().term("Heart").acceptableIn(Collections.singleton(gb))));
+		assertEquals(3, countDescriptions(new DescriptionCriteria().term("Heart").preferredOrAcceptableIn(Collections.singleton(gb))));
+		assertEquals(1, countDescriptions(new DescriptionCriteria().term("Heart").preferredOrAcceptableIn(Collections.singleton(gb)).preferredIn(Collections.singleton(gb))));
+
+		// Same results from the member join
+		descriptionAcceptabilityUpdateService.setEnabled(false);
+		assertEquals(2, countDescriptions(new DescriptionCriteria().term("Heart").preferredIn(Collections.singleton(us))));
+		assertEquals(2, countDescriptions(new DescriptionCriteria().term("Heart").acceptableIn(Collections.singleton(gb))));
+		assertEquals(3, countDescriptions(new DescriptionCriteria().term("Heart").preferredOrAcceptableIn(Collections.singleton(gb))));
+		assertEquals(1, countDescriptions(new DescriptionCriteria().term("Heart").preferredOrAcceptableIn(Collections.singleton(gb)).preferredIn(Collections.singleton(gb))));
+	}
+
+	private void createConcept(String conceptId, String term) throws ServiceException {
+		conceptService.create(new Concept(conceptId)
+				.addDescription(new Description(term + " structure (body structure)").setTypeId(FSN)
+						.addLanguageRefsetMember(US_EN_LANG_REFSET, PREFERRED)
+						.addLanguageRefsetMember(GB_EN_LANG_REFSET, PREFERRED))
+				.addDescription(new Description(term + " structure")
+						.addLanguageRefsetMember(GB_EN_LANG_REFSET, ACCEPTABLE))
+				.addDescription(new Description(term)
+						.addLanguageRefsetMember(US_EN_LANG_REFSET, PREFERRED)
+						.addLanguageRefsetMember(GB_EN_LANG_REFSET, ACCEPTABLE)), "MAIN");
+	}
+
+	private void setSynonymAcceptability(String conceptId, String branch, Map<String, String> acceptabilityMap) throws ServiceException {
+		Concept concept = conceptService.find(conceptId, branch);
+		for (Description description : concept.getDescriptions()) {
+			if (description.getTerm().equals("Heart")) {
+				description.clearLanguageRefsetMembers();
+				description.setAcceptabilityMap(acceptabilityMap);
+			} else if (description.getTerm().equals("Heart structure")) {
+				description.clearLanguageRefsetMembers();
+				description.setAcceptabilityMap(Map.of(US_EN_LANG_REFSET, descriptionAcceptabilityNames.get(PREFERRED)));
+			}
+		}
+		conceptService.update(concept, branch);
+	}
+
+	private DescriptionAcceptability getAcceptability(String branch, Description description) {
+		Map<String, DescriptionAcceptability> acceptability = descriptionAcceptabilityUpdateService.findDescriptionAcceptability(
+				Collections.singleton(description.getDescriptionId()), versionControlHelper.getBranchCriteria(branch));
+		assertEquals(1, acceptability.size());
+		return acceptability.get(description.getDescriptionId());
+	}
+
+	private long countDescriptions(DescriptionCriteria criteria) {
+		return descriptionService.findDescriptionsWithAggregations("MAIN", criteria, PageRequest.of(0, 10)).getTotalElements();
+	}
+
+	private Description getDescription(String branch, String term) {
+		List<Description> descriptions = descriptionService.findDescriptions(branch, term, null, null, PageRequest.of(0, 10)).getContent();
+		assertEquals(1, descriptions.size());
+		return descriptions.get(0);
+	}
+}
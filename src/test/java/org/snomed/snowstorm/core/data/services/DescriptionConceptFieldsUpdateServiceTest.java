@@ -0,0 +1,134 @@
+package org.snomed.snowstorm.core.data.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.AbstractTest;
+import org.snomed.snowstorm.core.data.domain.CodeSystem;
+import org.snomed.snowstorm.core.data.domain.Concept;
+import org.snomed.snowstorm.core.data.domain.Description;
+import org.snomed.snowstorm.core.data.services.pojo.DescriptionCriteria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.snomed.snowstorm.core.data.domain.Concepts.*;
+
+class DescriptionConceptFieldsUpdateServiceTest extends AbstractTest {
+
+	private static final String VERSION_BRANCH = "MAIN/2020-01-31";
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Autowired
+	private DescriptionService descriptionService;
+
+	@Autowired
+	private DescriptionConceptFieldsUpdateService descriptionConceptFieldsUpdateService;
+
+	@Autowired
+	private CodeSystemService codeSystemService;
+
+	@BeforeEach
+	void setup() {
+		descriptionConceptFieldsUpdateService.setEnabled(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		descriptionConceptFieldsUpdateService.setEnabled(false);
+	}
+
+	@Test
+	void testConceptFieldsDenormalisedOnVersionBranch() throws ServiceException {
+		createConceptAndVersion();
+
+		// Not populated on the authoring branch
+		assertNull(getDescription("MAIN", "Heart").getConceptActive());
+
+		descriptionConceptFieldsUpdateService.updateAllDescriptionConceptFields(VERSION_BRANCH);
+		Description synonym = getDescription(VERSION_BRANCH, "Heart");
+		assertTrue(synonym.isConceptFieldsDenormalised());
+		assertTrue(synonym.getConceptActive());
+		assertEquals(PRIMITIVE, synonym.getConceptDefinitionStatusId());
+		assertEquals(CORE_MODULE, synonym.getConceptModuleId());
+		assertEquals(1, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(true)));
+		assertEquals(0, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(false)));
+		assertNull("Authoring branch not changed.", getDescription("MAIN", "Heart").getConceptActive());
+
+		// Inactivate concept on the version branch without changing descriptions
+		Concept concept = conceptService.find("100001", VERSION_BRANCH);
+		concept.setActive(false);
+		conceptService.update(concept, VERSION_BRANCH);
+
+		synonym = getDescription(VERSION_BRANCH, "Heart");
+		assertFalse(synonym.getConceptActive());
+		assertEquals(0, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(true)));
+		assertEquals(1, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(false)));
+		assertEquals(1, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptDefinitionStatus(PRIMITIVE)));
+		assertEquals(0, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptDefinitionStatus(FULLY_DEFINED)));
+		assertEquals(1, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptModules(Collections.singleton(CORE_MODULE))));
+	}
+
+	@Test
+	void testDescriptionsNotVersionedOnAuthoringBranch() throws ServiceException {
+		createConceptAndVersion();
+		Description synonym = getDescription("MAIN", "Heart");
+
+		Concept concept = conceptService.find("100001", "MAIN");
+		concept.setActive(false);
+		conceptService.update(concept, "MAIN");
+
+		Description synonymAfterChange = getDescription("MAIN", "Heart");
+		assertEquals("Description not versioned by a concept change.", synonym.getInternalId(), synonymAfterChange.getInternalId());
+		assertNull(synonymAfterChange.getConceptActive());
+		assertEquals(0, countConcepts("MAIN", new DescriptionCriteria().term("Heart").conceptActive(true)));
+		assertEquals(1, countConcepts("MAIN", new DescriptionCriteria().term("Heart").conceptActive(false)));
+
+		assertThrows(IllegalArgumentException.class, () -> descriptionConceptFieldsUpdateService.updateAllDescriptionConceptFields("MAIN"));
+	}
+
+	@Test
+	void testConceptFilterOfDescriptionsNotPopulated() throws ServiceException {
+		createConceptAndVersion();
+
+		// Concept changed on the version branch before the descriptions are populated
+		descriptionConceptFieldsUpdateService.setEnabled(false);
+		Concept concept = conceptService.find("100001", VERSION_BRANCH);
+		concept.setActive(false);
+		conceptService.update(concept, VERSION_BRANCH);
+		descriptionConceptFieldsUpdateService.setEnabled(true);
+
+		assertNull(getDescription(VERSION_BRANCH, "Heart").getConceptActive());
+		assertEquals(0, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(true)));
+		assertEquals(1, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(false)));
+
+		descriptionConceptFieldsUpdateService.updateAllDescriptionConceptFields(VERSION_BRANCH);
+		assertFalse(getDescription(VERSION_BRANCH, "Heart").getConceptActive());
+		assertEquals(1, countConcepts(VERSION_BRANCH, new DescriptionCriteria().term("Heart").conceptActive(false)));
+	}
+
+	private void createConceptAndVersion() throws ServiceException {
+		conceptService.create(new Concept("100001")
+				.addDescription(new Description("Heart structure (body structure)").setTypeId(FSN))
+				.addDescription(new Description("Heart")), "MAIN");
+		CodeSystem codeSystem = new CodeSystem("SNOMEDCT", "MAIN");
+		codeSystemService.createCodeSystem(codeSystem);
+		codeSystemService.createVersion(codeSystem, 20200131, "");
+	}
+
+	private long countConcepts(String branch, DescriptionCriteria criteria) {
+		return descriptionService.findDescriptionsWithAggregations(branch, criteria.groupByConcept(true), PageRequest.of(0, 10)).getTotalElements();
+	}
+
+	private Description getDescription(String branch, String term) {
+		List<Description> descriptions = descriptionService.findDescriptions(branch, term, null, null, PageRequest.of(0, 10)).getContent();
+		assertEquals(1, descriptions.size());
+		return descriptions.get(0);
+	}
+}
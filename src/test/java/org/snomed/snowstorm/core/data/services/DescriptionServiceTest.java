@@ -25,6 +25,7 @@ import static java.lang.Long.parseLong;
 import static org.junit.Assert.*;
 import static org.snomed.snowstorm.core.data.domain.Concepts.*;
 import static org.snomed.snowstorm.core.data.services.DescriptionService.SearchMode.REGEX;
+import static org.snomed.snowstorm.core.data.services.DescriptionService.SearchMode.SUBSTRING;
 import static org.snomed.snowstorm.core.data.services.DescriptionService.SearchMode.WHOLE_WORD;
 
 @ExtendWith(SpringExtension.class)
@@ -308,6 +309,50 @@ class DescriptionServiceTest extends AbstractTest {
 		assertEquals(1, descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("Chees.*"), PageRequest.of(0, 10)).getTotalElements());
 	}
 
+	@Test
+	void testDescriptionSearchWithSubstring() throws ServiceException {
+		String path = "MAIN";
+		Concept root = new Concept(SNOMEDCT_ROOT);
+		Concept pizza_2 = new Concept("100002").addRelationship(new Relationship(ISA, SNOMEDCT_ROOT)).addFSN("Food (food)");
+		Concept cheesePizza_3 = new Concept("100003").addRelationship(new Relationship(ISA, pizza_2.getId())).addFSN("Cheese Pizza (pizza)").addDescription(new Description("Cheese"));
+		Concept reallyCheesyPizza_4 = new Concept("100004").addRelationship(new Relationship(ISA, cheesePizza_3.getId())).addFSN("Really Cheesy Pizza (pizza)");
+		Concept reallyCheesyPizza_5 = new Concept("100005").addRelationship(new Relationship(ISA, reallyCheesyPizza_4.getId())).addFSN("So Cheesy Pizza (pizza)");
+		List<Concept> concepts = newArrayList(root, pizza_2, cheesePizza_3, reallyCheesyPizza_4, reallyCheesyPizza_5);
+		conceptService.batchCreate(concepts, path);
+
+		DescriptionCriteria descriptionCriteria = new DescriptionCriteria()
+				.searchMode(SUBSTRING)
+				.groupByConcept(false);
+
+		assertEquals(2, descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("HEESE"), PageRequest.of(0, 10)).getTotalElements());
+		assertEquals(2, descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("eesy piz"), PageRequest.of(0, 10)).getTotalElements());
+		assertEquals(3, descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("izza (piz"), PageRequest.of(0, 10)).getTotalElements());
+		assertEquals(0, descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("eesz"), PageRequest.of(0, 10)).getTotalElements());
+
+		descriptionCriteria.groupByConcept(true);
+		assertEquals(1, descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("heese"), PageRequest.of(0, 10)).getTotalElements());
+
+		assertThrows("Too short to use the trigram index.", IllegalArgumentException.class,
+				() -> descriptionService.findDescriptionsWithAggregations(path, descriptionCriteria.term("ee"), PageRequest.of(0, 10)));
+	}
+
+	@Test
+	void testDescriptionSearchResultsCache() throws ServiceException {
+		DescriptionSearchResultsCache cache = descriptionService.getSearchResultsCache();
+		cache.clearCache();
+		testUtil.createConceptWithPathIdAndTerm("MAIN", "100001", "Heart");
+
+		assertEquals(1, descriptionService.findDescriptionsWithAggregations("MAIN", "Heart", PageRequest.of(0, 10)).getTotalElements());
+		assertEquals(0L, cache.getStats().get("hits"));
+		assertEquals(1, descriptionService.findDescriptionsWithAggregations("MAIN", "Heart", PageRequest.of(0, 10)).getTotalElements());
+		assertEquals(1L, cache.getStats().get("hits"));
+
+		// Branch head moves, cached results no longer used
+		testUtil.createConceptWithPathIdAndTerm("MAIN", "100002", "Heart valve");
+		assertEquals(2, descriptionService.findDescriptionsWithAggregations("MAIN", "Heart", PageRequest.of(0, 10)).getTotalElements());
+		assertEquals(1L, cache.getStats().get("hits"));
+	}
+
 	@Test
 	void testDescriptionSearchAggregationsSemanticTagFilter() throws ServiceException {
 		String path = "MAIN";
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.snomed.snowstorm.AbstractTest;
 import org.snomed.snowstorm.TestConfig;
 import org.snomed.snowstorm.core.data.domain.*;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptTreeNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -19,7 +20,11 @@ import java.util.List;
 import java.util.Set;
 
 import static java.lang.Long.parseLong;
+import static org.snomed.snowstorm.config.Config.DEFAULT_LANGUAGE_DIALECTS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.snomed.snowstorm.core.data.domain.Concepts.*;
 
 @ExtendWith(SpringExtension.class)
@@ -107,6 +112,73 @@ class QueryServiceTest extends AbstractTest {
 		assertEquals("Really Cheesy Pizza", matches.get(1).getFsnTerm());
 	}
 
+	@Test
+	void testJoinDescendantCountAndLeafFlag() throws ServiceException {
+		List<ConceptMini> minis = Lists.newArrayList(new ConceptMini(SNOMEDCT_ROOT, null), new ConceptMini(pizza_2.getId(), null),
+				new ConceptMini(reallyCheesyPizza_4.getId(), null), new ConceptMini(reallyCheesyPizza_5.getId(), null));
+		service.joinDescendantCountAndLeafFlag(minis, Relationship.CharacteristicType.inferred, PATH, conceptService.getBranchCriteria(PATH));
+		assertEquals(4, minis.get(0).getDescendantCount().longValue());
+		assertEquals(3, minis.get(1).getDescendantCount().longValue());
+		assertEquals(1, minis.get(2).getDescendantCount().longValue(), "Inactive concepts are not counted.");
+		assertEquals(0, minis.get(3).getDescendantCount().longValue());
+		assertFalse(minis.get(2).getIsLeafInferred());
+		assertTrue(minis.get(3).getIsLeafInferred());
+
+		List<ConceptMini> leafMinis = Lists.newArrayList(new ConceptMini(cheesePizza_3.getId(), null), new ConceptMini(reallyCheesyPizza_5.getId(), null));
+		service.joinIsLeafFlag(leafMinis, Relationship.CharacteristicType.inferred, conceptService.getBranchCriteria(PATH), PATH);
+		assertFalse(leafMinis.get(0).getIsLeafInferred());
+		assertTrue(leafMinis.get(1).getIsLeafInferred());
+	}
+
+	@Test
+	void testFindSubtree() {
+		ConceptTreeNode rootNode = service.findSubtree(SNOMEDCT_ROOT, Relationship.CharacteristicType.inferred, 2, 100, DEFAULT_LANGUAGE_DIALECTS,
+				PATH, conceptService.getBranchCriteria(PATH));
+		assertEquals(1, rootNode.getChildren().size());
+		ConceptTreeNode pizzaNode = rootNode.getChildren().get(0);
+		assertEquals("Pizza", pizzaNode.getConcept().getFsnTerm());
+		assertFalse(pizzaNode.getConcept().getIsLeafInferred());
+		assertEquals(1, pizzaNode.getChildren().size());
+		ConceptTreeNode cheesePizzaNode = pizzaNode.getChildren().get(0);
+		assertEquals(cheesePizza_3.getId(), cheesePizzaNode.getConcept().getConceptId());
+		assertNull(cheesePizzaNode.getChildren(), "Last level is not expanded.");
+		assertFalse(cheesePizzaNode.getConcept().getIsLeafInferred());
+
+		// Second level does not fit within the node limit
+		rootNode = service.findSubtree(SNOMEDCT_ROOT, Relationship.CharacteristicType.inferred, 3, 2, DEFAULT_LANGUAGE_DIALECTS,
+				PATH, conceptService.getBranchCriteria(PATH));
+		pizzaNode = rootNode.getChildren().get(0);
+		assertNull(pizzaNode.getChildren());
+		assertFalse(pizzaNode.getConcept().getIsLeafInferred());
+
+		ConceptTreeNode leafNode = service.findSubtree(reallyCheesyPizza_5.getId(), Relationship.CharacteristicType.inferred, 2, 100, DEFAULT_LANGUAGE_DIALECTS,
+				PATH, conceptService.getBranchCriteria(PATH));
+		assertTrue(leafNode.getChildren().isEmpty());
+		assertTrue(leafNode.getConcept().getIsLeafInferred());
+	}
+
+	@Test
+	void testSearchResultOrderingStreamedWithinEcl() {
+		// Force lexical matches to be streamed rather than filtered by the ECL results
+		service.setEclPushDownMaxSize(0);
+		try {
+			QueryService.ConceptQueryBuilder queryBuilder = service.createQueryBuilder(false).ecl("<" + pizza_2.getConceptId()).descriptionTerm("Piz");
+			Page<ConceptMini> page = service.search(queryBuilder, PATH, PageRequest.of(0, 2));
+			assertEquals(2, page.getContent().size());
+			assertEquals("Cheese Pizza", page.getContent().get(0).getFsnTerm());
+			assertEquals("So Cheesy Pizza", page.getContent().get(1).getFsnTerm());
+			assertTrue(page.getTotalElements() >= 2);
+
+			page = service.search(queryBuilder, PATH, PageRequest.of(1, 2));
+			assertEquals(1, page.getContent().size());
+			assertEquals("Really Cheesy Pizza", page.getContent().get(0).getFsnTerm());
+			// All lexical matches visited so total is exact
+			assertEquals(3, page.getTotalElements());
+		} finally {
+			service.setEclPushDownMaxSize(10000);
+		}
+	}
+
 	@Test
 	void testFindInactiveConcept() {
 		Set<String> inactiveConceptId = Collections.singleton(inactivePizza_6.getId());
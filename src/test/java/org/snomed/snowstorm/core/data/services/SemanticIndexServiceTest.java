@@ -9,17 +9,22 @@ import org.snomed.snowstorm.AbstractTest;
 import org.snomed.snowstorm.TestConfig;
 import org.snomed.snowstorm.core.data.domain.Concept;
 import org.snomed.snowstorm.core.data.domain.Relationship;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptPair;
+import org.snomed.snowstorm.core.data.services.pojo.ConceptReferencesPage;
+import org.snomed.snowstorm.core.data.services.pojo.SubsumptionResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static io.kaicode.elasticvc.api.VersionControlHelper.LARGE_PAGE;
 import static java.lang.Long.parseLong;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.snomed.snowstorm.core.data.domain.Concepts.ISA;
 import static org.snomed.snowstorm.core.data.domain.Concepts.SNOMEDCT_ROOT;
 
@@ -59,4 +64,58 @@ class SemanticIndexServiceTest extends AbstractTest {
 
 		assertEquals(0, semanticIndexService.findConceptReferences(PATH, parseLong(ISA), true, LARGE_PAGE).getTotalElements());
 	}
+
+	@Test
+	void findConceptReferencesByType() {
+		ConceptReferencesPage page = semanticIndexService.findConceptReferences(PATH, 100002L, false, null, LARGE_PAGE);
+		assertEquals(2, page.getTotalElements());
+		assertEquals("Counts cover direct references only.", Long.valueOf(2), page.getReferenceTypeCounts().get(parseLong(ISA)));
+
+		page = semanticIndexService.findConceptReferences(PATH, 100005L, false, parseLong(Concepts.ALL_OR_PART_OF), LARGE_PAGE);
+		assertEquals(1, page.getTotalElements());
+		assertEquals("[" + Concepts.ALL_OR_PART_OF + "]", page.getMap().keySet().toString());
+		assertEquals("[100003]", page.getMap().get(parseLong(Concepts.ALL_OR_PART_OF)).toString());
+		assertEquals("Counts are not restricted by the type filter.", Long.valueOf(1), page.getReferenceTypeCounts().get(parseLong(ISA)));
+		assertEquals(Long.valueOf(1), page.getReferenceTypeCounts().get(parseLong(Concepts.ALL_OR_PART_OF)));
+	}
+
+	@Test
+	void findConceptReferencesCountsNewAttributeType() throws ServiceException {
+		assertEquals(Long.valueOf(1), semanticIndexService.findConceptReferences(PATH, 100005L, false, null, LARGE_PAGE)
+				.getReferenceTypeCounts().get(parseLong(ISA)));
+
+		// Attribute type indexed after the attribute types have been loaded
+		conceptService.batchCreate(Lists.newArrayList(
+				new Concept("1000011").addRelationship(new Relationship(ISA, SNOMEDCT_ROOT)).addFSN("Topping (attribute)"),
+				new Concept("100010").addRelationship(new Relationship(ISA, "100002")).addRelationship(new Relationship("1000011", "100005")).addFSN("Topped Pizza")
+		), PATH);
+
+		ConceptReferencesPage page = semanticIndexService.findConceptReferences(PATH, 100005L, false, null, LARGE_PAGE);
+		assertEquals(Long.valueOf(1), page.getReferenceTypeCounts().get(1000011L));
+		assertEquals("[100010]", page.getMap().get(1000011L).toString());
+	}
+
+	@Test
+	void findSubsumption() {
+		List<SubsumptionResult> results = semanticIndexService.findSubsumption(PATH, Lists.newArrayList(
+				new ConceptPair("100002", "100008"),
+				new ConceptPair("100008", "100002"),
+				new ConceptPair("100008", "100003"),
+				new ConceptPair("100005", "100005"),
+				new ConceptPair(Concepts.ALL_OR_PART_OF, "100008"),
+				new ConceptPair("100008", "999000")
+		), false, true);
+
+		assertEquals(SubsumptionResult.Outcome.SUBSUMES, results.get(0).getOutcome());
+		assertEquals("[100002]", results.get(0).getLowestCommonAncestors().toString());
+		assertEquals(SubsumptionResult.Outcome.SUBSUMED_BY, results.get(1).getOutcome());
+		assertEquals(SubsumptionResult.Outcome.NOT_SUBSUMED, results.get(2).getOutcome());
+		assertEquals("[100002]", results.get(2).getLowestCommonAncestors().toString());
+		assertEquals(SubsumptionResult.Outcome.EQUIVALENT, results.get(3).getOutcome());
+		assertEquals("[100005]", results.get(3).getLowestCommonAncestors().toString());
+		assertEquals(SubsumptionResult.Outcome.NOT_SUBSUMED, results.get(4).getOutcome());
+		assertEquals("[" + SNOMEDCT_ROOT + "]", results.get(4).getLowestCommonAncestors().toString());
+		assertEquals(SubsumptionResult.Outcome.NOT_FOUND, results.get(5).getOutcome());
+		assertNull(results.get(5).getLowestCommonAncestors());
+	}
 }
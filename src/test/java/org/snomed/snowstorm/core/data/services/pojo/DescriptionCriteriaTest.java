@@ -0,0 +1,32 @@
+package org.snomed.snowstorm.core.data.services.pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DescriptionCriteriaTest {
+
+	@Test
+	void testCopyNotChangedByOriginalCollections() {
+		List<String> languageCodes = new ArrayList<>(Arrays.asList("en", "es"));
+		Set<Long> preferredIn = new HashSet<>(Collections.singleton(900000000000509007L));
+		DescriptionCriteria criteria = new DescriptionCriteria().term("heart").searchLanguageCodes(languageCodes).preferredIn(preferredIn);
+
+		DescriptionCriteria copy = criteria.copy();
+		assertEquals("Criteria equal a copy of themselves.", criteria, copy);
+		assertEquals(criteria.hashCode(), copy.hashCode());
+		assertEquals("Order of language codes kept.", "[en, es]", copy.getSearchLanguageCodes().toString());
+
+		languageCodes.add("fr");
+		preferredIn.add(900000000000508004L);
+		assertEquals("[en, es]", copy.getSearchLanguageCodes().toString());
+		assertEquals(Collections.singleton(900000000000509007L), copy.getPreferredIn());
+		assertNotEquals(criteria, copy);
+
+		assertThrows(UnsupportedOperationException.class, () -> copy.getSearchLanguageCodes().add("fr"));
+	}
+
+}
@@ -0,0 +1,135 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.core.rf2.RF2Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveProgressInputStreamTest {
+
+	private static final String HEADER = "id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId\n";
+	private static final String ROW = "100001\t20200131\t1\t900000000000207008\t900000000000074008\n";
+	private static final String CONCEPTS = HEADER + ROW + ROW;
+	private static final String DESCRIPTIONS = HEADER + ROW;
+
+	@Test
+	void testArchiveBytesCounted() throws IOException {
+		byte[] archiveBytes = createArchive();
+
+		ImportProgress progress = new ImportProgress(RF2Type.SNAPSHOT);
+		int entries = 0;
+		InputStream archiveStream = new ArchiveProgressInputStream(new ByteArrayInputStream(archiveBytes), progress);
+		try (ZipInputStream zipInputStream = new ZipInputStream(archiveStream)) {
+			while (zipInputStream.getNextEntry() != null) {
+				drain(zipInputStream);
+				entries++;
+			}
+			assertFalse(progress.isArchiveRead(), "Central directory not read by the zip stream.");
+			drain(archiveStream);
+		}
+
+		assertEquals(4, entries, "Archive still readable through the stream.");
+		assertTrue(progress.isArchiveRead());
+		assertEquals(archiveBytes.length, progress.getArchiveBytesRead());
+	}
+
+	@Test
+	void testEntrySizesFoundInArchiveFile() throws IOException {
+		File archiveFile = Files.createTempFile("archive-progress-test", ".zip").toFile();
+		try {
+			Files.write(archiveFile.toPath(), createArchive());
+			ImportProgress progress = new ImportProgress(RF2Type.SNAPSHOT);
+			try (ZipFile zipFile = new ZipFile(archiveFile)) {
+				progress.archiveEntriesFound(zipFile);
+			}
+
+			assertEquals(2, progress.getComponentTypes().size(), "Only snapshot files are counted.");
+			assertEquals(CONCEPTS.length(), progress.getComponentTypes().get("Concept").getTotalBytes());
+			assertEquals(DESCRIPTIONS.length(), progress.getComponentTypes().get("Description").getTotalBytes());
+			assertEquals(1, progress.getComponentTypes().get("Description").getFiles().size());
+		} finally {
+			Files.delete(archiveFile.toPath());
+		}
+	}
+
+	@Test
+	void testNotAnArchive() throws IOException {
+		byte[] bytes = (HEADER + ROW).getBytes(StandardCharsets.UTF_8);
+		ImportProgress progress = new ImportProgress(RF2Type.SNAPSHOT);
+		try (InputStream inputStream = new ArchiveProgressInputStream(new ByteArrayInputStream(bytes), progress)) {
+			drain(inputStream);
+		}
+		assertEquals(bytes.length, progress.getArchiveBytesRead());
+		assertTrue(progress.getComponentTypes().isEmpty());
+		assertNull(progress.getEtaSeconds());
+	}
+
+	@Test
+	void testReadableInOrder() throws IOException {
+		String concepts = HEADER + ROW;
+		ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(deflated)) {
+			zipOutputStream.putNextEntry(new ZipEntry("sct2_Concept_Snapshot_INT_20200131.txt"));
+			zipOutputStream.write(concepts.getBytes(StandardCharsets.UTF_8));
+		}
+		assertTrue(ArchiveProgressInputStream.isReadableInOrder(deflated.toByteArray()));
+
+		ByteArrayOutputStream stored = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(stored)) {
+			zipOutputStream.putNextEntry(storedEntry("sct2_Concept_Snapshot_INT_20200131.txt", concepts));
+			zipOutputStream.write(concepts.getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] storedBytes = stored.toByteArray();
+		assertTrue(ArchiveProgressInputStream.isReadableInOrder(storedBytes));
+
+		// Stored entry with the sizes in a data descriptor
+		storedBytes[6] |= 0x08;
+		assertFalse(ArchiveProgressInputStream.isReadableInOrder(storedBytes));
+		assertFalse(ArchiveProgressInputStream.isReadableInOrder(concepts.getBytes(StandardCharsets.UTF_8)), "Not an archive.");
+	}
+
+	private byte[] createArchive() throws IOException {
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(archive)) {
+			zipOutputStream.putNextEntry(new ZipEntry("SnomedCT_Release/"));
+			zipOutputStream.putNextEntry(new ZipEntry("SnomedCT_Release/Snapshot/Terminology/sct2_Concept_Snapshot_INT_20200131.txt"));
+			zipOutputStream.write(CONCEPTS.getBytes(StandardCharsets.UTF_8));
+			zipOutputStream.putNextEntry(storedEntry("SnomedCT_Release/Snapshot/Terminology/sct2_Description_Snapshot-en_INT_20200131.txt", DESCRIPTIONS));
+			zipOutputStream.write(DESCRIPTIONS.getBytes(StandardCharsets.UTF_8));
+			zipOutputStream.putNextEntry(new ZipEntry("SnomedCT_Release/Delta/Terminology/sct2_Concept_Delta_INT_20200131.txt"));
+			zipOutputStream.write(CONCEPTS.getBytes(StandardCharsets.UTF_8));
+		}
+		return archive.toByteArray();
+	}
+
+	private ZipEntry storedEntry(String name, String content) {
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(bytes.length);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		entry.setCrc(crc.getValue());
+		return entry;
+	}
+
+	private void drain(InputStream inputStream) throws IOException {
+		byte[] buffer = new byte[100];
+		while (inputStream.read(buffer) != -1) {
+			// Read the whole entry
+		}
+	}
+}
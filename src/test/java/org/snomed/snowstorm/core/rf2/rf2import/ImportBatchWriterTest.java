@@ -0,0 +1,83 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.core.data.services.RuntimeServiceException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportBatchWriterTest {
+
+	@Test
+	void testBatchesCheckedAndSaved() {
+		List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+		ImportBatchWriter<Integer> writer = new ImportBatchWriter<>("Concept", 2, 2,
+				batch -> batch.removeIf(i -> i % 2 == 0),
+				saved::addAll);
+		for (int i = 0; i < 10; i++) {
+			writer.submit(new ArrayList<>(Arrays.asList(i * 10, i * 10 + 1)));
+		}
+		writer.awaitCompletion();
+		writer.shutdown();
+
+		assertEquals(10, saved.size());
+		assertTrue(saved.stream().allMatch(i -> i % 2 == 1));
+		assertEquals(10L, writer.getStats().get("batches"));
+		assertEquals(20L, writer.getStats().get("checked"));
+		assertEquals(10L, writer.getStats().get("saved"));
+	}
+
+	@Test
+	void testParsingWaitsWhenWritersBehind() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ImportBatchWriter<Integer> writer = new ImportBatchWriter<>("Description", 1, 1,
+				batch -> {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				},
+				batch -> {});
+		// One batch being written and one queued
+		writer.submit(new ArrayList<>(Collections.singletonList(1)));
+		writer.submit(new ArrayList<>(Collections.singletonList(2)));
+
+		AtomicBoolean thirdSubmitted = new AtomicBoolean();
+		Thread parser = new Thread(() -> {
+			writer.submit(new ArrayList<>(Collections.singletonList(3)));
+			thirdSubmitted.set(true);
+		});
+		parser.start();
+		parser.join(200);
+		assertFalse(thirdSubmitted.get(), "Submit blocks while the queue is full.");
+
+		release.countDown();
+		parser.join(TimeUnit.SECONDS.toMillis(10));
+		assertTrue(thirdSubmitted.get());
+		writer.awaitCompletion();
+		writer.shutdown();
+		assertEquals(3L, writer.getStats().get("batches"));
+	}
+
+	@Test
+	void testWriterFailureThrownToParsing() {
+		ImportBatchWriter<Integer> writer = new ImportBatchWriter<>("Relationship", 1, 1,
+				batch -> {},
+				batch -> {
+					throw new IllegalStateException("Store unavailable");
+				});
+		writer.submit(new ArrayList<>(Collections.singletonList(1)));
+		RuntimeServiceException exception = assertThrows(RuntimeServiceException.class, writer::awaitCompletion);
+		assertEquals("Store unavailable", exception.getCause().getMessage());
+		assertThrows(RuntimeServiceException.class, () -> writer.submit(new ArrayList<>(Collections.singletonList(2))));
+		writer.shutdown();
+	}
+}
@@ -0,0 +1,79 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import io.kaicode.elasticvc.api.BranchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.snomed.snowstorm.AbstractTest;
+import org.snomed.snowstorm.TestConfig;
+import org.snomed.snowstorm.core.data.services.BranchMetadataHelper;
+import org.snomed.snowstorm.core.data.services.ConceptService;
+import org.snomed.snowstorm.core.data.services.ConceptUpdateHelper;
+import org.snomed.snowstorm.core.data.services.ReferenceSetMemberService;
+import org.snomed.snowstorm.core.data.services.pojo.MemberSearchRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.snomed.snowstorm.core.data.domain.Concepts.CORE_MODULE;
+import static org.snomed.snowstorm.core.data.domain.Concepts.PRIMITIVE;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = TestConfig.class)
+class ImportComponentFactoryImplTest extends AbstractTest {
+
+	private static final String[] SIMPLE_REFSET_FIELDS = {"id", "effectiveTime", "active", "moduleId", "refsetId", "referencedComponentId"};
+
+	@Autowired
+	private ConceptUpdateHelper conceptUpdateHelper;
+
+	@Autowired
+	private ReferenceSetMemberService memberService;
+
+	@Autowired
+	private BranchService branchService;
+
+	@Autowired
+	private BranchMetadataHelper branchMetadataHelper;
+
+	@Autowired
+	private ConceptService conceptService;
+
+	@Test
+	void testCoreComponentsCheckpointCommittedByParsingThreadBeforeMembers() {
+		ImportComponentFactoryImpl importComponentFactory = new ImportComponentFactoryImpl(conceptUpdateHelper, memberService, branchService, branchMetadataHelper,
+				"MAIN", null, false, false, false, 2, 2, 2, 0);
+		Map<String, Long> membersAtCheckpoint = new LinkedHashMap<>();
+		List<String> checkpointThreads = new ArrayList<>();
+		importComponentFactory.setCheckpoints(Collections.emptySet(), checkpoint -> {
+			checkpointThreads.add(Thread.currentThread().getName());
+			membersAtCheckpoint.put(checkpoint, memberService.findMembers("MAIN", new MemberSearchRequest(), PageRequest.of(0, 1)).getTotalElements());
+		});
+
+		importComponentFactory.loadingComponentsStarting();
+		for (int i = 0; i < 100; i++) {
+			importComponentFactory.newConceptState(getConceptId(i), "20200131", "1", CORE_MODULE, PRIMITIVE);
+		}
+		// More than one batch of members so that some are written while parsing continues
+		for (int i = 0; i < 6_000; i++) {
+			importComponentFactory.newReferenceSetMemberState(SIMPLE_REFSET_FIELDS, UUID.randomUUID().toString(), "20200131", "1", CORE_MODULE,
+					"723264001", getConceptId(i % 100));
+		}
+		importComponentFactory.loadingComponentsCompleted();
+
+		assertEquals(Arrays.asList(ImportComponentFactoryImpl.CORE_COMPONENTS_CHECKPOINT, ImportComponentFactoryImpl.COMPONENTS_CHECKPOINT),
+				new ArrayList<>(membersAtCheckpoint.keySet()));
+		assertEquals("No members saved to the core components commit.", 0L, membersAtCheckpoint.get(ImportComponentFactoryImpl.CORE_COMPONENTS_CHECKPOINT).longValue());
+		assertEquals(6_000L, membersAtCheckpoint.get(ImportComponentFactoryImpl.COMPONENTS_CHECKPOINT).longValue());
+		assertFalse("Core components committed by the parsing thread rather than a member writer.", checkpointThreads.get(0).startsWith("import-writer-"));
+		assertNotNull(conceptService.find(getConceptId(0), "MAIN"));
+		assertFalse(branchService.findLatest("MAIN").isLocked());
+	}
+
+	private String getConceptId(int i) {
+		return String.valueOf(100_000 + i);
+	}
+}
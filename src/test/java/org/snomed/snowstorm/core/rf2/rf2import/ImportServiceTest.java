@@ -20,13 +20,20 @@ import org.snomed.snowstorm.core.rf2.RF2Type;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.*;
 import static org.snomed.snowstorm.core.data.services.BranchMetadataHelper.IMPORTING_CODE_SYSTEM_VERSION;
@@ -59,6 +66,9 @@ class ImportServiceTest extends AbstractTest {
 	@Autowired
 	private CodeSystemService codeSystemService;
 
+	@Autowired
+	private ElasticsearchOperations elasticsearchTemplate;
+
 	private File rf2Archive;
 	private File completeOwlRf2Archive;
 
@@ -369,10 +379,18 @@ class ImportServiceTest extends AbstractTest {
 		return conceptMinis.stream().map(ConceptMini::getConceptId).collect(Collectors.joining(","));
 	}
 
+	private Set<String> getIdSet(List<ConceptMini> conceptMinis) {
+		return conceptMinis.stream().map(ConceptMini::getConceptId).collect(Collectors.toSet());
+	}
+
 	private List<ConceptMini> statedEclQuery(String branchPath, String ecl) {
 		return queryService.search(queryService.createQueryBuilder(true).ecl(ecl), branchPath, PageRequest.of(0, 1000)).getContent();
 	}
 
+	private List<ConceptMini> inferredEclQuery(String branchPath, String ecl) {
+		return queryService.search(queryService.createQueryBuilder(false).ecl(ecl), branchPath, PageRequest.of(0, 1000)).getContent();
+	}
+
 	private int getActiveStatedRelationshipCount(String branchPath) {
 		return (int) relationshipService.findRelationships(branchPath, null, true, null, null, null, null, null,
 				Relationship.CharacteristicType.stated, null, PageRequest.of(0, 1)).getTotalElements();
@@ -512,6 +530,47 @@ class ImportServiceTest extends AbstractTest {
 
 	}
 
+	@Test
+	void testReimportSkippingUnchangedComponents() throws IOException, ReleaseImportException {
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/dummy-daily-build/DailyBuild_Day1");
+		importService.importArchive(importService.createJob(RF2Type.DELTA, "MAIN", false, true), new FileInputStream(zipFile));
+		Date versionStart = conceptService.find("131148009", "MAIN").getStart();
+
+		String importId = importService.createJob(new RF2ImportConfiguration(RF2Type.DELTA, "MAIN").setClearEffectiveTimes(true).setSkipUnchanged(true));
+		importService.importArchive(importId, new FileInputStream(zipFile));
+
+		assertEquals("Unchanged concepts are not saved again.", versionStart, conceptService.find("131148009", "MAIN").getStart());
+		assertEquals(Long.valueOf(2), importService.getImportJobOrThrow(importId).getUnchangedComponentsSkipped().get("Concept"));
+	}
+
+	@Test
+	void testDryRunReportsChangesWithoutImporting() throws IOException, ReleaseImportException {
+		File day1 = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/dummy-daily-build/DailyBuild_Day1");
+		importService.importArchive(importService.createJob(RF2Type.DELTA, "MAIN", false, true), new FileInputStream(day1));
+		long headBefore = branchService.findLatest("MAIN").getHeadTimestamp();
+
+		String reimportId = importService.createJob(new RF2ImportConfiguration(RF2Type.DELTA, "MAIN").setClearEffectiveTimes(true).setDryRun(true));
+		importService.importArchive(reimportId, new FileInputStream(day1));
+		ImportDryRunReport reimportReport = importService.getImportJobOrThrow(reimportId).getDryRunReport();
+		assertEquals(2, reimportReport.getComponentTypes().get("Concept").getUnchanged());
+		assertEquals(0, reimportReport.getEstimatedIndexWrites());
+
+		File day2 = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/dummy-daily-build/DailyBuild_Day2");
+		String importId = importService.createJob(new RF2ImportConfiguration(RF2Type.DELTA, "MAIN").setClearEffectiveTimes(true).setDryRun(true));
+		importService.importArchive(importId, new FileInputStream(day2));
+
+		ImportJob importJob = importService.getImportJobOrThrow(importId);
+		assertEquals(ImportJob.ImportStatus.COMPLETED, importJob.getStatus());
+		ImportDryRunReport report = importJob.getDryRunReport();
+		assertEquals(1, report.getComponentTypes().get("Concept").getNewComponents());
+		assertEquals(0, report.getComponentTypes().get("Concept").getChanged());
+		assertEquals(1, report.getEstimatedIndexWrites());
+		assertEquals(Collections.singletonList(131148010L), report.getSemanticIndexConceptSample());
+		assertEquals(2, report.getEstimatedSemanticIndexWrites());
+		assertNull("Dry run does not import.", conceptService.find("131148010", "MAIN"));
+		assertEquals("Dry run does not commit.", headBefore, branchService.findLatest("MAIN").getHeadTimestamp());
+	}
+
 	@Test
 	void testImportWithBlankEffectiveTime() throws IOException, ReleaseImportException {
 
@@ -578,6 +637,124 @@ class ImportServiceTest extends AbstractTest {
 		assertFalse(branchService.findLatest("MAIN").getMetadata().containsKey(IMPORTING_CODE_SYSTEM_VERSION));
 	}
 
+	@Test
+	void testBulkLoadImportRestoresIndexSettings() throws IOException, ReleaseImportException {
+		Map<String, Object> settingsBefore = elasticsearchTemplate.indexOps(Concept.class).getSettings();
+
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/import-tests/refset-snapshot-import");
+		String importId = importService.createJob(new RF2ImportConfiguration(RF2Type.SNAPSHOT, "MAIN").setBulkLoad(true));
+		importService.importArchive(importId, new FileInputStream(zipFile));
+
+		assertNotNull(referenceSetMemberService.findMember("MAIN", "01a78d22-ad0b-5e76-8fd4-9fed481e5de5"));
+		Map<String, Object> settingsAfter = elasticsearchTemplate.indexOps(Concept.class).getSettings();
+		assertEquals(settingsBefore.get(BulkLoadIndexSettingsService.REFRESH_INTERVAL), settingsAfter.get(BulkLoadIndexSettingsService.REFRESH_INTERVAL));
+		assertEquals(settingsBefore.get(BulkLoadIndexSettingsService.TRANSLOG_DURABILITY), settingsAfter.get(BulkLoadIndexSettingsService.TRANSLOG_DURABILITY));
+		assertEquals("[apply-bulk-load-settings, load-components, restore-index-settings]",
+				importService.getImportJobOrThrow(importId).getPhaseTimings().keySet().toString());
+	}
+
+	@Test
+	void testResumableImportMergedFromImportBranch() throws IOException, ReleaseImportException {
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/import-tests/refset-snapshot-import");
+		String importId = importService.createJob(new RF2ImportConfiguration(RF2Type.SNAPSHOT, "MAIN").setResumable(true));
+
+		// Fail before any components are loaded
+		InputStream failingStream = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		};
+		Assertions.assertThrows(ReleaseImportException.class, () -> importService.importArchive(importId, failingStream));
+		ImportJob importJob = importService.getImportJobOrThrow(importId);
+		assertEquals(ImportJob.ImportStatus.FAILED, importJob.getStatus());
+		String importBranchPath = importJob.getImportBranchPath();
+		assertTrue(importBranchPath.startsWith("MAIN/import-"));
+		assertNull(referenceSetMemberService.findMember("MAIN", "01a78d22-ad0b-5e76-8fd4-9fed481e5de5"));
+
+		// Resume by uploading the archive again
+		importService.importArchive(importId, new FileInputStream(zipFile));
+
+		assertEquals(ImportJob.ImportStatus.COMPLETED, importJob.getStatus());
+		assertEquals(importBranchPath, importJob.getImportBranchPath());
+		assertEquals(Arrays.asList(ImportComponentFactoryImpl.CORE_COMPONENTS_CHECKPOINT, "components", "merged"), importJob.getCheckpoints());
+		assertNotNull(referenceSetMemberService.findMember("MAIN", "01a78d22-ad0b-5e76-8fd4-9fed481e5de5"));
+		assertFalse(branchService.findLatest("MAIN").isLocked());
+		assertFalse("Import branch deleted once merged.", branchService.exists(importBranchPath));
+	}
+
+	@Test
+	void testResumableImportSemanticIndexMatchesSingleCommitImport() throws IOException, ReleaseImportException {
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/dummy-snomed-content/SnomedCT_MiniRF2");
+		branchService.create("MAIN/A");
+		branchService.create("MAIN/B");
+		importService.importArchive(importService.createJob(RF2Type.SNAPSHOT, "MAIN/A", false, false), new FileInputStream(zipFile));
+
+		// Core components are committed before the members, the semantic index is built once the axioms are loaded
+		String importId = importService.createJob(new RF2ImportConfiguration(RF2Type.SNAPSHOT, "MAIN/B").setResumable(true));
+		importService.importArchive(importId, new FileInputStream(zipFile));
+		assertTrue(importService.getImportJobOrThrow(importId).getCheckpoints().contains(ImportComponentFactoryImpl.CORE_COMPONENTS_CHECKPOINT));
+
+		Set<String> statedDescendants = getIdSet(statedEclQuery("MAIN/A", "<< " + Concepts.SNOMEDCT_ROOT));
+		assertFalse(statedDescendants.isEmpty());
+		assertEquals(statedDescendants, getIdSet(statedEclQuery("MAIN/B", "<< " + Concepts.SNOMEDCT_ROOT)));
+		assertEquals(getIdSet(inferredEclQuery("MAIN/A", "<< " + Concepts.SNOMEDCT_ROOT)), getIdSet(inferredEclQuery("MAIN/B", "<< " + Concepts.SNOMEDCT_ROOT)));
+	}
+
+	@Test
+	void testArchiveStreamReadBeforeReturning() throws IOException, InterruptedException {
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/import-tests/refset-snapshot-import");
+		String importId = importService.createJob(RF2Type.SNAPSHOT, "MAIN", false, false);
+		ByteArrayInputStream requestBody = new ByteArrayInputStream(Files.readAllBytes(zipFile.toPath()));
+
+		importService.importArchiveStreamAsync(importId, "MAIN", requestBody);
+		assertEquals("Whole request body read before returning.", 0, requestBody.available());
+
+		ImportJob importJob = importService.getImportJobOrThrow(importId);
+		for (int i = 0; i < 600 && importJob.getStatus() == ImportJob.ImportStatus.RUNNING; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(ImportJob.ImportStatus.COMPLETED, importJob.getStatus());
+		assertNotNull(referenceSetMemberService.findMember("MAIN", "01a78d22-ad0b-5e76-8fd4-9fed481e5de5"));
+	}
+
+	@Test
+	void testArchiveStreamFailureReturnsError() throws IOException {
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/import-tests/refset-snapshot-import");
+		String importId = importService.createJob(RF2Type.SNAPSHOT, "MAIN", false, false);
+		byte[] archive = Files.readAllBytes(zipFile.toPath());
+		// Connection lost half way through the archive
+		InputStream requestBody = new SequenceInputStream(new ByteArrayInputStream(archive, 0, archive.length / 2), new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		});
+
+		Assertions.assertThrows(RuntimeServiceException.class, () -> importService.importArchiveStreamAsync(importId, "MAIN", requestBody));
+		assertEquals(ImportJob.ImportStatus.FAILED, importService.getImportJobOrThrow(importId).getStatus());
+		assertFalse(branchService.findLatest("MAIN").isLocked());
+	}
+
+	@Test
+	void testArchiveStreamWithStoredEntryAfterFirst() throws IOException, InterruptedException {
+		File zipFile = ZipUtil.zipDirectoryRemovingCommentsAndBlankLines("src/test/resources/import-tests/refset-snapshot-import");
+		String importId = importService.createJob(RF2Type.SNAPSHOT, "MAIN", false, false);
+		// The first entry can be read in order, a later one is stored with its sizes in a data descriptor
+		byte[] archive = storeLaterEntriesWithDataDescriptor(zipFile);
+		ByteArrayInputStream requestBody = new ByteArrayInputStream(archive);
+
+		importService.importArchiveStreamAsync(importId, "MAIN", requestBody);
+		assertEquals("Whole request body read before returning.", 0, requestBody.available());
+
+		ImportJob importJob = importService.getImportJobOrThrow(importId);
+		for (int i = 0; i < 600 && importJob.getStatus() != ImportJob.ImportStatus.COMPLETED && importJob.getStatus() != ImportJob.ImportStatus.FAILED; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(ImportJob.ImportStatus.COMPLETED, importJob.getStatus());
+		assertNotNull(referenceSetMemberService.findMember("MAIN", "01a78d22-ad0b-5e76-8fd4-9fed481e5de5"));
+	}
+
 	@Test
 	void testImportBadFileRollback() throws IOException, ReleaseImportException {
 		final long commitBeforeImport = branchService.findLatest("MAIN").getHeadTimestamp();
@@ -602,6 +779,43 @@ class ImportServiceTest extends AbstractTest {
 				"Commit after import must be equal to commit before import because the import commut must roll back");
 	}
 
+	private byte[] storeLaterEntriesWithDataDescriptor(File zipFile) throws IOException {
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		List<String> storedEntryNames = new ArrayList<>();
+		try (ZipFile source = new ZipFile(zipFile);
+			 ZipOutputStream zipOutputStream = new ZipOutputStream(archive)) {
+			Enumeration<? extends ZipEntry> entries = source.entries();
+			boolean first = true;
+			while (entries.hasMoreElements()) {
+				ZipEntry sourceEntry = entries.nextElement();
+				byte[] bytes = source.getInputStream(sourceEntry).readAllBytes();
+				ZipEntry entry = new ZipEntry(sourceEntry.getName());
+				if (!first && !sourceEntry.isDirectory()) {
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(bytes.length);
+					CRC32 crc = new CRC32();
+					crc.update(bytes);
+					entry.setCrc(crc.getValue());
+					storedEntryNames.add(entry.getName());
+				}
+				first = first && sourceEntry.isDirectory();
+				zipOutputStream.putNextEntry(entry);
+				zipOutputStream.write(bytes);
+			}
+		}
+		assertFalse(storedEntryNames.isEmpty());
+		byte[] bytes = archive.toByteArray();
+		String archiveString = new String(bytes, StandardCharsets.ISO_8859_1);
+		for (String name : storedEntryNames) {
+			// Set the data descriptor flag in the local header and the central directory header
+			int localHeader = archiveString.indexOf(name) - 30;
+			int centralHeader = archiveString.lastIndexOf(name) - 46;
+			bytes[localHeader + 6] |= 0x08;
+			bytes[centralHeader + 8] |= 0x08;
+		}
+		return bytes;
+	}
+
 	private void collectContentCounts(List<Concept> concepts, Map<String, AtomicInteger> conceptDefinitionStatuses, Map<String, AtomicInteger> descriptionCaseSignificance, Map<String, AtomicInteger> descriptionAcceptability, Map<Integer, AtomicInteger> relationshipGroups) {
 		conceptDefinitionStatuses.clear();
 		descriptionCaseSignificance.clear();
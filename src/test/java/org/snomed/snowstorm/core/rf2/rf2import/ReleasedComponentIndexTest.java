@@ -0,0 +1,57 @@
+package org.snomed.snowstorm.core.rf2.rf2import;
+
+import org.junit.jupiter.api.Test;
+import org.snomed.snowstorm.core.rf2.rf2import.ReleasedComponentIndex.ReleasedState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReleasedComponentIndexTest {
+
+	@Test
+	void testLookup() {
+		ReleasedComponentIndex index = new ReleasedComponentIndex(1);
+		assertTrue(index.add("900000000000207008", 20020131, true, 20020131, "hash-a"));
+		assertTrue(index.add("100005", null, false, null, null));
+		assertTrue(index.add("2b59d1d2-5e4c-4d1e-a3a4-6a1d8f0c2e11", 20200131, true, 20190731, "hash-b"));
+		assertTrue(index.add("100001", 20200731, false, null, null));
+		index.complete();
+
+		assertEquals(4, index.size());
+		ReleasedState concept = index.get("900000000000207008");
+		assertEquals(20020131, (int) concept.getEffectiveTime());
+		assertTrue(concept.isReleased());
+		assertEquals(20020131, (int) concept.getReleasedEffectiveTime());
+		assertNull(concept.getReleaseHash(), "Only a fingerprint of the hash is held.");
+		assertTrue(concept.isReleaseHashFingerprint("hash-a"));
+		assertFalse(concept.isReleaseHashFingerprint("hash-b"));
+
+		ReleasedState unreleased = index.get("100005");
+		assertNull(unreleased.getEffectiveTime());
+		assertFalse(unreleased.isReleased());
+
+		ReleasedState member = index.get("2b59d1d2-5e4c-4d1e-a3a4-6a1d8f0c2e11");
+		assertEquals(20190731, (int) member.getReleasedEffectiveTime());
+		assertTrue(member.isReleaseHashFingerprint("hash-b"));
+
+		assertEquals(20200731, (int) index.get("100001").getEffectiveTime());
+		assertNull(index.get("100002"));
+		assertNull(index.get("2b59d1d2-5e4c-4d1e-a3a4-6a1d8f0c2e12"));
+	}
+
+	@Test
+	void testNonCanonicalIdsRejected() {
+		ReleasedComponentIndex index = new ReleasedComponentIndex(1);
+		assertFalse(index.add("0100001", 20200131, true, 20200131, "hash"), "Leading zero would share a key with 100001.");
+		assertFalse(index.add("2B59D1D2-5E4C-4D1E-A3A4-6A1D8F0C2E11", 20200131, true, 20200131, "hash"), "Upper case UUID.");
+		assertFalse(index.add("not-an-id", 20200131, true, 20200131, "hash"));
+		index.complete();
+		assertNull(index.get("0100001"));
+	}
+
+	@Test
+	void testIncompleteIndex() {
+		ReleasedComponentIndex index = new ReleasedComponentIndex(1);
+		index.add("100001", 20200131, true, 20200131, "hash");
+		assertThrows(IllegalStateException.class, () -> index.get("100001"));
+	}
+}
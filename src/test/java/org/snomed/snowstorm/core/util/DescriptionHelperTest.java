@@ -38,6 +38,14 @@ class DescriptionHelperTest {
 		assertEquals("spælsau sheep breed (organism) spælsau", DescriptionHelper.foldTerm("Spælsau sheep breed (organism) Spælsau", charactersNotFolded));
 	}
 
+	@Test
+	void getTermTrigrams() {
+		assertEquals(Sets.newHashSet("hea", "ear", "art"), DescriptionHelper.getTermTrigrams("Heart"));
+		assertEquals(Sets.newHashSet("a-b", "-b,"), DescriptionHelper.getTermTrigrams("A-B,"));
+		assertEquals(Sets.newHashSet("aaa"), DescriptionHelper.getTermTrigrams("aaaa"));
+		assertTrue(DescriptionHelper.getTermTrigrams("ab").isEmpty());
+	}
+
 	@Test
 	void testGetPtDescription() {
 		String danishLanguageReferenceSet = "554461000005103";
@@ -891,6 +891,24 @@ class ConceptControllerTest extends AbstractTest {
 		assertEquals(200, responseEntity.getStatusCodeValue());
 	}
 
+	@Test
+	void testStreamingBulkLoad() throws URISyntaxException {
+		List<String> conceptIds = Arrays.asList("257751006", null, "257751006", "100000000");
+		ConceptBulkLoadRequest conceptBulkLoadRequest = new ConceptBulkLoadRequest(conceptIds, Collections.emptySet());
+		RequestEntity<?> request = new RequestEntity<>(conceptBulkLoadRequest, HttpMethod.POST, new URI("http://localhost:" + port + "/browser/MAIN/concepts/bulk-load/stream"));
+
+		ResponseEntity<List<Concept>> responseEntity = this.restTemplate.exchange(request, new ParameterizedTypeReference<List<Concept>>() {});
+
+		assertEquals(200, responseEntity.getStatusCodeValue());
+		List<Concept> concepts = responseEntity.getBody();
+		assertNotNull(concepts);
+		assertEquals("Duplicate, null and missing ids are skipped.", 1, concepts.size());
+		Concept concept = concepts.get(0);
+		assertEquals("257751006", concept.getConceptId());
+		assertEquals(2, concept.getDescriptions().size());
+		assertEquals(1, concept.getClassAxioms().size());
+	}
+
 	@Test
 	void testAcceptLanguageHeaderWithWhitespaceBetweenValues() throws URISyntaxException {
 		//given